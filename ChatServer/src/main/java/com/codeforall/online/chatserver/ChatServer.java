@@ -1,11 +1,52 @@
 package com.codeforall.online.chatserver;
 
+import com.codeforall.online.chatserver.broadcast.BroadcastShards;
+import com.codeforall.online.chatserver.broadcast.ShardedClientSet;
+import com.codeforall.online.chatserver.cluster.ClusterNode;
+import com.codeforall.online.chatserver.cluster.TcpPeerMesh;
+import com.codeforall.online.chatserver.commands.CommandRegistry;
+import com.codeforall.online.chatserver.handoff.Handoff;
+import com.codeforall.online.chatserver.handoff.HandoffListener;
+import com.codeforall.online.chatserver.handoff.SessionTicket;
+import com.codeforall.online.chatserver.handoff.SessionTickets;
+import com.codeforall.online.chatserver.history.MessageLog;
+import com.codeforall.online.chatserver.idle.IdleReaper;
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.metrics.MetricsHttpEndpoint;
+import com.codeforall.online.chatserver.metrics.MetricsView;
+import com.codeforall.online.chatserver.metrics.ServerMetrics;
+import com.codeforall.online.chatserver.ratelimit.RateLimiter;
+import com.codeforall.online.chatserver.rooms.Room;
+import com.codeforall.online.chatserver.rooms.RoomManager;
+import com.codeforall.online.chatserver.transport.BlockingOutboundWriter;
+import com.codeforall.online.chatserver.transport.ByteArrayPool;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+import com.codeforall.online.chatserver.transport.FlushPolicy;
+import com.codeforall.online.chatserver.transport.InboundDecoder;
+import com.codeforall.online.chatserver.transport.NioTransport;
+import com.codeforall.online.chatserver.transport.OutboundStats;
+
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.net.StandardSocketOptions;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * Main server class responsible for accepting client connections,
@@ -14,14 +55,44 @@ import java.util.concurrent.Executors;
 public class ChatServer {
 
     private final int port;
-    private final CopyOnWriteArrayList<ClientHandler> clients = new CopyOnWriteArrayList<>();
+    private final ServerConfig config;
+    private final ClientRegistry clients;
+    private final PresenceView presence;
+    private final RoomManager rooms;
+    private final BroadcastShards broadcastShards;
+    private final CommandRegistry commands = CommandRegistry.load();
+    private final ByteArrayPool lineBuffers;
+    private final RateLimiter rateLimiter;
+    private final IdleReaper idleReaper;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final EventLog log;
+    private final MessageLog history;
+    private final ClusterNode cluster;
+    private final Path handoffPath;
+    private final SessionTickets tickets;
+    private final Map<String, ClientHandler> liveSessions = new ConcurrentHashMap<>();
+    private final Map<ClientHandler, String> handoffTokens = new ConcurrentHashMap<>();
+    private HandoffListener handoff;
+    private MetricsHttpEndpoint metricsEndpoint;
+    private ObjectName metricsName;
 
-    private ServerSocket serverSocket;
+    private ServerSocketChannel serverChannel;
+    private volatile NioTransport transport;
+    private final OutboundStats outboundStats = new OutboundStats();
+    private final FlushPolicy flushPolicy;
     private volatile boolean running = false;
+    private final AtomicBoolean stopping = new AtomicBoolean(false);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile DrainReport drainReport;
 
     private static final String ADMIN_PASSWORD = "supersecret";
+    private static final long SHARD_DRAIN_MILLIS = 1000;
+    private static final long DRAIN_POLL_MILLIS = 10;
+    private static final long EXIT_WAIT_MILLIS = 5000;
+    private static final int LINE_BUFFER_POOL_SIZE = 256;
 
-    private final ExecutorService clientPool = Executors.newCachedThreadPool();
+    private ExecutorService clientPool;
 
     /**
      * Creates a new chat server on the given port.
@@ -29,67 +100,509 @@ public class ChatServer {
      * @param port the port to listen on
      */
     public ChatServer(int port) {
+        this(port, new ServerConfig());
+    }
+
+    /**
+     * Creates a new chat server on the given port with custom settings.
+     *
+     * @param port   the port to listen on
+     * @param config the server settings
+     */
+    public ChatServer(int port, ServerConfig config) {
         this.port = port;
+        this.config = config;
+        this.flushPolicy = config.getFlushPolicy();
+        this.log = new EventLog(config.getLogLevel(), config.getLogBufferSize());
+        this.history = config.getHistoryDirectory().isEmpty()
+                ? null
+                : new MessageLog(Path.of(config.getHistoryDirectory()), config.getHistorySegmentBytes(),
+                        config.getHistoryMaxSegments(), log);
+        this.cluster = config.getClusterPort() > 0 ? newClusterNode() : null;
+        this.handoffPath = config.getHandoffSocket().isEmpty() ? null : Path.of(config.getHandoffSocket());
+        this.tickets = new SessionTickets(config.getResumeTtlSeconds());
+
+        int shardCount = Math.max(1, config.getBroadcastShards());
+        this.clients = new ClientRegistry(shardCount);
+        this.presence = new PresenceView(config.getListPageSize());
+        this.rooms = new RoomManager(shardCount);
+        this.broadcastShards = config.getBroadcastShards() > 0
+                ? new BroadcastShards(config.getBroadcastShards(), metrics)
+                : null;
+        this.lineBuffers = new ByteArrayPool(config.getMaxLineLength() + 1, LINE_BUFFER_POOL_SIZE);
+        this.rateLimiter = new RateLimiter(config.getClientMessagesPerSecond(), config.getClientMessageBurst(),
+                config.getGlobalMessagesPerSecond(), config.getGlobalMessageBurst());
+        this.idleReaper = config.getIdleTimeoutSeconds() > 0
+                ? new IdleReaper(config.getHeartbeatSeconds(), config.getIdleTimeoutSeconds())
+                : null;
     }
 
     /**
-     * Starts the server loop, accepts incoming clients,
-     * and launches a dedicated handler thread for each connection.
+     * Joins this server to the configured cluster over a {@link TcpPeerMesh}.
+     * Without an explicit node id, the node is named after its chat port.
+     */
+    private ClusterNode newClusterNode() {
+        String nodeId = config.getClusterNodeId().isEmpty() ? "node-" + port : config.getClusterNodeId();
+        return new ClusterNode(this,
+                new TcpPeerMesh(nodeId, config.getClusterBindAddress(), config.getClusterPort(),
+                        config.getClusterPeers(), config.getClusterSecret(), log), nodeId);
+    }
+
+    /**
+     * Starts the server using the configured {@link ServerMode}
+     * and blocks until it is shut down. Pending history and log events are
+     * written before it returns.
+     * <p>
+     * With a handoff socket configured, a server already running on the
+     * same port is taken over first: its sessions are handed to this one
+     * and it is waited for to exit, see {@link Handoff}.
      */
     public void init() {
         try {
-            serverSocket = new ServerSocket(port);
-            running = true;
-            System.out.println("Chat server listening on port: " + port);
+            if (openListener() && takeOver() && openHistory() && joinCluster() && !stopping.get()) {
+                if (idleReaper != null) {
+                    idleReaper.start();
+                }
+                startMetrics();
+                running = true;
+                startHandoffListener();
+
+                if (config.getMode() == ServerMode.NIO) {
+                    initNio();
+                } else {
+                    initBlocking();
+                }
+            } else {
+                closeListener();
+            }
+        } finally {
+            if (cluster != null) {
+                cluster.close();
+            }
+            if (history != null) {
+                history.close();
+            }
+            if (handoff != null) {
+                handoff.close();
+            }
+            log.close();
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Binds the listening socket. When hot restarts are on, the port is
+     * shared with {@code SO_REUSEPORT}, so a new server can bind it while
+     * the old one still runs and no connection attempt is refused in between.
+     *
+     * @return false if the port could not be bound
+     */
+    private boolean openListener() {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            if (handoffPath != null && serverChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            serverChannel.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            log.log(LogLevel.ERROR, EventType.ERROR, "Could not start server: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Takes over the sessions of the server running before this one, if
+     * hot restarts are on and one is running, and waits for it to exit.
+     *
+     * @return false if a previous server answered but the handoff failed
+     */
+    private boolean takeOver() {
+        if (handoffPath == null) {
+            return true;
+        }
+        try {
+            List<SessionTicket> handedOver = Handoff.takeOver(handoffPath,
+                    config.getShutdownDrainMillis() + EXIT_WAIT_MILLIS);
+            for (SessionTicket ticket : handedOver) {
+                tickets.add(ticket);
+            }
+            if (!handedOver.isEmpty()) {
+                log.log(LogLevel.INFO, EventType.SERVER, "Took over " + handedOver.size()
+                        + " sessions from the previous server");
+            }
+            return true;
+        } catch (IOException e) {
+            log.log(LogLevel.ERROR, EventType.ERROR, "Could not take over from the previous server: "
+                    + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the next server on the handoff socket, if hot restarts are on.
+     * Failing to listen is reported but does not stop the server.
+     */
+    private void startHandoffListener() {
+        if (handoffPath == null) {
+            return;
+        }
+        handoff = new HandoffListener(handoffPath, this::releaseSessions, handoffTokens::clear, this::shutdown, log);
+        try {
+            handoff.start();
+        } catch (IOException e) {
+            handoff = null;
+            log.log(LogLevel.WARN, EventType.ERROR, "Could not listen for hot restarts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hands the sessions over to the next server by making a ticket of every
+     * session. The server keeps accepting until the next one has acknowledged
+     * them, so a failed handoff leaves it serving; a client that joins in
+     * between is simply asked to reconnect without a token. The
+     * {@link #shutdown()} that follows sends each client its token once more
+     * with the reconnect hint.
+     *
+     * @return the tickets for the next server
+     */
+    List<SessionTicket> releaseSessions() {
+        List<SessionTicket> released = new ArrayList<>(clients.size());
+        for (ClientHandler client : clients) {
+            if (!client.isJoined()) {
+                continue;
+            }
+            String token = client.getSessionToken();
+            if (token == null) {
+                token = SessionTicket.newToken();
+            }
+            handoffTokens.put(client, token);
+            released.add(ticketFor(client, token));
+        }
+        return released;
+    }
+
+    /**
+     * Starts a resumable session for a client that has just joined.
+     *
+     * @param client the client
+     * @return the token the client needs to resume the session
+     */
+    public String openSession(ClientHandler client) {
+        String token = SessionTicket.newToken();
+        liveSessions.put(token, client);
+        return token;
+    }
+
+    /**
+     * Ends a client's session. If the connection was lost rather than
+     * closed on purpose, the session is kept for
+     * {@link ServerConfig#getResumeTtlSeconds()} and its username stays
+     * reserved. Must run before the client's name is released.
+     *
+     * @param client the client whose connection ended
+     * @param keep   true if the client may resume the session
+     */
+    public void closeSession(ClientHandler client, boolean keep) {
+        String token = client.getSessionToken();
+        if (token == null || !liveSessions.remove(token, client)) {
+            return;
+        }
+        if (keep && running) {
+            tickets.add(ticketFor(client, token));
+        }
+    }
+
+    /**
+     * Takes over the session a token belongs to and claims its username for
+     * the client: a session kept after its connection dropped, one handed
+     * over by the previous server, or one whose old connection this server
+     * has not yet noticed is dead, which is then closed without telling the
+     * room. The ticket is only used up once the name is claimed, so a resume
+     * that fails can be tried again with the same token; one that succeeds
+     * cannot.
+     *
+     * @param token  the token the client presented
+     * @param client the client resuming the session
+     * @return the session, or null if the token is unknown or expired or the name could not be claimed
+     */
+    public SessionTicket resumeSession(String token, ClientHandler client) {
+        SessionTicket ticket = tickets.peek(token);
+        if (ticket == null) {
+            ClientHandler stale = liveSessions.remove(token);
+            if (stale == null) {
+                return null;
+            }
+            ticket = ticketFor(stale, token);
+            tickets.add(ticket);
+            stale.replace();
+        }
+
+        if (!claimName(ticket.name(), client, token)) {
+            return null;
+        }
+        tickets.redeem(token);
+        return ticket;
+    }
+
+    /**
+     * Makes a ticket of a client's current session.
+     */
+    private SessionTicket ticketFor(ClientHandler client, String token) {
+        Room room = client.getRoom();
+        return new SessionTicket(token, client.getName(), client.isAdmin(),
+                room != null ? room.getName() : RoomManager.LOBBY, history != null ? history.mark() : -1);
+    }
+
+    /**
+     * Opens the message history, if one is configured.
+     *
+     * @return false if the history could not be opened
+     */
+    private boolean openHistory() {
+        if (history == null) {
+            return true;
+        }
+        try {
+            history.open();
+            return true;
+        } catch (IOException e) {
+            log.log(LogLevel.ERROR, EventType.ERROR, "Could not open message history: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Starts talking to the other cluster nodes, if a cluster is configured.
+     *
+     * @return false if the cluster transport could not start
+     */
+    private boolean joinCluster() {
+        if (cluster == null) {
+            return true;
+        }
+        try {
+            cluster.start();
+            return true;
+        } catch (IOException e) {
+            log.log(LogLevel.ERROR, EventType.ERROR, "Could not join the cluster: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Runs the non-blocking transport: a fixed set of selector loops
+     * serves every connection.
+     */
+    private void initNio() {
+        transport = new NioTransport(this, serverChannel, config.getIoThreads());
+        if (!running) {
+            // handed off before the transport existed
+            transport.stopAccepting();
+        }
+
+        try {
+            transport.run();
+        } catch (IOException e) {
+            log.log(LogLevel.ERROR, EventType.ERROR, "Could not start server: " + e.getMessage());
+        } finally {
+            running = false;
+            log.log(LogLevel.INFO, EventType.SERVER, "Server fully terminated");
+        }
+    }
+
+    /**
+     * Starts the server loop, accepts incoming clients,
+     * and launches a dedicated handler thread for each connection,
+     * plus one that writes its output, so two threads per client.
+     * In {@link ServerMode#VIRTUAL} mode those threads are virtual.
+     */
+    private void initBlocking() {
+        clientPool = newClientPool();
+
+        try {
+            log.log(LogLevel.INFO, EventType.SERVER, "Chat server listening on port " + port
+                    + " (" + config.getMode().name().toLowerCase() + ")");
 
             while (running) {
                 try {
-                    Socket clientSocket = serverSocket.accept();
+                    SocketChannel clientChannel = serverChannel.accept();
+                    Socket clientSocket = clientChannel.socket();
 
                     ClientHandler client = new ClientHandler(this, clientSocket);
-                    clients.add(client);
+                    addClient(client);
 
                     clientPool.submit(client);
+                    clientPool.submit(new BlockingOutboundWriter(
+                            client.getOutbound(), clientChannel, flushPolicy, outboundStats));
 
-                    System.out.println(
-                            "Client connected: [" + clientSocket.getInetAddress()
-                                    + ":" + clientSocket.getPort() + "]");
+                    log.log(LogLevel.INFO, EventType.CONNECT, "Client connected",
+                            null, String.valueOf(clientSocket.getRemoteSocketAddress()));
 
                 } catch (IOException e) {
                     if (!running) {
-                        System.out.println("Server stopped.");
+                        log.log(LogLevel.INFO, EventType.SERVER, "Server stopped");
                         break;
                     }
-                    System.out.println("Error accepting client: " + e.getMessage());
+                    log.log(LogLevel.WARN, EventType.ERROR, "Error accepting client: " + e.getMessage());
                 }
             }
 
-        } catch (IOException e) {
-            System.out.println("Could not start server: " + e.getMessage());
         } finally {
+            closeListener();
 
-            try {
-                if (serverSocket != null && !serverSocket.isClosed()) {
-                    serverSocket.close();
-                }
-            } catch (IOException e) {
-                System.out.println("Error closing server socket: " + e.getMessage());
+            if (stopping.get()) {
+                awaitStopped();
             }
+            stopClientPool();
+            log.log(LogLevel.INFO, EventType.SERVER, "Server fully terminated");
+        }
+    }
 
+    /**
+     * Lets client writers flush their last messages for a short while,
+     * then interrupts whatever is still running.
+     */
+    private void stopClientPool() {
+        clientPool.shutdown();
+        try {
+            if (!clientPool.awaitTermination(2, TimeUnit.SECONDS)) {
+                clientPool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
             clientPool.shutdownNow();
-            System.out.println("Server fully terminated.");
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Sends a message to all connected clients.
+     * Creates the executor that runs one {@link ClientHandler} per connection.
+     * Virtual threads need a Java 21 runtime; on older runtimes the server
+     * falls back to a cached pool of platform threads.
+     *
+     * @return the executor for client handlers
+     */
+    private ExecutorService newClientPool() {
+        if (config.getMode() == ServerMode.VIRTUAL) {
+            if (VirtualThreads.isSupported()) {
+                return VirtualThreads.newPerTaskExecutor();
+            }
+            log.log(LogLevel.WARN, EventType.SERVER, "Virtual threads need Java 21, using platform threads instead");
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Sends a message to all connected clients, on this node and,
+     * in a cluster, on every other node.
+     * The message is encoded once and the bytes are shared by every recipient.
      *
      * @param message the message to broadcast
      */
     public void broadcast(String message) {
-        for (ClientHandler client : clients) {
+        deliver(clients.members(), null, message);
+        if (cluster != null) {
+            cluster.publishBroadcast(message);
+        }
+    }
+
+    /**
+     * Sends a message to the members of one room only, so the cost
+     * grows with the room size rather than with all connections.
+     * The message is also kept in the room's history, if there is one,
+     * and in a cluster it reaches the room of the same name on every node.
+     *
+     * @param room    the target room
+     * @param message the message to broadcast
+     */
+    public void broadcastToRoom(Room room, String message) {
+        deliver(room.members(), room.getName(), message);
+        if (cluster != null) {
+            cluster.publishToRoom(room.getName(), message);
+        }
+    }
+
+    /**
+     * Delivers a broadcast that another cluster node relayed.
+     *
+     * @param message the message
+     */
+    public void relayBroadcast(String message) {
+        deliver(clients.members(), null, message);
+    }
+
+    /**
+     * Delivers a room message that another cluster node relayed.
+     * Nobody receives it if the room does not exist here, but it is still
+     * kept in the history.
+     *
+     * @param roomName the room name
+     * @param message  the message
+     */
+    public void relayToRoom(String roomName, String message) {
+        Room room = rooms.find(roomName);
+        deliver(room != null ? room.members() : null, room != null ? room.getName() : roomName, message);
+    }
+
+    /**
+     * Delivers a private message that another cluster node relayed.
+     *
+     * @param name    the recipient's username
+     * @param message the message as the recipient should see it
+     */
+    public void relayWhisper(String name, String message) {
+        ClientHandler client = clients.findByName(name);
+        if (client != null) {
+            client.send(message);
+        }
+    }
+
+    /**
+     * Encodes a message once, queues it for the local recipients and
+     * appends it to the history.
+     *
+     * @param recipients the local clients to reach, or null for none
+     * @param roomName   the room the message belongs to, or null for every room
+     * @param message    the message
+     */
+    private void deliver(ShardedClientSet recipients, String roomName, String message) {
+        EncodedMessage encoded = EncodedMessage.of(message);
+        if (recipients != null) {
+            fanOut(recipients, encoded);
+        }
+        if (history != null) {
+            history.append(roomName, encoded);
+        }
+    }
+
+    /**
+     * Queues a message for a set of clients, either on the calling thread
+     * or, when broadcast shards are configured, in parallel on the shard workers.
+     *
+     * @param recipients the clients to reach
+     * @param message    the encoded message
+     */
+    private void fanOut(ShardedClientSet recipients, EncodedMessage message) {
+        if (broadcastShards != null) {
+            broadcastShards.fanOut(recipients, message);
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (ClientHandler client : recipients) {
             client.send(message);
         }
+        metrics.fanOut(System.nanoTime() - start);
+    }
+
+    /**
+     * Adds a newly connected client to the server list.
+     *
+     * @param client the client to add
+     */
+    public void addClient(ClientHandler client) {
+        clients.add(client);
+        metrics.connectionAccepted();
     }
 
     /**
@@ -98,7 +611,105 @@ public class ChatServer {
      * @param client the client to remove
      */
     public void removeClient(ClientHandler client) {
-        clients.remove(client);
+        boolean named = clients.remove(client);
+        rooms.leave(client);
+        if (!named) {
+            return;
+        }
+        presence.remove(client, client.getName());
+        if (cluster != null) {
+            cluster.left(client.getName());
+        }
+    }
+
+    /**
+     * Checks that a username contains no control characters. Chat lines
+     * start with the sender's name, so a name opening with NUL could make
+     * a line pass for a control line such as {@code \0RECONNECT}.
+     *
+     * @param name the requested username
+     * @return true if the name may be used
+     */
+    public static boolean isValidUsername(String name) {
+        return name.chars().noneMatch(Character::isISOControl);
+    }
+
+    /**
+     * Reserves a username for a client that is joining the chat.
+     * Names are unique ignoring case; the check and the reservation
+     * happen in one atomic step. In a cluster, names announced by
+     * other nodes are refused too, and so are names held for sessions
+     * handed over by a previous server.
+     *
+     * @param name   the requested username
+     * @param client the client asking for it
+     * @return true if the name was free and is now taken by the client
+     */
+    public boolean claimName(String name, ClientHandler client) {
+        return claimName(name, client, null);
+    }
+
+    /**
+     * Reserves a username like {@link #claimName(String, ClientHandler)},
+     * but lets the client holding a session's token take the name that
+     * session keeps reserved.
+     */
+    private boolean claimName(String name, ClientHandler client, String token) {
+        String holder = tickets.holder(name);
+        if (holder != null && !holder.equals(token) || cluster != null && cluster.isRemoteName(name)) {
+            return false;
+        }
+        if (!clients.claimName(name, client)) {
+            return false;
+        }
+        presence.add(client, name);
+        if (cluster != null) {
+            cluster.joined(name);
+        }
+        return true;
+    }
+
+    /**
+     * Changes a client's username, keeping the name index in sync.
+     *
+     * @param client  the client being renamed
+     * @param newName the requested username
+     * @return true if the client was renamed, false if the name is taken
+     */
+    public boolean renameClient(ClientHandler client, String newName) {
+        String oldName = client.getName();
+        if (!oldName.equalsIgnoreCase(newName)
+                && (tickets.isReserved(newName) || cluster != null && cluster.isRemoteName(newName))) {
+            return false;
+        }
+        if (!clients.rename(client, newName)) {
+            return false;
+        }
+        presence.remove(client, oldName);
+        presence.add(client, newName);
+        if (cluster != null) {
+            cluster.left(oldName);
+            cluster.joined(newName);
+        }
+        return true;
+    }
+
+    /**
+     * Lists the usernames taken on this node.
+     *
+     * @return a snapshot of the local usernames
+     */
+    public List<String> localNames() {
+        return clients.names();
+    }
+
+    /**
+     * Gets the number of connected clients.
+     *
+     * @return the client count
+     */
+    public int getClientCount() {
+        return clients.size();
     }
 
     /**
@@ -110,28 +721,27 @@ public class ChatServer {
      * @return true if the message was delivered, false otherwise
      */
     public boolean whisper(String name, String message, ClientHandler from) {
-        String fromName = from.getName();
+        ClientHandler client = clients.findByName(name);
+        String text = from.getName() + " (whisper): " + message;
 
-        for (ClientHandler client : clients) {
-            if (client.getName().equalsIgnoreCase(name)) {
-                client.send(fromName + " (whisper): " + message);
-                return true;
-            }
+        if (client == null) {
+            return cluster != null && cluster.whisper(name, text);
         }
-        return false;
+
+        client.send(text);
+        return true;
     }
 
     /**
-     * Returns a formatted list of all clients currently online.
+     * Returns one page of the clients currently online, including those
+     * connected to other cluster nodes, sorted by name.
      *
-     * @return list of connected clients
+     * @param prefix only list names starting with this, ignoring case; null for everyone
+     * @param page   the page number, from 1
+     * @return the formatted list, shared with other callers until someone joins or leaves
      */
-    public String listClients() {
-        StringBuilder sb = new StringBuilder("Clients online:\n");
-        for (ClientHandler client : clients) {
-            sb.append(client.getName()).append("\n");
-        }
-        return sb.toString();
+    public EncodedMessage listClients(String prefix, int page) {
+        return presence.page(prefix, page);
     }
 
     /**
@@ -145,27 +755,337 @@ public class ChatServer {
     }
 
     /**
-     * Stops the server, disconnects all clients,
-     * and releases network resources.
+     * Stops the server gracefully. New connections are refused at once;
+     * every client is sent a reconnect hint, and the output still queued
+     * for the clients is written in parallel, by the I/O loops or writer
+     * threads, until {@link ServerConfig#getShutdownDrainMillis()} runs out.
+     * Connections still open then are cut off.
+     * <p>
+     * Blocks until the drain is over; must not be called on an I/O loop
+     * thread, which would then be unable to flush. Safe to call more than
+     * once: later calls wait for the first and return its report.
+     *
+     * @return how many sessions were drained and how many were cut off
      */
-    public void shutdown() {
+    public DrainReport shutdown() {
+        if (!stopping.compareAndSet(false, true)) {
+            awaitStopped();
+            return drainReport;
+        }
+        try {
+            drainReport = drain();
+        } finally {
+            stopped.countDown();
+        }
+        return drainReport;
+    }
+
+    /**
+     * Performs the shutdown described in {@link #shutdown()}.
+     */
+    private DrainReport drain() {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getShutdownDrainMillis());
         running = false;
 
+        if (idleReaper != null) {
+            idleReaper.shutdown();
+        }
+        stopAccepting();
+
+        if (broadcastShards != null) {
+            broadcastShards.shutdown(SHARD_DRAIN_MILLIS);
+        }
+
+        List<ClientHandler> sessions = new ArrayList<>(clients.size());
         for (ClientHandler client : clients) {
+            sessions.add(client);
+        }
+        for (ClientHandler client : sessions) {
+            String token = handoffTokens.get(client);
+            if (token != null) {
+                client.sendReconnectHint(token);
+            } else {
+                client.sendReconnectHint();
+            }
             client.shutdownCleanUp();
         }
+        awaitDisconnected(sessions, deadline);
 
+        int drained = 0;
+        for (ClientHandler client : sessions) {
+            if (client.isDrained()) {
+                drained++;
+            } else if (!client.isDisconnected()) {
+                client.abortConnection();
+            }
+        }
         clients.clear();
+        handoffTokens.clear();
+
+        DrainReport report = new DrainReport(sessions.size(), drained,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.log(LogLevel.INFO, EventType.SERVER, "Drained " + report.drained() + " of " + report.sessions()
+                + " sessions in " + report.elapsedMillis() + " ms, " + report.cutOff() + " cut off");
+
+        if (transport != null) {
+            transport.close();
+        }
+        stopMetrics();
+        return report;
+    }
 
+    /**
+     * Releases the listening port, so no new client connects while the
+     * existing ones are drained.
+     */
+    private void stopAccepting() {
+        if (transport != null) {
+            transport.stopAccepting();
+        }
+        closeListener();
+    }
+
+    /**
+     * Closes the listening socket, if it is open.
+     */
+    private void closeListener() {
         try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
             }
         } catch (IOException e) {
-            System.out.println("Error closing server socket: " + e.getMessage());
+            log.log(LogLevel.WARN, EventType.ERROR, "Error closing server socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Waits until every session's connection has closed or the deadline passes.
+     */
+    private static void awaitDisconnected(List<ClientHandler> sessions, long deadline) {
+        try {
+            for (ClientHandler client : sessions) {
+                while (!client.isDisconnected() && System.nanoTime() < deadline) {
+                    Thread.sleep(DRAIN_POLL_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for a shutdown in progress to finish draining.
+     */
+    private void awaitStopped() {
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Waits until {@link #init()} has released every resource and returned.
+     *
+     * @param timeoutMillis the longest time to wait
+     * @return true if the server terminated in time, false otherwise
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return terminated.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the outcome of the last shutdown.
+     *
+     * @return the drain report, or null if the server has not been shut down
+     */
+    public DrainReport getDrainReport() {
+        return drainReport;
+    }
+
+    /**
+     * Publishes the metrics over JMX and the HTTP endpoint, as configured.
+     * Failing to do so is reported but does not stop the server.
+     */
+    private void startMetrics() {
+        MetricsView view = new MetricsView(this);
+
+        if (config.isMetricsJmx()) {
+            try {
+                metricsName = new ObjectName("com.codeforall.online.chatserver:type=Metrics,port=" + port);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(view, metricsName);
+            } catch (JMException e) {
+                metricsName = null;
+                log.log(LogLevel.WARN, EventType.ERROR, "Could not register metrics MBean: " + e.getMessage());
+            }
+        }
+
+        if (config.getMetricsPort() > 0) {
+            try {
+                metricsEndpoint = new MetricsHttpEndpoint(view, config.getMetricsPort());
+                metricsEndpoint.start();
+                log.log(LogLevel.INFO, EventType.SERVER, "Metrics available at http://localhost:"
+                        + metricsEndpoint.getPort() + "/metrics");
+            } catch (IOException e) {
+                metricsEndpoint = null;
+                log.log(LogLevel.WARN, EventType.ERROR, "Could not start metrics endpoint: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Unpublishes the metrics.
+     */
+    private void stopMetrics() {
+        if (metricsEndpoint != null) {
+            metricsEndpoint.stop();
+            metricsEndpoint = null;
+        }
+
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                log.log(LogLevel.WARN, EventType.ERROR, "Could not unregister metrics MBean: " + e.getMessage());
+            }
+            metricsName = null;
+        }
+    }
+
+    /**
+     * Creates the input decoder for a new connection. Decoders enforce the
+     * configured maximum line length and share this server's buffer pool.
+     *
+     * @return a new inbound decoder
+     */
+    public InboundDecoder newInboundDecoder() {
+        return new InboundDecoder(config.getMaxLineLength(), lineBuffers);
+    }
+
+    /**
+     * Returns the commands available to this server's clients.
+     *
+     * @return the command registry
+     */
+    public CommandRegistry getCommands() {
+        return commands;
+    }
+
+    /**
+     * Returns the manager of this server's chat rooms.
+     *
+     * @return the room manager
+     */
+    public RoomManager getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Returns the settings this server was created with.
+     *
+     * @return the server configuration
+     */
+    public ServerConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the limiter applied to chat messages and whispers.
+     *
+     * @return the rate limiter
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Returns the reaper that disconnects silent clients.
+     *
+     * @return the idle reaper, or null if idle clients are kept
+     */
+    public IdleReaper getIdleReaper() {
+        return idleReaper;
+    }
+
+    /**
+     * Returns the hot-path counters of this server.
+     *
+     * @return the server metrics
+     */
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the sorted view of everyone online, used by {@code /list}.
+     *
+     * @return the presence view
+     */
+    public PresenceView getPresence() {
+        return presence;
+    }
+
+    /**
+     * Returns this server's membership in a cluster.
+     *
+     * @return the cluster node, or null if the server runs alone
+     */
+    public ClusterNode getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Returns the history of broadcast messages.
+     *
+     * @return the message history, or null if none is kept
+     */
+    public MessageLog getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the asynchronous log of this server.
+     *
+     * @return the event log
+     */
+    public EventLog getLog() {
+        return log;
+    }
+
+    /**
+     * Finds the deepest outbound queue. Walks every client, so it is
+     * meant for metrics reads rather than hot paths.
+     *
+     * @return the largest number of messages queued for one client
+     */
+    public int getMaxOutboundDepth() {
+        int max = 0;
+        for (ClientHandler client : clients) {
+            max = Math.max(max, client.getOutbound().depth());
+        }
+        return max;
+    }
+
+    /**
+     * Returns the counters shared by all client outbound queues.
+     *
+     * @return the outbound queue statistics
+     */
+    public OutboundStats getOutboundStats() {
+        return outboundStats;
+    }
+
+    /**
+     * Returns the policy that decides when queued output is written.
+     *
+     * @return the flush policy
+     */
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
     /**
      * Checks whether the server is running.
      *
@@ -177,10 +1097,23 @@ public class ChatServer {
 
     /**
      * Entry point for starting the ChatServer.
+     * Listens on port 9001 unless {@code chat.port} says otherwise; other
+     * settings are read from {@code chat.*} system properties,
+     * see {@link ServerConfig#fromSystemProperties()}. Stopping the process,
+     * e.g. with SIGTERM, drains the clients as {@link #shutdown()} does.
      *
      * @param args ignored
      */
     public static void main(String[] args) {
-        new ChatServer(9001).init();
+        ChatServer server = new ChatServer(Integer.getInteger("chat.port", 9001), ServerConfig.fromSystemProperties());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.shutdown();
+            try {
+                server.awaitTermination(EXIT_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "shutdown-hook"));
+        server.init();
     }
 }
@@ -1,16 +1,41 @@
 package com.codeforall.online.chatserver;
 
-import com.codeforall.online.chatserver.commands.*;
+import com.codeforall.online.chatserver.commands.CommandLine;
+import com.codeforall.online.chatserver.commands.Commands;
 import com.codeforall.online.chatserver.exceptions.CommandNotFoundException;
 import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
 import com.codeforall.online.chatserver.exceptions.UnauthorizedCommandException;
 import com.codeforall.online.chatserver.exceptions.UserNotFoundException;
-
-import java.io.*;
+import com.codeforall.online.chatserver.exceptions.UsernameTakenException;
+import com.codeforall.online.chatserver.handoff.SessionTicket;
+import com.codeforall.online.chatserver.history.MessageLog;
+import com.codeforall.online.chatserver.idle.IdleReaper;
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.metrics.DisconnectReason;
+import com.codeforall.online.chatserver.ratelimit.RateLimiter;
+import com.codeforall.online.chatserver.ratelimit.TokenBucket;
+import com.codeforall.online.chatserver.rooms.Room;
+import com.codeforall.online.chatserver.rooms.RoomManager;
+import com.codeforall.online.chatserver.transport.BlockingOutboundWriter;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+import com.codeforall.online.chatserver.transport.BinaryProtocol;
+import com.codeforall.online.chatserver.transport.Frame;
+import com.codeforall.online.chatserver.transport.InboundDecoder;
+import com.codeforall.online.chatserver.transport.NioConnection;
+import com.codeforall.online.chatserver.transport.Opcode;
+import com.codeforall.online.chatserver.transport.OutboundQueue;
+import com.codeforall.online.chatserver.transport.OverflowPolicy;
+import com.codeforall.online.chatserver.transport.OversizedLinePolicy;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.Socket;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Handles the lifecycle and communication of a single connected client.
@@ -19,14 +44,33 @@ import java.util.Map;
  */
 public class ClientHandler implements Runnable {
 
+    private static final int READ_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_REPLAYED_MESSAGES = 200;
+    private static final EncodedMessage PING_LINE = EncodedMessage.of(BinaryProtocol.PING_LINE);
+    private static final EncodedMessage PING_FRAME = EncodedMessage.of(Opcode.PING, "", true);
+    private static final EncodedMessage RECONNECT_LINE = EncodedMessage.of(BinaryProtocol.RECONNECT_LINE);
+    private static final EncodedMessage RECONNECT_FRAME = EncodedMessage.of(Opcode.RECONNECT, "", true);
+
     private ChatServer server;
     private Socket clientSocket;
-    private BufferedReader reader;
-    private PrintWriter writer;
+    private NioConnection connection;
+    private InputStream input;
+    private InboundDecoder inbound;
+    private volatile boolean binary = false;
+    private final OutboundQueue outbound;
+    private final TokenBucket messageBucket;
     private String name = "Anonymous";
-    private final Map<String, Commands> commandsMap = new HashMap<>();
+    private final CommandLine commandLine = new CommandLine();
 
     private boolean admin = false;
+    private volatile boolean joined = false;
+    private volatile boolean controlLines = false;
+    private volatile String sessionToken;
+    private volatile Room room;
+    private final AtomicBoolean cleanedUp = new AtomicBoolean(false);
+    private volatile long lastActivityNanos = System.nanoTime();
+    private IdleReaper.Watch idleWatch;
+    private final AtomicReference<DisconnectReason> disconnectReason = new AtomicReference<>();
 
     /**
      * Creates a new client handler for the given server and socket.
@@ -37,84 +81,294 @@ public class ClientHandler implements Runnable {
     public ClientHandler(ChatServer server, Socket clientSocket) {
         this.server = server;
         this.clientSocket = clientSocket;
+        this.outbound = newOutboundQueue(server);
+        this.messageBucket = server.getRateLimiter().newClientBucket();
+    }
 
-        registerCommands();
+    /**
+     * Creates a new client handler for a non-blocking connection.
+     * The transport drives it through {@link #onConnect()},
+     * {@link #handleLine(String)} and {@link #onDisconnect()}.
+     *
+     * @param server     the chat server instance
+     * @param connection the non-blocking connection to the client
+     */
+    public ClientHandler(ChatServer server, NioConnection connection) {
+        this.server = server;
+        this.connection = connection;
+        this.outbound = newOutboundQueue(server);
+        this.messageBucket = server.getRateLimiter().newClientBucket();
     }
 
     /**
-     * Registers all available commands for this client.
+     * Creates this client's outbound queue from the server settings.
      */
-    private void registerCommands() {
-        commandsMap.put("/help", new HelpCommand());
-        commandsMap.put("/list", new ListCommand());
-        commandsMap.put("/name", new NameCommand());
-        commandsMap.put("/whisper", new WhisperCommand());
-        commandsMap.put("/admin", new AdminLoginCommand());
-        commandsMap.put("/shutdown", new ShutdownCommand());
+    private static OutboundQueue newOutboundQueue(ChatServer server) {
+        ServerConfig config = server.getConfig();
+        return new OutboundQueue(config.getOutboundCapacity(), config.getOverflowPolicy(),
+                config.getOutboundBlockTimeoutMillis(), server.getOutboundStats());
     }
 
     /**
-     * Main loop for the client: opens streams, asks for a username,
-     * processes incoming messages and commands until the client disconnects.
+     * Main loop for a blocking connection: opens streams, greets the client
+     * and feeds every incoming line or frame to {@link #handleLine(String)}
+     * or {@link #handleFrame(Frame)} until the client quits or disconnects.
      */
     @Override
     public void run() {
 
         try {
             openStreams();
+            onConnect();
 
-            writer.println("Welcome to the chat! Enter your username:");
-            checkUsername();
-
-            writer.println("Hello, " + this.name + "!\nYou can start chatting now.\n" +
-                    "Please use /quit when you wish to exit the chat and /help to list all the available commands");
-            server.broadcast(this.name + " has entered the chat.");
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            buffer.limit(0);
 
-            String message;
-            while ((message = reader.readLine()) != null) {
-
-                if (message.equalsIgnoreCase("/quit")) {
-                    writer.println("Bye");
+            while (true) {
+                InboundDecoder.Result result = inbound.dispatchNext(buffer, this);
+                if (result == InboundDecoder.Result.CLOSE) {
                     break;
                 }
-
-                if (message.startsWith("/")) {
-                    try {
-                        handleCommands(message);
-                    } catch (CommandNotFoundException |
-                             InvalidCommandArgumentsException |
-                             UserNotFoundException |
-                             UnauthorizedCommandException e) {
-                        send(e.getMessage());
+                if (result == InboundDecoder.Result.NEED_MORE) {
+                    int count = input.read(buffer.array());
+                    if (count < 0) {
+                        break;
                     }
-                    continue;
+                    server.getMetrics().bytesRead(count);
+                    buffer.position(0).limit(count);
                 }
-
-                server.broadcast(this.name + ": " + message);
             }
 
         } catch (IOException e) {
-            System.out.println("Connection lost with client : " + clientSocket + ": " + e.getMessage());
+            recordDisconnect(DisconnectReason.IO_ERROR);
+            server.getLog().log(LogLevel.DEBUG, EventType.ERROR, "Connection lost: " + e.getMessage(),
+                    name, remoteAddress());
 
         } finally {
             cleanUp();
+            // other threads may clean up too, so only this one touches the decoder
+            if (inbound != null) {
+                inbound.release();
+            }
+        }
+    }
+
+    /**
+     * Called by the transport when the client sent a line or frame over the
+     * maximum length. The input has already been dropped; tells the client so.
+     *
+     * @return true to keep the connection, false to close it
+     */
+    public boolean onLineTooLong() {
+        markActive();
+        ServerConfig config = server.getConfig();
+        String notice = "Line too long (max " + config.getMaxLineLength() + " bytes)";
+
+        if (config.getOversizedLinePolicy() == OversizedLinePolicy.DISCONNECT) {
+            recordDisconnect(DisconnectReason.LINE_TOO_LONG);
+            send(notice + ", disconnecting.");
+            return false;
+        }
+
+        send(notice + ", message dropped.");
+        return true;
+    }
+
+    /**
+     * Called by the transport when the client opened with the binary
+     * preamble. Acknowledges it in text; everything sent afterwards is framed.
+     * A broadcast racing with this switch could still reach the client in
+     * the old format; only the shutdown notice goes to clients this early.
+     */
+    public void onBinaryProtocol() {
+        markActive();
+        send(EncodedMessage.of(BinaryProtocol.ACK_LINE, false));
+        binary = true;
+    }
+
+    /**
+     * Greets a freshly connected client, asks for a username and starts
+     * watching the connection for silence.
+     */
+    public void onConnect() {
+        IdleReaper reaper = server.getIdleReaper();
+        if (reaper != null) {
+            idleWatch = reaper.watch(this);
         }
+        send("Welcome to the chat! Enter your username:");
     }
 
     /**
-     * Cleans up resources and optionally notifies other clients
-     * that this client has left the chat.
+     * Processes one line received from the client. Until a username has been
+     * chosen, lines are treated as username attempts; afterwards they are
+     * commands or chat messages.
+     *
+     * @param message the line sent by the client
+     * @return false if the client asked to leave, true otherwise
+     */
+    public boolean handleLine(String message) {
+        markActive();
+        server.getMetrics().messageReceived();
+
+        if (message.equals(BinaryProtocol.PONG_LINE)) {
+            return true;
+        }
+
+        if (breaksLine(message)) {
+            send("Messages must fit on one line.");
+            return true;
+        }
+
+        if (!joined) {
+            checkUsername(message);
+            return true;
+        }
+
+        if (message.equalsIgnoreCase("/quit")) {
+            recordDisconnect(DisconnectReason.QUIT);
+            send("Bye");
+            return false;
+        }
+
+        if (message.startsWith("/")) {
+            runCommand(null, message);
+            return true;
+        }
+
+        if (allowMessage()) {
+            server.broadcastToRoom(room, this.name + ": " + message);
+        }
+        return true;
+    }
+
+    /**
+     * Processes one frame received from a binary client. It follows the
+     * same rules as {@link #handleLine(String)}, but commands are named by
+     * their opcode instead of a "/" prefix.
+     *
+     * @param frame the frame sent by the client
+     * @return false if the client asked to leave, true otherwise
+     */
+    public boolean handleFrame(Frame frame) {
+        markActive();
+        server.getMetrics().messageReceived();
+        Opcode opcode = frame.opcode();
+
+        if (opcode == Opcode.PONG) {
+            return true;
+        }
+
+        if (opcode == Opcode.QUIT) {
+            recordDisconnect(DisconnectReason.QUIT);
+            send("Bye");
+            return false;
+        }
+
+        if (breaksLine(frame.payload())) {
+            send("Messages must fit on one line.");
+            return true;
+        }
+
+        if (!joined) {
+            if (opcode == Opcode.LOGIN || opcode == Opcode.CHAT) {
+                checkUsername(frame.payload());
+            } else {
+                send("Choose a username first.");
+            }
+            return true;
+        }
+
+        if (opcode == Opcode.CHAT) {
+            if (allowMessage()) {
+                server.broadcastToRoom(room, this.name + ": " + frame.payload());
+            }
+        } else if (opcode == Opcode.COMMAND) {
+            runCommand(null, frame.payload());
+        } else if (opcode != null && opcode.commandToken() != null) {
+            runCommand(opcode, frame.payload());
+        } else {
+            send("Unsupported opcode: " + frame.code());
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a text would be split into several lines. Text clients
+     * read up to a carriage return or a line feed, so a message holding one
+     * could smuggle in a line that does not start with the sender's name.
+     *
+     * @param text the text sent by the client
+     * @return true if the text contains a line break
+     */
+    private static boolean breaksLine(String text) {
+        return text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+    }
+
+    /**
+     * Called by the transport once the connection has been closed by the peer.
+     * Releases resources and tells the other clients that this one left.
+     */
+    public void onDisconnect() {
+        cleanUp();
+    }
+
+    /**
+     * Called by the transport once the connection has ended, with the
+     * reason it observed. A reason recorded earlier by this handler, such as
+     * a quit or an eviction, takes precedence.
+     *
+     * @param reason why the transport saw the connection end
+     */
+    public void onDisconnect(DisconnectReason reason) {
+        recordDisconnect(reason);
+        cleanUp();
+    }
+
+    /**
+     * Remembers why the connection is ending; only the first reason counts.
+     */
+    private void recordDisconnect(DisconnectReason reason) {
+        disconnectReason.compareAndSet(null, reason);
+    }
+
+    /**
+     * Cleans up resources and optionally notifies the other clients
+     * in this client's room that it has left the chat.
      *
      * @param notifyOthers if true, broadcasts a leave message
      */
     private void cleanUp(boolean notifyOthers) {
+        if (!cleanedUp.compareAndSet(false, true)) {
+            return;
+        }
+        Room lastRoom = room;
+        recordDisconnect(DisconnectReason.PEER_CLOSED);
+        DisconnectReason reason = disconnectReason.get();
+        server.getMetrics().disconnected(reason);
+        server.getLog().log(reason == DisconnectReason.SLOW_CONSUMER ? LogLevel.WARN : LogLevel.INFO,
+                EventType.DISCONNECT, reason.name().toLowerCase(), name, remoteAddress());
+        if (idleWatch != null) {
+            idleWatch.cancel();
+        }
         closeStreams();
+        server.closeSession(this, canResumeAfter(reason));
         server.removeClient(this);
-        if (notifyOthers && server.isRunning()) {
-            server.broadcast(this.name + " left the chat");
+        if (notifyOthers && server.isRunning() && lastRoom != null) {
+            server.broadcastToRoom(lastRoom, this.name + " left the chat");
         }
     }
 
+    /**
+     * Checks whether a session may be resumed after its connection ended
+     * this way: only if the connection was lost, not closed on purpose.
+     */
+    private static boolean canResumeAfter(DisconnectReason reason) {
+        return reason == DisconnectReason.PEER_CLOSED
+                || reason == DisconnectReason.IO_ERROR
+                || reason == DisconnectReason.IDLE
+                || reason == DisconnectReason.SLOW_CONSUMER;
+    }
+
     /**
      * Cleans up resources and broadcasts that the client left.
      */
@@ -127,21 +381,205 @@ public class ClientHandler implements Runnable {
      * Used when the server is shutting down.
      */
     public void shutdownCleanUp() {
+        recordDisconnect(DisconnectReason.SHUTDOWN);
         cleanUp(false);
     }
 
     /**
-     * Closes I/O streams and the client socket.
+     * Closes a connection whose session was resumed on another one.
+     * Nobody is told that the client left, since it is still there.
+     */
+    void replace() {
+        recordDisconnect(DisconnectReason.REPLACED);
+        abortConnection();
+        cleanUp(false);
+    }
+
+    /**
+     * Stops accepting output and closes the connection once queued
+     * messages have been written. For blocking sockets the
+     * {@link BlockingOutboundWriter} closes the socket when it is done.
      */
     private void closeStreams() {
-        try {
-            if (reader != null) reader.close();
-            if (writer != null) writer.close();
-            if (!clientSocket.isClosed()) clientSocket.close();
+        outbound.close();
 
+        if (connection != null) {
+            connection.closeAfterFlush();
+        }
+    }
+
+    /**
+     * Cuts off a client whose outbound queue overflowed under the
+     * {@link OverflowPolicy#DISCONNECT} policy. The reading side notices
+     * the closed connection and runs the usual clean up.
+     */
+    private void disconnectSlowConsumer() {
+        server.getOutboundStats().slowConsumerDisconnected();
+        recordDisconnect(DisconnectReason.SLOW_CONSUMER);
+        abortConnection();
+    }
+
+    /**
+     * Called by the {@link IdleReaper} when the client has sent nothing for
+     * too long. Drops the connection without waiting for queued output,
+     * since a dead peer would never read it; the reading side then runs
+     * the usual clean up.
+     *
+     * @param idleSeconds how long the client has been silent
+     */
+    public void evictIdle(long idleSeconds) {
+        recordDisconnect(DisconnectReason.IDLE);
+        server.getLog().log(LogLevel.DEBUG, EventType.DISCONNECT, "Silent for " + idleSeconds + "s",
+                name, remoteAddress());
+        abortConnection();
+    }
+
+    /**
+     * Sends a heartbeat, which a live client answers with a pong. Text
+     * clients only get one if they opted in to control lines, so plain
+     * line clients such as telnet never see a raw {@code \0PING}.
+     */
+    public void sendPing() {
+        if (binary) {
+            send(PING_FRAME);
+        } else if (controlLines) {
+            send(PING_LINE);
+        }
+    }
+
+    /**
+     * Tells the client that the server is going away and that it should
+     * connect again, to this or another node.
+     */
+    public void sendReconnectHint() {
+        send(binary ? RECONNECT_FRAME : RECONNECT_LINE);
+    }
+
+    /**
+     * Tells the client that another server takes over, and the token with
+     * which it gets its session back there.
+     *
+     * @param token the client's session token
+     */
+    public void sendReconnectHint(String token) {
+        send(binary
+                ? EncodedMessage.of(Opcode.RECONNECT, token, false)
+                : EncodedMessage.of(BinaryProtocol.RECONNECT_LINE + " " + token, false));
+    }
+
+    /**
+     * Checks whether the connection to the client is closed.
+     *
+     * @return true if closed or never opened, false otherwise
+     */
+    public boolean isDisconnected() {
+        if (connection != null) {
+            return connection.isClosed();
+        }
+        return clientSocket == null || clientSocket.isClosed();
+    }
+
+    /**
+     * Checks whether all output was written before the connection closed.
+     *
+     * @return true if the outbound queue was written to the end
+     */
+    public boolean isDrained() {
+        return outbound.isFlushed();
+    }
+
+    /**
+     * Gets the time of the last input from this client.
+     *
+     * @return the {@link System#nanoTime()} of the last line or frame received
+     */
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    /**
+     * Records that the client sent something.
+     */
+    private void markActive() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    /**
+     * Closes the connection at once, discarding queued output.
+     */
+    void abortConnection() {
+        outbound.clear();
+
+        if (connection != null) {
+            connection.abort();
+            return;
+        }
+
+        try {
+            clientSocket.close();
         } catch (IOException e) {
-            e.printStackTrace();
+            server.getLog().log(LogLevel.WARN, EventType.ERROR, "Error closing client socket: " + e.getMessage(),
+                    name, remoteAddress());
+        }
+    }
+
+    /**
+     * Applies the server's rate limits to a chat message or whisper from this
+     * client. A throttled message is dropped and the client is told why.
+     *
+     * @return true if the message may be delivered, false if it was throttled
+     */
+    public boolean allowMessage() {
+        RateLimiter.Limit limit = server.getRateLimiter().tryAcquire(messageBucket);
+        if (limit == null) {
+            return true;
+        }
+
+        send(limit == RateLimiter.Limit.CLIENT
+                ? "You are sending messages too fast, message dropped."
+                : "The server is too busy, message dropped.");
+        return false;
+    }
+
+    /**
+     * Executes a command and reports its errors to the client.
+     *
+     * @param opcode the binary opcode naming the command, or null for a text command line
+     * @param text   the full command line, or the arguments when an opcode is given
+     */
+    private void runCommand(Opcode opcode, String text) {
+        try {
+            if (opcode == null) {
+                handleCommands(text);
+            } else {
+                handleCommand(opcode, text);
+            }
+        } catch (CommandNotFoundException |
+                 InvalidCommandArgumentsException |
+                 UserNotFoundException |
+                 UsernameTakenException |
+                 UnauthorizedCommandException e) {
+            send(e.getMessage());
+        }
+    }
+
+    /**
+     * Executes the command named by a binary opcode.
+     *
+     * @param opcode    the command opcode
+     * @param arguments the command arguments
+     */
+    private void handleCommand(Opcode opcode, String arguments) {
+        Commands commands = server.getCommands().find(opcode);
+
+        if (commands == null) {
+            recordCommand(null);
+            throw new CommandNotFoundException(opcode.commandToken());
         }
+
+        recordCommand(opcode.commandToken());
+        commandLine.parseArguments(arguments);
+        commands.execute(commandLine, this);
     }
 
     /**
@@ -150,64 +588,205 @@ public class ClientHandler implements Runnable {
      * @param message the full command line sent by the client
      */
     private void handleCommands(String message) {
-        String trimmed = message.trim();
-        String commandToken = trimmed.split("\\s+", 2)[0]; // ex: "/name"
-        Commands commands = commandsMap.get(commandToken);
+        commandLine.parse(message);
+        Commands commands = server.getCommands().find(commandLine); // ex: "/name"
+
+        recordCommand(commands != null ? server.getCommands().tokenOf(commands) : null);
 
         if (commands != null) {
-            commands.execute(message, this);
+            commands.execute(commandLine, this);
         } else {
-            throw new CommandNotFoundException(commandToken);
+            throw new CommandNotFoundException(commandLine.command());
         }
     }
 
     /**
-     * Asks the client for a valid username and sets it.
+     * Counts a command in the metrics and logs it at debug level.
      *
-     * @throws IOException if the client disconnects before choosing a username
+     * @param token the command token, or null for an unknown command
      */
-    private void checkUsername() throws IOException {
-        while (name.equalsIgnoreCase("Anonymous")) {
+    private void recordCommand(String token) {
+        server.getMetrics().commandExecuted(token);
 
-            String maybeName = reader.readLine();
+        EventLog log = server.getLog();
+        if (log.isEnabled(LogLevel.DEBUG)) {
+            log.log(LogLevel.DEBUG, EventType.COMMAND, token != null ? token : "unknown", name, remoteAddress());
+        }
+    }
+
+    /**
+     * Gets a printable address of the client for log events.
+     */
+    private String remoteAddress() {
+        return connection != null
+                ? connection.remoteAddress()
+                : String.valueOf(clientSocket.getRemoteSocketAddress());
+    }
 
-            if (maybeName == null) {
-                throw new IOException("Client disconnected before choosing username");
+    /**
+     * Validates a username attempt and, if accepted, lets the client
+     * into the chat.
+     *
+     * @param maybeName the line sent while no username was set
+     */
+    private void checkUsername(String maybeName) {
+        if (isResumeLine(maybeName)) {
+            controlLines = true;
+            String token = maybeName.substring(BinaryProtocol.RESUME_LINE.length()).strip();
+            if (!token.isEmpty()) {
+                resume(token);
             }
+            return;
+        }
+        maybeName = maybeName.strip();
 
-            maybeName = maybeName.trim();
+        if (!ChatServer.isValidUsername(maybeName)) {
+            send("The username must not contain control characters, try again");
+            return;
+        }
 
-            if (maybeName.length() > 3) {
-                this.name = maybeName;
-            } else {
-                writer.println("The username must be longer than 3 characters, try again");
-            }
+        if (maybeName.length() <= 3) {
+            send("The username must be longer than 3 characters, try again");
+            return;
+        }
+
+        if (!server.claimName(maybeName, this)) {
+            send(new UsernameTakenException(maybeName).getMessage());
+            return;
+        }
+
+        this.name = maybeName;
+        this.joined = true;
+
+        send("Hello, " + this.name + "!\nYou can start chatting now.\n" +
+                "Please use /quit when you wish to exit the chat and /help to list all the available commands");
+        if (controlLines) {
+            sessionToken = server.openSession(this);
+            sendSessionToken();
         }
+
+        Room lobby = server.getRooms().join(this, RoomManager.LOBBY);
+        server.broadcastToRoom(lobby, this.name + " has entered the chat.");
+    }
+
+    /**
+     * Checks whether a login line is {@link BinaryProtocol#RESUME_LINE},
+     * alone or followed by whitespace and a token, and not merely a name
+     * that starts the same way.
+     */
+    private static boolean isResumeLine(String line) {
+        String resume = BinaryProtocol.RESUME_LINE;
+        return line.startsWith(resume)
+                && (line.length() == resume.length() || Character.isWhitespace(line.charAt(resume.length())));
     }
 
     /**
-     * Opens input and output streams for this client connection.
+     * Gives a reconnecting client back the name, admin flag and room of its
+     * earlier session, without announcing it to the room, and replays what
+     * the room said in the meantime if a history is kept. The client gets a
+     * new token, since each one works only once.
      *
-     * @throws IOException if an error occurs while opening streams
+     * @param token the session token the client was given
+     */
+    private void resume(String token) {
+        SessionTicket ticket = server.resumeSession(token, this);
+        if (ticket == null) {
+            sendSessionToken();
+            send("Your session could not be resumed. Enter your username:");
+            return;
+        }
+
+        this.name = ticket.name();
+        this.admin = ticket.admin();
+        this.joined = true;
+        server.getRooms().join(this, ticket.room());
+        sessionToken = server.openSession(this);
+
+        send("Session resumed as " + this.name + ".");
+        sendSessionToken();
+        replayMissed(ticket);
+    }
+
+    /**
+     * Sends the messages of the ticket's room that were logged after the
+     * client went away, up to a limit.
+     */
+    private void replayMissed(SessionTicket ticket) {
+        MessageLog history = server.getHistory();
+        if (history == null || ticket.historyMark() < 0) {
+            return;
+        }
+
+        List<EncodedMessage> missed = history.since(ticket.room(), ticket.historyMark(), MAX_REPLAYED_MESSAGES);
+        if (missed.isEmpty()) {
+            return;
+        }
+        send("Missed " + missed.size() + " messages:");
+        for (EncodedMessage message : missed) {
+            send(message);
+        }
+    }
+
+    /**
+     * Tells the client the token with which it can resume this session, or
+     * that it has none, so that it forgets a token it could not resume with.
+     */
+    private void sendSessionToken() {
+        if (binary) {
+            send(EncodedMessage.of(Opcode.SESSION, sessionToken != null ? sessionToken : "", false));
+        } else {
+            send(EncodedMessage.of(sessionToken != null
+                    ? BinaryProtocol.SESSION_LINE + " " + sessionToken
+                    : BinaryProtocol.SESSION_LINE, false));
+        }
+    }
+
+    /**
+     * Opens the input stream for this client connection.
+     * Output goes through the {@link OutboundQueue} instead.
+     *
+     * @throws IOException if an error occurs while opening the stream
      */
     private void openStreams() throws IOException {
-        reader = new BufferedReader(
-                new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8));
-        writer = new PrintWriter(
-                new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8), true);
+        input = clientSocket.getInputStream();
+        inbound = server.newInboundDecoder();
     }
 
     /**
-     * Sends a message to this client.
+     * Queues a message for this client. Never blocks on the network;
+     * when the queue is full the configured {@link OverflowPolicy} applies.
      *
      * @param message the message to send
      */
     public void send(String message) {
-        synchronized (this) {
-            if (writer != null) {
-                writer.println(message);
-            }
+        send(EncodedMessage.of(message, false));
+    }
+
+    /**
+     * Queues an already encoded message for this client, as a text line or
+     * a frame depending on its protocol. The bytes are shared with every
+     * other recipient of the same message.
+     *
+     * @param message the encoded message to send
+     */
+    public void send(EncodedMessage message) {
+        if (!outbound.offer(binary ? message.frameView() : message.view())) {
+            disconnectSlowConsumer();
+            return;
         }
+
+        if (connection != null) {
+            connection.requestFlush();
+        }
+    }
+
+    /**
+     * Returns the queue of messages waiting to be written to this client.
+     *
+     * @return the outbound queue
+     */
+    public OutboundQueue getOutbound() {
+        return outbound;
     }
 
     /**
@@ -237,6 +816,24 @@ public class ClientHandler implements Runnable {
         return name;
     }
 
+    /**
+     * Checks whether this client has chosen a username and joined the chat.
+     *
+     * @return true once joined, false while the username is still asked for
+     */
+    public boolean isJoined() {
+        return joined;
+    }
+
+    /**
+     * Gets the token with which this client can resume its session.
+     *
+     * @return the token, or null if the client has not joined or did not ask for one
+     */
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
     /**
      * Checks if this client has admin permissions.
      *
@@ -254,4 +851,22 @@ public class ClientHandler implements Runnable {
     public void setAdmin(boolean admin) {
         this.admin = admin;
     }
+
+    /**
+     * Gets the room this client is currently in.
+     *
+     * @return the room, or null before the client has joined the chat
+     */
+    public Room getRoom() {
+        return room;
+    }
+
+    /**
+     * Sets the room this client is in. Called by the {@link RoomManager}.
+     *
+     * @param room the new room, or null when leaving all rooms
+     */
+    public void setRoom(Room room) {
+        this.room = room;
+    }
 }
@@ -0,0 +1,169 @@
+package com.codeforall.online.chatserver;
+
+import com.codeforall.online.chatserver.broadcast.ShardedClientSet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Concurrent set of connected clients plus a case-insensitive name index.
+ * Adding and removing a client are O(1), so connect and disconnect storms
+ * do not copy the whole list. Iteration is weakly consistent: a broadcast
+ * sees every client that stays connected while it runs and never fails
+ * because of concurrent joins or leaves. Clients are kept in shards so
+ * broadcasts can be fanned out in parallel.
+ */
+public class ClientRegistry implements Iterable<ClientHandler> {
+
+    private final ShardedClientSet clients;
+    private final ConcurrentHashMap<String, ClientHandler> clientsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty registry with a single shard.
+     */
+    public ClientRegistry() {
+        this(1);
+    }
+
+    /**
+     * Creates an empty registry.
+     *
+     * @param shardCount the number of shards to split clients into
+     */
+    public ClientRegistry(int shardCount) {
+        this.clients = new ShardedClientSet(shardCount);
+    }
+
+    /**
+     * Adds a newly connected client.
+     *
+     * @param client the client to add
+     */
+    public void add(ClientHandler client) {
+        clients.add(client);
+    }
+
+    /**
+     * Removes a client and releases its username.
+     *
+     * @param client the client to remove
+     * @return true if the client held a username
+     */
+    public boolean remove(ClientHandler client) {
+        clients.remove(client);
+        return clientsByName.remove(nameKey(client.getName()), client);
+    }
+
+    /**
+     * Reserves a username for a client, atomically and ignoring case.
+     *
+     * @param name   the requested username
+     * @param client the client asking for it
+     * @return true if the name was free and is now taken by the client
+     */
+    public boolean claimName(String name, ClientHandler client) {
+        return clientsByName.putIfAbsent(nameKey(name), client) == null;
+    }
+
+    /**
+     * Changes a client's username, keeping the name index in sync.
+     * Changing only the case of the current name is always allowed.
+     *
+     * @param client  the client being renamed
+     * @param newName the requested username
+     * @return true if the client was renamed, false if the name is taken
+     */
+    public boolean rename(ClientHandler client, String newName) {
+        String oldKey = nameKey(client.getName());
+        String newKey = nameKey(newName);
+
+        if (!oldKey.equals(newKey) && clientsByName.putIfAbsent(newKey, client) != null) {
+            return false;
+        }
+
+        client.setName(newName);
+
+        if (!oldKey.equals(newKey)) {
+            clientsByName.remove(oldKey, client);
+        }
+        return true;
+    }
+
+    /**
+     * Looks up a client by username, ignoring case.
+     *
+     * @param name the username
+     * @return the client, or null if nobody uses that name
+     */
+    public ClientHandler findByName(String name) {
+        return clientsByName.get(nameKey(name));
+    }
+
+    /**
+     * Lists the usernames currently taken.
+     *
+     * @return a snapshot of the names
+     */
+    public List<String> names() {
+        List<String> names = new ArrayList<>(clientsByName.size());
+        for (ClientHandler client : clientsByName.values()) {
+            names.add(client.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Gets the number of connected clients.
+     *
+     * @return the client count
+     */
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * Checks whether no client is connected.
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return clients.isEmpty();
+    }
+
+    /**
+     * Gets the sharded set of connected clients.
+     *
+     * @return the clients
+     */
+    public ShardedClientSet members() {
+        return clients;
+    }
+
+    /**
+     * Removes every client and name.
+     */
+    public void clear() {
+        clients.clear();
+        clientsByName.clear();
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the connected clients.
+     *
+     * @return an iterator that tolerates concurrent changes
+     */
+    @Override
+    public Iterator<ClientHandler> iterator() {
+        return clients.iterator();
+    }
+
+    /**
+     * Normalises a username for case-insensitive lookups.
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
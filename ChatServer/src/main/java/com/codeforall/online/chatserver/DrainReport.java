@@ -0,0 +1,22 @@
+package com.codeforall.online.chatserver;
+
+/**
+ * Outcome of a graceful shutdown: how many sessions had all their output
+ * written before their connection closed, and how many were cut off at
+ * the deadline or by an error.
+ *
+ * @param sessions      the sessions connected when the drain started
+ * @param drained       the sessions whose output was written to the end
+ * @param elapsedMillis how long the drain took
+ */
+public record DrainReport(int sessions, int drained, long elapsedMillis) {
+
+    /**
+     * Gets the number of sessions that lost output.
+     *
+     * @return the sessions that were not drained
+     */
+    public int cutOff() {
+        return sessions - drained;
+    }
+}
@@ -0,0 +1,219 @@
+package com.codeforall.online.chatserver;
+
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Everyone online, local or on another cluster node, sorted by name and
+ * updated as users join, leave or rename. {@code /list} replies are pages
+ * of this view, optionally narrowed to names starting with a prefix, so a
+ * reply never holds more than one page of names.
+ * <p>
+ * Rendered pages are encoded once and shared by every client that asks
+ * for them until the next change, so repeated {@code /list} calls cost a
+ * map lookup. Each entry remembers who announced it (the local client or
+ * the remote node id), so a late leave cannot remove a name that has
+ * meanwhile been taken by someone else.
+ */
+public class PresenceView {
+
+    private static final int MAX_CACHED_PAGES = 64;
+
+    private final int pageSize;
+    private final ConcurrentSkipListMap<String, Entry> users = new ConcurrentSkipListMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private volatile PageCache cache = new PageCache(0);
+
+    /**
+     * Creates an empty view.
+     *
+     * @param pageSize the number of names per page
+     */
+    public PresenceView(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Adds a user, replacing anyone listed under the same name.
+     *
+     * @param owner the local client, or the id of the node that announced the user
+     * @param name  the username
+     */
+    public void add(Object owner, String name) {
+        if (users.put(nameKey(name), new Entry(name, owner)) == null) {
+            size.incrementAndGet();
+        }
+        changed();
+    }
+
+    /**
+     * Removes a user, unless the name now belongs to another owner.
+     *
+     * @param owner the owner the user was added with
+     * @param name  the username
+     */
+    public void remove(Object owner, String name) {
+        String key = nameKey(name);
+        Entry entry = users.get(key);
+        if (entry != null && entry.owner().equals(owner) && users.remove(key, entry)) {
+            size.decrementAndGet();
+            changed();
+        }
+    }
+
+    /**
+     * Removes every user of an owner, e.g. a cluster node that went away.
+     *
+     * @param owner the owner
+     */
+    public void removeOwner(Object owner) {
+        boolean removed = false;
+        for (Iterator<Map.Entry<String, Entry>> it = users.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (entry.getValue().owner().equals(owner) && users.remove(entry.getKey(), entry.getValue())) {
+                size.decrementAndGet();
+                removed = true;
+            }
+        }
+        if (removed) {
+            changed();
+        }
+    }
+
+    /**
+     * Gets one page of the user list, encoded and ready to send.
+     *
+     * @param prefix only list names starting with this, ignoring case; null or empty for everyone
+     * @param page   the page number, from 1
+     * @return the reply, shared with other callers until the view changes
+     */
+    public EncodedMessage page(String prefix, int page) {
+        String key = prefix == null ? "" : nameKey(prefix);
+        String cacheKey = page + ":" + key;
+
+        long current = version.get();
+        PageCache pages = cache;
+        if (pages.version == current) {
+            EncodedMessage cached = pages.entries.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        } else {
+            pages = new PageCache(current);
+            cache = pages;
+        }
+
+        EncodedMessage rendered = EncodedMessage.of(render(key, prefix, page));
+        if (pages.entries.size() < MAX_CACHED_PAGES) {
+            pages.entries.putIfAbsent(cacheKey, rendered);
+        }
+        return rendered;
+    }
+
+    /**
+     * Gets the number of users listed.
+     *
+     * @return the user count
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of names per page.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Marks every rendered page as out of date.
+     */
+    private void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Builds the text of one page. One more name than fits is looked at
+     * to tell whether a next page exists.
+     */
+    private String render(String key, String prefix, int page) {
+        NavigableMap<String, Entry> range = key.isEmpty()
+                ? users
+                : users.subMap(key, true, key + Character.MAX_VALUE, false);
+
+        long skip = (long) (page - 1) * pageSize;
+        StringBuilder names = new StringBuilder();
+        int listed = 0;
+        boolean more = false;
+
+        for (Entry entry : range.values()) {
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (listed == pageSize) {
+                more = true;
+                break;
+            }
+            names.append(entry.name()).append('\n');
+            listed++;
+        }
+
+        String filter = key.isEmpty() ? "" : prefix + "* ";
+        StringBuilder reply = new StringBuilder();
+        if (!key.isEmpty()) {
+            reply.append("Clients online matching ").append(prefix).append("*, page ").append(page).append(":\n");
+        } else if (page > 1 || more) {
+            int pages = Math.max(1, (size.get() + pageSize - 1) / pageSize);
+            reply.append("Clients online, page ").append(page).append(" of ").append(pages).append(":\n");
+        } else {
+            reply.append("Clients online:\n");
+        }
+        reply.append(names);
+        if (more) {
+            reply.append("More: /list ").append(filter).append(page + 1).append('\n');
+        }
+        return reply.toString();
+    }
+
+    /**
+     * Normalises a username for case-insensitive ordering and lookups.
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A listed user and who announced it.
+     *
+     * @param name  the username as chosen
+     * @param owner the local client or remote node id
+     */
+    private record Entry(String name, Object owner) {
+    }
+
+    /**
+     * Pages rendered for one version of the view.
+     */
+    private static final class PageCache {
+
+        private final long version;
+        private final Map<String, EncodedMessage> entries = new ConcurrentHashMap<>();
+
+        PageCache(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,880 @@
+package com.codeforall.online.chatserver;
+
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.transport.FlushPolicy;
+import com.codeforall.online.chatserver.transport.LineDecoder;
+import com.codeforall.online.chatserver.transport.OverflowPolicy;
+import com.codeforall.online.chatserver.transport.OversizedLinePolicy;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tunable settings for a {@link ChatServer}.
+ * Defaults are suitable for local use; every value can be overridden
+ * through system properties (see {@link #fromSystemProperties()}).
+ */
+public class ServerConfig {
+
+    private ServerMode mode = ServerMode.NIO;
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    private int outboundCapacity = 1024;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private long outboundBlockTimeoutMillis = 100;
+    private boolean writeBatching = false;
+    private int flushThresholdBytes = 16 * 1024;
+    private long flushMaxDelayMicros = 1000;
+    private int broadcastShards = 0;
+    private int maxLineLength = LineDecoder.DEFAULT_MAX_LINE_LENGTH;
+    private OversizedLinePolicy oversizedLinePolicy = OversizedLinePolicy.REJECT;
+    private int clientMessagesPerSecond = 20;
+    private int clientMessageBurst = 40;
+    private int globalMessagesPerSecond = 0;
+    private int globalMessageBurst = 1000;
+    private int heartbeatSeconds = 30;
+    private int idleTimeoutSeconds = 0;
+    private int metricsPort = 0;
+    private boolean metricsJmx = true;
+    private LogLevel logLevel = LogLevel.INFO;
+    private int logBufferSize = 8192;
+    private String historyDirectory = "";
+    private int historySegmentBytes = 4 * 1024 * 1024;
+    private int historyMaxSegments = 16;
+    private int clusterPort = 0;
+    private String clusterBindAddress = "127.0.0.1";
+    private List<InetSocketAddress> clusterPeers = List.of();
+    private String clusterNodeId = "";
+    private String clusterSecret = "";
+    private int listPageSize = 100;
+    private long shutdownDrainMillis = 5000;
+    private String handoffSocket = "";
+    private int resumeTtlSeconds = 60;
+
+    /**
+     * Builds a configuration from the {@code chat.*} system properties,
+     * falling back to the defaults for anything that is not set.
+     * <ul>
+     *     <li>{@code chat.mode} - {@code nio}, {@code blocking} or {@code virtual}</li>
+     *     <li>{@code chat.ioThreads} - number of selector loops in NIO mode</li>
+     *     <li>{@code chat.outbound.capacity} - messages queued per client before overflowing</li>
+     *     <li>{@code chat.outbound.policy} - {@code drop-oldest}, {@code disconnect} or {@code block}</li>
+     *     <li>{@code chat.outbound.blockTimeoutMs} - how long the {@code block} policy waits</li>
+     *     <li>{@code chat.flush.batching} - {@code true} to coalesce bursts of output per client</li>
+     *     <li>{@code chat.flush.thresholdBytes} - queued bytes that force a write when batching</li>
+     *     <li>{@code chat.flush.maxDelayMicros} - longest time output is held back when batching</li>
+     *     <li>{@code chat.broadcast.shards} - worker threads fanning out broadcasts, 0 to fan out inline</li>
+     *     <li>{@code chat.line.maxBytes} - longest line a client may send</li>
+     *     <li>{@code chat.line.oversized} - {@code reject} or {@code disconnect} longer lines</li>
+     *     <li>{@code chat.rate.clientPerSecond} - chat messages and whispers per second per client, 0 for no limit</li>
+     *     <li>{@code chat.rate.clientBurst} - messages a client may send at once after being idle</li>
+     *     <li>{@code chat.rate.globalPerSecond} - messages per second across all clients, 0 for no limit</li>
+     *     <li>{@code chat.rate.globalBurst} - messages all clients may send at once</li>
+     *     <li>{@code chat.heartbeat.seconds} - silence after which a client is pinged, 0 for no pings</li>
+     *     <li>{@code chat.idle.timeoutSeconds} - silence after which a client is disconnected, 0 to never</li>
+     *     <li>{@code chat.metrics.port} - local port of the HTTP metrics endpoint, 0 to disable it</li>
+     *     <li>{@code chat.metrics.jmx} - {@code false} to not publish metrics over JMX</li>
+     *     <li>{@code chat.log.level} - {@code debug}, {@code info}, {@code warn}, {@code error} or {@code off}</li>
+     *     <li>{@code chat.log.bufferSize} - log events waiting to be written before new ones are dropped</li>
+     *     <li>{@code chat.history.dir} - directory of the message history, empty to keep no history</li>
+     *     <li>{@code chat.history.segmentBytes} - size of each history segment file</li>
+     *     <li>{@code chat.history.maxSegments} - history segments kept before the oldest is deleted</li>
+     *     <li>{@code chat.cluster.port} - port other nodes connect to, 0 to run alone</li>
+     *     <li>{@code chat.cluster.bindAddress} - address the cluster port listens on</li>
+     *     <li>{@code chat.cluster.peers} - comma-separated {@code host:port} cluster ports of the other nodes</li>
+     *     <li>{@code chat.cluster.nodeId} - this node's id, unique in the cluster</li>
+     *     <li>{@code chat.cluster.secret} - secret shared by every node, which proves who a peer is</li>
+     *     <li>{@code chat.list.pageSize} - names per {@code /list} page</li>
+     *     <li>{@code chat.shutdown.drainMs} - how long a shutdown waits for queued output to be written</li>
+     *     <li>{@code chat.handoff.socket} - Unix domain socket through which a new server takes over, empty for none</li>
+     *     <li>{@code chat.resume.ttlSeconds} - how long a dropped or handed over session can be resumed</li>
+     * </ul>
+     *
+     * @return the resulting configuration
+     */
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+
+        String mode = System.getProperty("chat.mode");
+        if (mode != null) {
+            config.setMode(ServerMode.fromString(mode));
+        }
+
+        config.setIoThreads(Integer.getInteger("chat.ioThreads", config.getIoThreads()));
+        config.setOutboundCapacity(Integer.getInteger("chat.outbound.capacity", config.getOutboundCapacity()));
+
+        String policy = System.getProperty("chat.outbound.policy");
+        if (policy != null) {
+            config.setOverflowPolicy(OverflowPolicy.fromString(policy));
+        }
+
+        config.setOutboundBlockTimeoutMillis(
+                Long.getLong("chat.outbound.blockTimeoutMs", config.getOutboundBlockTimeoutMillis()));
+
+        String batching = System.getProperty("chat.flush.batching");
+        if (batching != null) {
+            config.setWriteBatching(Boolean.parseBoolean(batching));
+        }
+
+        config.setFlushThresholdBytes(
+                Integer.getInteger("chat.flush.thresholdBytes", config.getFlushThresholdBytes()));
+        config.setFlushMaxDelayMicros(
+                Long.getLong("chat.flush.maxDelayMicros", config.getFlushMaxDelayMicros()));
+        config.setBroadcastShards(Integer.getInteger("chat.broadcast.shards", config.getBroadcastShards()));
+        config.setMaxLineLength(Integer.getInteger("chat.line.maxBytes", config.getMaxLineLength()));
+
+        String oversized = System.getProperty("chat.line.oversized");
+        if (oversized != null) {
+            config.setOversizedLinePolicy(OversizedLinePolicy.fromString(oversized));
+        }
+
+        config.setClientMessagesPerSecond(
+                Integer.getInteger("chat.rate.clientPerSecond", config.getClientMessagesPerSecond()));
+        config.setClientMessageBurst(Integer.getInteger("chat.rate.clientBurst", config.getClientMessageBurst()));
+        config.setGlobalMessagesPerSecond(
+                Integer.getInteger("chat.rate.globalPerSecond", config.getGlobalMessagesPerSecond()));
+        config.setGlobalMessageBurst(Integer.getInteger("chat.rate.globalBurst", config.getGlobalMessageBurst()));
+        config.setHeartbeatSeconds(Integer.getInteger("chat.heartbeat.seconds", config.getHeartbeatSeconds()));
+        config.setIdleTimeoutSeconds(Integer.getInteger("chat.idle.timeoutSeconds", config.getIdleTimeoutSeconds()));
+        config.setMetricsPort(Integer.getInteger("chat.metrics.port", config.getMetricsPort()));
+
+        String jmx = System.getProperty("chat.metrics.jmx");
+        if (jmx != null) {
+            config.setMetricsJmx(Boolean.parseBoolean(jmx));
+        }
+
+        String logLevel = System.getProperty("chat.log.level");
+        if (logLevel != null) {
+            config.setLogLevel(LogLevel.fromString(logLevel));
+        }
+
+        config.setLogBufferSize(Integer.getInteger("chat.log.bufferSize", config.getLogBufferSize()));
+        config.setHistoryDirectory(System.getProperty("chat.history.dir", config.getHistoryDirectory()));
+        config.setHistorySegmentBytes(
+                Integer.getInteger("chat.history.segmentBytes", config.getHistorySegmentBytes()));
+        config.setHistoryMaxSegments(Integer.getInteger("chat.history.maxSegments", config.getHistoryMaxSegments()));
+        config.setClusterPort(Integer.getInteger("chat.cluster.port", config.getClusterPort()));
+        config.setClusterBindAddress(
+                System.getProperty("chat.cluster.bindAddress", config.getClusterBindAddress()));
+
+        String peers = System.getProperty("chat.cluster.peers");
+        if (peers != null) {
+            config.setClusterPeers(peers);
+        }
+
+        config.setClusterNodeId(System.getProperty("chat.cluster.nodeId", config.getClusterNodeId()));
+        config.setClusterSecret(System.getProperty("chat.cluster.secret", config.getClusterSecret()));
+        config.setListPageSize(Integer.getInteger("chat.list.pageSize", config.getListPageSize()));
+        config.setShutdownDrainMillis(Long.getLong("chat.shutdown.drainMs", config.getShutdownDrainMillis()));
+        config.setHandoffSocket(System.getProperty("chat.handoff.socket", config.getHandoffSocket()));
+        config.setResumeTtlSeconds(Integer.getInteger("chat.resume.ttlSeconds", config.getResumeTtlSeconds()));
+
+        return config;
+    }
+
+    /**
+     * Gets the execution model used to serve connections.
+     *
+     * @return the server mode
+     */
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Sets the execution model used to serve connections.
+     *
+     * @param mode the server mode
+     */
+    public void setMode(ServerMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Gets the number of selector loops used in NIO mode.
+     *
+     * @return the number of I/O threads
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * Sets the number of selector loops used in NIO mode.
+     *
+     * @param ioThreads the number of I/O threads, at least one
+     */
+    public void setIoThreads(int ioThreads) {
+        if (ioThreads < 1) {
+            throw new IllegalArgumentException("ioThreads must be at least 1");
+        }
+        this.ioThreads = ioThreads;
+    }
+
+    /**
+     * Gets the number of messages each client may have queued.
+     *
+     * @return the outbound queue capacity
+     */
+    public int getOutboundCapacity() {
+        return outboundCapacity;
+    }
+
+    /**
+     * Sets the number of messages each client may have queued.
+     *
+     * @param outboundCapacity the outbound queue capacity, at least one
+     */
+    public void setOutboundCapacity(int outboundCapacity) {
+        if (outboundCapacity < 1) {
+            throw new IllegalArgumentException("outboundCapacity must be at least 1");
+        }
+        this.outboundCapacity = outboundCapacity;
+    }
+
+    /**
+     * Gets what happens when a client's outbound queue is full.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets what happens when a client's outbound queue is full.
+     *
+     * @param overflowPolicy the overflow policy
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Gets how long the {@link OverflowPolicy#BLOCK} policy waits for room.
+     *
+     * @return the timeout in milliseconds
+     */
+    public long getOutboundBlockTimeoutMillis() {
+        return outboundBlockTimeoutMillis;
+    }
+
+    /**
+     * Sets how long the {@link OverflowPolicy#BLOCK} policy waits for room.
+     *
+     * @param outboundBlockTimeoutMillis the timeout in milliseconds
+     */
+    public void setOutboundBlockTimeoutMillis(long outboundBlockTimeoutMillis) {
+        this.outboundBlockTimeoutMillis = outboundBlockTimeoutMillis;
+    }
+
+    /**
+     * Checks whether bursts of output to a client are coalesced.
+     *
+     * @return true if write batching is enabled
+     */
+    public boolean isWriteBatching() {
+        return writeBatching;
+    }
+
+    /**
+     * Enables or disables coalescing of output bursts.
+     *
+     * @param writeBatching true to batch writes
+     */
+    public void setWriteBatching(boolean writeBatching) {
+        this.writeBatching = writeBatching;
+    }
+
+    /**
+     * Gets the number of queued bytes that forces a write when batching.
+     *
+     * @return the threshold in bytes
+     */
+    public int getFlushThresholdBytes() {
+        return flushThresholdBytes;
+    }
+
+    /**
+     * Sets the number of queued bytes that forces a write when batching.
+     *
+     * @param flushThresholdBytes the threshold in bytes
+     */
+    public void setFlushThresholdBytes(int flushThresholdBytes) {
+        this.flushThresholdBytes = flushThresholdBytes;
+    }
+
+    /**
+     * Gets the longest time output is held back when batching.
+     *
+     * @return the delay in microseconds
+     */
+    public long getFlushMaxDelayMicros() {
+        return flushMaxDelayMicros;
+    }
+
+    /**
+     * Sets the longest time output is held back when batching.
+     *
+     * @param flushMaxDelayMicros the delay in microseconds
+     */
+    public void setFlushMaxDelayMicros(long flushMaxDelayMicros) {
+        this.flushMaxDelayMicros = flushMaxDelayMicros;
+    }
+
+    /**
+     * Gets the number of worker threads that fan out broadcasts.
+     *
+     * @return the shard count, 0 when broadcasts are fanned out inline
+     */
+    public int getBroadcastShards() {
+        return broadcastShards;
+    }
+
+    /**
+     * Sets the number of worker threads that fan out broadcasts.
+     * Each worker owns one shard of the clients.
+     *
+     * @param broadcastShards the shard count, 0 to fan out on the sender's thread
+     */
+    public void setBroadcastShards(int broadcastShards) {
+        if (broadcastShards < 0) {
+            throw new IllegalArgumentException("broadcastShards must not be negative");
+        }
+        this.broadcastShards = broadcastShards;
+    }
+
+    /**
+     * Gets the longest line a client may send.
+     *
+     * @return the maximum line length in bytes, without the terminator
+     */
+    public int getMaxLineLength() {
+        return maxLineLength;
+    }
+
+    /**
+     * Sets the longest line a client may send.
+     *
+     * @param maxLineLength the maximum line length in bytes, at least one
+     */
+    public void setMaxLineLength(int maxLineLength) {
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("maxLineLength must be at least 1");
+        }
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Gets what happens when a client sends a line over the maximum length.
+     *
+     * @return the oversized line policy
+     */
+    public OversizedLinePolicy getOversizedLinePolicy() {
+        return oversizedLinePolicy;
+    }
+
+    /**
+     * Sets what happens when a client sends a line over the maximum length.
+     *
+     * @param oversizedLinePolicy the oversized line policy
+     */
+    public void setOversizedLinePolicy(OversizedLinePolicy oversizedLinePolicy) {
+        this.oversizedLinePolicy = oversizedLinePolicy;
+    }
+
+    /**
+     * Gets how many chat messages and whispers each client may send per second.
+     *
+     * @return the per-client rate, 0 when clients are not limited
+     */
+    public int getClientMessagesPerSecond() {
+        return clientMessagesPerSecond;
+    }
+
+    /**
+     * Sets how many chat messages and whispers each client may send per second.
+     *
+     * @param clientMessagesPerSecond the per-client rate, 0 for no limit
+     */
+    public void setClientMessagesPerSecond(int clientMessagesPerSecond) {
+        if (clientMessagesPerSecond < 0) {
+            throw new IllegalArgumentException("clientMessagesPerSecond must not be negative");
+        }
+        this.clientMessagesPerSecond = clientMessagesPerSecond;
+    }
+
+    /**
+     * Gets how many messages a client may send at once after being idle.
+     *
+     * @return the per-client burst
+     */
+    public int getClientMessageBurst() {
+        return clientMessageBurst;
+    }
+
+    /**
+     * Sets how many messages a client may send at once after being idle.
+     *
+     * @param clientMessageBurst the per-client burst, at least one
+     */
+    public void setClientMessageBurst(int clientMessageBurst) {
+        if (clientMessageBurst < 1) {
+            throw new IllegalArgumentException("clientMessageBurst must be at least 1");
+        }
+        this.clientMessageBurst = clientMessageBurst;
+    }
+
+    /**
+     * Gets how many chat messages and whispers all clients together may send per second.
+     *
+     * @return the global rate, 0 when there is no global limit
+     */
+    public int getGlobalMessagesPerSecond() {
+        return globalMessagesPerSecond;
+    }
+
+    /**
+     * Sets how many chat messages and whispers all clients together may send per second.
+     *
+     * @param globalMessagesPerSecond the global rate, 0 for no limit
+     */
+    public void setGlobalMessagesPerSecond(int globalMessagesPerSecond) {
+        if (globalMessagesPerSecond < 0) {
+            throw new IllegalArgumentException("globalMessagesPerSecond must not be negative");
+        }
+        this.globalMessagesPerSecond = globalMessagesPerSecond;
+    }
+
+    /**
+     * Gets how many messages all clients together may send at once.
+     *
+     * @return the global burst
+     */
+    public int getGlobalMessageBurst() {
+        return globalMessageBurst;
+    }
+
+    /**
+     * Sets how many messages all clients together may send at once.
+     *
+     * @param globalMessageBurst the global burst, at least one
+     */
+    public void setGlobalMessageBurst(int globalMessageBurst) {
+        if (globalMessageBurst < 1) {
+            throw new IllegalArgumentException("globalMessageBurst must be at least 1");
+        }
+        this.globalMessageBurst = globalMessageBurst;
+    }
+
+    /**
+     * Gets how long a client may stay silent before it is sent a heartbeat.
+     *
+     * @return the heartbeat delay in seconds, 0 when no heartbeats are sent
+     */
+    public int getHeartbeatSeconds() {
+        return heartbeatSeconds;
+    }
+
+    /**
+     * Sets how long a client may stay silent before it is sent a heartbeat.
+     * Should be well below the idle timeout, so live clients can answer in time.
+     *
+     * @param heartbeatSeconds the heartbeat delay in seconds, 0 for no heartbeats
+     */
+    public void setHeartbeatSeconds(int heartbeatSeconds) {
+        if (heartbeatSeconds < 0) {
+            throw new IllegalArgumentException("heartbeatSeconds must not be negative");
+        }
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+
+    /**
+     * Gets how long a client may stay silent before it is disconnected.
+     *
+     * @return the idle timeout in seconds, 0 when idle clients are kept
+     */
+    public int getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    /**
+     * Sets how long a client may stay silent before it is disconnected.
+     *
+     * @param idleTimeoutSeconds the idle timeout in seconds, 0 to keep idle clients
+     */
+    public void setIdleTimeoutSeconds(int idleTimeoutSeconds) {
+        if (idleTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("idleTimeoutSeconds must not be negative");
+        }
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    /**
+     * Gets the local port of the HTTP metrics endpoint.
+     *
+     * @return the port, 0 when the endpoint is disabled
+     */
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * Sets the local port of the HTTP metrics endpoint.
+     *
+     * @param metricsPort the port, 0 to disable the endpoint
+     */
+    public void setMetricsPort(int metricsPort) {
+        if (metricsPort < 0 || metricsPort > 65535) {
+            throw new IllegalArgumentException("metricsPort must be between 0 and 65535");
+        }
+        this.metricsPort = metricsPort;
+    }
+
+    /**
+     * Checks whether metrics are published over JMX.
+     *
+     * @return true if the metrics MBean is registered
+     */
+    public boolean isMetricsJmx() {
+        return metricsJmx;
+    }
+
+    /**
+     * Enables or disables publishing metrics over JMX.
+     *
+     * @param metricsJmx true to register the metrics MBean
+     */
+    public void setMetricsJmx(boolean metricsJmx) {
+        this.metricsJmx = metricsJmx;
+    }
+
+    /**
+     * Gets the lowest level of log events that are written.
+     *
+     * @return the log level
+     */
+    public LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    /**
+     * Sets the lowest level of log events that are written.
+     *
+     * @param logLevel the log level, {@link LogLevel#OFF} to write nothing
+     */
+    public void setLogLevel(LogLevel logLevel) {
+        if (logLevel == null) {
+            throw new IllegalArgumentException("logLevel must not be null");
+        }
+        this.logLevel = logLevel;
+    }
+
+    /**
+     * Gets how many log events may wait for the background writer.
+     *
+     * @return the log buffer size
+     */
+    public int getLogBufferSize() {
+        return logBufferSize;
+    }
+
+    /**
+     * Sets how many log events may wait for the background writer.
+     * Events logged while the buffer is full are dropped, never waited for.
+     *
+     * @param logBufferSize the buffer size, rounded up to a power of two
+     */
+    public void setLogBufferSize(int logBufferSize) {
+        if (logBufferSize < 1) {
+            throw new IllegalArgumentException("logBufferSize must be at least 1");
+        }
+        this.logBufferSize = logBufferSize;
+    }
+
+    /**
+     * Gets the directory holding the message history.
+     *
+     * @return the directory, empty when no history is kept
+     */
+    public String getHistoryDirectory() {
+        return historyDirectory;
+    }
+
+    /**
+     * Sets the directory holding the message history.
+     *
+     * @param historyDirectory the directory, empty to keep no history
+     */
+    public void setHistoryDirectory(String historyDirectory) {
+        if (historyDirectory == null) {
+            throw new IllegalArgumentException("historyDirectory must not be null");
+        }
+        this.historyDirectory = historyDirectory.trim();
+    }
+
+    /**
+     * Gets the size of each history segment file.
+     *
+     * @return the segment size in bytes
+     */
+    public int getHistorySegmentBytes() {
+        return historySegmentBytes;
+    }
+
+    /**
+     * Sets the size of each history segment file. A message longer than
+     * a segment is left out of the history.
+     *
+     * @param historySegmentBytes the segment size in bytes, at least 4096
+     */
+    public void setHistorySegmentBytes(int historySegmentBytes) {
+        if (historySegmentBytes < 4096) {
+            throw new IllegalArgumentException("historySegmentBytes must be at least 4096");
+        }
+        this.historySegmentBytes = historySegmentBytes;
+    }
+
+    /**
+     * Gets how many history segments are kept.
+     *
+     * @return the segment count, the one being written included
+     */
+    public int getHistoryMaxSegments() {
+        return historyMaxSegments;
+    }
+
+    /**
+     * Sets how many history segments are kept; older ones are deleted.
+     *
+     * @param historyMaxSegments the segment count, at least 1
+     */
+    public void setHistoryMaxSegments(int historyMaxSegments) {
+        if (historyMaxSegments < 1) {
+            throw new IllegalArgumentException("historyMaxSegments must be at least 1");
+        }
+        this.historyMaxSegments = historyMaxSegments;
+    }
+
+    /**
+     * Gets the port other cluster nodes connect to.
+     *
+     * @return the cluster port, 0 when the server runs alone
+     */
+    public int getClusterPort() {
+        return clusterPort;
+    }
+
+    /**
+     * Sets the port other cluster nodes connect to.
+     *
+     * @param clusterPort the cluster port, 0 to run alone
+     */
+    public void setClusterPort(int clusterPort) {
+        if (clusterPort < 0 || clusterPort > 65535) {
+            throw new IllegalArgumentException("clusterPort must be between 0 and 65535");
+        }
+        this.clusterPort = clusterPort;
+    }
+
+    /**
+     * Gets the address the cluster port listens on.
+     *
+     * @return the bind address, loopback by default
+     */
+    public String getClusterBindAddress() {
+        return clusterBindAddress;
+    }
+
+    /**
+     * Sets the address the cluster port listens on. Links prove their node
+     * id at the handshake, but the messages after it are neither encrypted
+     * nor signed, so only open it on a network the nodes trust.
+     *
+     * @param clusterBindAddress a host name or IP address, {@code 0.0.0.0} for every interface
+     */
+    public void setClusterBindAddress(String clusterBindAddress) {
+        if (clusterBindAddress == null || clusterBindAddress.isBlank()) {
+            throw new IllegalArgumentException("clusterBindAddress must not be empty");
+        }
+        this.clusterBindAddress = clusterBindAddress.trim();
+    }
+
+    /**
+     * Gets the cluster ports of the other nodes.
+     *
+     * @return the peer addresses, unresolved
+     */
+    public List<InetSocketAddress> getClusterPeers() {
+        return clusterPeers;
+    }
+
+    /**
+     * Sets the cluster ports of the other nodes.
+     *
+     * @param peers comma-separated {@code host:port} pairs, empty for none
+     */
+    public void setClusterPeers(String peers) {
+        List<InetSocketAddress> parsed = new ArrayList<>();
+        for (String peer : peers.split(",")) {
+            String trimmed = peer.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            try {
+                int port = Integer.parseInt(trimmed.substring(colon + 1));
+                if (colon <= 0 || port < 1 || port > 65535) {
+                    throw new NumberFormatException();
+                }
+                parsed.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colon), port));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cluster peers must be host:port pairs, got: " + trimmed);
+            }
+        }
+        this.clusterPeers = List.copyOf(parsed);
+    }
+
+    /**
+     * Gets this node's id in the cluster.
+     *
+     * @return the node id, empty to derive one from the chat port
+     */
+    public String getClusterNodeId() {
+        return clusterNodeId;
+    }
+
+    /**
+     * Sets this node's id in the cluster.
+     *
+     * @param clusterNodeId the node id, empty to derive one from the chat port
+     */
+    public void setClusterNodeId(String clusterNodeId) {
+        if (clusterNodeId == null) {
+            throw new IllegalArgumentException("clusterNodeId must not be null");
+        }
+        this.clusterNodeId = clusterNodeId.trim();
+    }
+
+    /**
+     * Gets the secret every cluster node shares.
+     *
+     * @return the secret, empty for none
+     */
+    public String getClusterSecret() {
+        return clusterSecret;
+    }
+
+    /**
+     * Sets the secret every cluster node shares. With a secret, a peer proves
+     * its node id with it; without one, a peer is only recognised by its address.
+     *
+     * @param clusterSecret the secret, empty for none
+     */
+    public void setClusterSecret(String clusterSecret) {
+        if (clusterSecret == null) {
+            throw new IllegalArgumentException("clusterSecret must not be null");
+        }
+        this.clusterSecret = clusterSecret;
+    }
+
+    /**
+     * Gets the number of names per {@code /list} page.
+     *
+     * @return the page size
+     */
+    public int getListPageSize() {
+        return listPageSize;
+    }
+
+    /**
+     * Sets the number of names per {@code /list} page.
+     *
+     * @param listPageSize the page size, at least 1
+     */
+    public void setListPageSize(int listPageSize) {
+        if (listPageSize < 1) {
+            throw new IllegalArgumentException("listPageSize must be at least 1");
+        }
+        this.listPageSize = listPageSize;
+    }
+
+    /**
+     * Gets how long a shutdown waits for clients' queued output to be written
+     * before cutting them off.
+     *
+     * @return the drain deadline in milliseconds
+     */
+    public long getShutdownDrainMillis() {
+        return shutdownDrainMillis;
+    }
+
+    /**
+     * Sets how long a shutdown waits for clients' queued output to be written.
+     *
+     * @param shutdownDrainMillis the drain deadline in milliseconds, 0 to cut clients off at once
+     */
+    public void setShutdownDrainMillis(long shutdownDrainMillis) {
+        if (shutdownDrainMillis < 0) {
+            throw new IllegalArgumentException("shutdownDrainMillis must not be negative");
+        }
+        this.shutdownDrainMillis = shutdownDrainMillis;
+    }
+
+    /**
+     * Gets the socket file a restarted server uses to take over from this one.
+     *
+     * @return the socket path, empty when hot restarts are off
+     */
+    public String getHandoffSocket() {
+        return handoffSocket;
+    }
+
+    /**
+     * Sets the socket file a restarted server uses to take over from this one.
+     * Both servers must be given the same path and port.
+     *
+     * @param handoffSocket the socket path, empty to turn hot restarts off
+     */
+    public void setHandoffSocket(String handoffSocket) {
+        if (handoffSocket == null) {
+            throw new IllegalArgumentException("handoffSocket must not be null");
+        }
+        this.handoffSocket = handoffSocket.trim();
+    }
+
+    /**
+     * Gets how long a session whose connection dropped, or which was handed
+     * over by a previous server, can be resumed. Its username stays
+     * reserved for that long.
+     *
+     * @return the resume window in seconds
+     */
+    public int getResumeTtlSeconds() {
+        return resumeTtlSeconds;
+    }
+
+    /**
+     * Sets how long a dropped or handed over session can be resumed.
+     *
+     * @param resumeTtlSeconds the resume window in seconds
+     */
+    public void setResumeTtlSeconds(int resumeTtlSeconds) {
+        if (resumeTtlSeconds < 1) {
+            throw new IllegalArgumentException("resumeTtlSeconds must be at least 1");
+        }
+        this.resumeTtlSeconds = resumeTtlSeconds;
+    }
+
+    /**
+     * Builds the flush policy described by the batching settings.
+     *
+     * @return the flush policy
+     */
+    public FlushPolicy getFlushPolicy() {
+        if (!writeBatching) {
+            return FlushPolicy.IMMEDIATE;
+        }
+        return new FlushPolicy(true, flushThresholdBytes, flushMaxDelayMicros);
+    }
+}
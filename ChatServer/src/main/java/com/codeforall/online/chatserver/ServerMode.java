@@ -0,0 +1,47 @@
+package com.codeforall.online.chatserver;
+
+/**
+ * Execution models the server can use to serve client connections.
+ */
+public enum ServerMode {
+
+    /**
+     * Non-blocking transport: a small fixed set of selector loops
+     * multiplexes every connection.
+     */
+    NIO,
+
+    /**
+     * Classic model: each connection runs {@link ClientHandler#run()}
+     * on its own pooled platform thread. Its output is written by a
+     * {@link com.codeforall.online.chatserver.transport.BlockingOutboundWriter}
+     * on a second one, so that a slow reader never holds up the thread
+     * broadcasting to it. Every client therefore costs two platform
+     * threads and their stacks; use {@link #NIO} for many clients.
+     */
+    BLOCKING,
+
+    /**
+     * Same as {@link #BLOCKING}, but the reader and the writer of each
+     * client run on virtual threads, so the second thread per client
+     * costs little more than its queue. Requires a Java 21 runtime; on
+     * older ones it falls back to two platform threads per client.
+     */
+    VIRTUAL;
+
+    /**
+     * Resolves a mode from its name, ignoring case.
+     *
+     * @param value the mode name, e.g. "nio" or "blocking"
+     * @return the matching mode
+     * @throws IllegalArgumentException if no mode has that name
+     */
+    public static ServerMode fromString(String value) {
+        for (ServerMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown server mode: " + value);
+    }
+}
@@ -0,0 +1,34 @@
+package com.codeforall.online.chatserver;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access point to virtual threads.
+ * This is the Java 17 version, used when the runtime has no virtual threads.
+ * A Java 21 build of this class lives in {@code src/main/java21} and is
+ * packaged as a multi-release entry by the {@code java21} Maven profile.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks whether virtual threads are available on this runtime.
+     *
+     * @return always false on Java 17
+     */
+    public static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return never returns on Java 17
+     * @throws UnsupportedOperationException always
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        throw new UnsupportedOperationException("Virtual threads require Java 21");
+    }
+}
@@ -0,0 +1,118 @@
+package com.codeforall.online.chatserver.broadcast;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.metrics.ServerMetrics;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans broadcasts out in parallel. Each shard of a {@link ShardedClientSet}
+ * is owned by one single-threaded worker, which queues the message for
+ * the clients of its shard. Workers process their tasks in submission
+ * order, and a sender submits its broadcasts one after another, so every
+ * recipient still sees each sender's broadcasts in the order they were sent.
+ * Messages sent directly with {@link ClientHandler#send(String)} do not
+ * go through the workers and are not ordered against broadcasts.
+ */
+public class BroadcastShards {
+
+    private final ExecutorService[] workers;
+    private final ServerMetrics metrics;
+
+    /**
+     * Starts one worker thread per shard.
+     *
+     * @param shardCount the number of shards, at least one
+     */
+    public BroadcastShards(int shardCount) {
+        this(shardCount, new ServerMetrics());
+    }
+
+    /**
+     * Starts one worker thread per shard, recording fan-out times.
+     * Each shard records the time from the broadcast until its part was queued.
+     *
+     * @param shardCount the number of shards, at least one
+     * @param metrics    where fan-out times are recorded
+     */
+    public BroadcastShards(int shardCount, ServerMetrics metrics) {
+        this.metrics = metrics;
+        workers = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "broadcast-shard-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int shardCount() {
+        return workers.length;
+    }
+
+    /**
+     * Hands a message to every worker whose shard has recipients.
+     * Returns as soon as the work is queued.
+     *
+     * @param recipients the clients to reach, sharded like these workers
+     * @param message    the encoded message
+     */
+    public void fanOut(ShardedClientSet recipients, EncodedMessage message) {
+        long start = System.nanoTime();
+        for (int i = 0; i < workers.length; i++) {
+            Set<ClientHandler> shard = recipients.shard(i);
+            if (shard.isEmpty()) {
+                continue;
+            }
+            try {
+                workers[i].execute(() -> {
+                    for (ClientHandler client : shard) {
+                        client.send(message);
+                    }
+                    metrics.fanOut(System.nanoTime() - start);
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down, nobody is listening anymore
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lets the workers finish the broadcasts already queued, then stops them.
+     *
+     * @param timeoutMillis the longest time to wait for queued broadcasts
+     */
+    public void shutdown(long timeoutMillis) {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (ExecutorService worker : workers) {
+                long remaining = deadline - System.nanoTime();
+                if (!worker.awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                    worker.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (ExecutorService worker : workers) {
+                worker.shutdownNow();
+            }
+            Thread.currentThread().interrupt();
+        }
+    }
+}
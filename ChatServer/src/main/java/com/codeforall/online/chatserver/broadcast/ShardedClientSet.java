@@ -0,0 +1,162 @@
+package com.codeforall.online.chatserver.broadcast;
+
+import com.codeforall.online.chatserver.ClientHandler;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent set of clients split into a fixed number of shards.
+ * A client always lands in the same shard, chosen from its identity hash,
+ * so every sharded set agrees on which {@link BroadcastShards} worker
+ * owns it. With a single shard this is just a concurrent set.
+ */
+public class ShardedClientSet implements Iterable<ClientHandler> {
+
+    private final Set<ClientHandler>[] shards;
+
+    /**
+     * Creates an empty set with the given number of shards.
+     *
+     * @param shardCount the number of shards, at least one
+     */
+    public ShardedClientSet(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        shards = newShardArray(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * Creates an empty array of shards. Java cannot create an array of a
+     * parameterized type, so the raw array is cast once, here.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Set<ClientHandler>[] newShardArray(int length) {
+        return new Set[length];
+    }
+
+    /**
+     * Adds a client to its shard.
+     *
+     * @param client the client to add
+     */
+    public void add(ClientHandler client) {
+        shards[shardOf(client)].add(client);
+    }
+
+    /**
+     * Removes a client from its shard.
+     *
+     * @param client the client to remove
+     */
+    public void remove(ClientHandler client) {
+        shards[shardOf(client)].remove(client);
+    }
+
+    /**
+     * Checks whether a client is in the set.
+     *
+     * @param client the client to check
+     * @return true if present
+     */
+    public boolean contains(ClientHandler client) {
+        return shards[shardOf(client)].contains(client);
+    }
+
+    /**
+     * Gets the total number of clients.
+     *
+     * @return the client count
+     */
+    public int size() {
+        int size = 0;
+        for (Set<ClientHandler> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether the set holds no clients.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        for (Set<ClientHandler> shard : shards) {
+            if (!shard.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every client.
+     */
+    public void clear() {
+        for (Set<ClientHandler> shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return the shard count
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Gets the clients of one shard.
+     *
+     * @param index the shard index
+     * @return a live, weakly consistent view of the shard
+     */
+    public Set<ClientHandler> shard(int index) {
+        return shards[index];
+    }
+
+    /**
+     * Returns a weakly consistent iterator over all shards in turn.
+     *
+     * @return an iterator that tolerates concurrent changes
+     */
+    @Override
+    public Iterator<ClientHandler> iterator() {
+        return new Iterator<>() {
+            private int index = 0;
+            private Iterator<ClientHandler> current = shards[0].iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && index + 1 < shards.length) {
+                    current = shards[++index].iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ClientHandler next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Picks the shard of a client.
+     */
+    private int shardOf(ClientHandler client) {
+        return Math.floorMod(System.identityHashCode(client), shards.length);
+    }
+}
@@ -0,0 +1,31 @@
+package com.codeforall.online.chatserver.cluster;
+
+/**
+ * Receives what a {@link ClusterTransport} hears from other nodes.
+ * Callbacks run on transport threads.
+ */
+public interface ClusterListener {
+
+    /**
+     * Called when a link to a peer is up, so this node can send the peer
+     * its current state.
+     *
+     * @param node the peer's node id
+     */
+    void onPeerConnected(String node);
+
+    /**
+     * Called when everything a peer announced so far must be forgotten:
+     * its link went down, or it reconnected and will announce again.
+     *
+     * @param node the peer's node id
+     */
+    void onPeerLost(String node);
+
+    /**
+     * Called for every message a peer sends.
+     *
+     * @param message the message
+     */
+    void onMessage(ClusterMessage message);
+}
@@ -0,0 +1,137 @@
+package com.codeforall.online.chatserver.cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One message exchanged between cluster nodes. On the wire it is a frame:
+ * <pre>
+ *     [i32 length][u8 kind][node][target][text]
+ * </pre>
+ * where each string is an {@code i32} byte count followed by UTF-8.
+ *
+ * @param kind   what the message asks the receiver to do
+ * @param node   the node that sent it
+ * @param target the room or username it concerns, empty if none
+ * @param text   the chat text, empty if none
+ */
+public record ClusterMessage(Kind kind, String node, String target, String text) {
+
+    /**
+     * Largest frame accepted from a peer.
+     */
+    static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /**
+     * The kinds of cluster messages.
+     */
+    public enum Kind {
+
+        /**
+         * First message on a link in each direction; carries the sender's node id.
+         */
+        HELLO,
+
+        /**
+         * A broadcast to every client.
+         */
+        BROADCAST,
+
+        /**
+         * A broadcast to the room named by the target.
+         */
+        ROOM,
+
+        /**
+         * A private message for the user named by the target.
+         */
+        WHISPER,
+
+        /**
+         * The user named by the target is now connected to the sender.
+         */
+        JOIN,
+
+        /**
+         * The user named by the target left the sender.
+         */
+        LEAVE
+    }
+
+    /**
+     * Creates a message, treating missing strings as empty.
+     */
+    public ClusterMessage {
+        target = target == null ? "" : target;
+        text = text == null ? "" : text;
+    }
+
+    /**
+     * Encodes the message as a frame.
+     *
+     * @return the frame bytes
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + text.length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeByte(kind.ordinal());
+            writeString(out, node);
+            writeString(out, target);
+            writeString(out, text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] frame = bytes.toByteArray();
+        ByteBuffer.wrap(frame).putInt(frame.length - Integer.BYTES);
+        return frame;
+    }
+
+    /**
+     * Reads one frame.
+     *
+     * @param in the peer's input
+     * @return the decoded message
+     * @throws IOException if the stream ends or the frame is malformed
+     */
+    public static ClusterMessage read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Bad cluster frame length: " + length);
+        }
+
+        int kind = in.readUnsignedByte();
+        if (kind >= Kind.values().length) {
+            throw new IOException("Unknown cluster message kind: " + kind);
+        }
+        return new ClusterMessage(Kind.values()[kind], readString(in), readString(in), readString(in));
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Bad cluster string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
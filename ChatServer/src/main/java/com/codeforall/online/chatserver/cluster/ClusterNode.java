@@ -0,0 +1,198 @@
+package com.codeforall.online.chatserver.cluster;
+
+import com.codeforall.online.chatserver.ChatServer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Joins a {@link ChatServer} to a cluster. Local broadcasts, room messages
+ * and presence changes are published to the other nodes through a
+ * {@link ClusterTransport}; what the peers publish is delivered to the
+ * local clients and kept in a {@link PresenceDirectory}, so whispers and
+ * user lists reach users connected elsewhere.
+ * <p>
+ * Usernames are checked against the directory before they are taken, but
+ * two nodes can still accept the same name at the same moment; the later
+ * announcement then wins in the directory.
+ */
+public class ClusterNode implements ClusterListener {
+
+    private final ChatServer server;
+    private final ClusterTransport transport;
+    private final String nodeId;
+    private final PresenceDirectory directory = new PresenceDirectory();
+
+    /**
+     * Creates a cluster node for a server.
+     *
+     * @param server    the local server
+     * @param transport carries messages to and from the other nodes
+     * @param nodeId    this node's id, unique in the cluster
+     */
+    public ClusterNode(ChatServer server, ClusterTransport transport, String nodeId) {
+        this.server = server;
+        this.transport = transport;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Starts talking to the other nodes.
+     *
+     * @throws IOException if the transport cannot start
+     */
+    public void start() throws IOException {
+        transport.start(this);
+    }
+
+    /**
+     * Leaves the cluster.
+     */
+    public void close() {
+        transport.close();
+    }
+
+    /**
+     * Relays a broadcast to every other node.
+     *
+     * @param text the message
+     */
+    public void publishBroadcast(String text) {
+        transport.publish(new ClusterMessage(ClusterMessage.Kind.BROADCAST, nodeId, null, text));
+    }
+
+    /**
+     * Relays a room message to every other node.
+     *
+     * @param room the room name
+     * @param text the message
+     */
+    public void publishToRoom(String room, String text) {
+        transport.publish(new ClusterMessage(ClusterMessage.Kind.ROOM, nodeId, room, text));
+    }
+
+    /**
+     * Sends a private message to a user connected to another node.
+     *
+     * @param name the recipient's username
+     * @param text the message as the recipient should see it
+     * @return false if no reachable node has that user
+     */
+    public boolean whisper(String name, String text) {
+        String node = directory.nodeOf(name);
+        return node != null
+                && transport.send(node, new ClusterMessage(ClusterMessage.Kind.WHISPER, nodeId, name, text));
+    }
+
+    /**
+     * Announces a user who joined this node.
+     *
+     * @param name the username
+     */
+    public void joined(String name) {
+        transport.publish(new ClusterMessage(ClusterMessage.Kind.JOIN, nodeId, name, null));
+    }
+
+    /**
+     * Announces a user who left this node.
+     *
+     * @param name the username
+     */
+    public void left(String name) {
+        transport.publish(new ClusterMessage(ClusterMessage.Kind.LEAVE, nodeId, name, null));
+    }
+
+    /**
+     * Checks whether a username is in use on another node.
+     *
+     * @param name the username
+     * @return true if a peer announced it
+     */
+    public boolean isRemoteName(String name) {
+        return directory.nodeOf(name) != null;
+    }
+
+    /**
+     * Lists the users connected to other nodes.
+     *
+     * @return the usernames
+     */
+    public List<String> remoteNames() {
+        return directory.names();
+    }
+
+    /**
+     * Gets the number of reachable peers.
+     *
+     * @return the connected peer count
+     */
+    public int getConnectedPeers() {
+        return transport.getConnectedPeers();
+    }
+
+    /**
+     * Gets the number of messages the transport had to drop.
+     *
+     * @return the dropped message count
+     */
+    public long getDroppedMessages() {
+        return transport.getDroppedMessages();
+    }
+
+    /**
+     * Gets this node's id.
+     *
+     * @return the node id
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Tells a newly connected peer about every local user.
+     *
+     * @param node the peer's node id
+     */
+    @Override
+    public void onPeerConnected(String node) {
+        for (String name : server.localNames()) {
+            transport.send(node, new ClusterMessage(ClusterMessage.Kind.JOIN, nodeId, name, null));
+        }
+    }
+
+    /**
+     * Forgets the users of a peer.
+     *
+     * @param node the peer's node id
+     */
+    @Override
+    public void onPeerLost(String node) {
+        directory.removeNode(node);
+        server.getPresence().removeOwner(node);
+    }
+
+    /**
+     * Delivers a peer's message locally or updates the directory.
+     *
+     * @param message the message
+     */
+    @Override
+    public void onMessage(ClusterMessage message) {
+        switch (message.kind()) {
+            case BROADCAST -> server.relayBroadcast(message.text());
+            case ROOM -> server.relayToRoom(message.target(), message.text());
+            case WHISPER -> server.relayWhisper(message.target(), message.text());
+            case JOIN -> {
+                directory.add(message.node(), message.target());
+                server.getPresence().add(message.node(), message.target());
+            }
+            case LEAVE -> {
+                directory.remove(message.node(), message.target());
+                server.getPresence().remove(message.node(), message.target());
+            }
+            default -> {
+                // HELLO is handled by the transport
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.codeforall.online.chatserver.cluster;
+
+import java.io.IOException;
+
+/**
+ * Carries {@link ClusterMessage}s between the nodes of a cluster.
+ * Implementations must never block the caller of {@link #publish} or
+ * {@link #send}: messages that cannot be queued are dropped and counted.
+ * Messages from one node must arrive in the order they were sent.
+ */
+public interface ClusterTransport {
+
+    /**
+     * Starts exchanging messages.
+     *
+     * @param listener receives messages and peer events
+     * @throws IOException if the transport cannot start
+     */
+    void start(ClusterListener listener) throws IOException;
+
+    /**
+     * Sends a message to every connected peer.
+     *
+     * @param message the message
+     */
+    void publish(ClusterMessage message);
+
+    /**
+     * Sends a message to one peer.
+     *
+     * @param node    the peer's node id
+     * @param message the message
+     * @return false if the peer is not connected or its queue is full
+     */
+    boolean send(String node, ClusterMessage message);
+
+    /**
+     * Gets the number of peers currently reachable.
+     *
+     * @return the connected peer count
+     */
+    int getConnectedPeers();
+
+    /**
+     * Gets the number of messages dropped because a peer's queue was full.
+     *
+     * @return the count since the transport started
+     */
+    long getDroppedMessages();
+
+    /**
+     * Stops the transport and closes every link.
+     */
+    void close();
+}
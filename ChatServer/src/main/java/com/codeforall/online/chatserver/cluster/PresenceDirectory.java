@@ -0,0 +1,91 @@
+package com.codeforall.online.chatserver.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which users are connected to which other node. Built from the join and
+ * leave announcements of the peers; names are matched ignoring case, like
+ * local usernames.
+ */
+public class PresenceDirectory {
+
+    private final ConcurrentHashMap<String, Presence> users = new ConcurrentHashMap<>();
+
+    /**
+     * Records that a user is connected to a node.
+     *
+     * @param node the node id
+     * @param name the username
+     */
+    public void add(String node, String name) {
+        users.put(nameKey(name), new Presence(name, node));
+    }
+
+    /**
+     * Forgets a user, unless it has meanwhile been announced by another node.
+     *
+     * @param node the node that announced the leave
+     * @param name the username
+     */
+    public void remove(String node, String name) {
+        users.computeIfPresent(nameKey(name), (key, presence) -> presence.node().equals(node) ? null : presence);
+    }
+
+    /**
+     * Forgets every user of a node.
+     *
+     * @param node the node id
+     */
+    public void removeNode(String node) {
+        users.values().removeIf(presence -> presence.node().equals(node));
+    }
+
+    /**
+     * Finds the node a user is connected to.
+     *
+     * @param name the username
+     * @return the node id, or null if no peer announced the user
+     */
+    public String nodeOf(String name) {
+        Presence presence = users.get(nameKey(name));
+        return presence != null ? presence.node() : null;
+    }
+
+    /**
+     * Lists the users of other nodes.
+     *
+     * @return the usernames, in no particular order
+     */
+    public List<String> names() {
+        List<String> names = new ArrayList<>(users.size());
+        for (Presence presence : users.values()) {
+            names.add(presence.name());
+        }
+        return names;
+    }
+
+    /**
+     * Gets the number of users on other nodes.
+     *
+     * @return the remote user count
+     */
+    public int size() {
+        return users.size();
+    }
+
+    /**
+     * Normalises a username for case-insensitive lookups.
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A user and the node it is connected to.
+     */
+    private record Presence(String name, String node) {
+    }
+}
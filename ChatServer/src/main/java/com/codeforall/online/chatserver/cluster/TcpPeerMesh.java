@@ -0,0 +1,446 @@
+package com.codeforall.online.chatserver.cluster;
+
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * {@link ClusterTransport} over plain TCP. Every node listens on a cluster
+ * port and dials each configured peer, so every pair of nodes is joined by
+ * two connections: a node writes only on the links it dialed and reads only
+ * on the links it accepted. Both ends open with a {@link ClusterMessage.Kind#HELLO}
+ * naming their node. Dialed links are re-established after a failure.
+ * <p>
+ * The cluster port listens on loopback unless told otherwise. A node proves
+ * who it is in its HELLO with an HMAC of its id under the shared cluster
+ * secret; without a secret, an accepted link must come from the address at
+ * which one of our own dials reached the node it names. Either way, messages
+ * on an accepted link are only read once that node has answered one of our
+ * dials to a configured peer, and only while no other link from it is open.
+ * Idle dialed links repeat their HELLO as a heartbeat, so a link whose peer
+ * died is noticed and closed within {@link #LINK_TIMEOUT_MILLIS}.
+ * <p>
+ * Each dialed link has a bounded queue and a writer thread, so publishing
+ * costs the caller one encoding and one queue offer per peer.
+ */
+public class TcpPeerMesh implements ClusterTransport {
+
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 1000;
+    private static final long POLL_MILLIS = 100;
+    private static final long UNKNOWN_PEER_MILLIS = 3000;
+    private static final long HEARTBEAT_MILLIS = 1000;
+    static final int LINK_TIMEOUT_MILLIS = 5000;
+
+    private final String nodeId;
+    private final String bindAddress;
+    private final int port;
+    private final List<InetSocketAddress> peers;
+    private final byte[] secret;
+    private final EventLog log;
+
+    private final List<PeerLink> links = new ArrayList<>();
+    private final Map<String, PeerLink> linksByNode = new ConcurrentHashMap<>();
+    private final Map<String, Socket> inbound = new ConcurrentHashMap<>();
+    private final Map<String, InetAddress> knownNodes = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running = false;
+    private ClusterListener listener;
+    private ServerSocket serverSocket;
+
+    /**
+     * Creates a mesh node.
+     *
+     * @param nodeId      this node's id, unique in the cluster
+     * @param bindAddress the address the cluster port listens on
+     * @param port        the port peers connect to
+     * @param peers       the cluster ports of the other nodes
+     * @param secret      the secret every node shares, empty for none
+     * @param log         where link changes are reported
+     */
+    public TcpPeerMesh(String nodeId, String bindAddress, int port, List<InetSocketAddress> peers, String secret,
+                       EventLog log) {
+        this.nodeId = nodeId;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.peers = List.copyOf(peers);
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.log = log;
+    }
+
+    /**
+     * Binds the cluster port and starts dialing the peers.
+     *
+     * @param listener receives messages and peer events
+     * @throws IOException if the cluster port cannot be bound
+     */
+    @Override
+    public void start(ClusterListener listener) throws IOException {
+        this.listener = listener;
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(bindAddress));
+        running = true;
+
+        Thread acceptor = new Thread(this::acceptLoop, "cluster-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (InetSocketAddress peer : peers) {
+            PeerLink link = new PeerLink(peer);
+            links.add(link);
+            Thread thread = new Thread(link, "cluster-peer-" + link.describe());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        log.log(LogLevel.INFO, EventType.SERVER, "Cluster node " + nodeId + " listening on "
+                + bindAddress + ":" + serverSocket.getLocalPort() + " with " + peers.size() + " peers");
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        byte[] frame = message.encode();
+        for (PeerLink link : links) {
+            link.offer(frame);
+        }
+    }
+
+    @Override
+    public boolean send(String node, ClusterMessage message) {
+        PeerLink link = linksByNode.get(node);
+        return link != null && link.offer(message.encode());
+    }
+
+    @Override
+    public int getConnectedPeers() {
+        return linksByNode.size();
+    }
+
+    @Override
+    public long getDroppedMessages() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverSocket);
+        for (PeerLink link : links) {
+            link.close();
+        }
+        for (Socket socket : inbound.values()) {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Accepts links dialed by peers until the mesh is closed.
+     */
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> readLoop(socket), "cluster-in-" + socket.getRemoteSocketAddress());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    log.log(LogLevel.WARN, EventType.ERROR, "Error accepting cluster peer: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers the handshake of an accepted link, then hands every message
+     * to the listener. A link is closed before any of its messages are read
+     * if its node cannot prove who it is, is not a configured peer or
+     * already has a link open.
+     */
+    private void readLoop(Socket socket) {
+        String node = null;
+        try (socket) {
+            socket.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            ClusterMessage hello = ClusterMessage.read(in);
+            if (hello.kind() != ClusterMessage.Kind.HELLO || !isProven(hello)) {
+                log.log(LogLevel.WARN, EventType.SERVER, "Refusing cluster link without a valid hello from "
+                        + socket.getRemoteSocketAddress());
+                return;
+            }
+            out.write(hello().encode());
+            out.flush();
+            if (!awaitKnown(hello.node(), socket.getInetAddress())) {
+                log.log(LogLevel.WARN, EventType.SERVER, "Refusing cluster link from unknown node " + hello.node()
+                        + " at " + socket.getRemoteSocketAddress());
+                return;
+            }
+            if (inbound.putIfAbsent(hello.node(), socket) != null) {
+                log.log(LogLevel.WARN, EventType.SERVER, "Refusing second cluster link from node " + hello.node()
+                        + " at " + socket.getRemoteSocketAddress());
+                return;
+            }
+
+            node = hello.node();
+            socket.setSoTimeout(LINK_TIMEOUT_MILLIS);
+            listener.onPeerLost(node);
+
+            while (running) {
+                ClusterMessage message = ClusterMessage.read(in);
+                if (message.kind() != ClusterMessage.Kind.HELLO && message.node().equals(node)) {
+                    listener.onMessage(message);
+                }
+            }
+        } catch (IOException e) {
+            // the peer went away or fell silent; its presence is dropped below
+        } finally {
+            if (node != null && inbound.remove(node, socket)) {
+                listener.onPeerLost(node);
+            }
+        }
+    }
+
+    /**
+     * Waits for one of the dialed links to reach a node. The peer that dialed
+     * us is normally reached moments later, since it is listening too.
+     * Without a cluster secret, the link must also come from the address at
+     * which the node was reached.
+     *
+     * @param node    the node id the accepted link claims
+     * @param address the address the accepted link comes from
+     * @return false if no configured peer turned out to be that node
+     */
+    private boolean awaitKnown(String node, InetAddress address) {
+        long deadline = System.currentTimeMillis() + UNKNOWN_PEER_MILLIS;
+        InetAddress known;
+        while ((known = knownNodes.get(node)) == null) {
+            if (!running || System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return secret.length > 0 || known.equals(address);
+    }
+
+    /**
+     * Builds this node's HELLO, with its proof if a cluster secret is set.
+     */
+    private ClusterMessage hello() {
+        return new ClusterMessage(ClusterMessage.Kind.HELLO, nodeId, null, proof(nodeId));
+    }
+
+    /**
+     * Checks the proof in a peer's HELLO. Without a cluster secret there is
+     * nothing to check.
+     */
+    private boolean isProven(ClusterMessage hello) {
+        return MessageDigest.isEqual(proof(hello.node()).getBytes(StandardCharsets.UTF_8),
+                hello.text().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the HMAC of a node id under the cluster secret.
+     *
+     * @return the proof in Base64, empty without a secret
+     */
+    private String proof(String node) {
+        if (secret.length == 0) {
+            return "";
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            return Base64.getEncoder().encodeToString(mac.doFinal(node.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Closes a socket, ignoring errors.
+     */
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing else to release
+        }
+    }
+
+    /**
+     * A dialed link to one peer: connects, says hello, then writes queued
+     * frames until the connection fails, and starts over.
+     */
+    private class PeerLink implements Runnable {
+
+        private final InetSocketAddress address;
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private volatile boolean connected = false;
+        private volatile Socket socket;
+
+        PeerLink(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Queues a frame unless the link is down.
+         *
+         * @return false if the frame was not queued
+         */
+        boolean offer(byte[] frame) {
+            if (!connected) {
+                return false;
+            }
+            if (!queue.offer(frame)) {
+                dropped.increment();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                String node = null;
+                try (Socket s = new Socket()) {
+                    socket = s;
+                    s.connect(new InetSocketAddress(address.getHostString(), address.getPort()),
+                            CONNECT_TIMEOUT_MILLIS);
+                    s.setTcpNoDelay(true);
+
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                    out.write(hello().encode());
+                    out.flush();
+
+                    s.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+                    ClusterMessage hello = ClusterMessage.read(in);
+                    s.setSoTimeout(0);
+                    if (hello.kind() != ClusterMessage.Kind.HELLO || !isProven(hello)) {
+                        throw new IOException("Cluster peer " + describe() + " did not prove who it is");
+                    }
+                    node = hello.node();
+                    if (node.equals(nodeId)) {
+                        log.log(LogLevel.WARN, EventType.SERVER, "Cluster peer " + describe() + " is this node, ignoring it");
+                        return;
+                    }
+
+                    knownNodes.put(node, s.getInetAddress());
+                    queue.clear();
+                    connected = true;
+                    linksByNode.put(node, this);
+                    log.log(LogLevel.INFO, EventType.SERVER, "Connected to cluster node " + node + " at " + describe());
+                    listener.onPeerConnected(node);
+
+                    pump(out);
+                } catch (IOException e) {
+                    if (node != null && running) {
+                        log.log(LogLevel.WARN, EventType.ERROR, "Lost cluster node " + node + ": " + e.getMessage());
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    connected = false;
+                    if (node != null) {
+                        linksByNode.remove(node, this);
+                    }
+                }
+
+                if (!sleepBeforeReconnect()) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Writes queued frames, flushing whenever the queue runs empty, and
+         * repeats the HELLO when the link has been idle for a while.
+         */
+        private void pump(DataOutputStream out) throws IOException, InterruptedException {
+            byte[] heartbeat = hello().encode();
+            long lastWrite = System.nanoTime();
+            while (running) {
+                byte[] frame = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    if (System.nanoTime() - lastWrite >= TimeUnit.MILLISECONDS.toNanos(HEARTBEAT_MILLIS)) {
+                        out.write(heartbeat);
+                        out.flush();
+                        lastWrite = System.nanoTime();
+                    }
+                    continue;
+                }
+                lastWrite = System.nanoTime();
+                do {
+                    out.write(frame);
+                } while ((frame = queue.poll()) != null);
+                out.flush();
+            }
+        }
+
+        /**
+         * Waits before dialing again.
+         *
+         * @return false if the link should stop instead
+         */
+        private boolean sleepBeforeReconnect() {
+            if (!running) {
+                return false;
+            }
+            try {
+                Thread.sleep(RECONNECT_MILLIS);
+                return true;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Formats the peer address as {@code host:port}.
+         */
+        String describe() {
+            return address.getHostString() + ":" + address.getPort();
+        }
+
+        /**
+         * Closes the current connection, if any.
+         */
+        void close() {
+            closeQuietly(socket);
+        }
+    }
+}
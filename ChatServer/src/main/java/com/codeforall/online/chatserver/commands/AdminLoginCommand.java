@@ -13,19 +13,17 @@ public class AdminLoginCommand implements Commands {
      * Validates the admin password and grants admin privileges
      * to the client if the password is correct.
      *
-     * @param fullCommand the full command line typed by the client
-     * @param handler     the client executing the command
+     * @param command the tokenized command line
+     * @param handler the client executing the command
      * @throws InvalidCommandArgumentsException if the password is missing
      */
     @Override
-    public void execute(String fullCommand, ClientHandler handler) {
-        String[] parts = fullCommand.split("\\s+", 2);
-
-        if (parts.length < 2) {
+    public void execute(CommandLine command, ClientHandler handler) {
+        if (!command.hasArguments()) {
             throw new InvalidCommandArgumentsException("Usage: /admin <password>");
         }
 
-        String password = parts[1];
+        String password = command.arguments();
 
         if (handler.getServer().isValidAdminPassword(password)) {
             handler.setAdmin(true);
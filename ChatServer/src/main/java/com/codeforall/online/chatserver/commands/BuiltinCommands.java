@@ -0,0 +1,26 @@
+package com.codeforall.online.chatserver.commands;
+
+/**
+ * Provides the commands that ship with the server.
+ */
+public class BuiltinCommands implements CommandProvider {
+
+    /**
+     * Registers the built-in commands.
+     *
+     * @param table the table to register the commands in
+     */
+    @Override
+    public void registerCommands(CommandTable table) {
+        table.register("/help", new HelpCommand());
+        table.register("/list", new ListCommand());
+        table.register("/name", new NameCommand());
+        table.register("/whisper", new WhisperCommand());
+        table.register("/admin", new AdminLoginCommand());
+        table.register("/shutdown", new ShutdownCommand());
+        table.register("/join", new JoinCommand());
+        table.register("/leave", new LeaveCommand());
+        table.register("/rooms", new RoomsCommand());
+        table.register("/history", new HistoryCommand());
+    }
+}
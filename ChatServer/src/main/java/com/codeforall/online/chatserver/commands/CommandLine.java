@@ -0,0 +1,187 @@
+package com.codeforall.online.chatserver.commands;
+
+/**
+ * Tokenizer for one command line. It works on the line in place: the
+ * command token and the arguments are located by offsets, and a substring
+ * is only created when a command asks for an argument value. Whitespace is
+ * the same set matched by the regex {@code \s}.
+ * <p>
+ * One instance is reused for every line of a connection, so it is not
+ * thread-safe; each client handler owns its own.
+ */
+public final class CommandLine {
+
+    private String line = "";
+    private int commandStart;
+    private int commandEnd;
+
+    /**
+     * Points the tokenizer at a new line and locates its command token.
+     *
+     * @param line the line typed by the client
+     * @return true if the line holds a token starting with '/', false otherwise
+     */
+    public boolean parse(String line) {
+        this.line = line;
+        this.commandStart = skipWhitespace(0);
+        this.commandEnd = tokenEnd(commandStart);
+        return commandStart < commandEnd && line.charAt(commandStart) == '/';
+    }
+
+    /**
+     * Points the tokenizer at the arguments of a command that was named by
+     * other means, e.g. a binary opcode. The command token is empty.
+     *
+     * @param arguments the argument text
+     */
+    public void parseArguments(String arguments) {
+        this.line = arguments;
+        this.commandStart = 0;
+        this.commandEnd = 0;
+    }
+
+    /**
+     * Gets the line being tokenized.
+     *
+     * @return the full line
+     */
+    public String line() {
+        return line;
+    }
+
+    /**
+     * Gets the offset of the command token's first character.
+     *
+     * @return the start offset, inclusive
+     */
+    public int commandStart() {
+        return commandStart;
+    }
+
+    /**
+     * Gets the offset just past the command token.
+     *
+     * @return the end offset, exclusive
+     */
+    public int commandEnd() {
+        return commandEnd;
+    }
+
+    /**
+     * Copies the command token, e.g. {@code /whisper}.
+     *
+     * @return the command token
+     */
+    public String command() {
+        return line.substring(commandStart, commandEnd);
+    }
+
+    /**
+     * Checks whether anything but whitespace follows the command token.
+     *
+     * @return true if the command has arguments
+     */
+    public boolean hasArguments() {
+        return skipWhitespace(commandEnd) < line.length();
+    }
+
+    /**
+     * Counts the whitespace-separated arguments after the command token.
+     *
+     * @return the number of arguments
+     */
+    public int argumentCount() {
+        int count = 0;
+        int start = skipWhitespace(commandEnd);
+
+        while (start < line.length()) {
+            count++;
+            start = skipWhitespace(tokenEnd(start));
+        }
+        return count;
+    }
+
+    /**
+     * Copies one whitespace-separated argument.
+     *
+     * @param index the argument number, starting at 0
+     * @return the argument, or null if there are not that many
+     */
+    public String argument(int index) {
+        int start = argumentStart(index);
+        if (start == line.length()) {
+            return null;
+        }
+        return line.substring(start, tokenEnd(start));
+    }
+
+    /**
+     * Copies everything after the command token, without surrounding whitespace.
+     *
+     * @return the arguments, or an empty string if there are none
+     */
+    public String arguments() {
+        return argumentsFrom(0);
+    }
+
+    /**
+     * Copies the rest of the line starting at one argument, without
+     * trailing whitespace. Whitespace between later arguments is kept,
+     * so this suits free text such as a whisper's message.
+     *
+     * @param index the first argument to include, starting at 0
+     * @return the remaining text, or an empty string if there are not that many arguments
+     */
+    public String argumentsFrom(int index) {
+        int start = argumentStart(index);
+        int end = line.length();
+
+        while (end > start && isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        return line.substring(start, end);
+    }
+
+    /**
+     * Finds where an argument starts.
+     *
+     * @return the offset of the argument, or the line length if there are not that many
+     */
+    private int argumentStart(int index) {
+        int start = skipWhitespace(commandEnd);
+
+        for (int i = 0; i < index && start < line.length(); i++) {
+            start = skipWhitespace(tokenEnd(start));
+        }
+        return start;
+    }
+
+    /**
+     * Finds the first non-whitespace character at or after an offset.
+     */
+    private int skipWhitespace(int from) {
+        int i = from;
+        while (i < line.length() && isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the end of the token starting at an offset.
+     */
+    private int tokenEnd(int from) {
+        int i = from;
+        while (i < line.length() && !isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Matches the characters of the regex class {@code \s}.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,21 @@
+package com.codeforall.online.chatserver.commands;
+
+/**
+ * Supplies commands to the server's {@link CommandRegistry}.
+ * <p>
+ * Besides the built-in commands, providers are discovered with
+ * {@link java.util.ServiceLoader}: to add commands without touching the
+ * server, implement this interface and list the class in
+ * {@code META-INF/services/com.codeforall.online.chatserver.commands.CommandProvider}
+ * on the class path. Implementations need a public no-argument constructor.
+ */
+public interface CommandProvider {
+
+    /**
+     * Adds this provider's commands to the table being built.
+     * Commands are shared by every client, so they must not keep per-client state.
+     *
+     * @param table the table to register the commands in
+     */
+    void registerCommands(CommandTable table);
+}
@@ -0,0 +1,84 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.transport.Opcode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * The server-wide set of commands. It is built once from the
+ * {@link CommandProvider}s and never changes afterwards, so every client
+ * handler shares the same command instances.
+ */
+public final class CommandRegistry {
+
+    private final CommandTable table = new CommandTable();
+    private final Commands[] byOpcode = new Commands[Opcode.values().length];
+
+    /**
+     * Builds a registry from the given providers, in order.
+     *
+     * @param providers the providers to take commands from
+     * @throws IllegalArgumentException if two providers register the same token
+     */
+    public CommandRegistry(List<? extends CommandProvider> providers) {
+        for (CommandProvider provider : providers) {
+            provider.registerCommands(table);
+        }
+
+        for (Opcode opcode : Opcode.values()) {
+            String token = opcode.commandToken();
+            if (token != null) {
+                byOpcode[opcode.ordinal()] = table.find(token, 0, token.length());
+            }
+        }
+    }
+
+    /**
+     * Builds the registry the server uses: the built-in commands plus
+     * every provider found by {@link ServiceLoader}.
+     *
+     * @return the registry
+     */
+    public static CommandRegistry load() {
+        List<CommandProvider> providers = new ArrayList<>();
+        providers.add(new BuiltinCommands());
+
+        for (CommandProvider provider : ServiceLoader.load(CommandProvider.class)) {
+            providers.add(provider);
+        }
+
+        return new CommandRegistry(providers);
+    }
+
+    /**
+     * Looks up the command named by a parsed line.
+     *
+     * @param line the tokenized line
+     * @return the command, or null if there is no such command
+     */
+    public Commands find(CommandLine line) {
+        return table.find(line);
+    }
+
+    /**
+     * Looks up the command named by a binary opcode.
+     *
+     * @param opcode the opcode
+     * @return the command, or null if the opcode names no command
+     */
+    public Commands find(Opcode opcode) {
+        return byOpcode[opcode.ordinal()];
+    }
+
+    /**
+     * Gets the token a command was registered under, e.g. for counting it.
+     *
+     * @param command a command from this registry
+     * @return its token, or null if it is not registered here
+     */
+    public String tokenOf(Commands command) {
+        return table.tokenOf(command);
+    }
+}
@@ -0,0 +1,99 @@
+package com.codeforall.online.chatserver.commands;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Maps command tokens such as {@code /whisper} to their {@link Commands}.
+ * Lookups walk a trie directly over the characters of the line, so finding
+ * a command needs no substring, hashing or allocation.
+ * <p>
+ * A table is filled once and then only read, so a single instance can be
+ * shared by every client handler.
+ */
+public final class CommandTable {
+
+    private static final int ALPHABET = 128;
+
+    private final Node root = new Node();
+    private final Map<Commands, String> tokens = new IdentityHashMap<>();
+
+    /**
+     * Adds a command. Must not be called once the table is shared.
+     *
+     * @param token   the command token, ASCII only, e.g. {@code /help}
+     * @param command the command to run
+     * @throws IllegalArgumentException if the token is empty, not ASCII or already taken
+     */
+    public void register(String token, Commands command) {
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("Command token must not be empty");
+        }
+
+        Node node = root;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= ALPHABET) {
+                throw new IllegalArgumentException("Command token must be ASCII: " + token);
+            }
+            if (node.children[c] == null) {
+                node.children[c] = new Node();
+            }
+            node = node.children[c];
+        }
+
+        if (node.command != null) {
+            throw new IllegalArgumentException("Command already registered: " + token);
+        }
+        node.command = command;
+        tokens.putIfAbsent(command, token);
+    }
+
+    /**
+     * Gets the token a command was registered under.
+     *
+     * @param command a registered command
+     * @return its first registered token, or null if it is not registered
+     */
+    public String tokenOf(Commands command) {
+        return tokens.get(command);
+    }
+
+    /**
+     * Looks up the command whose token spans the given range of a text.
+     *
+     * @param text  the text holding the token
+     * @param start the start offset of the token, inclusive
+     * @param end   the end offset of the token, exclusive
+     * @return the command, or null if no command has that token
+     */
+    public Commands find(CharSequence text, int start, int end) {
+        Node node = root;
+        for (int i = start; i < end && node != null; i++) {
+            char c = text.charAt(i);
+            if (c >= ALPHABET) {
+                return null;
+            }
+            node = node.children[c];
+        }
+        return node == null ? null : node.command;
+    }
+
+    /**
+     * Looks up the command token of a parsed line.
+     *
+     * @param line the tokenized line
+     * @return the command, or null if no command has that token
+     */
+    public Commands find(CommandLine line) {
+        return find(line.line(), line.commandStart(), line.commandEnd());
+    }
+
+    /**
+     * One trie node: the command ending here, if any, and the next characters.
+     */
+    private static final class Node {
+        private final Node[] children = new Node[ALPHABET];
+        private Commands command;
+    }
+}
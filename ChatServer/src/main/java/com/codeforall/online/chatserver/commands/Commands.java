@@ -4,16 +4,17 @@ import com.codeforall.online.chatserver.ClientHandler;
 
 /**
  * Represents a chat command that can be executed by a client.
- * Each command receives the full input line and the client handler
- * that issued the command.
+ * Each command receives the tokenized input line and the client handler
+ * that issued the command. Implementations hold no per-client state,
+ * so one instance serves every client.
  */
 public interface Commands {
 
     /**
      * Executes the command logic.
      *
-     * @param fullCommand the full text of the command typed by the client
-     * @param handler     the client executing the command
+     * @param command the tokenized command line
+     * @param handler the client executing the command
      */
-    void execute(String fullCommand, ClientHandler handler);
+    void execute(CommandLine command, ClientHandler handler);
 }
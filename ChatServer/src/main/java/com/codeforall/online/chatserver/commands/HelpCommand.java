@@ -12,17 +12,21 @@ public class HelpCommand implements Commands {
     /**
      * Sends a help message listing all supported commands.
      *
-     * @param fullCommand the full text of the command typed by the client
-     * @param handler     the client requesting help
+     * @param command the tokenized command line
+     * @param handler the client requesting help
      */
     @Override
-    public void execute(String fullCommand, ClientHandler handler) {
+    public void execute(CommandLine command, ClientHandler handler) {
 
         handler.send("Available commands: \n" +
                 "/quit - leave the chat \n" +
                 "/name <newUsername> - change your username \n" +
-                "/list - list all connected clients \n" +
+                "/list [prefix*] [page] - list connected clients, a page at a time \n" +
                 "/whisper <username> <message> - sends a message to a specific user \n" +
+                "/join <room> - move to another room, creating it if needed \n" +
+                "/leave - go back to the lobby \n" +
+                "/rooms - list all rooms \n" +
+                "/history [count] - replay recent messages of your room \n" +
                 "/admin - login as admin \n" +
                 "/help - show this help message");
 
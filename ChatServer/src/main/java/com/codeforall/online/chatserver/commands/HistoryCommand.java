@@ -0,0 +1,71 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
+import com.codeforall.online.chatserver.history.MessageLog;
+import com.codeforall.online.chatserver.rooms.Room;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+
+import java.util.List;
+
+/**
+ * Implements the /history command, replaying the last messages of the
+ * client's room. The messages are sent from the history segments as they
+ * are stored, without being decoded again. Each request counts against the
+ * client's message rate, like a chat message.
+ */
+public class HistoryCommand implements Commands {
+
+    private static final int DEFAULT_COUNT = 20;
+    private static final int MAX_COUNT = 200;
+
+    /**
+     * Sends the client the last messages of its room, oldest first.
+     *
+     * @param command the tokenized command line
+     * @param handler the client asking for the history
+     * @throws InvalidCommandArgumentsException if the count is invalid or no history is kept
+     */
+    @Override
+    public void execute(CommandLine command, ClientHandler handler) {
+        MessageLog history = handler.getServer().getHistory();
+        if (history == null) {
+            throw new InvalidCommandArgumentsException("This server keeps no message history.");
+        }
+
+        int count = parseCount(command);
+        if (!handler.allowMessage()) {
+            return;
+        }
+        Room room = handler.getRoom();
+        List<EncodedMessage> messages = history.recent(room != null ? room.getName() : null, count);
+
+        handler.send("Last " + messages.size() + " messages:");
+        for (EncodedMessage message : messages) {
+            handler.send(message);
+        }
+    }
+
+    /**
+     * Reads the optional message count.
+     */
+    private static int parseCount(CommandLine command) {
+        if (!command.hasArguments()) {
+            return DEFAULT_COUNT;
+        }
+
+        String usage = "Usage: /history [count] (1 to " + MAX_COUNT + ")";
+        if (command.argumentCount() != 1) {
+            throw new InvalidCommandArgumentsException(usage);
+        }
+        try {
+            int count = Integer.parseInt(command.argument(0));
+            if (count < 1 || count > MAX_COUNT) {
+                throw new InvalidCommandArgumentsException(usage);
+            }
+            return count;
+        } catch (NumberFormatException e) {
+            throw new InvalidCommandArgumentsException(usage);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
+import com.codeforall.online.chatserver.rooms.Room;
+
+/**
+ * Implements the /join command, moving a client into another room.
+ * The room is created if it does not exist yet.
+ */
+public class JoinCommand implements Commands {
+
+    private static final int MAX_ROOM_NAME_LENGTH = 32;
+
+    /**
+     * Moves the client to the requested room and tells both the old
+     * and the new room about it.
+     *
+     * @param command the tokenized command line
+     * @param handler the client joining the room
+     * @throws InvalidCommandArgumentsException if the room name is missing or invalid
+     */
+    @Override
+    public void execute(CommandLine command, ClientHandler handler) {
+        String argument = command.argument(0);
+
+        if (command.argumentCount() != 1 || argument.length() > MAX_ROOM_NAME_LENGTH) {
+            throw new InvalidCommandArgumentsException(
+                    "Usage: /join <room> (one word, up to " + MAX_ROOM_NAME_LENGTH + " characters)");
+        }
+
+        String roomName = argument.startsWith("#") ? argument.substring(1) : argument;
+        Room current = handler.getRoom();
+
+        if (roomName.isEmpty()) {
+            throw new InvalidCommandArgumentsException("Usage: /join <room>");
+        }
+        if (current != null && current.getName().equalsIgnoreCase(roomName)) {
+            throw new InvalidCommandArgumentsException("You are already in #" + current.getName());
+        }
+
+        ChatServer server = handler.getServer();
+        Room room = server.getRooms().join(handler, roomName);
+
+        if (current != null) {
+            server.broadcastToRoom(current, handler.getName() + " left #" + current.getName());
+        }
+        server.broadcastToRoom(room, handler.getName() + " joined #" + room.getName());
+    }
+}
@@ -0,0 +1,37 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
+import com.codeforall.online.chatserver.rooms.Room;
+import com.codeforall.online.chatserver.rooms.RoomManager;
+
+/**
+ * Implements the /leave command, sending a client from its
+ * current room back to the lobby.
+ */
+public class LeaveCommand implements Commands {
+
+    /**
+     * Moves the client back to the lobby and tells both rooms about it.
+     *
+     * @param command the tokenized command line
+     * @param handler the client leaving the room
+     * @throws InvalidCommandArgumentsException if the client is already in the lobby
+     */
+    @Override
+    public void execute(CommandLine command, ClientHandler handler) {
+        ChatServer server = handler.getServer();
+        RoomManager rooms = server.getRooms();
+        Room current = handler.getRoom();
+
+        if (current == null || rooms.isLobby(current)) {
+            throw new InvalidCommandArgumentsException("You are already in the lobby.");
+        }
+
+        Room lobby = rooms.join(handler, RoomManager.LOBBY);
+
+        server.broadcastToRoom(current, handler.getName() + " left #" + current.getName());
+        server.broadcastToRoom(lobby, handler.getName() + " joined #" + lobby.getName());
+    }
+}
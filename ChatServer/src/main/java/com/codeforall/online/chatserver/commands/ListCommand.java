@@ -1,21 +1,61 @@
 package com.codeforall.online.chatserver.commands;
 
 import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
 
 /**
- * Implements the /list command, sending the list of all
- * connected clients to the requesting user.
+ * Implements the /list command, sending one page of the connected
+ * clients to the requesting user. {@code /list 2} asks for the second
+ * page and {@code /list ali*} only lists names starting with "ali";
+ * both can be combined.
  */
 public class ListCommand implements Commands {
 
+    private static final String USAGE = "Usage: /list [prefix*] [page]";
+
     /**
      * Sends the formatted list of online clients.
      *
-     * @param fullCommand the full command text typed by the client
-     * @param handler     the client requesting the list
+     * @param command the tokenized command line
+     * @param handler the client requesting the list
+     * @throws InvalidCommandArgumentsException if the arguments are not a prefix and a page
      */
     @Override
-    public void execute(String fullCommand, ClientHandler handler) {
-        handler.send(handler.getServer().listClients());
+    public void execute(CommandLine command, ClientHandler handler) {
+        String prefix = null;
+        int page = 1;
+        boolean pageGiven = false;
+
+        if (command.argumentCount() > 2) {
+            throw new InvalidCommandArgumentsException(USAGE);
+        }
+        for (int i = 0; i < command.argumentCount(); i++) {
+            String argument = command.argument(i);
+            if (argument.endsWith("*") && prefix == null) {
+                prefix = argument.substring(0, argument.length() - 1);
+            } else if (!pageGiven) {
+                page = parsePage(argument);
+                pageGiven = true;
+            } else {
+                throw new InvalidCommandArgumentsException(USAGE);
+            }
+        }
+
+        handler.send(handler.getServer().listClients(prefix, page));
+    }
+
+    /**
+     * Reads a page number.
+     */
+    private static int parsePage(String argument) {
+        try {
+            int page = Integer.parseInt(argument);
+            if (page < 1) {
+                throw new InvalidCommandArgumentsException(USAGE);
+            }
+            return page;
+        } catch (NumberFormatException e) {
+            throw new InvalidCommandArgumentsException(USAGE);
+        }
     }
 }
@@ -1,35 +1,43 @@
 package com.codeforall.online.chatserver.commands;
 
+import com.codeforall.online.chatserver.ChatServer;
 import com.codeforall.online.chatserver.ClientHandler;
 import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
+import com.codeforall.online.chatserver.exceptions.UsernameTakenException;
 
 /**
  * Implements the /name command, allowing a client to set a new username.
- * Once changed, the server broadcasts the update to all connected users.
+ * Names are unique; once changed, the server broadcasts the update to the client's room.
  */
 public class NameCommand implements Commands {
 
     /**
-     * Changes the client's name and notifies all other users.
+     * Changes the client's name and notifies the other users in the room.
      *
-     * @param fullCommand the full text of the command typed by the client
-     * @param handler     the client requesting the name change
-     * @throws InvalidCommandArgumentsException if the new name is missing
+     * @param command the tokenized command line
+     * @param handler the client requesting the name change
+     * @throws InvalidCommandArgumentsException if the new name is missing or contains control characters
+     * @throws UsernameTakenException if another client already uses the name
      */
     @Override
-    public void execute(String fullCommand, ClientHandler handler) {
-        String[] parts = fullCommand.split("\\s+", 2);
-
-        if (parts.length < 2) {
+    public void execute(CommandLine command, ClientHandler handler) {
+        if (!command.hasArguments()) {
             throw new InvalidCommandArgumentsException("Usage: /name <newName>");
         }
 
         String oldName = handler.getName();
-        String newName = parts[1];
+        String newName = command.arguments();
+
+        if (!ChatServer.isValidUsername(newName)) {
+            throw new InvalidCommandArgumentsException("The username must not contain control characters.");
+        }
+
+        if (!handler.getServer().renameClient(handler, newName)) {
+            throw new UsernameTakenException(newName);
+        }
 
-        handler.setName(newName);
         handler.send("Your name is now: " + newName);
 
-        handler.getServer().broadcast(oldName + " is now known as " + handler.getName());
+        handler.getServer().broadcastToRoom(handler.getRoom(), oldName + " is now known as " + handler.getName());
     }
 }
@@ -0,0 +1,33 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.rooms.Room;
+
+/**
+ * Implements the /rooms command, listing every room with its
+ * number of members.
+ */
+public class RoomsCommand implements Commands {
+
+    /**
+     * Sends the list of rooms to the client, marking the one it is in.
+     *
+     * @param command the tokenized command line
+     * @param handler the client requesting the list
+     */
+    @Override
+    public void execute(CommandLine command, ClientHandler handler) {
+        StringBuilder sb = new StringBuilder("Rooms:\n");
+
+        for (Room room : handler.getServer().getRooms().list()) {
+            sb.append('#').append(room.getName())
+                    .append(" (").append(room.size()).append(')');
+            if (room == handler.getRoom()) {
+                sb.append(" <- you are here");
+            }
+            sb.append('\n');
+        }
+
+        handler.send(sb.toString());
+    }
+}
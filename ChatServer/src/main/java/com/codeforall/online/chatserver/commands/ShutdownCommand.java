@@ -7,18 +7,20 @@ import com.codeforall.online.chatserver.exceptions.UnauthorizedCommandException;
 /**
  * Implements the /shutdown command, allowing an administrator
  * to shut down the entire server and disconnect all clients.
+ * The shutdown runs on its own thread, since it waits for the
+ * clients' output, including the admin's, to be written.
  */
 public class ShutdownCommand implements Commands {
 
     /**
      * Shuts down the server if the client is an admin.
      *
-     * @param fullCommand the full command text typed by the client
-     * @param handler     the client requesting the shutdown
+     * @param command the tokenized command line
+     * @param handler the client requesting the shutdown
      * @throws UnauthorizedCommandException if the client is not an admin
      */
     @Override
-    public void execute(String fullCommand, ClientHandler handler) {
+    public void execute(CommandLine command, ClientHandler handler) {
         if (!handler.isAdmin()) {
             throw new UnauthorizedCommandException("You are not allowed to use this command.");
         }
@@ -26,6 +28,6 @@ public class ShutdownCommand implements Commands {
         ChatServer server = handler.getServer();
         handler.send("Shutting down server...");
         server.broadcast("Server is shutting down by admin " + handler.getName() + "...");
-        server.shutdown();
+        new Thread(server::shutdown, "shutdown").start();
     }
 }
@@ -12,22 +12,24 @@ public class WhisperCommand implements Commands {
 
     /**
      * Sends a private message to another user. If the target user
-     * does not exist, an exception is thrown.
+     * does not exist, an exception is thrown. Whispers count towards
+     * the sender's rate limit like chat messages.
      *
-     * @param fullCommand the full command text typed by the client
-     * @param handler     the client sending the whisper
+     * @param command the tokenized command line
+     * @param handler the client sending the whisper
      * @throws InvalidCommandArgumentsException if the command is missing arguments
      * @throws UserNotFoundException if the recipient does not exist
      */
     @Override
-    public void execute(String fullCommand, ClientHandler handler) {
-        String[] parts = fullCommand.trim().split("\\s+", 3);  // whisper username message
-        if (parts.length < 3) {
+    public void execute(CommandLine command, ClientHandler handler) {
+        String user = command.argument(0);  // whisper username message
+        String msg = command.argumentsFrom(1);
+        if (user == null || msg.isEmpty()) {
             throw new InvalidCommandArgumentsException("Usage: /whisper <username> <message>");
         }
-
-        String user = parts[1];
-        String msg = parts[2];
+        if (!handler.allowMessage()) {
+            return;
+        }
 
         boolean ok = handler.getServer().whisper(user, msg, handler);
 
@@ -0,0 +1,17 @@
+package com.codeforall.online.chatserver.exceptions;
+
+/**
+ * Thrown when a client asks for a username that another
+ * connected client is already using.
+ */
+public class UsernameTakenException extends RuntimeException {
+
+    /**
+     * Creates a new exception for the taken username.
+     *
+     * @param name the username that is already in use
+     */
+    public UsernameTakenException(String name) {
+        super("The username " + name + " is already taken, try another one.");
+    }
+}
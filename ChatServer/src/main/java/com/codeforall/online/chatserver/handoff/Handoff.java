@@ -0,0 +1,143 @@
+package com.codeforall.online.chatserver.handoff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot restart protocol between a running server and the process replacing
+ * it, over a Unix domain socket:
+ * <ol>
+ *     <li>The new process binds the chat port next to the old one and
+ *     connects to the old one's {@link HandoffListener}, sending {@link #MAGIC}.</li>
+ *     <li>The old process answers with a {@link SessionTicket} for every
+ *     joined client.</li>
+ *     <li>The new process stores the tickets and acknowledges.</li>
+ *     <li>The old process stops accepting, sends each client a reconnect
+ *     hint carrying its token, drains, releases its other ports and exits,
+ *     which closes the socket. Without the acknowledgement it keeps
+ *     serving instead.</li>
+ *     <li>The new process starts serving; reconnecting clients present
+ *     their tokens and get their sessions back.</li>
+ * </ol>
+ * Open client sockets cannot be passed between JVMs without native code,
+ * so sessions move instead of connections: each client reconnects once.
+ */
+public final class Handoff {
+
+    static final int MAGIC = 0x43484f32;
+
+    private Handoff() {
+    }
+
+    /**
+     * Takes over from the server listening on the handoff socket, if any.
+     * Returns once the old server has exited or the wait runs out.
+     *
+     * @param path       the handoff socket of the running server
+     * @param waitMillis how long to wait for the old server to exit
+     * @return the tickets of the sessions to resume, empty if no server was running
+     * @throws IOException if the old server answered but the handoff failed
+     */
+    public static List<SessionTicket> takeOver(Path path, long waitMillis) throws IOException {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(path));
+        } catch (IOException e) {
+            // a socket file left behind by a server that is gone
+            return List.of();
+        }
+
+        try (channel) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            out.writeInt(MAGIC);
+            out.flush();
+
+            List<SessionTicket> tickets = readTickets(in);
+            out.writeBoolean(true);
+            out.flush();
+
+            awaitClose(channel, waitMillis);
+            return tickets;
+        }
+    }
+
+    /**
+     * Writes a count followed by the tickets.
+     *
+     * @param out     where to write
+     * @param tickets the tickets
+     * @throws IOException if the stream fails
+     */
+    static void writeTickets(DataOutputStream out, List<SessionTicket> tickets) throws IOException {
+        out.writeInt(tickets.size());
+        for (SessionTicket ticket : tickets) {
+            ticket.write(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads tickets written by {@link #writeTickets(DataOutputStream, List)}.
+     *
+     * @param in where to read from
+     * @return the tickets
+     * @throws IOException if the stream fails or ends early
+     */
+    static List<SessionTicket> readTickets(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid ticket count " + count);
+        }
+        List<SessionTicket> tickets = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            tickets.add(SessionTicket.read(in));
+        }
+        return tickets;
+    }
+
+    /**
+     * Waits until the peer closes the channel.
+     *
+     * @return false if the wait ran out first
+     */
+    private static boolean awaitClose(SocketChannel channel, long waitMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        channel.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            channel.register(selector, SelectionKey.OP_READ);
+            long remaining;
+            while ((remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) > 0) {
+                selector.select(remaining);
+                selector.selectedKeys().clear();
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
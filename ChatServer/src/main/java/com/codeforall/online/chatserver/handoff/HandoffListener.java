@@ -0,0 +1,257 @@
+package com.codeforall.online.chatserver.handoff;
+
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The running server's end of a {@link Handoff}: waits on a Unix domain
+ * socket for the process that replaces it. When one connects, the
+ * sessions are released as tickets, and once the successor has stored
+ * them the server is shut down.
+ * <p>
+ * The tickets carry live tokens and admin flags, so the socket file is
+ * readable by its owner only, and a process of another user is turned
+ * away by its peer credentials. A handoff that does not finish within
+ * {@link #HANDSHAKE_MILLIS} is abandoned, and the server only goes away
+ * once the successor has acknowledged the tickets; otherwise it keeps
+ * serving and waits for the next attempt.
+ * <p>
+ * The connection to the successor stays open until {@link #close()},
+ * which the server calls last on its way out, so the successor knows
+ * when the ports and files it shares with this process are free.
+ */
+public class HandoffListener implements Runnable {
+
+    static final long HANDSHAKE_MILLIS = 10_000;
+
+    private final Path path;
+    private final Supplier<List<SessionTicket>> release;
+    private final Runnable abandon;
+    private final Runnable shutdown;
+    private final EventLog log;
+
+    private ServerSocketChannel serverChannel;
+    private UserPrincipal owner;
+    private volatile SocketChannel successor;
+
+    /**
+     * Creates a listener. Nothing is bound before {@link #start()}.
+     *
+     * @param path     the socket file to listen on
+     * @param release  issues a ticket per session
+     * @param abandon  forgets the tickets of a handoff that failed
+     * @param shutdown drains the server after the tickets were handed over
+     * @param log      where the handoff is reported
+     */
+    public HandoffListener(Path path, Supplier<List<SessionTicket>> release, Runnable abandon, Runnable shutdown,
+                           EventLog log) {
+        this.path = path;
+        this.release = release;
+        this.abandon = abandon;
+        this.shutdown = shutdown;
+        this.log = log;
+    }
+
+    /**
+     * Binds the socket file, replacing a stale one, makes it private to
+     * its owner and starts waiting for a successor on a daemon thread.
+     *
+     * @throws IOException if the socket cannot be bound or made private
+     */
+    public void start() throws IOException {
+        Files.deleteIfExists(path);
+        serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverChannel.bind(UnixDomainSocketAddress.of(path));
+        if (Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        }
+        owner = Files.getOwner(path);
+
+        Thread thread = new Thread(this, "handoff-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Accepts connections until a successor completes the handoff.
+     */
+    @Override
+    public void run() {
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                return;
+            }
+            if (handOff(channel)) {
+                shutdown.run();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the handoff with one connected process.
+     *
+     * @return true if the successor took the sessions
+     */
+    private boolean handOff(SocketChannel channel) {
+        boolean released = false;
+        try (Selector selector = Selector.open()) {
+            if (!isOwner(channel)) {
+                log.log(LogLevel.WARN, EventType.SERVER, "Refused a hot restart from a process of another user");
+                closeQuietly(channel);
+                return false;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HANDSHAKE_MILLIS);
+            channel.configureBlocking(false);
+            SelectionKey key = channel.register(selector, 0);
+            if (read(key, Integer.BYTES, deadline).getInt() != Handoff.MAGIC) {
+                closeQuietly(channel);
+                return false;
+            }
+
+            List<SessionTicket> tickets = release.get();
+            released = true;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            Handoff.writeTickets(new DataOutputStream(bytes), tickets);
+            write(key, ByteBuffer.wrap(bytes.toByteArray()), deadline);
+            if (read(key, 1, deadline).get() == 0) {
+                throw new IOException("Successor refused the sessions");
+            }
+
+            closeListener();
+            successor = channel;
+            log.log(LogLevel.INFO, EventType.SERVER, "Handed " + tickets.size() + " sessions to the new server");
+            return true;
+        } catch (IOException e) {
+            log.log(LogLevel.WARN, EventType.ERROR, "Hot restart failed: " + e.getMessage());
+            closeQuietly(channel);
+            if (released) {
+                abandon.run();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Checks that the connected process runs as the user owning the socket file.
+     */
+    private boolean isOwner(SocketChannel channel) throws IOException {
+        if (!channel.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+            return false;
+        }
+        UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        return peer.user().equals(owner);
+    }
+
+    /**
+     * Reads exactly {@code length} bytes before the deadline.
+     *
+     * @return the bytes, ready to be read
+     */
+    private static ByteBuffer read(SelectionKey key, int length, long deadline) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (channel.read(buffer) >= 0) {
+            if (!buffer.hasRemaining()) {
+                return buffer.flip();
+            }
+            await(key, SelectionKey.OP_READ, deadline);
+        }
+        throw new EOFException("Successor closed the connection");
+    }
+
+    /**
+     * Writes the whole buffer before the deadline.
+     */
+    private static void write(SelectionKey key, ByteBuffer buffer, long deadline) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        while (true) {
+            channel.write(buffer);
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+            await(key, SelectionKey.OP_WRITE, deadline);
+        }
+    }
+
+    /**
+     * Waits until the channel is ready for the given operations.
+     *
+     * @throws SocketTimeoutException if the deadline has passed
+     */
+    private static void await(SelectionKey key, int ops, long deadline) throws IOException {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("Successor did not answer in time");
+        }
+        key.interestOps(ops);
+        key.selector().select(remaining);
+        key.selector().selectedKeys().clear();
+    }
+
+    /**
+     * Closes a channel, ignoring errors.
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing else to release
+        }
+    }
+
+    /**
+     * Stops listening and removes the socket file, so the successor can
+     * bind the same path.
+     */
+    private void closeListener() {
+        try {
+            serverChannel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.log(LogLevel.WARN, EventType.ERROR, "Could not remove handoff socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops listening and tells a successor, if any, that this process is done.
+     */
+    public void close() {
+        if (serverChannel != null && serverChannel.isOpen()) {
+            closeListener();
+        }
+        SocketChannel current = successor;
+        if (current != null) {
+            closeQuietly(current);
+        }
+    }
+}
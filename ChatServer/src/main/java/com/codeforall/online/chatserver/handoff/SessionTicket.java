@@ -0,0 +1,62 @@
+package com.codeforall.online.chatserver.handoff;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * What a client needs to get its session back after reconnecting: its
+ * username, admin flag and room, under a random token only that client
+ * was told, and where it stopped reading the history.
+ *
+ * @param token       the secret the client presents to resume
+ * @param name        the username
+ * @param admin       whether the client had logged in as admin
+ * @param room        the room the client was in
+ * @param historyMark the history position when the client went away,
+ *                    see {@link com.codeforall.online.chatserver.history.MessageLog#mark()},
+ *                    or -1 if no history was kept
+ */
+public record SessionTicket(String token, String name, boolean admin, String room, long historyMark) {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 18;
+
+    /**
+     * Creates a fresh random token.
+     *
+     * @return a URL-safe token of 24 characters
+     */
+    public static String newToken() {
+        byte[] token = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Writes the ticket in the handoff wire format.
+     *
+     * @param out where to write
+     * @throws IOException if the stream fails
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeUTF(token);
+        out.writeUTF(name);
+        out.writeBoolean(admin);
+        out.writeUTF(room);
+        out.writeLong(historyMark);
+    }
+
+    /**
+     * Reads a ticket written by {@link #write(DataOutputStream)}.
+     *
+     * @param in where to read from
+     * @return the ticket
+     * @throws IOException if the stream fails or ends early
+     */
+    public static SessionTicket read(DataInputStream in) throws IOException {
+        return new SessionTicket(in.readUTF(), in.readUTF(), in.readBoolean(), in.readUTF(), in.readLong());
+    }
+}
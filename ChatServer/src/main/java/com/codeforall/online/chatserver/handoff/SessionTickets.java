@@ -0,0 +1,147 @@
+package com.codeforall.online.chatserver.handoff;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tickets of sessions that are expected to reconnect. Each ticket can be
+ * redeemed once, before it expires; until then its username stays reserved
+ * so that nobody else takes it in the meantime.
+ * <p>
+ * Lookups ignore and drop expired tickets on their own. Tickets nobody asks
+ * about again are swept out by {@link #add(SessionTicket)} at most once per
+ * time-to-live, so a burst of disconnects costs one walk of the store
+ * rather than one per ticket.
+ */
+public class SessionTickets {
+
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Pending> byToken = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Pending> byName = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+    /**
+     * Creates an empty store.
+     *
+     * @param ttlSeconds how long a ticket stays valid after it is added
+     */
+    public SessionTickets(long ttlSeconds) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Adds a ticket and reserves its username.
+     *
+     * @param ticket the ticket
+     */
+    public void add(SessionTicket ticket) {
+        long now = System.nanoTime();
+        long sweepAt = nextSweep.get();
+        if (now - sweepAt >= 0 && nextSweep.compareAndSet(sweepAt, now + ttlNanos)) {
+            purgeExpired(now);
+        }
+        Pending pending = new Pending(ticket, now + ttlNanos);
+        byToken.put(ticket.token(), pending);
+        byName.put(nameKey(ticket.name()), pending);
+    }
+
+    /**
+     * Looks up the ticket with the given token without taking it, so that
+     * its username stays reserved until {@link #redeem(String)}.
+     *
+     * @param token the token the client presented
+     * @return the ticket, or null if the token is unknown, used or expired
+     */
+    public SessionTicket peek(String token) {
+        Pending pending = byToken.get(token);
+        if (pending == null) {
+            return null;
+        }
+        if (pending.isExpired(System.nanoTime())) {
+            byToken.remove(token, pending);
+            byName.remove(nameKey(pending.ticket().name()), pending);
+            return null;
+        }
+        return pending.ticket();
+    }
+
+    /**
+     * Takes the ticket with the given token, releasing its username.
+     *
+     * @param token the token the client presented
+     * @return the ticket, or null if the token is unknown, used or expired
+     */
+    public SessionTicket redeem(String token) {
+        Pending pending = byToken.remove(token);
+        if (pending == null) {
+            return null;
+        }
+        byName.remove(nameKey(pending.ticket().name()), pending);
+        return pending.isExpired(System.nanoTime()) ? null : pending.ticket();
+    }
+
+    /**
+     * Checks whether a username is held for a session that may still resume.
+     *
+     * @param name the username
+     * @return true if an unexpired ticket holds it
+     */
+    public boolean isReserved(String name) {
+        return holder(name) != null;
+    }
+
+    /**
+     * Gets the token of the ticket holding a username.
+     *
+     * @param name the username
+     * @return the token, or null if no unexpired ticket holds the name
+     */
+    public String holder(String name) {
+        Pending pending = byName.get(nameKey(name));
+        if (pending == null) {
+            return null;
+        }
+        if (pending.isExpired(System.nanoTime())) {
+            byName.remove(nameKey(name), pending);
+            byToken.remove(pending.ticket().token(), pending);
+            return null;
+        }
+        return pending.ticket().token();
+    }
+
+    /**
+     * Gets the number of tickets waiting to be redeemed, expired ones included.
+     *
+     * @return the ticket count
+     */
+    public int size() {
+        return byToken.size();
+    }
+
+    /**
+     * Drops every expired ticket.
+     */
+    private void purgeExpired(long now) {
+        byToken.values().removeIf(pending -> pending.isExpired(now));
+        byName.values().removeIf(pending -> pending.isExpired(now));
+    }
+
+    /**
+     * Normalises a username the way the server compares names.
+     */
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A ticket and the {@link System#nanoTime()} after which it is void.
+     */
+    private record Pending(SessionTicket ticket, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.codeforall.online.chatserver.history;
+
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only history of broadcast messages, kept in memory-mapped
+ * {@link Segment} files. Broadcasting threads only queue a reference to the
+ * already encoded message; a background writer copies queued messages
+ * into the active segment in batches. When the active segment is full it is
+ * sealed, trimmed to its records, and a new one is started; the oldest
+ * segments beyond the configured count are deleted.
+ * <p>
+ * {@link #recent(String, int)} reads straight from the mappings: the
+ * messages it returns share the mapped bytes instead of copying them, and
+ * each segment's room index takes it to them without reading other rooms.
+ * {@link #mark()} and {@link #since(String, long, int)} do the same for the
+ * messages a client missed while it was away.
+ */
+public class MessageLog {
+
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 256;
+    private static final long POLL_MILLIS = 100;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final EventLog log;
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile boolean running = false;
+    private Thread writer;
+
+    /**
+     * Creates a log over a directory. Nothing is read or written before {@link #open()}.
+     *
+     * @param directory    where segment files live
+     * @param segmentBytes the size of each segment file
+     * @param maxSegments  how many segments to keep, the active one included
+     * @param log          where write failures are reported
+     */
+    public MessageLog(Path directory, int segmentBytes, int maxSegments, EventLog log) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.log = log;
+    }
+
+    /**
+     * Loads the segments of earlier runs, starts a fresh segment and the
+     * writer thread.
+     *
+     * @throws IOException if the directory or a segment cannot be opened
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Segment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Segment.SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long id = Long.parseLong(name.substring(0, name.length() - Segment.SUFFIX.length()));
+                    loaded.add(Segment.load(file, id));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        loaded.sort((a, b) -> Long.compare(a.id(), b.id()));
+
+        long nextId = loaded.isEmpty() ? 0 : loaded.get(loaded.size() - 1).id() + 1;
+        loaded.add(Segment.create(directory, nextId, segmentBytes));
+        segments = loaded.toArray(new Segment[0]);
+        deleteExpired();
+
+        running = true;
+        writer = new Thread(this::drain, "history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a broadcast for the history. Never blocks: if the writer has
+     * fallen too far behind, the message is left out and counted.
+     *
+     * @param room    the room it was sent to, or null if it went to every room
+     * @param message the encoded message
+     */
+    public void append(String room, EncodedMessage message) {
+        if (!running || !queue.offer(new Entry(room, message))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Gets the last messages seen in a room, including those sent to every
+     * room, oldest first. Only messages the writer has committed are found.
+     *
+     * @param room  the room name
+     * @param count the maximum number of messages
+     * @return the messages, backed by the mapped segments
+     */
+    public List<EncodedMessage> recent(String room, int count) {
+        return since(room, 0, count);
+    }
+
+    /**
+     * Gets the current end of the history. Segment files outlive restarts,
+     * so a mark stays valid for the next server using the same directory.
+     *
+     * @return the segment id in the high and the committed length in the low 32 bits
+     */
+    public long mark() {
+        Segment[] current = segments;
+        if (current.length == 0) {
+            return 0;
+        }
+        Segment active = current[current.length - 1];
+        return active.id() << 32 | active.committed();
+    }
+
+    /**
+     * Gets the last messages seen in a room after a {@link #mark()}, oldest
+     * first. Messages still queued for the writer when the mark was taken
+     * count as later ones, so a reader may see one again.
+     *
+     * @param room  the room name
+     * @param mark  where to start, as returned by {@link #mark()}
+     * @param count the maximum number of messages
+     * @return the messages, backed by the mapped segments
+     */
+    public List<EncodedMessage> since(String room, long mark, int count) {
+        if (count <= 0) {
+            return List.of();
+        }
+
+        long markSegment = mark >>> 32;
+        Segment[] snapshot = segments;
+        int[] offsets = new int[count];
+        Deque<EncodedMessage> found = new ArrayDeque<>(count);
+
+        for (int i = snapshot.length - 1; i >= 0 && found.size() < count && snapshot[i].id() >= markSegment; i--) {
+            int from = snapshot[i].id() == markSegment ? (int) mark : 0;
+            int taken = snapshot[i].latest(room, from, count - found.size(), offsets);
+
+            for (int k = 0; k < taken; k++) {
+                found.addFirst(snapshot[i].message(offsets[k]));
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Writes every queued message, seals the active segment and stops the writer.
+     */
+    public void close() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of messages written to the history.
+     *
+     * @return the count since the log was opened
+     */
+    public long getAppendedMessages() {
+        return appended.sum();
+    }
+
+    /**
+     * Gets the number of messages left out because the writer was behind
+     * or the log was not open.
+     *
+     * @return the count since the log was created
+     */
+    public long getDroppedMessages() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the number of segments currently kept.
+     *
+     * @return the segment count, the active one included
+     */
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Writer loop: takes queued messages in batches, appends them and
+     * publishes each batch to readers at once.
+     */
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+
+                for (Entry entry : batch) {
+                    write(entry);
+                }
+                active().commit();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.log(LogLevel.ERROR, EventType.ERROR, "History writer failed: " + e.getMessage());
+        } finally {
+            running = false;
+            try {
+                active().seal();
+            } catch (IOException e) {
+                log.log(LogLevel.WARN, EventType.ERROR, "Could not seal history segment: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Appends one message, rolling to a new segment if the active one is full.
+     */
+    private void write(Entry entry) throws IOException {
+        byte[] room = Segment.roomBytes(entry.room());
+        if (room.length > 0xFFFF) {
+            dropped.increment();
+            return;
+        }
+
+        if (!active().append(room, entry.message())) {
+            roll();
+            if (!active().append(room, entry.message())) {
+                dropped.increment();
+                return;
+            }
+        }
+        appended.increment();
+    }
+
+    /**
+     * Seals the active segment, starts the next one and drops expired segments.
+     */
+    private void roll() throws IOException {
+        Segment sealed = active();
+        sealed.seal();
+
+        Segment[] next = Arrays.copyOf(segments, segments.length + 1);
+        next[next.length - 1] = Segment.create(directory, sealed.id() + 1, segmentBytes);
+        segments = next;
+        deleteExpired();
+    }
+
+    /**
+     * Deletes the oldest segments while more than the configured number are kept.
+     */
+    private void deleteExpired() {
+        Segment[] current = segments;
+        int excess = current.length - maxSegments;
+        if (excess <= 0) {
+            return;
+        }
+
+        segments = Arrays.copyOfRange(current, excess, current.length);
+        for (int i = 0; i < excess; i++) {
+            try {
+                current[i].delete();
+            } catch (IOException e) {
+                log.log(LogLevel.WARN, EventType.ERROR, "Could not delete history segment: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the segment being appended to.
+     */
+    private Segment active() {
+        Segment[] current = segments;
+        return current[current.length - 1];
+    }
+
+    /**
+     * A message waiting for the writer.
+     *
+     * @param room    the room it was sent to, or null for every room
+     * @param message the encoded message
+     */
+    private record Entry(String room, EncodedMessage message) {
+    }
+}
@@ -0,0 +1,331 @@
+package com.codeforall.online.chatserver.history;
+
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One file of the {@link MessageLog}, mapped into memory. Records are
+ * appended one after another:
+ * <pre>
+ *     [i32 length][u16 room length][room UTF-8][encoded message]
+ * </pre>
+ * where the encoded message has the {@link EncodedMessage} layout, so a
+ * replayed record can be sent straight from the mapping. A record with an
+ * empty room was broadcast to every room.
+ * <p>
+ * Only the writer thread appends. Readers see records up to the
+ * {@link #committed()} offset, which the writer publishes after each batch.
+ * Each segment keeps the offsets of its records by room in memory, so
+ * finding the last messages of a room never walks the records of others.
+ */
+final class Segment {
+
+    static final String SUFFIX = ".log";
+    static final int RECORD_HEADER = Integer.BYTES + Short.BYTES;
+
+    private static final String EVERY_ROOM = "";
+    private static final int[] NO_OFFSETS = new int[0];
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private FileChannel channel;
+    private int position;
+    private volatile int committed;
+    private final Map<String, Offsets> rooms = new ConcurrentHashMap<>();
+
+    private Segment(long id, Path path, MappedByteBuffer buffer, FileChannel channel, int committed) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.channel = channel;
+        this.position = committed;
+        this.committed = committed;
+    }
+
+    /**
+     * Creates an empty segment open for appending.
+     *
+     * @param directory where the file goes
+     * @param id        the segment number, which also names the file
+     * @param size      the segment capacity in bytes
+     * @return the new segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static Segment create(Path directory, long id, int size) throws IOException {
+        Path path = directory.resolve(fileName(id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), channel, 0);
+    }
+
+    /**
+     * Opens a segment left by an earlier run, read-only. Bytes after the
+     * last complete record, such as the unused tail of a segment that was
+     * never sealed, are cut off.
+     *
+     * @param path the segment file
+     * @param id   the segment number
+     * @return the loaded segment
+     * @throws IOException if the file cannot be read or mapped
+     */
+    static Segment load(Path path, long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int end = validLength(buffer);
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+            Segment segment = new Segment(id, path, buffer, null, end);
+            segment.indexRecords();
+            return segment;
+        }
+    }
+
+    /**
+     * Finds where the complete records of a mapped file end.
+     */
+    private static int validLength(ByteBuffer buffer) {
+        int offset = 0;
+        while (offset + RECORD_HEADER <= buffer.limit()) {
+            int length = buffer.getInt(offset);
+            if (length < Short.BYTES || length > buffer.limit() - offset - Integer.BYTES) {
+                break;
+            }
+            int roomLength = Short.toUnsignedInt(buffer.getShort(offset + Integer.BYTES));
+            if (roomLength > length - Short.BYTES) {
+                break;
+            }
+            offset += Integer.BYTES + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Builds the file name of a segment. Names sort in segment order.
+     *
+     * @param id the segment number
+     * @return the file name
+     */
+    static String fileName(long id) {
+        return String.format("%020d%s", id, SUFFIX);
+    }
+
+    /**
+     * Appends one record unless the segment is too full for it.
+     * Not visible to readers until {@link #commit()}.
+     *
+     * @param room    the room as UTF-8, empty for every room
+     * @param message the encoded message
+     * @return false if the record does not fit
+     */
+    boolean append(byte[] room, EncodedMessage message) {
+        ByteBuffer frame = message.frameView();
+        int length = Short.BYTES + room.length + frame.remaining() + 1;
+
+        if (channel == null || length + Integer.BYTES > buffer.capacity() - position) {
+            return false;
+        }
+
+        buffer.position(position);
+        buffer.putInt(length).putShort((short) room.length).put(room).put(frame).put((byte) '\n');
+        index(new String(room, StandardCharsets.UTF_8), position);
+        position = buffer.position();
+        return true;
+    }
+
+    /**
+     * Indexes the records of a loaded segment.
+     */
+    private void indexRecords() {
+        int offset = 0;
+        while (offset < committed) {
+            int roomLength = Short.toUnsignedInt(buffer.getShort(offset + Integer.BYTES));
+            byte[] room = new byte[roomLength];
+            buffer.get(offset + RECORD_HEADER, room);
+            index(new String(room, StandardCharsets.UTF_8), offset);
+            offset += Integer.BYTES + buffer.getInt(offset);
+        }
+    }
+
+    /**
+     * Adds a record to the offsets of its room. Only the writer calls this.
+     */
+    private void index(String room, int offset) {
+        rooms.computeIfAbsent(room, r -> new Offsets()).add(offset);
+    }
+
+    /**
+     * Makes every appended record visible to readers.
+     */
+    void commit() {
+        committed = position;
+    }
+
+    /**
+     * Stops appending and shrinks the file to its records, so sealed
+     * segments take no more disk space than they hold.
+     *
+     * @throws IOException if the file cannot be synced or truncated
+     */
+    void seal() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        commit();
+        buffer.force();
+        channel.truncate(committed);
+        channel.close();
+        channel = null;
+    }
+
+    /**
+     * Deletes the file. Messages already handed out stay readable,
+     * since the mapping outlives the file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Collects the offsets of the last committed records sent to a room or
+     * to every room, newest first. Only the room's own offsets and those of
+     * records sent to every room are looked at.
+     *
+     * @param room    the room name, or null for records sent to every room only
+     * @param from    the offset of the oldest record to consider
+     * @param limit   the maximum number of offsets
+     * @param offsets where the offsets go, at least limit long
+     * @return the number of offsets collected
+     */
+    int latest(String room, int from, int limit, int[] offsets) {
+        int end = committed;
+        Offsets own = room == null ? null : rooms.get(room);
+        Offsets everyRoom = rooms.get(EVERY_ROOM);
+
+        int ownSize = own == null ? 0 : own.size();
+        int[] ownOffsets = own == null ? NO_OFFSETS : own.offsets();
+        int everySize = everyRoom == null ? 0 : everyRoom.size();
+        int[] everyOffsets = everyRoom == null ? NO_OFFSETS : everyRoom.offsets();
+
+        int i = below(ownOffsets, ownSize, end) - 1;
+        int j = below(everyOffsets, everySize, end) - 1;
+        int found = 0;
+        while (found < limit && (i >= 0 || j >= 0)) {
+            int offset = j < 0 || (i >= 0 && ownOffsets[i] > everyOffsets[j]) ? ownOffsets[i--] : everyOffsets[j--];
+            if (offset < from) {
+                break;
+            }
+            offsets[found++] = offset;
+        }
+        return found;
+    }
+
+    /**
+     * Counts the sorted offsets lower than a limit.
+     */
+    private static int below(int[] offsets, int size, int limit) {
+        int index = Arrays.binarySearch(offsets, 0, size, limit);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Wraps the message of a record without copying it.
+     *
+     * @param offset the record offset, as found by {@link #latest(String, int, int, int[])}
+     * @return the message, backed by the mapping
+     */
+    EncodedMessage message(int offset) {
+        int length = buffer.getInt(offset);
+        int roomLength = Short.toUnsignedInt(buffer.getShort(offset + Integer.BYTES));
+
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + Integer.BYTES + length).position(offset + RECORD_HEADER + roomLength);
+        return EncodedMessage.wrap(view);
+    }
+
+    /**
+     * Gets the segment number.
+     *
+     * @return the id
+     */
+    long id() {
+        return id;
+    }
+
+    /**
+     * Gets the number of bytes readers can see.
+     *
+     * @return the committed length
+     */
+    int committed() {
+        return committed;
+    }
+
+    /**
+     * Encodes a room name the way records store it.
+     *
+     * @param room the room name, or null for every room
+     * @return the UTF-8 bytes, empty for every room
+     */
+    static byte[] roomBytes(String room) {
+        return room == null ? new byte[0] : room.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The offsets of the records of one room, in ascending order. The writer
+     * stores an offset before publishing the new size, so a reader that reads
+     * the size first always finds that many offsets in the array.
+     */
+    private static final class Offsets {
+
+        private volatile int[] offsets = new int[16];
+        private volatile int size;
+
+        /**
+         * Appends an offset. Only the writer calls this.
+         *
+         * @param offset the record offset
+         */
+        void add(int offset) {
+            int[] current = offsets;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+                offsets = current;
+            }
+            current[size] = offset;
+            size = size + 1;
+        }
+
+        /**
+         * Gets the number of offsets. Read it before {@link #offsets()}.
+         *
+         * @return the count
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Gets the array holding the offsets.
+         *
+         * @return the array, of which the first {@link #size()} entries are in use
+         */
+        int[] offsets() {
+            return offsets;
+        }
+    }
+}
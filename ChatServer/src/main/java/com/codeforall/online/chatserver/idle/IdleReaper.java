@@ -0,0 +1,165 @@
+package com.codeforall.online.chatserver.idle;
+
+import com.codeforall.online.chatserver.ClientHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds connections whose peer went silent and evicts them, so dead TCP
+ * peers (sleeping laptops, expired NAT mappings) stop holding a thread and
+ * a place in every broadcast.
+ * <p>
+ * After {@code pingAfter} without input a client is sent a heartbeat, which
+ * a live client answers. After {@code evictAfter} without input it is
+ * disconnected. Each client has one timeout on a {@link TimerWheel}; input
+ * only updates the client's activity time, and the timeout re-arms itself
+ * from that time when it fires, so busy connections cost nothing per message.
+ */
+public class IdleReaper implements Runnable {
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int SLOTS = 512;
+
+    private final long pingAfterNanos;
+    private final long evictAfterNanos;
+    private final TimerWheel wheel = new TimerWheel(TICK_NANOS, SLOTS);
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * Creates a reaper; nothing is evicted until {@link #start()}.
+     *
+     * @param pingAfterSeconds  silence after which a heartbeat is sent, 0 for none
+     * @param evictAfterSeconds silence after which a client is disconnected, at least one
+     */
+    public IdleReaper(int pingAfterSeconds, int evictAfterSeconds) {
+        if (evictAfterSeconds < 1) {
+            throw new IllegalArgumentException("evictAfterSeconds must be at least 1");
+        }
+        this.pingAfterNanos = pingAfterSeconds > 0 && pingAfterSeconds < evictAfterSeconds
+                ? TimeUnit.SECONDS.toNanos(pingAfterSeconds)
+                : 0;
+        this.evictAfterNanos = TimeUnit.SECONDS.toNanos(evictAfterSeconds);
+    }
+
+    /**
+     * Starts the thread that drives the timer wheel.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, "idle-reaper");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the reaper thread. Pending timeouts are dropped.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Starts watching a client for silence.
+     *
+     * @param client the client to watch
+     * @return the watch, to be cancelled when the client leaves
+     */
+    public Watch watch(ClientHandler client) {
+        Watch watch = new Watch(client);
+        watch.arm(client.getLastActivityNanos() + firstDelayNanos());
+        return watch;
+    }
+
+    /**
+     * Advances the wheel once per tick until shut down.
+     */
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(TICK_NANOS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            wheel.advance(System.nanoTime());
+        }
+    }
+
+    /**
+     * Gets how long after the last input the first check is due.
+     */
+    private long firstDelayNanos() {
+        return pingAfterNanos > 0 ? pingAfterNanos : evictAfterNanos;
+    }
+
+    /**
+     * The timeout of one watched client.
+     */
+    public final class Watch implements Runnable {
+
+        private final ClientHandler client;
+        private volatile TimerWheel.Timeout timeout;
+        private volatile boolean cancelled = false;
+        private long pingedAt = 0;
+
+        private Watch(ClientHandler client) {
+            this.client = client;
+        }
+
+        /**
+         * Stops watching the client.
+         */
+        public void cancel() {
+            cancelled = true;
+            TimerWheel.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        /**
+         * Checks the client when its timeout fires: evicts it, pings it,
+         * or re-arms the timeout from its last activity.
+         */
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            long lastActivity = client.getLastActivityNanos();
+            long idle = System.nanoTime() - lastActivity;
+
+            if (idle >= evictAfterNanos) {
+                client.evictIdle(TimeUnit.NANOSECONDS.toSeconds(idle));
+                return;
+            }
+
+            if (pingAfterNanos > 0 && idle >= pingAfterNanos) {
+                if (pingedAt != lastActivity) {
+                    pingedAt = lastActivity;
+                    client.sendPing();
+                }
+                arm(lastActivity + evictAfterNanos);
+                return;
+            }
+
+            arm(lastActivity + firstDelayNanos());
+        }
+
+        /**
+         * Schedules the next check.
+         */
+        private void arm(long deadlineNanos) {
+            if (!cancelled) {
+                timeout = wheel.schedule(this, deadlineNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.codeforall.online.chatserver.idle;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hashed timing wheel: a ring of slots, each holding the timeouts that
+ * expire during one tick. Scheduling and cancelling are O(1), and each tick
+ * only looks at one slot, however many timeouts are pending. A timeout
+ * further away than one turn of the wheel waits for the right number of
+ * rounds in its slot.
+ * <p>
+ * The wheel is driven by a single thread calling {@link #advance(long)},
+ * and expired tasks run on that thread. Any thread may schedule or cancel;
+ * new timeouts are handed over through a queue and placed on the next advance.
+ */
+public class TimerWheel {
+
+    private final long tickNanos;
+    private final Timeout[] slots;
+    private final int mask;
+    private final long startNanos;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private long tick = 0;
+
+    /**
+     * Creates a wheel whose first tick starts now.
+     *
+     * @param tickNanos the length of one tick
+     * @param slotCount the number of slots, rounded up to a power of two
+     */
+    public TimerWheel(long tickNanos, int slotCount) {
+        this(tickNanos, slotCount, System.nanoTime());
+    }
+
+    /**
+     * Creates a wheel whose first tick starts at the given time.
+     *
+     * @param tickNanos  the length of one tick
+     * @param slotCount  the number of slots, rounded up to a power of two
+     * @param startNanos the {@link System#nanoTime()} of the first tick
+     */
+    TimerWheel(long tickNanos, int slotCount, long startNanos) {
+        if (tickNanos < 1 || slotCount < 1) {
+            throw new IllegalArgumentException("tick and slot count must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.tickNanos = tickNanos;
+        this.slots = new Timeout[size];
+        this.mask = size - 1;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Schedules a task to run once the deadline has passed.
+     * Safe to call from any thread, including from an expiring task.
+     *
+     * @param task          the task to run on the wheel thread
+     * @param deadlineNanos the {@link System#nanoTime()} after which it runs
+     * @return a handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long deadlineNanos) {
+        Timeout timeout = new Timeout(task, deadlineNanos);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs every task whose deadline falls in a tick that has ended by now.
+     * Tasks may run up to one tick late, never early.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     */
+    public void advance(long nowNanos) {
+        long lastTick = (nowNanos - startNanos) / tickNanos - 1;
+
+        while (tick <= lastTick) {
+            placePending();
+            expire(slots[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into their slots.
+     */
+    private void placePending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long due = Math.max(tick, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.rounds = (due - tick) / slots.length;
+            link(timeout, (int) (due & mask));
+        }
+    }
+
+    /**
+     * Runs the timeouts of one slot that are in their last round
+     * and drops the cancelled ones.
+     */
+    private void expire(Timeout head) {
+        Timeout timeout = head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                unlink(timeout);
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                unlink(timeout);
+                timeout.task.run();
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Adds a timeout at the head of a slot.
+     */
+    private void link(Timeout timeout, int slot) {
+        Timeout head = slots[slot];
+        timeout.slot = slot;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[slot] = timeout;
+    }
+
+    /**
+     * Removes a timeout from its slot.
+     */
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * A scheduled task. Cancelling only marks it; the wheel drops it the
+     * next time it passes its slot.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile boolean cancelled = false;
+
+        private long rounds;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Prevents the task from running if it has not run yet.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Checks whether the timeout was cancelled.
+         *
+         * @return true if cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.codeforall.online.chatserver.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured log. Threads that log never wait for output:
+ * they claim a slot of a bounded ring with one compare-and-set, fill it
+ * and move on, while a background appender thread formats the events and
+ * writes them. When the ring is full, new events are dropped and counted
+ * instead of blocking the caller.
+ * <p>
+ * Each event becomes one line of {@code key=value} pairs, e.g.
+ * <pre>
+ *     time=2026-01-01T10:00:00.123Z level=INFO event=connect remote=/127.0.0.1:50312 msg="Client connected"
+ * </pre>
+ * The appender thread starts with the first event and stops on {@link #close()}.
+ */
+public class EventLog {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final LogLevel level;
+    private final LogRecord[] ring;
+    private final int mask;
+    private final Writer out;
+
+    private final AtomicLong claimed = new AtomicLong(0);
+    private final AtomicLong consumed = new AtomicLong(0);
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private volatile boolean running = true;
+    private volatile boolean parked = false;
+    private volatile Thread appender;
+
+    /**
+     * Creates a log that writes to standard output.
+     *
+     * @param level    the lowest level recorded
+     * @param capacity the number of events that can wait for the appender,
+     *                 rounded up to a power of two
+     */
+    public EventLog(LogLevel level, int capacity) {
+        this(level, capacity, new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a log that writes to the given writer.
+     *
+     * @param level    the lowest level recorded
+     * @param capacity the number of events that can wait for the appender,
+     *                 rounded up to a power of two
+     * @param out      where formatted lines go; only the appender thread writes to it
+     */
+    public EventLog(LogLevel level, int capacity, Writer out) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.level = level;
+        this.ring = new LogRecord[size];
+        this.mask = size - 1;
+        this.out = new BufferedWriter(out);
+
+        for (int i = 0; i < size; i++) {
+            ring[i] = new LogRecord();
+        }
+    }
+
+    /**
+     * Checks whether events of a level are recorded. Callers that build
+     * an expensive message can test this first.
+     *
+     * @param eventLevel the level to test
+     * @return true if such events are recorded
+     */
+    public boolean isEnabled(LogLevel eventLevel) {
+        return eventLevel.compareTo(level) >= 0 && level != LogLevel.OFF;
+    }
+
+    /**
+     * Records a server-level event.
+     *
+     * @param eventLevel the event's level
+     * @param type       what the event is about
+     * @param message    a human readable description
+     */
+    public void log(LogLevel eventLevel, EventType type, String message) {
+        log(eventLevel, type, message, null, null);
+    }
+
+    /**
+     * Records an event about one client.
+     *
+     * @param eventLevel the event's level
+     * @param type       what the event is about
+     * @param message    a human readable description
+     * @param client     the client's username, or null if unknown
+     * @param remote     the client's address, or null if unknown
+     */
+    public void log(LogLevel eventLevel, EventType type, String message, String client, String remote) {
+        if (!isEnabled(eventLevel)) {
+            return;
+        }
+        if (!running) {
+            writeNow(eventLevel, type, message, client, remote);
+            return;
+        }
+        startAppender();
+
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= ring.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        LogRecord record = ring[(int) (sequence & mask)];
+        record.timeMillis = System.currentTimeMillis();
+        record.level = eventLevel;
+        record.type = type;
+        record.message = message;
+        record.client = client;
+        record.remote = remote;
+        record.sequence = sequence;
+
+        if (parked) {
+            LockSupport.unpark(appender);
+        }
+    }
+
+    /**
+     * Gets the number of events dropped because the ring was full.
+     *
+     * @return the count since the log was created
+     */
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    /**
+     * Writes every event already logged, then stops the appender.
+     * Later events are written on the caller's thread.
+     */
+    public void close() {
+        running = false;
+        Thread thread = appender;
+        if (thread == null) {
+            return;
+        }
+
+        LockSupport.unpark(thread);
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts the appender thread on first use.
+     */
+    private void startAppender() {
+        if (started.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::drain, "event-log");
+            thread.setDaemon(true);
+            appender = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Appender loop: writes published events in order, flushing whenever the
+     * ring runs empty, and parks while there is nothing to do.
+     */
+    private void drain() {
+        long cursor = consumed.get();
+
+        while (true) {
+            LogRecord record = ring[(int) (cursor & mask)];
+
+            if (record.sequence == cursor) {
+                write(record);
+                record.clear();
+                consumed.lazySet(++cursor);
+                continue;
+            }
+
+            flush();
+            if (!running && cursor == claimed.get()) {
+                return;
+            }
+
+            parked = true;
+            if (record.sequence != cursor && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            parked = false;
+        }
+    }
+
+    /**
+     * Formats one event onto the writer.
+     */
+    private void write(LogRecord record) {
+        try {
+            format(out, record.timeMillis, record.level, record.type, record.message, record.client, record.remote);
+        } catch (IOException e) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes an event directly, once the appender has stopped.
+     */
+    private synchronized void writeNow(LogLevel eventLevel, EventType type, String message,
+                                       String client, String remote) {
+        try {
+            format(out, System.currentTimeMillis(), eventLevel, type, message, client, remote);
+            out.flush();
+        } catch (IOException e) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Pushes buffered lines to the output.
+     */
+    private void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // the output is gone; later writes will fail too and be counted
+        }
+    }
+
+    /**
+     * Formats one event as a line of {@code key=value} pairs.
+     */
+    static void format(Writer out, long timeMillis, LogLevel level, EventType type,
+                       String message, String client, String remote) throws IOException {
+        out.write("time=");
+        out.write(Instant.ofEpochMilli(timeMillis).toString());
+        out.write(" level=");
+        out.write(level.name());
+        out.write(" event=");
+        out.write(type.name().toLowerCase());
+        if (client != null) {
+            out.write(" client=");
+            writeValue(out, client);
+        }
+        if (remote != null) {
+            out.write(" remote=");
+            writeValue(out, remote);
+        }
+        if (message != null) {
+            out.write(" msg=");
+            writeValue(out, message);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Writes a value, quoted and escaped if it contains spaces, quotes or line breaks.
+     */
+    private static void writeValue(Writer out, String value) throws IOException {
+        boolean plain = !value.isEmpty();
+        for (int i = 0; i < value.length() && plain; i++) {
+            char c = value.charAt(i);
+            plain = c > ' ' && c != '"' && c != '=' && c != '\\';
+        }
+        if (plain) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                default -> out.write(c);
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,32 @@
+package com.codeforall.online.chatserver.logging;
+
+/**
+ * What a log event is about. Written as the {@code event} field of each line.
+ */
+public enum EventType {
+
+    /**
+     * Server start, stop and configuration.
+     */
+    SERVER,
+
+    /**
+     * A client connected.
+     */
+    CONNECT,
+
+    /**
+     * A client connection ended.
+     */
+    DISCONNECT,
+
+    /**
+     * A client ran a command.
+     */
+    COMMAND,
+
+    /**
+     * An I/O or setup failure.
+     */
+    ERROR
+}
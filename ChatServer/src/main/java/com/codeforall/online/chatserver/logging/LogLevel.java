@@ -0,0 +1,49 @@
+package com.codeforall.online.chatserver.logging;
+
+/**
+ * Severity of a log event. A log configured with a level records events
+ * of that level and above.
+ */
+public enum LogLevel {
+
+    /**
+     * Per-command and other high-volume detail.
+     */
+    DEBUG,
+
+    /**
+     * Connections and server lifecycle.
+     */
+    INFO,
+
+    /**
+     * Something went wrong with one client.
+     */
+    WARN,
+
+    /**
+     * Something went wrong with the server.
+     */
+    ERROR,
+
+    /**
+     * Records nothing.
+     */
+    OFF;
+
+    /**
+     * Resolves a level from its name, ignoring case.
+     *
+     * @param value the level name, e.g. "info" or "debug"
+     * @return the matching level
+     * @throws IllegalArgumentException if no level has that name
+     */
+    public static LogLevel fromString(String value) {
+        for (LogLevel level : values()) {
+            if (level.name().equalsIgnoreCase(value.trim())) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log level: " + value);
+    }
+}
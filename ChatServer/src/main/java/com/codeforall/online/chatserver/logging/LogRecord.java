@@ -0,0 +1,28 @@
+package com.codeforall.online.chatserver.logging;
+
+/**
+ * One slot of the {@link EventLog} ring. Slots are allocated once and
+ * reused, so logging an event allocates nothing beyond its strings.
+ * A producer fills the fields, then publishes them by writing the
+ * volatile {@link #sequence}; the appender reads them only after seeing it.
+ */
+final class LogRecord {
+
+    volatile long sequence = -1;
+
+    long timeMillis;
+    LogLevel level;
+    EventType type;
+    String message;
+    String client;
+    String remote;
+
+    /**
+     * Drops the references held by the slot once it has been written out.
+     */
+    void clear() {
+        message = null;
+        client = null;
+        remote = null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.codeforall.online.chatserver.metrics;
+
+/**
+ * Why a client connection ended, as counted by {@link ServerMetrics}.
+ */
+public enum DisconnectReason {
+
+    /**
+     * The client sent {@code /quit}.
+     */
+    QUIT,
+
+    /**
+     * The peer closed the connection.
+     */
+    PEER_CLOSED,
+
+    /**
+     * Reading from or writing to the connection failed.
+     */
+    IO_ERROR,
+
+    /**
+     * The client could not keep up with its outbound queue.
+     */
+    SLOW_CONSUMER,
+
+    /**
+     * The client stayed silent past the idle timeout.
+     */
+    IDLE,
+
+    /**
+     * The client sent an oversized line under the disconnect policy.
+     */
+    LINE_TOO_LONG,
+
+    /**
+     * The server shut down.
+     */
+    SHUTDOWN,
+
+    /**
+     * The client resumed its session on a new connection.
+     */
+    REPLACED
+}
@@ -0,0 +1,116 @@
+package com.codeforall.online.chatserver.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with microsecond resolution, in the spirit of
+ * HdrHistogram. Values below 128 µs get their own bucket; larger values
+ * share logarithmic buckets of 64 steps per power of two, so any reported
+ * percentile is within about 1.6% of the true value. Every bucket is a
+ * {@link LongAdder}, so threads recording at the same time do not contend.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 128;
+    private static final int STEPS = 64;
+    private static final int STEP_BITS = 6;
+    private static final int MAX_SHIFT = 30;
+    private static final long MAX_MICROS = (1L << (MAX_SHIFT + STEP_BITS + 1)) - 1;
+
+    private final LongAdder[] counts = new LongAdder[LINEAR + MAX_SHIFT * STEPS];
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values count as zero
+     */
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(0, nanos / 1000), MAX_MICROS);
+        counts[indexOf(micros)].increment();
+        max.accumulate(micros);
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the count
+     */
+    public long count() {
+        long total = 0;
+        for (LongAdder count : counts) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the maximum in microseconds, 0 if nothing was recorded
+     */
+    public long maxMicros() {
+        return max.get();
+    }
+
+    /**
+     * Gets the value below which the given fraction of recorded values fall.
+     *
+     * @param fraction the percentile as a fraction, e.g. 0.99 for p99
+     * @return the percentile in microseconds, 0 if nothing was recorded
+     */
+    public long percentileMicros(double fraction) {
+        long[] snapshot = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    /**
+     * Finds the bucket of a value.
+     */
+    static int indexOf(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - STEP_BITS;
+        return LINEAR + (shift - 1) * STEPS + (int) ((micros >> shift) - STEPS);
+    }
+
+    /**
+     * Gets the largest value that falls in a bucket.
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / STEPS + 1;
+        long step = (index - LINEAR) % STEPS + STEPS;
+        return ((step + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.codeforall.online.chatserver.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tiny HTTP server that answers {@code GET /metrics} with the
+ * {@link MetricsView#render() metrics text}. It only listens on the
+ * loopback interface and serves requests on a single thread.
+ */
+public class MetricsHttpEndpoint {
+
+    private final MetricsView view;
+    private final int port;
+    private HttpServer http;
+
+    /**
+     * Creates an endpoint; nothing is bound until {@link #start()}.
+     *
+     * @param view the metrics to serve
+     * @param port the local port to listen on
+     */
+    public MetricsHttpEndpoint(MetricsView view, int port) {
+        this.view = view;
+        this.port = port;
+    }
+
+    /**
+     * Binds the port and starts serving.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/metrics", this::handle);
+        http.start();
+    }
+
+    /**
+     * Stops serving and releases the port.
+     */
+    public void stop() {
+        if (http != null) {
+            http.stop(0);
+        }
+    }
+
+    /**
+     * Gets the port the endpoint listens on.
+     *
+     * @return the bound port, or the configured one before {@link #start()}
+     */
+    public int getPort() {
+        return http != null ? http.getAddress().getPort() : port;
+    }
+
+    /**
+     * Answers one request.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = view.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
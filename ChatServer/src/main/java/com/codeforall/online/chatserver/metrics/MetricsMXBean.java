@@ -0,0 +1,185 @@
+package com.codeforall.online.chatserver.metrics;
+
+import java.util.Map;
+
+/**
+ * Server metrics as published over JMX, e.g. to JConsole or VisualVM.
+ * Rates cover the time since the attribute was last read, at least a second.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * Gets the number of connected clients.
+     *
+     * @return the number of connected clients
+     */
+    int getConnectedClients();
+
+    /**
+     * Gets the number of accepted connections.
+     *
+     * @return the number of accepted connections
+     */
+    long getAcceptedConnections();
+
+    /**
+     * Gets accepted connections per second.
+     *
+     * @return accepted connections per second
+     */
+    double getAcceptsPerSecond();
+
+    /**
+     * Gets the number of lines and frames received.
+     *
+     * @return the number of lines and frames received
+     */
+    long getMessagesIn();
+
+    /**
+     * Gets lines and frames received per second.
+     *
+     * @return lines and frames received per second
+     */
+    double getMessagesInPerSecond();
+
+    /**
+     * Gets the number of bytes read from clients.
+     *
+     * @return the number of bytes read from clients
+     */
+    long getBytesIn();
+
+    /**
+     * Gets the number of messages written to clients.
+     *
+     * @return the number of messages written to clients
+     */
+    long getMessagesOut();
+
+    /**
+     * Gets messages written per second.
+     *
+     * @return messages written per second
+     */
+    double getMessagesOutPerSecond();
+
+    /**
+     * Gets the number of bytes written to clients.
+     *
+     * @return the number of bytes written to clients
+     */
+    long getBytesOut();
+
+    /**
+     * Gets messages waiting in all outbound queues.
+     *
+     * @return messages waiting in all outbound queues
+     */
+    long getQueuedMessages();
+
+    /**
+     * Gets the deepest outbound queue.
+     *
+     * @return the deepest outbound queue
+     */
+    int getMaxQueueDepth();
+
+    /**
+     * Gets messages dropped because an outbound queue was full.
+     *
+     * @return messages dropped because an outbound queue was full
+     */
+    long getDroppedMessages();
+
+    /**
+     * Gets messages refused by the rate limits.
+     *
+     * @return messages refused by the rate limits
+     */
+    long getThrottledMessages();
+
+    /**
+     * Gets log events dropped because the log buffer was full.
+     *
+     * @return log events dropped because the log buffer was full
+     */
+    long getDroppedLogEvents();
+
+    /**
+     * Gets broadcasts written to the message history.
+     *
+     * @return broadcasts written to the message history
+     */
+    long getHistoryMessages();
+
+    /**
+     * Gets broadcasts left out of the message history.
+     *
+     * @return broadcasts left out of the message history
+     */
+    long getDroppedHistoryMessages();
+
+    /**
+     * Gets the number of reachable cluster peers.
+     *
+     * @return the number of reachable cluster peers
+     */
+    int getClusterPeers();
+
+    /**
+     * Gets messages to cluster peers dropped because a peer's queue was full.
+     *
+     * @return messages to cluster peers dropped because a peer's queue was full
+     */
+    long getDroppedClusterMessages();
+
+    /**
+     * Gets the number of recorded broadcast fan-outs.
+     *
+     * @return the number of recorded broadcast fan-outs
+     */
+    long getBroadcasts();
+
+    /**
+     * Gets the median broadcast fan-out time in microseconds.
+     *
+     * @return the median broadcast fan-out time in microseconds
+     */
+    long getFanOutP50Micros();
+
+    /**
+     * Gets the 99th percentile broadcast fan-out time in microseconds.
+     *
+     * @return the 99th percentile broadcast fan-out time in microseconds
+     */
+    long getFanOutP99Micros();
+
+    /**
+     * Gets the 99.9th percentile broadcast fan-out time in microseconds.
+     *
+     * @return the 99.9th percentile broadcast fan-out time in microseconds
+     */
+    long getFanOutP999Micros();
+
+    /**
+     * Gets the longest broadcast fan-out time in microseconds.
+     *
+     * @return the longest broadcast fan-out time in microseconds
+     */
+    long getFanOutMaxMicros();
+
+    /**
+     * Gets how often each command was run, by token.
+     *
+     * @return how often each command was run, by token
+     */
+    Map<String, Long> getCommandCounts();
+
+    /**
+     * Gets how many connections ended for each reason.
+     *
+     * @return how many connections ended for each reason
+     */
+    Map<String, Long> getDisconnectCounts();
+}
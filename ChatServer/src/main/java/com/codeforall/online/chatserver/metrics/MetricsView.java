@@ -0,0 +1,222 @@
+package com.codeforall.online.chatserver.metrics;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.cluster.ClusterNode;
+import com.codeforall.online.chatserver.history.MessageLog;
+import com.codeforall.online.chatserver.transport.OutboundStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read side of a server's metrics: combines the {@link ServerMetrics}
+ * counters with the transport statistics and the server's current state.
+ * Published over JMX as a {@link MetricsMXBean} and rendered as text by
+ * {@link MetricsHttpEndpoint}.
+ */
+public class MetricsView implements MetricsMXBean {
+
+    private final ChatServer server;
+    private final ServerMetrics metrics;
+    private final OutboundStats outbound;
+
+    private final Rate accepts;
+    private final Rate messagesIn;
+    private final Rate messagesOut;
+
+    /**
+     * Creates a view over a server.
+     *
+     * @param server the server to report on
+     */
+    public MetricsView(ChatServer server) {
+        this.server = server;
+        this.metrics = server.getMetrics();
+        this.outbound = server.getOutboundStats();
+        this.accepts = new Rate(metrics::getAcceptedConnections);
+        this.messagesIn = new Rate(metrics::getMessagesIn);
+        this.messagesOut = new Rate(outbound::getMessagesWritten);
+    }
+
+    @Override
+    public int getConnectedClients() {
+        return server.getClientCount();
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return metrics.getAcceptedConnections();
+    }
+
+    @Override
+    public double getAcceptsPerSecond() {
+        return accepts.perSecond();
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return metrics.getMessagesIn();
+    }
+
+    @Override
+    public double getMessagesInPerSecond() {
+        return messagesIn.perSecond();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return metrics.getBytesIn();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return outbound.getMessagesWritten();
+    }
+
+    @Override
+    public double getMessagesOutPerSecond() {
+        return messagesOut.perSecond();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return outbound.getBytesWritten();
+    }
+
+    @Override
+    public long getQueuedMessages() {
+        return outbound.getQueuedMessages();
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return server.getMaxOutboundDepth();
+    }
+
+    @Override
+    public long getDroppedMessages() {
+        return outbound.getDroppedMessages();
+    }
+
+    @Override
+    public long getThrottledMessages() {
+        return server.getRateLimiter().getThrottledMessages();
+    }
+
+    @Override
+    public long getDroppedLogEvents() {
+        return server.getLog().getDroppedEvents();
+    }
+
+    @Override
+    public long getHistoryMessages() {
+        MessageLog history = server.getHistory();
+        return history != null ? history.getAppendedMessages() : 0;
+    }
+
+    @Override
+    public long getDroppedHistoryMessages() {
+        MessageLog history = server.getHistory();
+        return history != null ? history.getDroppedMessages() : 0;
+    }
+
+    @Override
+    public int getClusterPeers() {
+        ClusterNode cluster = server.getCluster();
+        return cluster != null ? cluster.getConnectedPeers() : 0;
+    }
+
+    @Override
+    public long getDroppedClusterMessages() {
+        ClusterNode cluster = server.getCluster();
+        return cluster != null ? cluster.getDroppedMessages() : 0;
+    }
+
+    @Override
+    public long getBroadcasts() {
+        return metrics.getBroadcasts();
+    }
+
+    @Override
+    public long getFanOutP50Micros() {
+        return metrics.getFanOutTimes().percentileMicros(0.5);
+    }
+
+    @Override
+    public long getFanOutP99Micros() {
+        return metrics.getFanOutTimes().percentileMicros(0.99);
+    }
+
+    @Override
+    public long getFanOutP999Micros() {
+        return metrics.getFanOutTimes().percentileMicros(0.999);
+    }
+
+    @Override
+    public long getFanOutMaxMicros() {
+        return metrics.getFanOutTimes().maxMicros();
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        return metrics.getCommandCounts();
+    }
+
+    @Override
+    public Map<String, Long> getDisconnectCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        metrics.getDisconnectCounts().forEach((reason, count) -> counts.put(reason.name().toLowerCase(), count));
+        return counts;
+    }
+
+    /**
+     * Renders every metric as one {@code name value} line, with labels in
+     * braces where a metric has several values. The layout follows the
+     * Prometheus text format, so the endpoint can also be scraped.
+     *
+     * @return the metrics text
+     */
+    public String render() {
+        StringBuilder text = new StringBuilder(2048);
+
+        line(text, "chat_clients_connected", getConnectedClients());
+        line(text, "chat_connections_accepted_total", getAcceptedConnections());
+        line(text, "chat_connections_accepted_per_second", getAcceptsPerSecond());
+        line(text, "chat_messages_in_total", getMessagesIn());
+        line(text, "chat_messages_in_per_second", getMessagesInPerSecond());
+        line(text, "chat_bytes_in_total", getBytesIn());
+        line(text, "chat_messages_out_total", getMessagesOut());
+        line(text, "chat_messages_out_per_second", getMessagesOutPerSecond());
+        line(text, "chat_bytes_out_total", getBytesOut());
+        line(text, "chat_outbound_queued_messages", getQueuedMessages());
+        line(text, "chat_outbound_max_queue_depth", getMaxQueueDepth());
+        line(text, "chat_outbound_dropped_total", getDroppedMessages());
+        line(text, "chat_messages_throttled_total", getThrottledMessages());
+        line(text, "chat_log_dropped_total", getDroppedLogEvents());
+        line(text, "chat_history_messages_total", getHistoryMessages());
+        line(text, "chat_history_dropped_total", getDroppedHistoryMessages());
+        line(text, "chat_cluster_peers", getClusterPeers());
+        line(text, "chat_cluster_dropped_total", getDroppedClusterMessages());
+
+        LatencyHistogram fanOut = metrics.getFanOutTimes();
+        line(text, "chat_broadcast_fanout_micros{quantile=\"0.5\"}", fanOut.percentileMicros(0.5));
+        line(text, "chat_broadcast_fanout_micros{quantile=\"0.99\"}", fanOut.percentileMicros(0.99));
+        line(text, "chat_broadcast_fanout_micros{quantile=\"0.999\"}", fanOut.percentileMicros(0.999));
+        line(text, "chat_broadcast_fanout_micros{quantile=\"1\"}", fanOut.maxMicros());
+        line(text, "chat_broadcast_fanout_micros_count", getBroadcasts());
+
+        getCommandCounts().forEach((token, count) ->
+                line(text, "chat_commands_total{command=\"" + token + "\"}", count));
+        getDisconnectCounts().forEach((reason, count) ->
+                line(text, "chat_disconnects_total{reason=\"" + reason + "\"}", count));
+
+        return text.toString();
+    }
+
+    /**
+     * Appends one metric line.
+     */
+    private static void line(StringBuilder text, String name, Object value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+}
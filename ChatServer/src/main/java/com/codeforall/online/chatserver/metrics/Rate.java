@@ -0,0 +1,48 @@
+package com.codeforall.online.chatserver.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Per-second rate of a monotonic counter, computed when it is read.
+ * Each read at least a second after the previous sample takes a new one,
+ * so the rate covers the time between the last two samples and nothing
+ * runs in the background.
+ */
+public class Rate {
+
+    private static final long MIN_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final LongSupplier counter;
+    private long sampleTime;
+    private long sampleValue;
+    private double perSecond = 0;
+
+    /**
+     * Starts measuring a counter from its current value.
+     *
+     * @param counter reads the counter's total
+     */
+    public Rate(LongSupplier counter) {
+        this.counter = counter;
+        this.sampleTime = System.nanoTime();
+        this.sampleValue = counter.getAsLong();
+    }
+
+    /**
+     * Gets the recent rate.
+     *
+     * @return events per second between the last two samples
+     */
+    public synchronized double perSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - sampleTime;
+
+        if (elapsed >= MIN_INTERVAL_NANOS) {
+            long value = counter.getAsLong();
+            perSecond = (value - sampleValue) * 1e9 / elapsed;
+            sampleTime = now;
+            sampleValue = value;
+        }
+        return perSecond;
+    }
+}
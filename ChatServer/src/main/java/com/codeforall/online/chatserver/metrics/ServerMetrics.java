@@ -0,0 +1,162 @@
+package com.codeforall.online.chatserver.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot-path counters of a chat server. Every counter is a {@link LongAdder},
+ * so the threads recording into it never contend; the cost is paid by
+ * whoever reads the totals, which only happens when metrics are exported.
+ * Outbound traffic is counted by the transport's
+ * {@link com.codeforall.online.chatserver.transport.OutboundStats}.
+ */
+public class ServerMetrics {
+
+    private static final String UNKNOWN_COMMAND = "unknown";
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder broadcasts = new LongAdder();
+    private final Map<String, LongAdder> commands = new ConcurrentHashMap<>();
+    private final LongAdder[] disconnects = new LongAdder[DisconnectReason.values().length];
+    private final LatencyHistogram fanOutTimes = new LatencyHistogram();
+
+    /**
+     * Creates a set of zeroed counters.
+     */
+    public ServerMetrics() {
+        for (int i = 0; i < disconnects.length; i++) {
+            disconnects[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records an accepted connection.
+     */
+    public void connectionAccepted() {
+        accepted.increment();
+    }
+
+    /**
+     * Records bytes read from a client socket.
+     *
+     * @param bytes the number of bytes read
+     */
+    public void bytesRead(int bytes) {
+        bytesIn.add(bytes);
+    }
+
+    /**
+     * Records a line or frame received from a client.
+     */
+    public void messageReceived() {
+        messagesIn.increment();
+    }
+
+    /**
+     * Records a command that was run.
+     *
+     * @param token the command token, e.g. {@code /list}, or null if no command matched
+     */
+    public void commandExecuted(String token) {
+        String key = token == null ? UNKNOWN_COMMAND : token;
+        LongAdder count = commands.get(key);
+        if (count == null) {
+            count = commands.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Records a client connection that ended.
+     *
+     * @param reason why it ended
+     */
+    public void disconnected(DisconnectReason reason) {
+        disconnects[reason.ordinal()].increment();
+    }
+
+    /**
+     * Records how long a broadcast took to reach its recipients' queues.
+     *
+     * @param nanos the fan-out time
+     */
+    public void fanOut(long nanos) {
+        broadcasts.increment();
+        fanOutTimes.record(nanos);
+    }
+
+    /**
+     * Gets the number of accepted connections.
+     *
+     * @return the total since the server started
+     */
+    public long getAcceptedConnections() {
+        return accepted.sum();
+    }
+
+    /**
+     * Gets the number of lines and frames received.
+     *
+     * @return the total since the server started
+     */
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    /**
+     * Gets the number of bytes read from clients.
+     *
+     * @return the total since the server started
+     */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /**
+     * Gets the number of fan-outs recorded. With broadcast shards each
+     * shard's part of a broadcast counts separately.
+     *
+     * @return the total since the server started
+     */
+    public long getBroadcasts() {
+        return broadcasts.sum();
+    }
+
+    /**
+     * Gets how often each command was run.
+     *
+     * @return counts by command token, sorted by token
+     */
+    public Map<String, Long> getCommandCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        commands.forEach((token, count) -> counts.put(token, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Gets how many connections ended for each reason.
+     *
+     * @return counts by reason, in declaration order
+     */
+    public Map<DisconnectReason, Long> getDisconnectCounts() {
+        Map<DisconnectReason, Long> counts = new EnumMap<>(DisconnectReason.class);
+        for (DisconnectReason reason : DisconnectReason.values()) {
+            counts.put(reason, disconnects[reason.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the distribution of broadcast fan-out times.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getFanOutTimes() {
+        return fanOutTimes;
+    }
+}
@@ -0,0 +1,105 @@
+package com.codeforall.online.chatserver.ratelimit;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a client may send another chat message or whisper.
+ * Every client has its own {@link TokenBucket}, and all clients share one
+ * global bucket, so a single flooder is stopped by its own limit and many
+ * clients together cannot exceed the server-wide budget.
+ * Either limit is off when its rate is 0.
+ */
+public class RateLimiter {
+
+    private final long clientPerSecond;
+    private final int clientBurst;
+    private final TokenBucket global;
+
+    private final LongAdder clientThrottled = new LongAdder();
+    private final LongAdder globalThrottled = new LongAdder();
+
+    /**
+     * Creates a limiter.
+     *
+     * @param clientPerSecond messages per second each client may send, 0 for no limit
+     * @param clientBurst     messages a client may send at once after being idle
+     * @param globalPerSecond messages per second all clients together may send, 0 for no limit
+     * @param globalBurst     messages all clients together may send at once
+     */
+    public RateLimiter(long clientPerSecond, int clientBurst, long globalPerSecond, int globalBurst) {
+        this.clientPerSecond = clientPerSecond;
+        this.clientBurst = clientBurst;
+        this.global = globalPerSecond > 0 ? new TokenBucket(globalPerSecond, globalBurst) : null;
+    }
+
+    /**
+     * Creates the bucket of a newly connected client.
+     *
+     * @return the client's bucket, or null if clients are not limited
+     */
+    public TokenBucket newClientBucket() {
+        return clientPerSecond > 0 ? new TokenBucket(clientPerSecond, clientBurst) : null;
+    }
+
+    /**
+     * Checks the client's limit, then the global one. A message refused by
+     * the global limit still used up the client's token.
+     *
+     * @param client the sending client's bucket, or null if clients are not limited
+     * @return the limit that refused the message, or null if it may go
+     */
+    public Limit tryAcquire(TokenBucket client) {
+        if (client != null && !client.tryAcquire()) {
+            clientThrottled.increment();
+            return Limit.CLIENT;
+        }
+        if (global != null && !global.tryAcquire()) {
+            globalThrottled.increment();
+            return Limit.GLOBAL;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of messages refused by a client's own limit.
+     *
+     * @return the count since the server started
+     */
+    public long getClientThrottled() {
+        return clientThrottled.sum();
+    }
+
+    /**
+     * Gets the number of messages refused by the global limit.
+     *
+     * @return the count since the server started
+     */
+    public long getGlobalThrottled() {
+        return globalThrottled.sum();
+    }
+
+    /**
+     * Gets the number of throttled messages.
+     *
+     * @return the count since the server started
+     */
+    public long getThrottledMessages() {
+        return getClientThrottled() + getGlobalThrottled();
+    }
+
+    /**
+     * The limit that refused a message.
+     */
+    public enum Limit {
+
+        /**
+         * The sending client's own limit.
+         */
+        CLIENT,
+
+        /**
+         * The server-wide limit.
+         */
+        GLOBAL
+    }
+}
@@ -0,0 +1,78 @@
+package com.codeforall.online.chatserver.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Tokens refill at a fixed rate up to a burst size,
+ * and each accepted message takes one.
+ * <p>
+ * Instead of a token count and a refill timestamp, the bucket keeps one
+ * value: the time at which it will be full again (the "theoretical arrival
+ * time" of the generic cell rate algorithm). Taking a token pushes that time
+ * one refill interval into the future; a message is refused when the push
+ * would put it more than a burst ahead of now. One compare-and-set per
+ * message, so many threads can share a bucket without locking.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * Creates a bucket that starts full.
+     *
+     * @param perSecond tokens added per second, at least one
+     * @param burst     tokens the bucket holds when full, at least one
+     */
+    public TokenBucket(long perSecond, int burst) {
+        this(perSecond, burst, System.nanoTime());
+    }
+
+    /**
+     * Creates a bucket that starts full at the given time.
+     *
+     * @param perSecond tokens added per second, at least one
+     * @param burst     tokens the bucket holds when full, at least one
+     * @param nowNanos  the current {@link System#nanoTime()}
+     */
+    TokenBucket(long perSecond, int burst, long nowNanos) {
+        if (perSecond < 1 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be at least 1");
+        }
+        this.intervalNanos = Math.max(1, NANOS_PER_SECOND / perSecond);
+        this.burstNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one token if one is available.
+     *
+     * @return true if the message may go, false if it must be throttled
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * Takes one token if one is available at the given time.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return true if the message may go, false if it must be throttled
+     */
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - nowNanos < 0 ? nowNanos : current) + intervalNanos;
+
+            if (next - nowNanos > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.codeforall.online.chatserver.rooms;
+
+import com.codeforall.online.chatserver.ClientHandler;
+
+import com.codeforall.online.chatserver.broadcast.ShardedClientSet;
+
+import java.util.Iterator;
+
+/**
+ * A chat room and its current members. Membership is a concurrent set,
+ * so broadcasting to the room only walks the room's own clients and
+ * tolerates members joining or leaving meanwhile.
+ */
+public class Room implements Iterable<ClientHandler> {
+
+    private final String name;
+    private final ShardedClientSet members;
+
+    /**
+     * Creates an empty room.
+     *
+     * @param name       the room name
+     * @param shardCount the number of shards to split members into
+     */
+    Room(String name, int shardCount) {
+        this.name = name;
+        this.members = new ShardedClientSet(shardCount);
+    }
+
+    /**
+     * Gets the room name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of members in the room.
+     *
+     * @return the member count
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Checks whether a client is a member of the room.
+     *
+     * @param client the client to check
+     * @return true if the client is in the room
+     */
+    public boolean contains(ClientHandler client) {
+        return members.contains(client);
+    }
+
+    /**
+     * Gets the sharded set of members.
+     *
+     * @return the members
+     */
+    public ShardedClientSet members() {
+        return members;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the members.
+     *
+     * @return an iterator that tolerates concurrent changes
+     */
+    @Override
+    public Iterator<ClientHandler> iterator() {
+        return members.iterator();
+    }
+
+    /**
+     * Adds a member. Only called by {@link RoomManager}.
+     */
+    void add(ClientHandler client) {
+        members.add(client);
+    }
+
+    /**
+     * Removes a member. Only called by {@link RoomManager}.
+     */
+    void remove(ClientHandler client) {
+        members.remove(client);
+    }
+
+    /**
+     * Checks whether the room has no members left.
+     */
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+}
@@ -0,0 +1,135 @@
+package com.codeforall.online.chatserver.rooms;
+
+import com.codeforall.online.chatserver.ClientHandler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of chat rooms and which room each client is in.
+ * Every client is in exactly one room; new users start in the lobby.
+ * Rooms are created on first join and removed when their last member
+ * leaves, except for the lobby which always exists. Joins and leaves
+ * for the same room are applied atomically, so a room is never removed
+ * while someone is joining it.
+ */
+public class RoomManager {
+
+    /**
+     * Name of the room every client starts in.
+     */
+    public static final String LOBBY = "lobby";
+
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+    private final int shardCount;
+
+    /**
+     * Creates a room manager containing only the lobby, with unsharded rooms.
+     */
+    public RoomManager() {
+        this(1);
+    }
+
+    /**
+     * Creates a room manager containing only the lobby.
+     *
+     * @param shardCount the number of shards to split each room's members into
+     */
+    public RoomManager(int shardCount) {
+        this.shardCount = shardCount;
+        rooms.put(roomKey(LOBBY), new Room(LOBBY, shardCount));
+    }
+
+    /**
+     * Moves a client into a room, creating the room if needed.
+     * The client leaves its previous room first.
+     *
+     * @param client   the client joining
+     * @param roomName the room to join
+     * @return the room the client is now in
+     */
+    public Room join(ClientHandler client, String roomName) {
+        leave(client);
+
+        Room room = rooms.compute(roomKey(roomName), (key, existing) -> {
+            Room target = existing != null ? existing : new Room(roomName, shardCount);
+            target.add(client);
+            return target;
+        });
+
+        client.setRoom(room);
+        return room;
+    }
+
+    /**
+     * Takes a client out of its current room, removing the room
+     * if it became empty.
+     *
+     * @param client the client leaving
+     * @return the room the client was in, or null if it was in none
+     */
+    public Room leave(ClientHandler client) {
+        Room room = client.getRoom();
+        if (room == null) {
+            return null;
+        }
+
+        rooms.computeIfPresent(roomKey(room.getName()), (key, existing) -> {
+            existing.remove(client);
+            return existing.isEmpty() && !isLobby(existing) ? null : existing;
+        });
+
+        client.setRoom(null);
+        return room;
+    }
+
+    /**
+     * Looks up a room by name, ignoring case.
+     *
+     * @param roomName the room name
+     * @return the room, or null if it does not exist
+     */
+    public Room find(String roomName) {
+        return rooms.get(roomKey(roomName));
+    }
+
+    /**
+     * Gets the lobby.
+     *
+     * @return the lobby room
+     */
+    public Room lobby() {
+        return rooms.get(roomKey(LOBBY));
+    }
+
+    /**
+     * Checks whether a room is the lobby.
+     *
+     * @param room the room to check
+     * @return true if it is the lobby
+     */
+    public boolean isLobby(Room room) {
+        return LOBBY.equalsIgnoreCase(room.getName());
+    }
+
+    /**
+     * Returns a snapshot of the current rooms, sorted by name.
+     *
+     * @return the rooms
+     */
+    public List<Room> list() {
+        List<Room> snapshot = new ArrayList<>(rooms.values());
+        snapshot.sort(Comparator.comparing(Room::getName, String.CASE_INSENSITIVE_ORDER));
+        return snapshot;
+    }
+
+    /**
+     * Normalises a room name for case-insensitive lookups.
+     */
+    private static String roomKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
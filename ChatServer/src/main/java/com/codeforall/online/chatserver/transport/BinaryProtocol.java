@@ -0,0 +1,87 @@
+package com.codeforall.online.chatserver.transport;
+
+/**
+ * Constants of the optional binary protocol, spoken on the same port as the
+ * text protocol.
+ * <p>
+ * A client opts in by sending {@link #MAGIC} before anything else; a text
+ * line can never start with a NUL byte, so the first byte tells the two
+ * apart. The server answers with the text line {@link #ACK_LINE}: output
+ * before it is text, output after it is binary. From then on both sides
+ * exchange frames:
+ * <pre>
+ *     +-------------------+-----------+----------------------+
+ *     | payload length    | opcode    | payload (UTF-8)      |
+ *     | 4 bytes, unsigned | 1 byte    | length bytes         |
+ *     +-------------------+-----------+----------------------+
+ * </pre>
+ * All integers are big-endian. See {@link Opcode} for the opcodes.
+ * <p>
+ * Binary clients get heartbeats as {@link Opcode#PING} frames and answer
+ * with {@link Opcode#PONG}. Text clients get the line {@link #PING_LINE}
+ * and answer with {@link #PONG_LINE}, but only once they opted in to
+ * control lines by sending {@link #RESUME_LINE} as their first line, so
+ * plain line clients never see one. Likewise, the reconnect hint sent when the
+ * server drains is {@link #RECONNECT_LINE} or an {@link Opcode#RECONNECT} frame.
+ * When another server takes over, the hint carries a session token, after a
+ * space in the line or as the frame payload; the client sends it back as
+ * {@link #RESUME_LINE}, a space and the token instead of a username.
+ * <p>
+ * Clients that opted in are also given such a token at every login, as
+ * {@link #SESSION_LINE} and the token or an {@link Opcode#SESSION} frame,
+ * so that a client whose connection drops can resume its session too. A
+ * resume the server refuses is answered with the line or frame without a
+ * token, telling the client to forget the one it sent.
+ * <p>
+ * Control lines are told apart by their leading NUL. Usernames cannot hold
+ * control characters and messages cannot hold line breaks, so no line that
+ * comes from a user starts with one.
+ */
+public final class BinaryProtocol {
+
+    /**
+     * Bytes a client sends to switch its connection to binary frames.
+     */
+    public static final byte[] MAGIC = {0, 'C', 'B', 1};
+
+    /**
+     * Text line the server sends once the connection has switched.
+     */
+    public static final String ACK_LINE = "\0CB\1";
+
+    /**
+     * Heartbeat line sent to idle text clients.
+     */
+    public static final String PING_LINE = "\0PING";
+
+    /**
+     * Line sent to text clients before a graceful shutdown, telling them to connect again.
+     */
+    public static final String RECONNECT_LINE = "\0RECONNECT";
+
+    /**
+     * Prefix of the line that gives text clients their session token. Alone,
+     * it tells them they have none.
+     */
+    public static final String SESSION_LINE = "\0SESSION";
+
+    /**
+     * Prefix of the login line with which a reconnecting client resumes its
+     * session. Like {@link #PONG_LINE} it is a command-style line, because a
+     * NUL byte opening a connection would announce the binary protocol.
+     */
+    public static final String RESUME_LINE = "/resume";
+
+    /**
+     * Line a text client sends to answer a heartbeat.
+     */
+    public static final String PONG_LINE = "/pong";
+
+    /**
+     * Length of a frame header: payload length plus opcode.
+     */
+    public static final int HEADER_LENGTH = 5;
+
+    private BinaryProtocol() {
+    }
+}
@@ -0,0 +1,121 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+/**
+ * Drains one client's {@link OutboundQueue} onto a blocking channel.
+ * Runs on its own thread so that broadcasting never waits for a slow
+ * reader. Everything queued at the time is written with one gathering
+ * write, held back for bursts when the {@link FlushPolicy} batches, and
+ * the channel is closed once the queue has been closed and drained.
+ */
+public class BlockingOutboundWriter implements Runnable {
+
+    private static final int MAX_BATCH = 64;
+
+    private final OutboundQueue queue;
+    private final SocketChannel channel;
+    private final FlushPolicy flushPolicy;
+    private final OutboundStats stats;
+
+    private long lastWriteTime;
+
+    /**
+     * Creates a writer for the given queue and channel.
+     *
+     * @param queue       the queue to drain
+     * @param channel     the blocking channel connected to the client
+     * @param flushPolicy when to write queued output
+     * @param stats       counters for writes and added delay
+     */
+    public BlockingOutboundWriter(OutboundQueue queue, SocketChannel channel,
+                                  FlushPolicy flushPolicy, OutboundStats stats) {
+        this.queue = queue;
+        this.channel = channel;
+        this.flushPolicy = flushPolicy;
+        this.stats = stats;
+        this.lastWriteTime = System.nanoTime() - flushPolicy.getMaxDelayNanos();
+    }
+
+    /**
+     * Writes queued messages until the queue is closed or the channel fails.
+     */
+    @Override
+    public void run() {
+        ByteBuffer[] batch = new ByteBuffer[MAX_BATCH];
+
+        try {
+            while ((batch[0] = queue.take()) != null) {
+                int count = 1 + queue.drainTo(batch, 1);
+                count = coalesce(batch, count);
+
+                while (batch[count - 1].hasRemaining()) {
+                    stats.written(channel.write(batch, 0, count));
+                }
+                stats.completed(count);
+
+                lastWriteTime = System.nanoTime();
+                Arrays.fill(batch, 0, count, null);
+            }
+            queue.markFlushed();
+
+        } catch (IOException e) {
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // the channel is gone either way
+            }
+        }
+    }
+
+    /**
+     * Holds a burst back until it reaches the byte threshold or the
+     * deadline passes, collecting the messages that arrive meanwhile.
+     *
+     * @param batch the messages taken so far
+     * @param count how many slots of the batch are filled
+     * @return the new number of filled slots
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private int coalesce(ByteBuffer[] batch, int count) throws InterruptedException {
+        long start = System.nanoTime();
+        long bytes = remaining(batch, 0, count);
+
+        if (!flushPolicy.shouldDelay(start, lastWriteTime, bytes)) {
+            return count;
+        }
+
+        long deadline = flushPolicy.deadline(lastWriteTime);
+        while (count < batch.length && bytes < flushPolicy.getThresholdBytes()) {
+            ByteBuffer next = queue.poll(deadline - System.nanoTime());
+            if (next == null) {
+                break;
+            }
+            batch[count] = next;
+            int added = 1 + queue.drainTo(batch, count + 1);
+            bytes += remaining(batch, count, count + added);
+            count += added;
+        }
+
+        stats.delayed(System.nanoTime() - start);
+        return count;
+    }
+
+    /**
+     * Sums the bytes left in a range of buffers.
+     */
+    private static long remaining(ByteBuffer[] batch, int from, int to) {
+        long bytes = 0;
+        for (int i = from; i < to; i++) {
+            bytes += batch[i].remaining();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,78 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A shared pool of equally sized byte arrays. Connections borrow one only
+ * while they hold a partial line, so idle connections keep no buffer.
+ * Safe to use from any thread.
+ */
+public class ByteArrayPool {
+
+    private final int arrayLength;
+    private final int maxPooled;
+    private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param arrayLength the length of every array handed out
+     * @param maxPooled   the most arrays kept for reuse; extra ones are left to the GC
+     */
+    public ByteArrayPool(int arrayLength, int maxPooled) {
+        this.arrayLength = arrayLength;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Takes an array from the pool, allocating one if the pool is empty.
+     * The contents are undefined.
+     *
+     * @return an array of {@link #arrayLength()} bytes
+     */
+    public byte[] acquire() {
+        byte[] array = free.poll();
+        if (array == null) {
+            return new byte[arrayLength];
+        }
+        pooled.decrementAndGet();
+        return array;
+    }
+
+    /**
+     * Gives an array back for reuse.
+     *
+     * @param array an array obtained from {@link #acquire()}
+     */
+    public void release(byte[] array) {
+        if (array.length != arrayLength) {
+            return;
+        }
+        if (pooled.incrementAndGet() <= maxPooled) {
+            free.offer(array);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the length of the arrays in this pool.
+     *
+     * @return the array length in bytes
+     */
+    public int arrayLength() {
+        return arrayLength;
+    }
+
+    /**
+     * Gets the number of arrays waiting to be reused.
+     *
+     * @return the pooled array count
+     */
+    public int pooled() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,139 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A chat line encoded to UTF-8 exactly once, newline included.
+ * The bytes are immutable, so one instance can be queued for any number
+ * of clients: each recipient writes from its own {@link #view()}, which
+ * shares the bytes without copying them. Nothing has to be released
+ * explicitly; the buffer is reclaimed once the last view is gone.
+ * <p>
+ * The same buffer also starts with a {@link BinaryProtocol} frame header,
+ * so text and binary clients share one encoding: {@link #view()} skips the
+ * header and {@link #frameView()} leaves out the newline.
+ */
+public final class EncodedMessage {
+
+    private volatile String text;
+    private final ByteBuffer bytes;
+
+    private EncodedMessage(String text, ByteBuffer bytes) {
+        this.text = text;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Encodes a line into a direct buffer, the cheapest form for channels
+     * to write. Meant for messages fanned out to many clients, where the
+     * allocation is paid once for all of them.
+     *
+     * @param text the line to encode, without terminator
+     * @return the encoded message
+     */
+    public static EncodedMessage of(String text) {
+        return of(text, true);
+    }
+
+    /**
+     * Encodes a line into a direct or heap buffer. Heap buffers are cheaper
+     * to allocate and suit messages with a single recipient.
+     *
+     * @param text   the line to encode, without terminator
+     * @param direct true for a direct buffer, false for a heap buffer
+     * @return the encoded message
+     */
+    public static EncodedMessage of(String text, boolean direct) {
+        return of(Opcode.MESSAGE, text, direct);
+    }
+
+    /**
+     * Encodes a line whose {@link #frameView()} carries the given opcode
+     * instead of {@link Opcode#MESSAGE}.
+     *
+     * @param opcode the frame opcode
+     * @param text   the line to encode, without terminator
+     * @param direct true for a direct buffer, false for a heap buffer
+     * @return the encoded message
+     */
+    public static EncodedMessage of(Opcode opcode, String text, boolean direct) {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+
+        int size = BinaryProtocol.HEADER_LENGTH + encoded.length + 1;
+        ByteBuffer buffer = direct
+                ? ByteBuffer.allocateDirect(size)
+                : ByteBuffer.allocate(size);
+        buffer.putInt(encoded.length).put((byte) opcode.code())
+                .put(encoded).put((byte) '\n').flip();
+
+        return new EncodedMessage(text, buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * Wraps bytes already in the layout this class produces: a frame header,
+     * the UTF-8 text and a newline. Nothing is copied, so the bytes may live
+     * outside the heap, e.g. in a memory-mapped file; the text is decoded
+     * only if {@link #text()} is called.
+     *
+     * @param encoded the encoded bytes, from its position to its limit
+     * @return the message sharing those bytes
+     */
+    public static EncodedMessage wrap(ByteBuffer encoded) {
+        return new EncodedMessage(null, encoded.slice().asReadOnlyBuffer());
+    }
+
+    /**
+     * Returns an independent read-only view of the encoded bytes.
+     * Each writer needs its own view, because writing moves its position.
+     *
+     * @return a new view over the shared bytes
+     */
+    public ByteBuffer view() {
+        ByteBuffer view = bytes.duplicate();
+        view.position(BinaryProtocol.HEADER_LENGTH);
+        return view;
+    }
+
+    /**
+     * Returns an independent read-only view of the message as a binary
+     * {@link Opcode#MESSAGE} frame.
+     *
+     * @return a new view over the shared bytes
+     */
+    public ByteBuffer frameView() {
+        ByteBuffer view = bytes.duplicate();
+        view.limit(view.limit() - 1);
+        return view;
+    }
+
+    /**
+     * Gets the number of encoded bytes, newline included.
+     *
+     * @return the encoded length
+     */
+    public int length() {
+        return bytes.remaining() - BinaryProtocol.HEADER_LENGTH;
+    }
+
+    /**
+     * Gets the original line.
+     *
+     * @return the line, without terminator
+     */
+    public String text() {
+        String decoded = text;
+        if (decoded == null) {
+            ByteBuffer view = view();
+            view.limit(view.limit() - 1);
+            decoded = StandardCharsets.UTF_8.decode(view).toString();
+            text = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+}
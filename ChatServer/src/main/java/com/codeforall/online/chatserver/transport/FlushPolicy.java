@@ -0,0 +1,88 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when queued output is written to a client.
+ * Without batching every wakeup of the writer results in a write.
+ * With batching a connection that was written to less than the maximum
+ * delay ago holds its output back, so that lines arriving in a burst share
+ * one write, until either the byte threshold or the delay is reached.
+ * Connections that were quiet are still written immediately, so batching
+ * only adds latency when there is something to coalesce.
+ */
+public final class FlushPolicy {
+
+    /**
+     * Writes as soon as output is queued.
+     */
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(false, 0, 0);
+
+    private final boolean batching;
+    private final int thresholdBytes;
+    private final long maxDelayNanos;
+
+    /**
+     * Creates a flush policy.
+     *
+     * @param batching       true to coalesce bursts of output
+     * @param thresholdBytes queued bytes that trigger a write right away
+     * @param maxDelayMicros the longest time output may be held back
+     */
+    public FlushPolicy(boolean batching, int thresholdBytes, long maxDelayMicros) {
+        this.batching = batching;
+        this.thresholdBytes = thresholdBytes;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+    }
+
+    /**
+     * Checks whether output is coalesced.
+     *
+     * @return true if batching is enabled
+     */
+    public boolean isBatching() {
+        return batching;
+    }
+
+    /**
+     * Gets the number of queued bytes that forces a write.
+     *
+     * @return the threshold in bytes
+     */
+    public int getThresholdBytes() {
+        return thresholdBytes;
+    }
+
+    /**
+     * Gets the longest time output may be held back.
+     *
+     * @return the delay in nanoseconds
+     */
+    public long getMaxDelayNanos() {
+        return maxDelayNanos;
+    }
+
+    /**
+     * Tells whether output queued now should wait for more to join it.
+     *
+     * @param now           the current {@link System#nanoTime()}
+     * @param lastWriteTime when the connection was last written to
+     * @param queuedBytes   the bytes waiting to be written
+     * @return true to hold the output back, false to write it now
+     */
+    public boolean shouldDelay(long now, long lastWriteTime, long queuedBytes) {
+        return batching
+                && now - lastWriteTime < maxDelayNanos
+                && queuedBytes < thresholdBytes;
+    }
+
+    /**
+     * Gets the time at which held-back output must be written.
+     *
+     * @param lastWriteTime when the connection was last written to
+     * @return the deadline as a {@link System#nanoTime()} value
+     */
+    public long deadline(long lastWriteTime) {
+        return lastWriteTime + maxDelayNanos;
+    }
+}
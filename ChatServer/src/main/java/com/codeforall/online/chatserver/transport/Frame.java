@@ -0,0 +1,48 @@
+package com.codeforall.online.chatserver.transport;
+
+/**
+ * One decoded frame of the {@link BinaryProtocol}.
+ */
+public final class Frame {
+
+    private final int code;
+    private final String payload;
+
+    /**
+     * Creates a frame.
+     *
+     * @param code    the opcode byte as received
+     * @param payload the decoded payload
+     */
+    public Frame(int code, String payload) {
+        this.code = code;
+        this.payload = payload;
+    }
+
+    /**
+     * Gets the opcode byte as received.
+     *
+     * @return the raw opcode
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Gets the opcode of this frame.
+     *
+     * @return the opcode, or null if the client sent an unassigned value
+     */
+    public Opcode opcode() {
+        return Opcode.fromCode(code);
+    }
+
+    /**
+     * Gets the payload text.
+     *
+     * @return the payload
+     */
+    public String payload() {
+        return payload;
+    }
+}
@@ -0,0 +1,142 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a stream of {@link BinaryProtocol} bytes into frames, starting
+ * with the client's {@link BinaryProtocol#MAGIC} preamble. A payload that
+ * arrives in one read is decoded straight from the read buffer; one spread
+ * over several reads is collected in an array borrowed from a
+ * {@link ByteArrayPool}. Payloads over the maximum length are skipped
+ * without being buffered, using the length from their header.
+ */
+public class FrameDecoder {
+
+    private final int maxPayloadLength;
+    private final ByteArrayPool pool;
+
+    private int magicRead = 0;
+    private final byte[] header = new byte[BinaryProtocol.HEADER_LENGTH];
+    private int headerRead = 0;
+    private long skipRemaining = 0;
+
+    private byte[] payload;
+    private int payloadRead = 0;
+
+    /**
+     * Creates a decoder that still expects the preamble.
+     *
+     * @param maxPayloadLength the longest accepted payload in bytes
+     * @param pool             supplies the arrays that hold partial payloads
+     */
+    public FrameDecoder(int maxPayloadLength, ByteArrayPool pool) {
+        if (pool.arrayLength() < maxPayloadLength) {
+            throw new IllegalArgumentException("Pool arrays are shorter than the maximum payload length");
+        }
+        this.maxPayloadLength = maxPayloadLength;
+        this.pool = pool;
+    }
+
+    /**
+     * Extracts the next complete frame from the buffer.
+     * The buffer position is advanced past the consumed bytes.
+     *
+     * @param in a heap buffer in read mode
+     * @return the frame, or null if more bytes are needed
+     * @throws LineTooLongException if a payload exceeds the maximum length;
+     *                              it is skipped and decoding may go on
+     * @throws IOException          if the preamble or a header is malformed
+     */
+    public Frame nextFrame(ByteBuffer in) throws IOException {
+        while (magicRead < BinaryProtocol.MAGIC.length) {
+            if (!in.hasRemaining()) {
+                return null;
+            }
+            if (in.get() != BinaryProtocol.MAGIC[magicRead++]) {
+                throw new IOException("Unsupported binary protocol preamble");
+            }
+        }
+
+        if (skipRemaining > 0) {
+            int skipped = (int) Math.min(skipRemaining, in.remaining());
+            in.position(in.position() + skipped);
+            skipRemaining -= skipped;
+            if (skipRemaining > 0) {
+                return null;
+            }
+        }
+
+        while (headerRead < header.length) {
+            if (!in.hasRemaining()) {
+                return null;
+            }
+            header[headerRead++] = in.get();
+        }
+
+        long length = payloadLength();
+        if (length > maxPayloadLength) {
+            headerRead = 0;
+            skipRemaining = length;
+            throw new LineTooLongException(maxPayloadLength);
+        }
+
+        return readPayload(in, (int) length);
+    }
+
+    /**
+     * Reads the payload announced by the current header.
+     *
+     * @return the frame, or null if the payload is still incomplete
+     */
+    private Frame readPayload(ByteBuffer in, int length) {
+        int code = header[4] & 0xFF;
+
+        if (payloadRead == 0 && in.remaining() >= length) {
+            String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            headerRead = 0;
+            return new Frame(code, text);
+        }
+
+        if (payload == null) {
+            payload = pool.acquire();
+        }
+        int chunk = Math.min(length - payloadRead, in.remaining());
+        in.get(payload, payloadRead, chunk);
+        payloadRead += chunk;
+
+        if (payloadRead < length) {
+            return null;
+        }
+
+        String text = new String(payload, 0, length, StandardCharsets.UTF_8);
+        pool.release(payload);
+        payload = null;
+        payloadRead = 0;
+        headerRead = 0;
+        return new Frame(code, text);
+    }
+
+    /**
+     * Drops any partial payload and gives its array back to the pool. Called
+     * once the connection has closed, so a client that leaves mid-frame does
+     * not keep the array from being reused. Safe to call more than once.
+     */
+    public void release() {
+        if (payload != null) {
+            pool.release(payload);
+            payload = null;
+        }
+        payloadRead = 0;
+    }
+
+    /**
+     * Reads the unsigned payload length from the header.
+     */
+    private long payloadLength() {
+        return ((header[0] & 0xFFL) << 24) | ((header[1] & 0xFFL) << 16)
+                | ((header[2] & 0xFFL) << 8) | (header[3] & 0xFFL);
+    }
+}
@@ -0,0 +1,124 @@
+package com.codeforall.online.chatserver.transport;
+
+import com.codeforall.online.chatserver.ClientHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns the bytes a client sends into calls on its {@link ClientHandler},
+ * for both transports. The first byte of the connection picks the
+ * protocol: {@link BinaryProtocol#MAGIC} switches to binary frames,
+ * anything else is read as text lines.
+ */
+public class InboundDecoder {
+
+    /**
+     * Outcome of one {@link #dispatchNext} call.
+     */
+    public enum Result {
+
+        /**
+         * The buffer holds no complete line or frame; read more bytes.
+         */
+        NEED_MORE,
+
+        /**
+         * One line or frame was handled; call again.
+         */
+        CONTINUE,
+
+        /**
+         * The handler wants the connection closed.
+         */
+        CLOSE
+    }
+
+    private final int maxLength;
+    private final ByteArrayPool pool;
+
+    private LineDecoder lines;
+    private FrameDecoder frames;
+
+    /**
+     * Creates a decoder for a new connection.
+     *
+     * @param maxLength the longest accepted line or payload in bytes
+     * @param pool      supplies the arrays that hold partial input
+     */
+    public InboundDecoder(int maxLength, ByteArrayPool pool) {
+        this.maxLength = maxLength;
+        this.pool = pool;
+    }
+
+    /**
+     * Decodes at most one line or frame from the buffer and hands it to the handler.
+     * Oversized input is reported through {@link ClientHandler#onLineTooLong()}.
+     *
+     * @param in      a heap buffer in read mode
+     * @param handler the session that consumes the input
+     * @return what the caller should do next
+     * @throws IOException if the client breaks the binary protocol
+     */
+    public Result dispatchNext(ByteBuffer in, ClientHandler handler) throws IOException {
+        if (lines == null && frames == null) {
+            if (!in.hasRemaining()) {
+                return Result.NEED_MORE;
+            }
+            selectProtocol(in, handler);
+        }
+
+        try {
+            if (frames != null) {
+                Frame frame = frames.nextFrame(in);
+                if (frame == null) {
+                    return Result.NEED_MORE;
+                }
+                return handler.handleFrame(frame) ? Result.CONTINUE : Result.CLOSE;
+            }
+
+            String line = lines.nextLine(in);
+            if (line == null) {
+                return Result.NEED_MORE;
+            }
+            return handler.handleLine(line) ? Result.CONTINUE : Result.CLOSE;
+
+        } catch (LineTooLongException e) {
+            return handler.onLineTooLong() ? Result.CONTINUE : Result.CLOSE;
+        }
+    }
+
+    /**
+     * Checks whether the client switched to binary frames.
+     *
+     * @return true for the binary protocol, false for text or not decided yet
+     */
+    public boolean isBinary() {
+        return frames != null;
+    }
+
+    /**
+     * Gives back the array held for a partial line or frame, if any.
+     * Must run on the thread that decodes, once nothing more will be read.
+     */
+    public void release() {
+        if (lines != null) {
+            lines.release();
+        }
+        if (frames != null) {
+            frames.release();
+        }
+    }
+
+    /**
+     * Picks the protocol from the first byte the client sent.
+     */
+    private void selectProtocol(ByteBuffer in, ClientHandler handler) {
+        if (in.get(in.position()) == BinaryProtocol.MAGIC[0]) {
+            frames = new FrameDecoder(maxLength, pool);
+            handler.onBinaryProtocol();
+        } else {
+            lines = new LineDecoder(maxLength, pool);
+        }
+    }
+}
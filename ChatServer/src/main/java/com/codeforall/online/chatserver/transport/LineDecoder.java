@@ -0,0 +1,183 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a stream of UTF-8 bytes into lines, the same way
+ * {@link java.io.BufferedReader#readLine()} does for "\n" and "\r\n".
+ * Bytes of an unfinished line are kept in an array borrowed from a
+ * {@link ByteArrayPool} until the rest arrives, and only complete lines
+ * are decoded. Lines longer than the maximum are never buffered in full:
+ * the decoder reports them and skips their bytes up to the next newline.
+ */
+public class LineDecoder {
+
+    /**
+     * Maximum line length used when none is configured.
+     */
+    public static final int DEFAULT_MAX_LINE_LENGTH = 8 * 1024;
+
+    private final int maxLineLength;
+    private final int maxFrameLength;
+    private final ByteArrayPool pool;
+
+    private byte[] pending;
+    private int pendingLength = 0;
+    private boolean discarding = false;
+
+    /**
+     * Creates a decoder with the default maximum line length and a private pool.
+     */
+    public LineDecoder() {
+        this(DEFAULT_MAX_LINE_LENGTH, new ByteArrayPool(DEFAULT_MAX_LINE_LENGTH + 1, 1));
+    }
+
+    /**
+     * Creates a decoder.
+     *
+     * @param maxLineLength the longest accepted line in bytes, without its terminator
+     * @param pool          supplies the arrays that hold partial lines; they must
+     *                      fit the line plus a carriage return
+     */
+    public LineDecoder(int maxLineLength, ByteArrayPool pool) {
+        if (pool.arrayLength() < maxLineLength + 1) {
+            throw new IllegalArgumentException("Pool arrays are shorter than the maximum line length");
+        }
+        this.maxLineLength = maxLineLength;
+        this.maxFrameLength = maxLineLength + 1;
+        this.pool = pool;
+    }
+
+    /**
+     * Extracts the next complete line from the buffer.
+     * The buffer position is advanced past the consumed bytes. When no line
+     * terminator is found, the remaining bytes are stored and null is returned.
+     *
+     * @param in a heap buffer in read mode
+     * @return the decoded line without its terminator, or null if incomplete
+     * @throws LineTooLongException if a line exceeds the maximum length;
+     *                              its bytes are dropped and decoding may go on
+     */
+    public String nextLine(ByteBuffer in) throws LineTooLongException {
+        if (discarding && !skipLine(in)) {
+            return null;
+        }
+
+        byte[] array = in.array();
+        int start = in.arrayOffset() + in.position();
+        int end = in.arrayOffset() + in.limit();
+
+        for (int i = start; i < end; i++) {
+            if (array[i] == '\n') {
+                in.position(in.position() + (i - start) + 1);
+                int length = i - start;
+
+                if (isTooLong(array, start, length)) {
+                    releasePending();
+                    throw new LineTooLongException(maxLineLength);
+                }
+                return pendingLength == 0
+                        ? decode(array, start, length)
+                        : decodePending(array, start, length);
+            }
+        }
+
+        in.position(in.limit());
+
+        if (pendingLength + (end - start) > maxFrameLength) {
+            releasePending();
+            discarding = true;
+            throw new LineTooLongException(maxLineLength);
+        }
+
+        append(array, start, end - start);
+        return null;
+    }
+
+    /**
+     * Skips the rest of an oversized line.
+     *
+     * @return true once its newline has been consumed, false if more bytes are needed
+     */
+    private boolean skipLine(ByteBuffer in) {
+        while (in.hasRemaining()) {
+            if (in.get() == '\n') {
+                discarding = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a complete line, made of the stored bytes plus the final chunk,
+     * against the maximum. A trailing carriage return does not count.
+     */
+    private boolean isTooLong(byte[] array, int offset, int length) {
+        int total = pendingLength + length;
+        if (total <= maxLineLength) {
+            return false;
+        }
+        if (total > maxFrameLength) {
+            return true;
+        }
+        byte last = length > 0 ? array[offset + length - 1] : pending[pendingLength - 1];
+        return last != '\r';
+    }
+
+    /**
+     * Joins the stored partial line with the final chunk and decodes it.
+     */
+    private String decodePending(byte[] array, int offset, int length) {
+        append(array, offset, length);
+        String line = decode(pending, 0, pendingLength);
+        releasePending();
+        return line;
+    }
+
+    /**
+     * Stores bytes of a line that has not been terminated yet.
+     */
+    private void append(byte[] array, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (pending == null) {
+            pending = pool.acquire();
+        }
+        System.arraycopy(array, offset, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * Drops any partial line and gives its array back to the pool. Called
+     * once the connection has closed, so a client that leaves mid-line does
+     * not keep the array from being reused. Safe to call more than once.
+     */
+    public void release() {
+        releasePending();
+        discarding = false;
+    }
+
+    /**
+     * Gives the partial line's array back to the pool.
+     */
+    private void releasePending() {
+        if (pending != null) {
+            pool.release(pending);
+            pending = null;
+        }
+        pendingLength = 0;
+    }
+
+    /**
+     * Decodes a line, dropping the carriage return of a "\r\n" terminator.
+     */
+    private static String decode(byte[] array, int offset, int length) {
+        if (length > 0 && array[offset + length - 1] == '\r') {
+            length--;
+        }
+        return new String(array, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,20 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link LineDecoder} when a line exceeds the maximum length.
+ * The decoder has already dropped the line's bytes, so reading may go on
+ * with the next line if the connection is kept.
+ */
+public class LineTooLongException extends IOException {
+
+    /**
+     * Creates a new exception for the given limit.
+     *
+     * @param maxLineLength the maximum line length in bytes
+     */
+    public LineTooLongException(int maxLineLength) {
+        super("Line longer than " + maxLineLength + " bytes");
+    }
+}
@@ -0,0 +1,339 @@
+package com.codeforall.online.chatserver.transport;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * State of one non-blocking client connection: its channel and its partial
+ * input. Output waits in the handler's {@link OutboundQueue}.
+ * Reads and writes are always performed by the owning {@link NioEventLoop};
+ * other threads only enqueue output and request a flush.
+ */
+public class NioConnection {
+
+    private static final int MAX_BATCH = 16;
+
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private final InboundDecoder decoder;
+    private final String remote;
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean urgentScheduled = new AtomicBoolean(false);
+    private volatile boolean heldBack = false;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile boolean closeAfterFlush = false;
+    private volatile boolean aborted = false;
+
+    private ClientHandler handler;
+    private OutboundQueue outbound;
+    private final ByteBuffer[] inflight = new ByteBuffer[MAX_BATCH];
+    private int inflightHead = 0;
+    private int inflightCount = 0;
+
+    private final FlushPolicy flushPolicy;
+    private final OutboundStats stats;
+    private final ServerMetrics metrics;
+    private long lastWriteTime;
+    private long delayedSince = 0;
+    private SelectionKey key;
+
+    /**
+     * Creates a connection owned by the given event loop.
+     *
+     * @param channel     the accepted client channel
+     * @param loop        the loop that performs all I/O for this channel
+     * @param decoder     splits the input into lines or frames
+     * @param flushPolicy when to write queued output
+     * @param stats       counters for writes and added delay
+     * @param metrics     counters for bytes read
+     */
+    NioConnection(SocketChannel channel, NioEventLoop loop, InboundDecoder decoder,
+                  FlushPolicy flushPolicy, OutboundStats stats, ServerMetrics metrics) {
+        this.channel = channel;
+        this.loop = loop;
+        this.decoder = decoder;
+        this.flushPolicy = flushPolicy;
+        this.stats = stats;
+        this.metrics = metrics;
+        this.remote = describeRemote(channel);
+        this.lastWriteTime = System.nanoTime() - flushPolicy.getMaxDelayNanos();
+    }
+
+    /**
+     * Asks the owning loop to write whatever is queued. Safe to call from any thread.
+     * Output held back for coalescing is written right away once it
+     * reaches the byte threshold.
+     */
+    public void requestFlush() {
+        if (closed.get()) {
+            return;
+        }
+        if (!scheduleFlush() && outbound.queuedBytes() >= flushPolicy.getThresholdBytes()) {
+            scheduleUrgentFlush();
+        }
+    }
+
+    /**
+     * Closes the connection once every queued line has been written.
+     */
+    public void closeAfterFlush() {
+        closeAfterFlush = true;
+        if (!scheduleFlush()) {
+            scheduleUrgentFlush();
+        }
+    }
+
+    /**
+     * Drops the connection on the loop thread, discarding pending output.
+     * Used to cut off a client that cannot keep up.
+     */
+    public void abort() {
+        aborted = true;
+        if (!scheduleFlush()) {
+            scheduleUrgentFlush();
+        }
+    }
+
+    /**
+     * Closes the channel immediately, discarding pending output, and
+     * returns the buffer of a partially received line to the pool.
+     * Safe to call more than once; called on the loop thread, which is
+     * the only one that decodes this connection's input.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            loop.getLog().log(LogLevel.WARN, EventType.ERROR, "Error closing client channel: " + e.getMessage());
+        }
+        if (outbound != null) {
+            outbound.clear();
+        }
+        decoder.release();
+    }
+
+    /**
+     * Checks whether the connection has been closed.
+     *
+     * @return true if closed, false otherwise
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Returns a printable description of the remote peer. Still
+     * available after the connection has been closed.
+     *
+     * @return the remote address, or "unknown" if unavailable
+     */
+    public String remoteAddress() {
+        return remote;
+    }
+
+    /**
+     * Reads the remote address once, while the channel is open.
+     */
+    private static String describeRemote(SocketChannel channel) {
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Asks the owning loop to write queued output, at most once per batch.
+     *
+     * @return false if a flush was already scheduled
+     */
+    private boolean scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Asks the owning loop once more for a flush that is being held back,
+     * because it must not wait for the deadline any longer.
+     */
+    private void scheduleUrgentFlush() {
+        if (heldBack && urgentScheduled.compareAndSet(false, true)) {
+            loop.requestFlush(this);
+        }
+    }
+
+    /**
+     * Writes as much queued output as the socket accepts, several messages
+     * per gathering write. When the socket is full, write interest is kept
+     * so the loop resumes later.
+     * Called on the loop thread only.
+     *
+     * @throws IOException if the channel fails
+     */
+    void flush() throws IOException {
+        heldBack = false;
+        urgentScheduled.set(false);
+        flushScheduled.set(false);
+        if (delayedSince != 0) {
+            stats.delayed(System.nanoTime() - delayedSince);
+            delayedSince = 0;
+        }
+        if (closed.get()) {
+            return;
+        }
+        if (aborted) {
+            throw new IOException("Slow consumer, output queue overflowed");
+        }
+
+        while (true) {
+            if (inflightHead == inflightCount) {
+                inflightHead = 0;
+                inflightCount = outbound.drainTo(inflight, 0);
+                if (inflightCount == 0) {
+                    break;
+                }
+            }
+
+            stats.written(channel.write(inflight, inflightHead, inflightCount - inflightHead));
+            lastWriteTime = System.nanoTime();
+
+            int completed = 0;
+            while (inflightHead < inflightCount && !inflight[inflightHead].hasRemaining()) {
+                inflight[inflightHead++] = null;
+                completed++;
+            }
+            stats.completed(completed);
+
+            if (inflightHead < inflightCount) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+
+        if (closeAfterFlush) {
+            outbound.markFlushed();
+            close();
+            handler.onDisconnect();
+        }
+    }
+
+    /**
+     * Tells whether a requested flush should wait for more output to
+     * coalesce with, as decided by the {@link FlushPolicy}. Marks the
+     * connection as delayed if so. Called on the loop thread only.
+     *
+     * @param now the current {@link System#nanoTime()}
+     * @return true to flush later, false to flush now
+     */
+    boolean deferFlush(long now) {
+        // marked first, so that a thread queueing past the threshold either
+        // sees the mark or its bytes are counted here
+        heldBack = true;
+        if (closeAfterFlush || aborted || inflightHead < inflightCount
+                || !flushPolicy.shouldDelay(now, lastWriteTime, outbound.queuedBytes())) {
+            heldBack = false;
+            return false;
+        }
+        if (delayedSince == 0) {
+            delayedSince = now;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the connection's output is being held back, so that
+     * the loop can drop it from its delayed list once it was written.
+     *
+     * @return true while output waits for the flush deadline
+     */
+    boolean isHeldBack() {
+        return heldBack;
+    }
+
+    /**
+     * Gets the time by which delayed output must be written.
+     *
+     * @return the deadline as a {@link System#nanoTime()} value
+     */
+    long flushDeadline() {
+        return flushPolicy.deadline(lastWriteTime);
+    }
+
+    /**
+     * Reads available bytes and hands every complete line or frame to the
+     * handler. Called on the loop thread only.
+     *
+     * @param buffer the loop's shared read buffer
+     * @return false if the peer closed the connection, true otherwise
+     * @throws IOException if the channel fails
+     */
+    boolean read(ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        int count = channel.read(buffer);
+        if (count < 0) {
+            return false;
+        }
+        metrics.bytesRead(count);
+        buffer.flip();
+
+        while (!closeAfterFlush && !closed.get()) {
+            InboundDecoder.Result result = decoder.dispatchNext(buffer, handler);
+            if (result == InboundDecoder.Result.NEED_MORE) {
+                break;
+            }
+            if (result == InboundDecoder.Result.CLOSE) {
+                closeAfterFlush();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Attaches the session that consumes this connection's lines.
+     */
+    void setHandler(ClientHandler handler) {
+        this.handler = handler;
+        this.outbound = handler.getOutbound();
+    }
+
+    /**
+     * Gets the session attached to this connection.
+     */
+    ClientHandler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Stores the selection key once the channel is registered.
+     */
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Gets the underlying channel.
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+}
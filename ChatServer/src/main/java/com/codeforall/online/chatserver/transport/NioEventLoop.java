@@ -0,0 +1,309 @@
+package com.codeforall.online.chatserver.transport;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.metrics.DisconnectReason;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single-threaded selector loop that performs all reads and writes
+ * for the connections assigned to it. Client lines are handled on the
+ * loop thread, so each connection is processed in order.
+ */
+public class NioEventLoop implements Runnable {
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final ThreadLocal<Boolean> LOOP_THREAD = ThreadLocal.withInitial(() -> false);
+
+    private final ChatServer server;
+    private final Selector selector;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioConnection> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final List<NioConnection> delayedFlushes = new ArrayList<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new event loop with its own selector.
+     *
+     * @param server the chat server the connections belong to
+     * @throws IOException if the selector cannot be opened
+     */
+    public NioEventLoop(ChatServer server) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Hands an accepted channel over to this loop. Safe to call from any thread.
+     *
+     * @param channel the accepted client channel
+     */
+    public void register(SocketChannel channel) {
+        pendingRegistrations.add(channel);
+        wakeup();
+    }
+
+    /**
+     * Schedules a connection to have its queued output written.
+     *
+     * @param connection the connection with pending output
+     */
+    void requestFlush(NioConnection connection) {
+        pendingFlushes.add(connection);
+        wakeup();
+    }
+
+    /**
+     * Stops the loop and closes every connection it owns.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the select loop until {@link #shutdown()} is called.
+     */
+    @Override
+    public void run() {
+        LOOP_THREAD.set(true);
+        try {
+            while (running) {
+                selector.select(selectTimeoutMillis());
+                wakeupPending.set(false);
+
+                registerPending();
+                flushPending();
+                flushDelayed(false);
+                processSelectedKeys();
+            }
+        } catch (IOException e) {
+            getLog().log(LogLevel.ERROR, EventType.ERROR, "Event loop failed: " + e.getMessage());
+        } finally {
+            flushPending();
+            flushDelayed(true);
+            closeAll();
+        }
+    }
+
+    /**
+     * Checks whether the calling thread runs an event loop. Such a thread
+     * must never wait for a client's output to drain, since writing that
+     * output is its own job.
+     *
+     * @return true on an event loop thread
+     */
+    public static boolean isLoopThread() {
+        return LOOP_THREAD.get();
+    }
+
+    /**
+     * Wakes the selector unless a wakeup is already on its way.
+     */
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Registers newly accepted channels and greets their clients.
+     */
+    private void registerPending() {
+        SocketChannel channel;
+        while ((channel = pendingRegistrations.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+
+                NioConnection connection = new NioConnection(channel, this, server.newInboundDecoder(),
+                        server.getFlushPolicy(), server.getOutboundStats(), server.getMetrics());
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+
+                ClientHandler client = new ClientHandler(server, connection);
+                connection.setHandler(client);
+                server.addClient(client);
+
+                client.onConnect();
+
+                getLog().log(LogLevel.INFO, EventType.CONNECT, "Client connected", null, connection.remoteAddress());
+
+            } catch (IOException e) {
+                getLog().log(LogLevel.WARN, EventType.ERROR, "Error registering client: " + e.getMessage());
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    /**
+     * Writes output for every connection that asked for a flush, unless the
+     * flush policy wants it to wait for more output to coalesce with. A
+     * connection already held back may come again because it crossed the
+     * byte threshold or is closing.
+     */
+    private void flushPending() {
+        long now = System.nanoTime();
+
+        NioConnection connection;
+        while ((connection = pendingFlushes.poll()) != null) {
+            boolean alreadyDelayed = connection.isHeldBack();
+            if (connection.deferFlush(now)) {
+                if (!alreadyDelayed) {
+                    delayedFlushes.add(connection);
+                }
+            } else {
+                flush(connection);
+            }
+        }
+    }
+
+    /**
+     * Writes delayed output that reached its deadline or byte threshold.
+     *
+     * @param force true to write everything regardless of the policy
+     */
+    private void flushDelayed(boolean force) {
+        if (delayedFlushes.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        Iterator<NioConnection> delayed = delayedFlushes.iterator();
+
+        while (delayed.hasNext()) {
+            NioConnection connection = delayed.next();
+            if (!connection.isHeldBack()) {
+                // written early, past its byte threshold
+                delayed.remove();
+            } else if (force || !connection.deferFlush(now)) {
+                delayed.remove();
+                flush(connection);
+            }
+        }
+    }
+
+    /**
+     * Writes a connection's output, disconnecting it if the write fails.
+     */
+    private void flush(NioConnection connection) {
+        try {
+            connection.flush();
+        } catch (IOException e) {
+            disconnect(connection, e);
+        }
+    }
+
+    /**
+     * Computes how long select may block: forever when nothing is delayed,
+     * otherwise until the earliest flush deadline (at least one millisecond).
+     */
+    private long selectTimeoutMillis() {
+        if (delayedFlushes.isEmpty()) {
+            return 0;
+        }
+
+        long earliest = Long.MAX_VALUE;
+        for (NioConnection connection : delayedFlushes) {
+            earliest = Math.min(earliest, connection.flushDeadline());
+        }
+
+        long waitNanos = earliest - System.nanoTime();
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos + 999_999));
+    }
+
+    /**
+     * Services the channels reported ready by the selector.
+     */
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            NioConnection connection = (NioConnection) key.attachment();
+
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+                if (key.isValid() && key.isReadable() && !connection.read(readBuffer)) {
+                    disconnect(connection, null);
+                }
+            } catch (IOException e) {
+                disconnect(connection, e);
+            }
+        }
+    }
+
+    /**
+     * Closes a connection whose peer went away and notifies its session.
+     */
+    private void disconnect(NioConnection connection, IOException cause) {
+        if (connection.isClosed()) {
+            return;
+        }
+        if (cause != null) {
+            getLog().log(LogLevel.DEBUG, EventType.ERROR, "Connection lost: " + cause.getMessage(),
+                    connection.getHandler().getName(), connection.remoteAddress());
+        }
+        connection.close();
+        connection.getHandler().onDisconnect(cause != null ? DisconnectReason.IO_ERROR : DisconnectReason.PEER_CLOSED);
+    }
+
+    /**
+     * Closes the selector and every channel still registered with it.
+     */
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).close();
+        }
+
+        SocketChannel channel;
+        while ((channel = pendingRegistrations.poll()) != null) {
+            closeQuietly(channel);
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            getLog().log(LogLevel.WARN, EventType.ERROR, "Error closing selector: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the log of the server this loop belongs to.
+     */
+    EventLog getLog() {
+        return server.getLog();
+    }
+
+    /**
+     * Closes a channel that never became a connection.
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing else to release
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.codeforall.online.chatserver.transport;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.logging.EventType;
+import com.codeforall.online.chatserver.logging.LogLevel;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Non-blocking server transport. A single acceptor selector takes new
+ * connections and spreads them round-robin over a fixed set of
+ * {@link NioEventLoop}s, so the thread count no longer grows with clients.
+ * <p>
+ * Shutting down takes two steps: {@link #stopAccepting()} releases the
+ * port while the loops keep flushing output to the clients already
+ * connected, and {@link #close()} then stops the loops.
+ */
+public class NioTransport {
+
+    private final ChatServer server;
+    private final ServerSocketChannel serverChannel;
+    private final NioEventLoop[] loops;
+
+    private volatile Selector acceptSelector;
+    private volatile boolean running = true;
+    private volatile boolean stopRequested = false;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private int nextLoop = 0;
+
+    /**
+     * Creates a transport for the given server.
+     *
+     * @param server        the chat server that owns the sessions
+     * @param serverChannel the bound listening socket
+     * @param ioThreads     the number of selector loops
+     */
+    public NioTransport(ChatServer server, ServerSocketChannel serverChannel, int ioThreads) {
+        this.server = server;
+        this.serverChannel = serverChannel;
+        this.loops = new NioEventLoop[ioThreads];
+    }
+
+    /**
+     * Starts the I/O loops and accepts clients on the calling thread until
+     * {@link #stopAccepting()} is invoked, then waits for {@link #close()}
+     * before stopping the loops. If accepting was stopped before this
+     * method got to it, it only waits for {@link #close()}.
+     *
+     * @throws IOException if the server socket cannot be used
+     */
+    public void run() throws IOException {
+        try {
+            serverChannel.configureBlocking(false);
+
+            acceptSelector = Selector.open();
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new NioEventLoop(server);
+                new Thread(loops[i], "nio-loop-" + i).start();
+            }
+
+            server.getLog().log(LogLevel.INFO, EventType.SERVER, "Chat server listening on port "
+                    + serverChannel.socket().getLocalPort()
+                    + " (nio, " + loops.length + " I/O threads)");
+
+            while (running) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                acceptPending();
+            }
+        } catch (ClosedChannelException e) {
+            if (!stopRequested) {
+                throw e;
+            }
+        } finally {
+            closeListener();
+            if (stopRequested) {
+                awaitClose();
+            }
+            shutdownLoops();
+        }
+    }
+
+    /**
+     * Accepts every connection waiting in the backlog.
+     */
+    private void acceptPending() {
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                server.getLog().log(LogLevel.WARN, EventType.ERROR, "Error accepting client: " + e.getMessage());
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+
+            loops[nextLoop].register(channel);
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+    }
+
+    /**
+     * Stops accepting clients and releases the port. Connections already
+     * accepted keep being served until {@link #close()}.
+     */
+    public void stopAccepting() {
+        stopRequested = true;
+        running = false;
+        if (acceptSelector != null) {
+            acceptSelector.wakeup();
+        }
+    }
+
+    /**
+     * Stops accepting clients and shuts down the I/O loops, closing every
+     * connection that is still open.
+     */
+    public void close() {
+        stopAccepting();
+        closed.countDown();
+    }
+
+    /**
+     * Waits until {@link #close()} is called.
+     */
+    private void awaitClose() {
+        try {
+            closed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Releases the listening socket.
+     */
+    private void closeListener() {
+        try {
+            serverChannel.close();
+            if (acceptSelector != null) {
+                acceptSelector.close();
+            }
+        } catch (IOException e) {
+            server.getLog().log(LogLevel.WARN, EventType.ERROR, "Error closing server socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops every loop.
+     */
+    private void shutdownLoops() {
+        for (NioEventLoop loop : loops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.codeforall.online.chatserver.transport;
+
+/**
+ * Frame types of the {@link BinaryProtocol}. Command opcodes name a
+ * command directly, so binary clients skip the command token; their
+ * payload holds only the arguments.
+ */
+public enum Opcode {
+
+    /**
+     * Client to server: username attempt.
+     */
+    LOGIN(0x01, null),
+
+    /**
+     * Client to server: chat message for the current room.
+     */
+    CHAT(0x02, null),
+
+    /**
+     * Client to server: leave the chat.
+     */
+    QUIT(0x03, null),
+
+    /**
+     * Client to server: a full text command line, for commands without an opcode.
+     */
+    COMMAND(0x04, null),
+
+    /**
+     * Client to server: answer to a {@link #PING}.
+     */
+    PONG(0x05, null),
+
+    /**
+     * Client to server: runs {@code /help}.
+     */
+    HELP(0x10, "/help"),
+
+    /**
+     * Client to server: runs {@code /list}.
+     */
+    LIST(0x11, "/list"),
+
+    /**
+     * Client to server: runs {@code /name}.
+     */
+    NAME(0x12, "/name"),
+
+    /**
+     * Client to server: runs {@code /whisper}.
+     */
+    WHISPER(0x13, "/whisper"),
+
+    /**
+     * Client to server: runs {@code /admin}.
+     */
+    ADMIN(0x14, "/admin"),
+
+    /**
+     * Client to server: runs {@code /shutdown}.
+     */
+    SHUTDOWN(0x15, "/shutdown"),
+
+    /**
+     * Client to server: runs {@code /join}.
+     */
+    JOIN(0x16, "/join"),
+
+    /**
+     * Client to server: runs {@code /leave}.
+     */
+    LEAVE(0x17, "/leave"),
+
+    /**
+     * Client to server: runs {@code /rooms}.
+     */
+    ROOMS(0x18, "/rooms"),
+
+    /**
+     * Client to server: runs {@code /history}.
+     */
+    HISTORY(0x19, "/history"),
+
+    /**
+     * Server to client: one message, as it would be shown to a text client.
+     */
+    MESSAGE(0x20, null),
+
+    /**
+     * Server to client: heartbeat, to be answered with a {@link #PONG}. No payload.
+     */
+    PING(0x21, null),
+
+    /**
+     * Server to client: the server is going away; connect again to continue.
+     * During a hot restart the payload is the session token, otherwise empty.
+     */
+    RECONNECT(0x22, null),
+
+    /**
+     * Server to client: the token with which this session can be resumed
+     * after the connection drops. Empty when a resume was refused.
+     */
+    SESSION(0x23, null);
+
+    private static final Opcode[] BY_CODE = new Opcode[256];
+
+    static {
+        for (Opcode opcode : values()) {
+            BY_CODE[opcode.code] = opcode;
+        }
+    }
+
+    private final int code;
+    private final String commandToken;
+
+    Opcode(int code, String commandToken) {
+        this.code = code;
+        this.commandToken = commandToken;
+    }
+
+    /**
+     * Resolves an opcode from its wire value.
+     *
+     * @param code the byte read from a frame header, 0 to 255
+     * @return the opcode, or null if the value is not assigned
+     */
+    public static Opcode fromCode(int code) {
+        return BY_CODE[code & 0xFF];
+    }
+
+    /**
+     * Gets the wire value of this opcode.
+     *
+     * @return the opcode byte
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * Gets the text command this opcode stands for.
+     *
+     * @return the command token, e.g. {@code /whisper}, or null if it is not a command
+     */
+    public String commandToken() {
+        return commandToken;
+    }
+}
@@ -0,0 +1,324 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of encoded messages waiting to be written to one client.
+ * Any thread may offer messages; a single writer drains them, so a slow
+ * reader only ever fills its own queue instead of stalling the sender.
+ * What happens on overflow is decided by the {@link OverflowPolicy}.
+ */
+public class OutboundQueue {
+
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final OutboundStats stats;
+
+    private final ArrayDeque<ByteBuffer> messages = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final LongAdder dropped = new LongAdder();
+
+    private long bytes = 0;
+    private boolean closed = false;
+    private boolean discarded = false;
+    private volatile boolean flushed = false;
+
+    /**
+     * Creates a new outbound queue.
+     *
+     * @param capacity           the maximum number of queued messages
+     * @param policy             what to do when the queue is full
+     * @param blockTimeoutMillis how long {@link OverflowPolicy#BLOCK} waits for room
+     * @param stats              server-wide counters to update
+     */
+    public OutboundQueue(int capacity, OverflowPolicy policy, long blockTimeoutMillis, OutboundStats stats) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.stats = stats;
+    }
+
+    /**
+     * Adds a message for delivery, applying the overflow policy if full.
+     * Messages offered after {@link #close()} are silently ignored.
+     *
+     * @param message the encoded message
+     * @return false if the client should be disconnected as a slow consumer
+     */
+    public boolean offer(ByteBuffer message) {
+        lock.lock();
+        try {
+            if (closed) {
+                return true;
+            }
+
+            if (messages.size() >= capacity && !makeRoom()) {
+                return policy != OverflowPolicy.DISCONNECT;
+            }
+
+            messages.addLast(message);
+            bytes += message.remaining();
+            stats.queued(1);
+            notEmpty.signal();
+            return true;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the overflow policy to a full queue. Called with the lock held.
+     *
+     * @return true if there is now room for one more message
+     */
+    private boolean makeRoom() {
+        switch (policy) {
+            case DROP_OLDEST:
+                bytes -= messages.pollFirst().remaining();
+                stats.queued(-1);
+                drop();
+                return true;
+
+            case BLOCK:
+                if (NioEventLoop.isLoopThread()) {
+                    // the loop would wait for itself to make room
+                    drop();
+                    return false;
+                }
+                long remaining = blockTimeoutNanos;
+                try {
+                    while (messages.size() >= capacity && !closed && remaining > 0) {
+                        remaining = notFull.awaitNanos(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (messages.size() < capacity && !closed) {
+                    return true;
+                }
+                drop();
+                return false;
+
+            default:
+                drop();
+                return false;
+        }
+    }
+
+    /**
+     * Counts one discarded message.
+     */
+    private void drop() {
+        dropped.increment();
+        stats.dropped();
+    }
+
+    /**
+     * Removes the next message without waiting.
+     *
+     * @return the next message, or null if the queue is empty
+     */
+    public ByteBuffer poll() {
+        lock.lock();
+        try {
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the next message, waiting until one is available.
+     * Once the queue is closed the remaining messages are still returned,
+     * followed by null.
+     *
+     * @return the next message, or null if closed and fully drained
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ByteBuffer take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (messages.isEmpty() && !closed) {
+                notEmpty.await();
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the next message, waiting at most the given time for one.
+     *
+     * @param timeoutNanos the longest time to wait, in nanoseconds
+     * @return the next message, or null if none arrived in time or the queue is closed and empty
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public ByteBuffer poll(long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (messages.isEmpty() && !closed && remaining > 0) {
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves queued messages into an array without waiting, so a writer can
+     * send them with a single gathering write.
+     *
+     * @param batch  the array to fill
+     * @param offset the first slot to fill
+     * @return the number of messages moved
+     */
+    public int drainTo(ByteBuffer[] batch, int offset) {
+        lock.lock();
+        try {
+            int count = 0;
+            ByteBuffer message;
+            while (offset + count < batch.length && (message = removeFirst()) != null) {
+                batch[offset + count++] = message;
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the head of the queue. Called with the lock held.
+     */
+    private ByteBuffer removeFirst() {
+        ByteBuffer message = messages.pollFirst();
+        if (message != null) {
+            bytes -= message.remaining();
+            stats.queued(-1);
+            notFull.signal();
+        }
+        return message;
+    }
+
+    /**
+     * Stops accepting messages and wakes up a waiting writer.
+     * Messages already queued can still be drained.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the queue and discards everything still waiting in it.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            closed = true;
+            discarded = true;
+            stats.queued(-messages.size());
+            messages.clear();
+            bytes = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that the queue was closed and every message in it has been
+     * written out. Called by the writer, once, before it closes the channel.
+     * Ignored if the queue was {@link #clear() cleared} instead.
+     */
+    public void markFlushed() {
+        lock.lock();
+        try {
+            flushed = !discarded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks whether everything queued for the client reached the socket
+     * before the connection was closed.
+     *
+     * @return true if the writer wrote the queue to the end, false otherwise
+     */
+    public boolean isFlushed() {
+        return flushed;
+    }
+
+    /**
+     * Checks whether the queue is closed to new messages.
+     *
+     * @return true if closed, false otherwise
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of messages waiting to be written.
+     *
+     * @return the current queue depth
+     */
+    public int depth() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of bytes waiting to be written.
+     *
+     * @return the queued byte count
+     */
+    public long queuedBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of messages this queue has discarded.
+     *
+     * @return the number of drops
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,153 @@
+package com.codeforall.online.chatserver.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-wide counters shared by every {@link OutboundQueue}.
+ * Striped adders keep the hot send path free of contention.
+ */
+public class OutboundStats {
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder messagesWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder delayedFlushes = new LongAdder();
+    private final LongAdder delayNanos = new LongAdder();
+
+    /**
+     * Records messages entering (positive) or leaving (negative) a queue.
+     */
+    void queued(int delta) {
+        queued.add(delta);
+    }
+
+    /**
+     * Records a message that was discarded because a queue was full.
+     */
+    void dropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Records a client disconnected for not keeping up with its queue.
+     */
+    public void slowConsumerDisconnected() {
+        slowConsumerDisconnects.increment();
+    }
+
+    /**
+     * Records one write call to a client socket.
+     *
+     * @param bytes the number of bytes written
+     */
+    public void written(long bytes) {
+        writes.increment();
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * Records messages that have been fully written.
+     *
+     * @param messages the number of messages
+     */
+    public void completed(int messages) {
+        messagesWritten.add(messages);
+    }
+
+    /**
+     * Records output that was held back to be coalesced with later lines.
+     *
+     * @param nanos how long the output waited
+     */
+    public void delayed(long nanos) {
+        delayedFlushes.increment();
+        delayNanos.add(nanos);
+    }
+
+    /**
+     * Gets the number of messages currently waiting in all queues.
+     *
+     * @return the total queue depth
+     */
+    public long getQueuedMessages() {
+        return queued.sum();
+    }
+
+    /**
+     * Gets the number of messages dropped since the server started.
+     *
+     * @return the total number of drops
+     */
+    public long getDroppedMessages() {
+        return dropped.sum();
+    }
+
+    /**
+     * Gets the number of clients disconnected for being too slow.
+     *
+     * @return the total number of slow consumer disconnects
+     */
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.sum();
+    }
+
+    /**
+     * Gets the number of write calls made to client sockets.
+     *
+     * @return the total number of writes
+     */
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    /**
+     * Gets the number of messages fully written to client sockets.
+     *
+     * @return the total number of messages written
+     */
+    public long getMessagesWritten() {
+        return messagesWritten.sum();
+    }
+
+    /**
+     * Gets the number of bytes written to client sockets.
+     *
+     * @return the total number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Gets the number of writes avoided by sending several messages at once,
+     * i.e. messages written minus write calls.
+     *
+     * @return the number of saved write calls
+     */
+    public long getWritesSaved() {
+        return Math.max(0, getMessagesWritten() - getWrites());
+    }
+
+    /**
+     * Gets how many times output was held back to be coalesced.
+     *
+     * @return the number of delayed flushes
+     */
+    public long getDelayedFlushes() {
+        return delayedFlushes.sum();
+    }
+
+    /**
+     * Gets the average latency added to a delayed flush.
+     *
+     * @return the mean added delay in microseconds, or 0 if nothing was delayed
+     */
+    public double getAverageAddedDelayMicros() {
+        long count = delayedFlushes.sum();
+        return count == 0 ? 0 : delayNanos.sum() / 1000.0 / count;
+    }
+}
@@ -0,0 +1,37 @@
+package com.codeforall.online.chatserver.transport;
+
+/**
+ * What an {@link OutboundQueue} does when a message arrives and the
+ * queue is already full because the client reads too slowly.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Discards the oldest queued message to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Rejects the message and disconnects the slow client.
+     */
+    DISCONNECT,
+
+    /**
+     * Waits up to the configured timeout for room, then drops the new message.
+     * The sending thread is blocked meanwhile, so use short timeouts. An NIO
+     * event loop thread drops the message at once instead, since it is the
+     * thread that would have to write the queued output.
+     */
+    BLOCK;
+
+    /**
+     * Resolves a policy from its name, ignoring case and accepting dashes.
+     *
+     * @param value the policy name, e.g. "drop-oldest"
+     * @return the matching policy
+     * @throws IllegalArgumentException if no policy has that name
+     */
+    public static OverflowPolicy fromString(String value) {
+        return valueOf(value.trim().replace('-', '_').toUpperCase());
+    }
+}
@@ -0,0 +1,29 @@
+package com.codeforall.online.chatserver.transport;
+
+/**
+ * What happens when a client sends a line longer than the configured maximum.
+ * Either way the oversized line is never buffered in full.
+ */
+public enum OversizedLinePolicy {
+
+    /**
+     * Discards the line, tells the client and keeps the connection open.
+     */
+    REJECT,
+
+    /**
+     * Tells the client and closes the connection.
+     */
+    DISCONNECT;
+
+    /**
+     * Resolves a policy from its name, ignoring case.
+     *
+     * @param value the policy name, e.g. "reject"
+     * @return the matching policy
+     * @throws IllegalArgumentException if no policy has that name
+     */
+    public static OversizedLinePolicy fromString(String value) {
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,32 @@
+package com.codeforall.online.chatserver;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access point to virtual threads.
+ * This is the Java 21 version, packaged under {@code META-INF/versions/21}.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks whether virtual threads are available on this runtime.
+     *
+     * @return always true on Java 21
+     */
+    public static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return the virtual-thread-per-task executor
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -1,13 +1,13 @@
 package com.codeforall.online.chatserver;
 
+import com.codeforall.online.chatserver.transport.EncodedMessage;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.lang.reflect.Field;
-import java.util.concurrent.CopyOnWriteArrayList;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class ChatServerTest {
@@ -30,16 +30,11 @@ public class ChatServerTest {
         when(client1.getName()).thenReturn("Alice");
         when(client2.getName()).thenReturn("Bob");
 
-        // injects mocks in private list 'clients' with reflection
-        Field clientsField = ChatServer.class.getDeclaredField("clients");
-        clientsField.setAccessible(true);
+        chatServer.addClient(client1);
+        chatServer.addClient(client2);
 
-        @SuppressWarnings("unchecked")
-        CopyOnWriteArrayList<ClientHandler> clients =
-                (CopyOnWriteArrayList<ClientHandler>) clientsField.get(chatServer);
-
-        clients.add(client1);
-        clients.add(client2);
+        chatServer.claimName("Alice", client1);
+        chatServer.claimName("Bob", client2);
     }
 
     @Test
@@ -59,8 +54,13 @@ public class ChatServerTest {
 
         chatServer.broadcast(message);
 
-        verify(client1).send(message);
-        verify(client2).send(message);
+        ArgumentCaptor<EncodedMessage> sent1 = ArgumentCaptor.forClass(EncodedMessage.class);
+        ArgumentCaptor<EncodedMessage> sent2 = ArgumentCaptor.forClass(EncodedMessage.class);
+        verify(client1).send(sent1.capture());
+        verify(client2).send(sent2.capture());
+
+        assertEquals(message, sent1.getValue().text());
+        assertSame(sent1.getValue(), sent2.getValue());
     }
 
     @Test
@@ -83,37 +83,118 @@ public class ChatServerTest {
         verify(client2, never()).send(anyString());
     }
 
+    @Test
+    public void whisperShouldFindRecipientIgnoringCase() {
+
+        boolean result = chatServer.whisper("aLiCe", "Hi", client2);
+
+        assertTrue(result);
+        verify(client1).send("Bob (whisper): Hi");
+    }
+
+    @Test
+    public void claimNameShouldRejectNameTakenIgnoringCase() {
+
+        ClientHandler client3 = mock(ClientHandler.class);
+
+        assertFalse(chatServer.claimName("ALICE", client3));
+    }
+
+    @Test
+    public void renameClientShouldMoveIndexEntryToNewName() {
+
+        assertTrue(chatServer.renameClient(client1, "Alicia"));
+        when(client1.getName()).thenReturn("Alicia");
+
+        verify(client1).setName("Alicia");
+        assertTrue(chatServer.whisper("Alicia", "Hi", client2));
+        assertTrue(chatServer.claimName("Alice", mock(ClientHandler.class)));
+    }
+
+    @Test
+    public void renameClientShouldFailWhenNameIsTaken() {
+
+        assertFalse(chatServer.renameClient(client1, "bob"));
+
+        verify(client1, never()).setName(anyString());
+    }
+
+    @Test
+    public void removeClientShouldReleaseName() {
+
+        chatServer.removeClient(client1);
+
+        assertFalse(chatServer.whisper("Alice", "Hi", client2));
+        assertTrue(chatServer.claimName("Alice", mock(ClientHandler.class)));
+    }
+
+    @Test
+    public void removeClientShouldStopBroadcastsToThatClient() {
+
+        chatServer.removeClient(client1);
+        chatServer.broadcast("Hello");
+
+        assertEquals(1, chatServer.getClientCount());
+        verify(client1, never()).send(any(EncodedMessage.class));
+        verify(client2).send(any(EncodedMessage.class));
+    }
+
     @Test
     public void listClientsShouldContainAllClientNames() {
 
-        String result = chatServer.listClients();
+        String result = chatServer.listClients(null, 1).text();
 
         assertTrue(result.contains("Alice"));
         assertTrue(result.contains("Bob"));
     }
 
+    @Test
+    public void listClientsShouldFollowRenamesAndDisconnects() {
+
+        chatServer.renameClient(client1, "Alicia");
+        chatServer.removeClient(client2);
+
+        assertEquals("Clients online:\nAlicia\n", chatServer.listClients(null, 1).text());
+    }
+
     @Test
     public void shutdownShouldSetRunningFalseClearClientsAndCallShutdownOnEachClient() throws Exception {
 
         Field runningField = ChatServer.class.getDeclaredField("running");
         runningField.setAccessible(true);
         runningField.set(chatServer, true);
+        when(client1.isDisconnected()).thenReturn(true);
+        when(client2.isDisconnected()).thenReturn(true);
 
         chatServer.shutdown();
 
         assertFalse(chatServer.isRunning());
+        assertEquals(0, chatServer.getClientCount());
 
-        Field clientsField = ChatServer.class.getDeclaredField("clients");
-        clientsField.setAccessible(true);
-
-        @SuppressWarnings("unchecked")
-        CopyOnWriteArrayList<ClientHandler> clients =
-                (CopyOnWriteArrayList<ClientHandler>) clientsField.get(chatServer);
-
-        assertTrue(clients.isEmpty());
-
+        verify(client1).sendReconnectHint();
         verify(client1).shutdownCleanUp();
         verify(client2).shutdownCleanUp();
     }
+
+    @Test
+    public void shutdownShouldCutOffClientsThatAreNotDrainedInTime() {
+
+        ServerConfig config = new ServerConfig();
+        config.setShutdownDrainMillis(50);
+        ChatServer server = new ChatServer(9001, config);
+        server.addClient(client1);
+        server.addClient(client2);
+        when(client1.isDisconnected()).thenReturn(true);
+        when(client1.isDrained()).thenReturn(true);
+
+        DrainReport report = server.shutdown();
+
+        assertEquals(2, report.sessions());
+        assertEquals(1, report.drained());
+        assertEquals(1, report.cutOff());
+        verify(client2).abortConnection();
+        verify(client1, never()).abortConnection();
+        assertSame(report, server.shutdown());
+    }
 }
 
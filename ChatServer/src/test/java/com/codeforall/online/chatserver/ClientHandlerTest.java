@@ -1,11 +1,19 @@
 package com.codeforall.online.chatserver;
 
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.metrics.ServerMetrics;
+import com.codeforall.online.chatserver.ratelimit.RateLimiter;
+import com.codeforall.online.chatserver.transport.Frame;
+import com.codeforall.online.chatserver.transport.Opcode;
+import com.codeforall.online.chatserver.transport.OutboundStats;
+import com.codeforall.online.chatserver.transport.OverflowPolicy;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.io.PrintWriter;
-import java.lang.reflect.Field;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -18,34 +26,119 @@ public class ClientHandlerTest {
     // DOCs
     private ChatServer mockServer;
     private Socket mockSocket;
-    private PrintWriter mockWriter;
+    private OutboundStats outboundStats;
 
     @Before
     public void setUp() {
 
         mockServer = mock(ChatServer.class);
         mockSocket = mock(Socket.class);
-        mockWriter = mock(PrintWriter.class);
+        outboundStats = new OutboundStats();
+
+        when(mockServer.getConfig()).thenReturn(new ServerConfig());
+        when(mockServer.getOutboundStats()).thenReturn(outboundStats);
+        when(mockServer.getRateLimiter()).thenReturn(new RateLimiter(0, 1, 0, 1));
+        when(mockServer.getMetrics()).thenReturn(new ServerMetrics());
+        when(mockServer.getLog()).thenReturn(new EventLog(LogLevel.OFF, 1));
 
         clientHandler = new ClientHandler(mockServer, mockSocket);
     }
 
     @Test
-    public void sendShouldCallWriterPrintlnWhenWriterIsNotNull() throws Exception {
-
-        Field writerField = ClientHandler.class.getDeclaredField("writer");
-        writerField.setAccessible(true);
-        writerField.set(clientHandler, mockWriter);
+    public void sendShouldQueueEncodedMessageForTheWriter() {
 
         clientHandler.send("Hello");
 
-        verify(mockWriter).println("Hello");
+        ByteBuffer queued = clientHandler.getOutbound().poll();
+        assertEquals("Hello\n", StandardCharsets.UTF_8.decode(queued).toString());
     }
 
     @Test
-    public void sendShouldNotThrowWhenWriterIsNull() {
+    public void sendShouldNotThrowBeforeStreamsAreOpen() {
 
         clientHandler.send("Hello");
+
+        assertEquals(1, clientHandler.getOutbound().depth());
+    }
+
+    @Test
+    public void sendShouldDisconnectSlowClientWhenQueueOverflowsWithDisconnectPolicy() throws Exception {
+
+        ServerConfig config = new ServerConfig();
+        config.setOutboundCapacity(1);
+        config.setOverflowPolicy(OverflowPolicy.DISCONNECT);
+        when(mockServer.getConfig()).thenReturn(config);
+
+        ClientHandler slowClient = new ClientHandler(mockServer, mockSocket);
+
+        slowClient.send("first");
+        slowClient.send("second");
+
+        verify(mockSocket).close();
+        assertEquals(1, outboundStats.getSlowConsumerDisconnects());
+    }
+
+    @Test
+    public void allowMessageShouldThrottleClientOverItsBurstAndTellIt() {
+
+        RateLimiter limiter = new RateLimiter(1, 2, 0, 1);
+        when(mockServer.getRateLimiter()).thenReturn(limiter);
+        ClientHandler chatty = new ClientHandler(mockServer, mockSocket);
+
+        assertTrue(chatty.allowMessage());
+        assertTrue(chatty.allowMessage());
+        assertFalse(chatty.allowMessage());
+
+        assertEquals(1, limiter.getClientThrottled());
+        ByteBuffer notice = chatty.getOutbound().poll();
+        assertEquals("You are sending messages too fast, message dropped.\n",
+                StandardCharsets.UTF_8.decode(notice).toString());
+    }
+
+    @Test
+    public void allowMessageShouldApplyTheGlobalLimitAcrossClients() {
+
+        RateLimiter limiter = new RateLimiter(0, 1, 1, 1);
+        when(mockServer.getRateLimiter()).thenReturn(limiter);
+        ClientHandler first = new ClientHandler(mockServer, mockSocket);
+        ClientHandler second = new ClientHandler(mockServer, mockSocket);
+
+        assertTrue(first.allowMessage());
+        assertFalse(second.allowMessage());
+
+        assertEquals(1, limiter.getGlobalThrottled());
+        assertEquals(1, limiter.getThrottledMessages());
+    }
+
+    @Test
+    public void handleLineShouldRefuseUsernamesWithControlCharacters() {
+
+        clientHandler.handleLine("\0RECONNECT gotcha");
+
+        ByteBuffer reply = clientHandler.getOutbound().poll();
+        assertEquals("The username must not contain control characters, try again\n",
+                StandardCharsets.UTF_8.decode(reply).toString());
+        verify(mockServer, never()).claimName(anyString(), any());
+    }
+
+    @Test
+    public void handleLineShouldRefuseLinesThatWouldSplitOnTheClient() {
+
+        clientHandler.handleLine("Alice\r\0RECONNECT");
+
+        ByteBuffer reply = clientHandler.getOutbound().poll();
+        assertEquals("Messages must fit on one line.\n", StandardCharsets.UTF_8.decode(reply).toString());
+        verify(mockServer, never()).claimName(anyString(), any());
+    }
+
+    @Test
+    public void handleFrameShouldRefusePayloadsWithLineBreaks() {
+
+        clientHandler.handleFrame(new Frame(Opcode.CHAT.code(), "Alice\n\0PING"));
+
+        ByteBuffer reply = clientHandler.getOutbound().poll();
+        assertEquals("Messages must fit on one line.\n", StandardCharsets.UTF_8.decode(reply).toString());
+        verify(mockServer, never()).claimName(anyString(), any());
     }
 
     @Test
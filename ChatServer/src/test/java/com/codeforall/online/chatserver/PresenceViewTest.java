@@ -0,0 +1,90 @@
+package com.codeforall.online.chatserver;
+
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PresenceViewTest {
+
+    // SUT
+    private PresenceView presence;
+
+    @Before
+    public void setUp() {
+
+        presence = new PresenceView(2);
+    }
+
+    @Test
+    public void pageShouldListNamesSortedIgnoringCase() {
+
+        presence.add("local", "carol");
+        presence.add("local", "Alice");
+
+        assertEquals("Clients online:\nAlice\ncarol\n", presence.page(null, 1).text());
+    }
+
+    @Test
+    public void pageShouldSplitTheListAndPointToTheNextPage() {
+
+        presence.add("local", "Alice");
+        presence.add("local", "Bobby");
+        presence.add("local", "Carol");
+
+        assertEquals("Clients online, page 1 of 2:\nAlice\nBobby\nMore: /list 2\n", presence.page(null, 1).text());
+        assertEquals("Clients online, page 2 of 2:\nCarol\n", presence.page(null, 2).text());
+    }
+
+    @Test
+    public void pageShouldOnlyListNamesWithThePrefix() {
+
+        presence.add("local", "Alice");
+        presence.add("local", "alina");
+        presence.add("local", "Ali");
+        presence.add("local", "Bobby");
+
+        assertEquals("Clients online matching ali*, page 1:\nAli\nAlice\nMore: /list ali* 2\n",
+                presence.page("ali", 1).text());
+        assertEquals("Clients online matching ali*, page 2:\nalina\n", presence.page("ali", 2).text());
+    }
+
+    @Test
+    public void pageShouldBeReusedUntilTheViewChanges() {
+
+        presence.add("local", "Alice");
+        EncodedMessage first = presence.page(null, 1);
+
+        assertSame(first, presence.page(null, 1));
+
+        presence.add("local", "Bobby");
+
+        assertNotSame(first, presence.page(null, 1));
+        assertEquals("Clients online:\nAlice\nBobby\n", presence.page(null, 1).text());
+    }
+
+    @Test
+    public void removeShouldIgnoreAnotherOwner() {
+
+        presence.add("node-1", "Alice");
+        presence.add("node-2", "Alice");
+
+        presence.remove("node-1", "Alice");
+
+        assertEquals(1, presence.size());
+    }
+
+    @Test
+    public void removeOwnerShouldForgetOnlyThatOwnersUsers() {
+
+        presence.add("node-1", "Alice");
+        presence.add("node-1", "Bobby");
+        presence.add("node-2", "Carol");
+
+        presence.removeOwner("node-1");
+
+        assertEquals("Clients online:\nCarol\n", presence.page(null, 1).text());
+        assertEquals(1, presence.size());
+    }
+}
@@ -0,0 +1,112 @@
+package com.codeforall.online.chatserver;
+
+import com.codeforall.online.chatserver.transport.BinaryProtocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * A line client for tests that talk to a running server over the text protocol.
+ */
+public class TestClient implements AutoCloseable {
+
+    private static final int CONNECT_ATTEMPTS = 50;
+    private static final long CONNECT_RETRY_MILLIS = 100;
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final PrintWriter writer;
+
+    /**
+     * Connects to a server that may still be starting, with a 5 second read timeout.
+     *
+     * @param port the server port
+     */
+    public TestClient(int port) throws IOException, InterruptedException {
+        this(port, 5000);
+    }
+
+    /**
+     * Connects to a server that may still be starting.
+     *
+     * @param port          the server port
+     * @param timeoutMillis how long a read may wait
+     */
+    public TestClient(int port, int timeoutMillis) throws IOException, InterruptedException {
+        socket = connect(port);
+        socket.setSoTimeout(timeoutMillis);
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Picks a username and reads the greeting up to the join announcement.
+     */
+    public void join(String name) throws IOException {
+        assertEquals("Welcome to the chat! Enter your username:", readLine());
+        send(name);
+        assertEquals("Hello, " + name + "!", readLine());
+        readLine();
+        readLine();
+        assertEquals(name + " has entered the chat.", readLine());
+    }
+
+    /**
+     * Joins asking for a session token, and returns the token.
+     */
+    public String joinResumable(String name) throws IOException {
+        assertEquals("Welcome to the chat! Enter your username:", readLine());
+        send(BinaryProtocol.RESUME_LINE);
+        send(name);
+        assertEquals("Hello, " + name + "!", readLine());
+        readLine();
+        readLine();
+        String session = readLine();
+        assertTrue(session, session.startsWith(BinaryProtocol.SESSION_LINE + " "));
+        assertEquals(name + " has entered the chat.", readLine());
+        return session.substring(BinaryProtocol.SESSION_LINE.length() + 1);
+    }
+
+    public void send(String line) {
+        writer.println(line);
+    }
+
+    public String readLine() throws IOException {
+        return reader.readLine();
+    }
+
+    public Socket socket() {
+        return socket;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Opens a socket to a local server, retrying while it is still starting.
+     *
+     * @param port the server port
+     * @return the connected socket
+     */
+    public static Socket connect(int port) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket("localhost", port);
+            } catch (IOException e) {
+                if (attempt == CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.sleep(CONNECT_RETRY_MILLIS);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.codeforall.online.chatserver.broadcast;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+public class BroadcastShardsTest {
+
+    // SUT
+    private BroadcastShards shards;
+
+    // DOCs
+    private ShardedClientSet recipients;
+    private List<ClientHandler> clients;
+
+    @Before
+    public void setUp() {
+        shards = new BroadcastShards(4);
+        recipients = new ShardedClientSet(4);
+        clients = new ArrayList<>();
+
+        for (int i = 0; i < 16; i++) {
+            ClientHandler client = mock(ClientHandler.class);
+            clients.add(client);
+            recipients.add(client);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        shards.shutdown(1000);
+    }
+
+    @Test
+    public void fanOutShouldReachEveryRecipientInSendOrder() {
+
+        EncodedMessage first = EncodedMessage.of("first");
+        EncodedMessage second = EncodedMessage.of("second");
+
+        shards.fanOut(recipients, first);
+        shards.fanOut(recipients, second);
+        shards.shutdown(1000);
+
+        for (ClientHandler client : clients) {
+            InOrder inOrder = inOrder(client);
+            inOrder.verify(client).send(first);
+            inOrder.verify(client).send(second);
+        }
+    }
+
+    @Test
+    public void fanOutAfterShutdownShouldBeIgnored() {
+
+        shards.shutdown(1000);
+
+        shards.fanOut(recipients, EncodedMessage.of("late"));
+
+        for (ClientHandler client : clients) {
+            verify(client, never()).send(any(EncodedMessage.class));
+        }
+    }
+}
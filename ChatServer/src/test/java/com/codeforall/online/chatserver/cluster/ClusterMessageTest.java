@@ -0,0 +1,44 @@
+package com.codeforall.online.chatserver.cluster;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ClusterMessageTest {
+
+    @Test
+    public void encodedMessageShouldReadBackUnchanged() throws Exception {
+
+        // SUT
+        ClusterMessage message = new ClusterMessage(ClusterMessage.Kind.ROOM, "node-1", "java", "Alice: olá");
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(message.encode()));
+
+        assertEquals(message, ClusterMessage.read(in));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void missingStringsShouldTravelAsEmpty() throws Exception {
+
+        // SUT
+        ClusterMessage message = new ClusterMessage(ClusterMessage.Kind.HELLO, "node-1", null, null);
+
+        ClusterMessage read = ClusterMessage.read(new DataInputStream(new ByteArrayInputStream(message.encode())));
+
+        assertEquals("", read.target());
+        assertEquals("", read.text());
+    }
+
+    @Test(expected = IOException.class)
+    public void readShouldRejectAnOversizedFrame() throws Exception {
+
+        byte[] frame = {0x7f, 0, 0, 0, 1};
+
+        ClusterMessage.read(new DataInputStream(new ByteArrayInputStream(frame)));
+    }
+}
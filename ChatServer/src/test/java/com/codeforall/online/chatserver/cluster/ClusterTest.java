@@ -0,0 +1,205 @@
+package com.codeforall.online.chatserver.cluster;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.TestClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+
+public class ClusterTest {
+
+    // SUT
+    private ChatServer first;
+    private ChatServer second;
+
+    private Thread firstThread;
+    private Thread secondThread;
+    private int firstPort;
+    private int secondPort;
+    private int firstClusterPort;
+
+    @Before
+    public void setUp() throws Exception {
+        firstPort = freePort();
+        secondPort = freePort();
+        firstClusterPort = freePort();
+        int secondClusterPort = freePort();
+
+        first = new ChatServer(firstPort, clusterConfig(firstClusterPort, secondClusterPort));
+        second = new ChatServer(secondPort, clusterConfig(secondClusterPort, firstClusterPort));
+        firstThread = new Thread(first::init);
+        secondThread = new Thread(second::init);
+        firstThread.start();
+        secondThread.start();
+
+        awaitPeers(first);
+        awaitPeers(second);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        first.shutdown();
+        second.shutdown();
+        firstThread.join(5000);
+        secondThread.join(5000);
+    }
+
+    @Test
+    public void broadcastsShouldReachClientsOnEveryNode() throws Exception {
+
+        try (TestClient alice = new TestClient(firstPort);
+             TestClient bob = new TestClient(secondPort)) {
+
+            alice.join("Alice");
+            awaitRelayedBroadcasts(second, 1);
+            bob.join("Bobby");
+            assertEquals("Bobby has entered the chat.", alice.readLine());
+
+            alice.send("hello cluster");
+
+            assertEquals("Alice: hello cluster", alice.readLine());
+            assertEquals("Alice: hello cluster", bob.readLine());
+        }
+    }
+
+    @Test
+    public void whisperShouldFindUsersOnAnotherNode() throws Exception {
+
+        try (TestClient alice = new TestClient(firstPort);
+             TestClient bob = new TestClient(secondPort)) {
+
+            alice.join("Alice");
+            awaitRelayedBroadcasts(second, 1);
+            bob.join("Bobby");
+            assertEquals("Bobby has entered the chat.", alice.readLine());
+            awaitRemoteUsers(second, 1);
+
+            bob.send("/whisper alice psst");
+
+            assertEquals("Bobby (whisper): psst", bob.readLine());
+            assertEquals("Bobby (whisper): psst", alice.readLine());
+        }
+    }
+
+    @Test
+    public void listAndNamesShouldSpanTheCluster() throws Exception {
+
+        try (TestClient alice = new TestClient(firstPort);
+             TestClient bob = new TestClient(secondPort)) {
+
+            alice.join("Alice");
+            awaitRelayedBroadcasts(second, 1);
+            bob.join("Bobby");
+            assertEquals("Bobby has entered the chat.", alice.readLine());
+            awaitRemoteUsers(second, 1);
+
+            bob.send("/list");
+            assertEquals("Clients online:", bob.readLine());
+            assertEquals("Alice", bob.readLine());
+            assertEquals("Bobby", bob.readLine());
+            assertEquals("", bob.readLine());
+
+            try (TestClient impostor = new TestClient(secondPort)) {
+                assertEquals("Welcome to the chat! Enter your username:", impostor.readLine());
+                impostor.send("alice");
+                assertEquals("The username alice is already taken, try another one.", impostor.readLine());
+            }
+        }
+    }
+
+    @Test
+    public void presenceShouldBeDroppedWhenAUserLeaves() throws Exception {
+
+        try (TestClient alice = new TestClient(firstPort)) {
+            alice.join("Alice");
+            awaitRemoteUsers(second, 1);
+
+            alice.send("/quit");
+            awaitRemoteUsers(second, 0);
+
+            assertFalse(second.getCluster().isRemoteName("Alice"));
+        }
+    }
+
+    @Test
+    public void linksFromUnknownNodesShouldBeRefused() throws Exception {
+
+        try (Socket intruder = new Socket("localhost", firstClusterPort)) {
+            intruder.setSoTimeout(10000);
+            intruder.getOutputStream().write(
+                    new ClusterMessage(ClusterMessage.Kind.HELLO, "intruder", null, null).encode());
+            intruder.getOutputStream().flush();
+            DataInputStream in = new DataInputStream(intruder.getInputStream());
+            assertEquals(ClusterMessage.Kind.HELLO, ClusterMessage.read(in).kind());
+
+            assertEquals(-1, in.read());
+        }
+        assertEquals(1, first.getCluster().getConnectedPeers());
+    }
+
+    @Test
+    public void impostorShouldNotReplaceTheLinkOfAConnectedPeer() throws Exception {
+
+        try (TestClient bob = new TestClient(secondPort)) {
+            bob.join("Bobby");
+            awaitRemoteUsers(first, 1);
+
+            try (Socket impostor = new Socket("localhost", firstClusterPort)) {
+                impostor.setSoTimeout(10000);
+                impostor.getOutputStream().write(
+                        new ClusterMessage(ClusterMessage.Kind.HELLO, "node-" + secondPort, null, null).encode());
+                impostor.getOutputStream().flush();
+                DataInputStream in = new DataInputStream(impostor.getInputStream());
+                assertEquals(ClusterMessage.Kind.HELLO, ClusterMessage.read(in).kind());
+
+                assertEquals(-1, in.read());
+            }
+
+            assertTrue(first.getCluster().isRemoteName("Bobby"));
+        }
+    }
+
+    private static ServerConfig clusterConfig(int clusterPort, int peerPort) {
+        ServerConfig config = new ServerConfig();
+        config.setIoThreads(1);
+        config.setMetricsJmx(false);
+        config.setClusterPort(clusterPort);
+        config.setClusterPeers("localhost:" + peerPort);
+        return config;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    private static void awaitPeers(ChatServer server) throws InterruptedException {
+        for (int i = 0; i < 100 && (server.getCluster() == null || server.getCluster().getConnectedPeers() < 1); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, server.getCluster().getConnectedPeers());
+    }
+
+    private static void awaitRelayedBroadcasts(ChatServer server, long count) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getMetrics().getBroadcasts() < count; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, server.getMetrics().getBroadcasts());
+    }
+
+    private static void awaitRemoteUsers(ChatServer server, int count) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getCluster().remoteNames().size() != count; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, server.getCluster().remoteNames().size());
+    }
+}
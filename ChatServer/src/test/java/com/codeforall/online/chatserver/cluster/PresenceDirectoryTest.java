@@ -0,0 +1,52 @@
+package com.codeforall.online.chatserver.cluster;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PresenceDirectoryTest {
+
+    // SUT
+    private PresenceDirectory directory;
+
+    @Before
+    public void setUp() {
+
+        directory = new PresenceDirectory();
+    }
+
+    @Test
+    public void nodeOfShouldFindUsersIgnoringCase() {
+
+        directory.add("node-1", "Alice");
+
+        assertEquals("node-1", directory.nodeOf("alice"));
+        assertNull(directory.nodeOf("Bobby"));
+    }
+
+    @Test
+    public void removeShouldIgnoreLeavesFromAnotherNode() {
+
+        directory.add("node-1", "Alice");
+        directory.add("node-2", "Alice");
+
+        directory.remove("node-1", "Alice");
+
+        assertEquals("node-2", directory.nodeOf("Alice"));
+    }
+
+    @Test
+    public void removeNodeShouldForgetOnlyThatNodesUsers() {
+
+        directory.add("node-1", "Alice");
+        directory.add("node-1", "Bobby");
+        directory.add("node-2", "Carol");
+
+        directory.removeNode("node-1");
+
+        assertEquals(List.of("Carol"), directory.names());
+    }
+}
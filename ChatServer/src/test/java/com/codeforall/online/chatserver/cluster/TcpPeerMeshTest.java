@@ -0,0 +1,101 @@
+package com.codeforall.online.chatserver.cluster;
+
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TcpPeerMeshTest {
+
+    // SUT
+    private TcpPeerMesh mesh;
+
+    // DOCs
+    private ClusterListener mockListener;
+
+    private int port;
+
+    @Before
+    public void setUp() throws IOException {
+        port = freePort();
+        mockListener = mock(ClusterListener.class);
+
+        mesh = new TcpPeerMesh("node-a", "127.0.0.1", port, List.of(), "s3cret", new EventLog(LogLevel.OFF, 1));
+        mesh.start(mockListener);
+    }
+
+    @After
+    public void tearDown() {
+        mesh.close();
+    }
+
+    @Test
+    public void nodesSharingTheSecretShouldLinkUpBothWays() throws Exception {
+
+        // a fresh port for the relaunched node, since the one just closed may still be held
+        int otherPort = freePort();
+        port = freePort();
+        mesh.close();
+        mesh = new TcpPeerMesh("node-a", "127.0.0.1", port, List.of(new InetSocketAddress("localhost", otherPort)),
+                "s3cret", new EventLog(LogLevel.OFF, 1));
+        mesh.start(mockListener);
+        TcpPeerMesh other = new TcpPeerMesh("node-b", "127.0.0.1", otherPort,
+                List.of(new InetSocketAddress("localhost", port)), "s3cret", new EventLog(LogLevel.OFF, 1));
+        ClusterListener otherListener = mock(ClusterListener.class);
+        other.start(otherListener);
+
+        try {
+            verify(mockListener, timeout(10000)).onPeerConnected("node-b");
+            verify(otherListener, timeout(10000)).onPeerConnected("node-a");
+
+            ClusterMessage hello = new ClusterMessage(ClusterMessage.Kind.BROADCAST, "node-b", null, "hi");
+            for (int i = 0; i < 100 && !other.send("node-a", hello); i++) {
+                Thread.sleep(50);
+            }
+            verify(mockListener, timeout(10000)).onMessage(hello);
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    public void helloWithoutProofShouldBeRefusedUnanswered() throws Exception {
+
+        try (Socket impostor = new Socket("127.0.0.1", port)) {
+            impostor.setSoTimeout(10000);
+            impostor.getOutputStream().write(
+                    new ClusterMessage(ClusterMessage.Kind.HELLO, "node-b", null, "forged").encode());
+            impostor.getOutputStream().flush();
+
+            assertEquals(-1, new DataInputStream(impostor.getInputStream()).read());
+        }
+        verifyNoInteractions(mockListener);
+    }
+
+    @Test
+    public void silentConnectionShouldBeClosedAfterTheHandshakeTimeout() throws Exception {
+
+        try (Socket idle = new Socket("127.0.0.1", port)) {
+            idle.setSoTimeout(10000);
+
+            assertEquals(-1, new DataInputStream(idle.getInputStream()).read());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
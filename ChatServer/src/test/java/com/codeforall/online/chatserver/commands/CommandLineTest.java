@@ -0,0 +1,65 @@
+package com.codeforall.online.chatserver.commands;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandLineTest {
+
+    // SUT
+    private CommandLine commandLine;
+
+    @Before
+    public void setUp() {
+        commandLine = new CommandLine();
+    }
+
+    @Test
+    public void parseShouldLocateCommandToken() {
+
+        assertTrue(commandLine.parse("/whisper bob hi"));
+
+        assertEquals(0, commandLine.commandStart());
+        assertEquals(8, commandLine.commandEnd());
+        assertEquals("/whisper", commandLine.command());
+    }
+
+    @Test
+    public void parseShouldRejectLinesWithoutCommand() {
+
+        assertFalse(commandLine.parse("hello /help"));
+        assertFalse(commandLine.parse("   "));
+    }
+
+    @Test
+    public void argumentsShouldBeSplitOnAnyWhitespace() {
+
+        commandLine.parse("/join \t #java  \r\n");
+
+        assertEquals(1, commandLine.argumentCount());
+        assertEquals("#java", commandLine.argument(0));
+        assertNull(commandLine.argument(1));
+    }
+
+    @Test
+    public void argumentsFromShouldKeepInnerWhitespace() {
+
+        commandLine.parse("/whisper  bob   hello   there  ");
+
+        assertEquals("bob", commandLine.argument(0));
+        assertEquals("hello   there", commandLine.argumentsFrom(1));
+        assertEquals("bob   hello   there", commandLine.arguments());
+    }
+
+    @Test
+    public void commandWithoutArgumentsShouldHaveNone() {
+
+        commandLine.parse("/list   ");
+
+        assertFalse(commandLine.hasArguments());
+        assertEquals(0, commandLine.argumentCount());
+        assertEquals("", commandLine.arguments());
+        assertEquals("", commandLine.argumentsFrom(1));
+    }
+}
@@ -0,0 +1,67 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommandRegistryTest {
+
+    // SUT
+    private CommandRegistry registry;
+
+    // DOCs
+    private CommandLine commandLine;
+
+    @Before
+    public void setUp() {
+        registry = CommandRegistry.load();
+        commandLine = new CommandLine();
+    }
+
+    @Test
+    public void loadShouldIncludeBuiltinCommands() {
+
+        commandLine.parse("/whisper bob hi");
+
+        assertTrue(registry.find(commandLine) instanceof WhisperCommand);
+    }
+
+    @Test
+    public void loadShouldIncludeCommandsFromServiceProviders() {
+
+        commandLine.parse("/ping");
+
+        assertTrue(registry.find(commandLine) instanceof PingCommand);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void providersShouldNotOverrideEachOther() {
+
+        CommandProvider clashing = table -> table.register("/help", new PingCommand());
+
+        new CommandRegistry(List.of(new BuiltinCommands(), clashing));
+    }
+
+    /**
+     * Provider listed in the test resources' META-INF/services.
+     */
+    public static class PingCommands implements CommandProvider {
+
+        @Override
+        public void registerCommands(CommandTable table) {
+            table.register("/ping", new PingCommand());
+        }
+    }
+
+    private static class PingCommand implements Commands {
+
+        @Override
+        public void execute(CommandLine command, ClientHandler handler) {
+            handler.send("pong");
+        }
+    }
+}
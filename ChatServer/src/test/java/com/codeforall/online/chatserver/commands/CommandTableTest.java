@@ -0,0 +1,53 @@
+package com.codeforall.online.chatserver.commands;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandTableTest {
+
+    // SUT
+    private CommandTable table;
+
+    // DOCs
+    private Commands list;
+    private Commands listen;
+
+    @Before
+    public void setUp() {
+        table = new CommandTable();
+        list = new ListCommand();
+        listen = new HelpCommand();
+
+        table.register("/list", list);
+        table.register("/listen", listen);
+    }
+
+    @Test
+    public void findShouldMatchWholeTokensOnly() {
+
+        assertSame(list, table.find("/list", 0, 5));
+        assertSame(listen, table.find("/listen", 0, 7));
+        assertNull(table.find("/lis", 0, 4));
+        assertNull(table.find("/lists", 0, 6));
+    }
+
+    @Test
+    public void findShouldUseTheGivenRange() {
+
+        assertSame(list, table.find("say /list now", 4, 9));
+    }
+
+    @Test
+    public void findShouldIgnoreNonAsciiTokens() {
+
+        assertNull(table.find("/lïst", 0, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registerShouldRejectDuplicates() {
+
+        table.register("/list", new HelpCommand());
+    }
+}
@@ -0,0 +1,52 @@
+package com.codeforall.online.chatserver.commands;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.exceptions.InvalidCommandArgumentsException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class NameCommandTest {
+
+    // SUT
+    private NameCommand nameCommand;
+
+    // DOCs
+    private CommandLine commandLine;
+    private ClientHandler mockHandler;
+    private ChatServer mockServer;
+
+    @Before
+    public void setUp() {
+        nameCommand = new NameCommand();
+        commandLine = new CommandLine();
+        mockHandler = mock(ClientHandler.class);
+        mockServer = mock(ChatServer.class);
+
+        when(mockHandler.getServer()).thenReturn(mockServer);
+        when(mockHandler.getName()).thenReturn("Alice");
+    }
+
+    @Test
+    public void executeShouldRenameTheClient() {
+
+        commandLine.parse("/name Alicia");
+        when(mockServer.renameClient(mockHandler, "Alicia")).thenReturn(true);
+
+        nameCommand.execute(commandLine, mockHandler);
+
+        verify(mockHandler).send("Your name is now: Alicia");
+    }
+
+    @Test
+    public void executeShouldRefuseNamesThatCouldPassForControlLines() {
+
+        commandLine.parse("/name \0RECONNECT gotcha");
+
+        assertThrows(InvalidCommandArgumentsException.class, () -> nameCommand.execute(commandLine, mockHandler));
+        verify(mockServer, never()).renameClient(any(), anyString());
+    }
+}
@@ -0,0 +1,164 @@
+package com.codeforall.online.chatserver.handoff;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.TestClient;
+import com.codeforall.online.chatserver.transport.BinaryProtocol;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HotRestartTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // SUT
+    private ChatServer previous;
+    private ChatServer next;
+
+    private Thread previousThread;
+    private Thread nextThread;
+    private ServerConfig config;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        port = freePort();
+        config = new ServerConfig();
+        config.setIoThreads(1);
+        config.setMetricsJmx(false);
+        config.setHandoffSocket(folder.getRoot().toPath().resolve("handoff.sock").toString());
+
+        previous = new ChatServer(port, config);
+        previousThread = new Thread(previous::init);
+        previousThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        previous.shutdown();
+        previousThread.join(5000);
+        if (next != null) {
+            next.shutdown();
+            nextThread.join(5000);
+        }
+    }
+
+    @Test
+    public void sessionsShouldMoveToTheNextServer() throws Exception {
+
+        String token;
+        try (TestClient alice = new TestClient(port, 10000)) {
+            alice.join("Alice");
+            alice.send("/join games");
+            assertEquals("Alice joined #games", alice.readLine());
+
+            next = new ChatServer(port, config);
+            nextThread = new Thread(next::init);
+            nextThread.start();
+
+            String hint = alice.readLine();
+            assertTrue(hint, hint.startsWith(BinaryProtocol.RECONNECT_LINE + " "));
+            token = hint.substring(BinaryProtocol.RECONNECT_LINE.length() + 1);
+            assertNull(alice.readLine());
+        }
+        assertTrue(previous.awaitTermination(5000));
+
+        try (TestClient impostor = new TestClient(port, 10000)) {
+            assertEquals("Welcome to the chat! Enter your username:", impostor.readLine());
+            impostor.send("alice");
+            assertEquals("The username alice is already taken, try another one.", impostor.readLine());
+        }
+
+        try (TestClient alice = new TestClient(port, 10000)) {
+            assertEquals("Welcome to the chat! Enter your username:", alice.readLine());
+            alice.send(BinaryProtocol.RESUME_LINE + " " + token);
+            assertEquals("Session resumed as Alice.", alice.readLine());
+            assertTrue(alice.readLine().startsWith(BinaryProtocol.SESSION_LINE + " "));
+
+            assertEquals(1, next.getRooms().find("games").size());
+            alice.send("/list");
+            assertEquals("Clients online:", alice.readLine());
+            assertEquals("Alice", alice.readLine());
+        }
+    }
+
+    @Test
+    public void unknownTokenShouldAskForAUsername() throws Exception {
+
+        try (TestClient client = new TestClient(port, 10000)) {
+            assertEquals("Welcome to the chat! Enter your username:", client.readLine());
+
+            client.send(BinaryProtocol.RESUME_LINE + " bogus");
+
+            assertEquals(BinaryProtocol.SESSION_LINE, client.readLine());
+            assertEquals("Your session could not be resumed. Enter your username:", client.readLine());
+            client.send("Bobby");
+            assertEquals("Hello, Bobby!", client.readLine());
+            client.readLine();
+            client.readLine();
+            assertTrue(client.readLine().startsWith(BinaryProtocol.SESSION_LINE + " "));
+            assertEquals("Bobby has entered the chat.", client.readLine());
+        }
+    }
+
+    @Test
+    public void handoffSocketShouldOnlyBeOpenToItsOwner() throws Exception {
+
+        try (TestClient alice = new TestClient(port, 10000)) {
+            alice.join("Alice");
+        }
+
+        assertEquals(PosixFilePermissions.fromString("rw-------"),
+                Files.getPosixFilePermissions(Path.of(config.getHandoffSocket())));
+    }
+
+    @Test
+    public void serverShouldKeepServingWhenTheSuccessorNeverAcknowledges() throws Exception {
+
+        try (TestClient alice = new TestClient(port, 10000)) {
+            alice.join("Alice");
+
+            try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                channel.connect(UnixDomainSocketAddress.of(config.getHandoffSocket()));
+                DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+                out.writeInt(Handoff.MAGIC);
+                out.flush();
+
+                List<SessionTicket> tickets = Handoff.readTickets(new DataInputStream(Channels.newInputStream(channel)));
+                assertEquals("Alice", tickets.get(0).name());
+            }
+
+            alice.send("still here");
+            assertEquals("Alice: still here", alice.readLine());
+            assertTrue(previous.isRunning());
+            try (TestClient bob = new TestClient(port, 10000)) {
+                bob.join("Bobby");
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
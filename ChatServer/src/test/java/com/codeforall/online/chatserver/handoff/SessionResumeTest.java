@@ -0,0 +1,155 @@
+package com.codeforall.online.chatserver.handoff;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.TestClient;
+import com.codeforall.online.chatserver.transport.BinaryProtocol;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.*;
+
+public class SessionResumeTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // SUT
+    private ChatServer server;
+
+    private Thread serverThread;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        port = freePort();
+        ServerConfig config = new ServerConfig();
+        config.setIoThreads(1);
+        config.setMetricsJmx(false);
+        config.setHistoryDirectory(folder.getRoot().getPath());
+
+        server = new ChatServer(port, config);
+        serverThread = new Thread(server::init);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void droppedSessionShouldResumeWithTheMessagesItMissed() throws Exception {
+
+        String token;
+        try (TestClient bob = new TestClient(port)) {
+            bob.join("Bobby");
+
+            try (TestClient alice = new TestClient(port)) {
+                token = alice.joinResumable("Alice");
+                assertEquals("Alice has entered the chat.", bob.readLine());
+            }
+            assertEquals("Alice left the chat", bob.readLine());
+
+            try (TestClient impostor = new TestClient(port)) {
+                assertEquals("Welcome to the chat! Enter your username:", impostor.readLine());
+                impostor.send("alice");
+                assertEquals("The username alice is already taken, try another one.", impostor.readLine());
+            }
+
+            bob.send("while you were away");
+            assertEquals("Bobby: while you were away", bob.readLine());
+            awaitHistory(2);
+
+            try (TestClient alice = new TestClient(port)) {
+                assertEquals("Welcome to the chat! Enter your username:", alice.readLine());
+                alice.send(BinaryProtocol.RESUME_LINE + " " + token);
+
+                assertEquals("Session resumed as Alice.", alice.readLine());
+                String renewed = alice.readLine();
+                assertTrue(renewed.startsWith(BinaryProtocol.SESSION_LINE + " "));
+                assertNotEquals(BinaryProtocol.SESSION_LINE + " " + token, renewed);
+                assertEquals("Missed 2 messages:", alice.readLine());
+                assertEquals("Alice left the chat", alice.readLine());
+                assertEquals("Bobby: while you were away", alice.readLine());
+
+                alice.send("back again");
+                assertEquals("Alice: back again", bob.readLine());
+            }
+        }
+    }
+
+    @Test
+    public void resumingALiveSessionShouldCloseTheOldConnectionQuietly() throws Exception {
+
+        try (TestClient bob = new TestClient(port);
+             TestClient stale = new TestClient(port);
+             TestClient alice = new TestClient(port)) {
+            bob.join("Bobby");
+            String token = stale.joinResumable("Alice");
+            assertEquals("Alice has entered the chat.", bob.readLine());
+
+            assertEquals("Welcome to the chat! Enter your username:", alice.readLine());
+            alice.send(BinaryProtocol.RESUME_LINE + " " + token);
+
+            assertEquals("Session resumed as Alice.", alice.readLine());
+            assertNull(stale.readLine());
+
+            alice.readLine();
+            alice.send("still here");
+            assertEquals("Alice: still here", bob.readLine());
+        }
+    }
+
+    @Test
+    public void tokenShouldWorkOnlyOnce() throws Exception {
+
+        String token;
+        try (TestClient alice = new TestClient(port)) {
+            token = alice.joinResumable("Alice");
+        }
+
+        try (TestClient first = new TestClient(port);
+             TestClient second = new TestClient(port)) {
+            assertEquals("Welcome to the chat! Enter your username:", first.readLine());
+            first.send(BinaryProtocol.RESUME_LINE + " " + token);
+            assertEquals("Session resumed as Alice.", first.readLine());
+
+            assertEquals("Welcome to the chat! Enter your username:", second.readLine());
+            second.send(BinaryProtocol.RESUME_LINE + " " + token);
+            assertEquals(BinaryProtocol.SESSION_LINE, second.readLine());
+            assertEquals("Your session could not be resumed. Enter your username:", second.readLine());
+        }
+    }
+
+    @Test
+    public void nameThatOnlyStartsLikeResumeShouldBeAUsernameAttempt() throws Exception {
+
+        try (TestClient client = new TestClient(port)) {
+            assertEquals("Welcome to the chat! Enter your username:", client.readLine());
+
+            client.send(BinaryProtocol.RESUME_LINE + "r");
+
+            assertEquals("Hello, " + BinaryProtocol.RESUME_LINE + "r!", client.readLine());
+        }
+    }
+
+    private void awaitHistory(long messages) throws InterruptedException {
+        for (int i = 0; i < 100 && server.getHistory().getAppendedMessages() < messages + 1; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.codeforall.online.chatserver.handoff;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SessionTicketsTest {
+
+    // SUT
+    private SessionTickets tickets;
+
+    @Before
+    public void setUp() {
+        tickets = new SessionTickets(60);
+    }
+
+    @Test
+    public void ticketShouldBeRedeemedOnlyOnce() {
+
+        SessionTicket ticket = ticket("Alice", true, "games");
+        tickets.add(ticket);
+
+        assertEquals(ticket, tickets.redeem(ticket.token()));
+        assertNull(tickets.redeem(ticket.token()));
+        assertEquals(0, tickets.size());
+    }
+
+    @Test
+    public void nameShouldStayReservedUntilTheTicketIsRedeemed() {
+
+        SessionTicket ticket = ticket("Alice", false, "lobby");
+        tickets.add(ticket);
+
+        assertTrue(tickets.isReserved("ALICE"));
+        assertFalse(tickets.isReserved("Bobby"));
+
+        tickets.redeem(ticket.token());
+
+        assertFalse(tickets.isReserved("alice"));
+    }
+
+    @Test
+    public void peekShouldLeaveTheTicketHoldingItsName() {
+
+        SessionTicket ticket = ticket("Alice", false, "lobby");
+        tickets.add(ticket);
+
+        assertEquals(ticket, tickets.peek(ticket.token()));
+        assertEquals(ticket.token(), tickets.holder("alice"));
+        assertNull(tickets.holder("Bobby"));
+
+        tickets.redeem(ticket.token());
+
+        assertNull(tickets.peek(ticket.token()));
+        assertNull(tickets.holder("Alice"));
+    }
+
+    @Test
+    public void expiredTicketShouldNeitherRedeemNorReserve() throws InterruptedException {
+
+        tickets = new SessionTickets(0);
+        SessionTicket ticket = ticket("Alice", false, "lobby");
+        tickets.add(ticket);
+        Thread.sleep(5);
+
+        assertFalse(tickets.isReserved("Alice"));
+        assertNull(tickets.peek(ticket.token()));
+        assertNull(tickets.redeem(ticket.token()));
+    }
+
+    @Test
+    public void addShouldSweepOutExpiredTicketsNobodyRedeemed() throws InterruptedException {
+
+        tickets = new SessionTickets(0);
+        tickets.add(ticket("Alice", false, "lobby"));
+        tickets.add(ticket("Bobby", false, "lobby"));
+        Thread.sleep(5);
+
+        tickets.add(ticket("Carol", false, "lobby"));
+
+        assertEquals(1, tickets.size());
+    }
+
+    @Test
+    public void newTokensShouldBeUnique() {
+
+        assertNotEquals(SessionTicket.newToken(), SessionTicket.newToken());
+    }
+
+    private static SessionTicket ticket(String name, boolean admin, String room) {
+        return new SessionTicket(SessionTicket.newToken(), name, admin, room, -1);
+    }
+}
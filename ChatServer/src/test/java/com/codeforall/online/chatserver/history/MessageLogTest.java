@@ -0,0 +1,196 @@
+package com.codeforall.online.chatserver.history;
+
+import com.codeforall.online.chatserver.logging.EventLog;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MessageLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // SUT
+    private MessageLog history;
+
+    // DOCs
+    private Path directory;
+    private EventLog log;
+
+    @Before
+    public void setUp() throws Exception {
+
+        directory = folder.getRoot().toPath();
+        log = new EventLog(LogLevel.OFF, 1);
+        history = new MessageLog(directory, 4096, 3, log);
+        history.open();
+    }
+
+    @After
+    public void tearDown() {
+
+        history.close();
+    }
+
+    @Test
+    public void recentShouldReturnTheLastMessagesOfARoomOldestFirst() throws Exception {
+
+        history.append("lobby", EncodedMessage.of("one"));
+        history.append("games", EncodedMessage.of("elsewhere"));
+        history.append(null, EncodedMessage.of("announcement"));
+        history.append("lobby", EncodedMessage.of("two"));
+        history.append("lobby", EncodedMessage.of("three"));
+
+        List<EncodedMessage> all = awaitRecent("lobby", 10, 4);
+
+        assertEquals(List.of("one", "announcement", "two", "three"), texts(all));
+        assertEquals(List.of("announcement", "two", "three"), texts(history.recent("lobby", 3)));
+    }
+
+    @Test
+    public void recentShouldServeMessagesFromTheMappedSegments() throws Exception {
+
+        history.append("lobby", EncodedMessage.of("hello"));
+
+        EncodedMessage message = awaitRecent("lobby", 1, 1).get(0);
+
+        assertTrue(message.view().isDirect());
+        assertEquals(6, message.length());
+    }
+
+    @Test
+    public void historyShouldRollSegmentsAndDeleteTheOldest() throws Exception {
+
+        String text = "x".repeat(100);
+        for (int i = 0; i < 200; i++) {
+            history.append("lobby", EncodedMessage.of(text + i));
+        }
+        history.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+        assertEquals(0, history.getDroppedMessages());
+
+        List<EncodedMessage> recent = history.recent("lobby", 2);
+        assertEquals(List.of(text + 198, text + 199), texts(recent));
+    }
+
+    @Test
+    public void sealedSegmentsShouldBeTrimmedToTheirRecords() throws Exception {
+
+        history.append("lobby", EncodedMessage.of("short"));
+        history.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            long size = Files.size(files.findFirst().orElseThrow());
+            assertTrue(size > 0 && size < 4096);
+        }
+    }
+
+    @Test
+    public void openShouldRecoverTheHistoryOfAnEarlierRun() throws Exception {
+
+        history.append("lobby", EncodedMessage.of("before restart"));
+        history.close();
+
+        history = new MessageLog(directory, 4096, 3, log);
+        history.open();
+
+        assertEquals(List.of("before restart"), texts(history.recent("lobby", 5)));
+    }
+
+    @Test
+    public void sinceShouldReturnOnlyMessagesAfterTheMark() throws Exception {
+
+        history.append("lobby", EncodedMessage.of("seen"));
+        awaitRecent("lobby", 1, 1);
+        long mark = history.mark();
+
+        history.append("lobby", EncodedMessage.of("missed"));
+        history.append("games", EncodedMessage.of("elsewhere"));
+        history.append(null, EncodedMessage.of("announcement"));
+        awaitRecent("lobby", 3, 3);
+
+        assertEquals(List.of("missed", "announcement"), texts(history.since("lobby", mark, 10)));
+        assertEquals(List.of("announcement"), texts(history.since("lobby", mark, 1)));
+    }
+
+    @Test
+    public void markShouldSurviveARestart() throws Exception {
+
+        history.append("lobby", EncodedMessage.of("seen"));
+        awaitRecent("lobby", 1, 1);
+        long mark = history.mark();
+        history.append("lobby", EncodedMessage.of("missed before restart"));
+        history.close();
+
+        history = new MessageLog(directory, 4096, 3, log);
+        history.open();
+        history.append("lobby", EncodedMessage.of("missed after restart"));
+        awaitRecent("lobby", 3, 3);
+
+        assertEquals(List.of("missed before restart", "missed after restart"),
+                texts(history.since("lobby", mark, 10)));
+    }
+
+    @Test
+    public void recentShouldPickARoomOutOfOthersBeforeAndAfterARestart() throws Exception {
+
+        for (int i = 0; i < 40; i++) {
+            history.append("games", EncodedMessage.of("game " + i));
+            if (i % 10 == 0) {
+                history.append("lobby", EncodedMessage.of("lobby " + i));
+            }
+        }
+        history.append(null, EncodedMessage.of("announcement"));
+        awaitRecent("lobby", 10, 5);
+
+        List<String> expected = List.of("lobby 10", "lobby 20", "lobby 30", "announcement");
+        assertEquals(expected, texts(history.recent("lobby", 4)));
+        assertEquals(List.of("announcement"), texts(history.recent(null, 4)));
+
+        history.close();
+        history = new MessageLog(directory, 4096, 3, log);
+        history.open();
+
+        assertEquals(expected, texts(history.recent("lobby", 4)));
+        assertEquals(List.of("game 38", "game 39", "announcement"), texts(history.recent("games", 3)));
+    }
+
+    @Test
+    public void appendShouldDropMessagesOnceClosed() {
+
+        history.close();
+        history.append("lobby", EncodedMessage.of("late"));
+
+        assertEquals(1, history.getDroppedMessages());
+    }
+
+    /**
+     * Waits for the writer to commit the expected number of messages.
+     */
+    private List<EncodedMessage> awaitRecent(String room, int count, int expected) throws InterruptedException {
+        List<EncodedMessage> recent = history.recent(room, count);
+        for (int i = 0; i < 100 && recent.size() < expected; i++) {
+            Thread.sleep(20);
+            recent = history.recent(room, count);
+        }
+        return recent;
+    }
+
+    private static List<String> texts(List<EncodedMessage> messages) {
+        return messages.stream().map(EncodedMessage::text).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.codeforall.online.chatserver.idle;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.TestClient;
+import com.codeforall.online.chatserver.transport.BinaryProtocol;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class IdleReaperTest {
+
+    // SUT
+    private ChatServer server;
+    private Thread serverThread;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+
+        ServerConfig config = new ServerConfig();
+        config.setIoThreads(1);
+        config.setHeartbeatSeconds(1);
+        config.setIdleTimeoutSeconds(2);
+
+        server = new ChatServer(port, config);
+        serverThread = new Thread(server::init);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void silentClientShouldBePingedThenEvicted() throws Exception {
+
+        try (Socket socket = TestClient.connect(port)) {
+            BufferedReader reader = reader(socket);
+            writer(socket).println(BinaryProtocol.RESUME_LINE);
+            long start = System.nanoTime();
+
+            assertEquals("Welcome to the chat! Enter your username:", reader.readLine());
+            assertEquals(BinaryProtocol.PING_LINE, reader.readLine());
+            assertNull(reader.readLine());
+
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("evicted after " + elapsedMillis + "ms", elapsedMillis >= 2000);
+        }
+    }
+
+    @Test
+    public void plainTextClientShouldBeEvictedWithoutSeeingAPing() throws Exception {
+
+        try (Socket socket = TestClient.connect(port)) {
+            BufferedReader reader = reader(socket);
+
+            assertEquals("Welcome to the chat! Enter your username:", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void clientAnsweringPingsShouldStayConnected() throws Exception {
+
+        try (Socket socket = TestClient.connect(port)) {
+            BufferedReader reader = reader(socket);
+            PrintWriter writer = writer(socket);
+            writer.println(BinaryProtocol.RESUME_LINE);
+
+            reader.readLine();
+            for (int i = 0; i < 3; i++) {
+                assertEquals(BinaryProtocol.PING_LINE, reader.readLine());
+                writer.println(BinaryProtocol.PONG_LINE);
+            }
+
+            writer.println("Alice");
+            assertEquals("Hello, Alice!", reader.readLine());
+        }
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        socket.setSoTimeout(5000);
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static PrintWriter writer(Socket socket) throws IOException {
+        return new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+    }
+}
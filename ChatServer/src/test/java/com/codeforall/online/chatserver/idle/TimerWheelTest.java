@@ -0,0 +1,96 @@
+package com.codeforall.online.chatserver.idle;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+
+    private static final long TICK = 100;
+
+    // SUT
+    private TimerWheel wheel;
+
+    private List<String> fired;
+
+    @Before
+    public void setUp() {
+        wheel = new TimerWheel(TICK, 8, 0);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    public void advanceShouldRunTasksOnlyOnceTheirDeadlineHasPassed() {
+
+        wheel.schedule(() -> fired.add("a"), 250);
+
+        wheel.advance(250);
+        assertTrue(fired.isEmpty());
+
+        wheel.advance(300);
+        assertEquals(List.of("a"), fired);
+
+        wheel.advance(1000);
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    public void advanceShouldWaitWholeRoundsForDeadlinesBeyondOneTurn() {
+
+        // 8 slots of 100: a deadline at 2050 shares a slot with 450 and 1250
+        wheel.schedule(() -> fired.add("late"), 2050);
+        wheel.schedule(() -> fired.add("early"), 450);
+
+        wheel.advance(500);
+        assertEquals(List.of("early"), fired);
+
+        wheel.advance(2000);
+        assertEquals(List.of("early"), fired);
+
+        wheel.advance(2100);
+        assertEquals(List.of("early", "late"), fired);
+    }
+
+    @Test
+    public void advanceShouldSkipCancelledTasks() {
+
+        TimerWheel.Timeout timeout = wheel.schedule(() -> fired.add("cancelled"), 150);
+        wheel.schedule(() -> fired.add("kept"), 150);
+        timeout.cancel();
+
+        wheel.advance(200);
+
+        assertTrue(timeout.isCancelled());
+        assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    public void advanceShouldRunOverdueTasksOnTheNextTick() {
+
+        wheel.advance(500);
+        wheel.schedule(() -> fired.add("overdue"), 100);
+
+        wheel.advance(600);
+
+        assertEquals(List.of("overdue"), fired);
+    }
+
+    @Test
+    public void tasksScheduledByAnExpiringTaskShouldRunLater() {
+
+        wheel.schedule(() -> {
+            fired.add("first");
+            wheel.schedule(() -> fired.add("second"), 350);
+        }, 50);
+
+        wheel.advance(100);
+        assertEquals(List.of("first"), fired);
+
+        wheel.advance(400);
+        assertEquals(List.of("first", "second"), fired);
+    }
+}
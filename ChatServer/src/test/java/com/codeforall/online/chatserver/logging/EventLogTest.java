@@ -0,0 +1,162 @@
+package com.codeforall.online.chatserver.logging;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventLogTest {
+
+    @Test
+    public void logShouldWriteOneStructuredLinePerEvent() {
+
+        StringWriter out = new StringWriter();
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.INFO, 16, out);
+
+        log.log(LogLevel.INFO, EventType.CONNECT, "Client connected", "Alice", "/127.0.0.1:5000");
+        log.close();
+
+        String line = out.toString();
+        assertTrue(line.startsWith("time="));
+        assertTrue(line.endsWith(" level=INFO event=connect client=Alice remote=/127.0.0.1:5000"
+                + " msg=\"Client connected\"\n"));
+    }
+
+    @Test
+    public void logShouldEscapeQuotesAndLineBreaks() {
+
+        StringWriter out = new StringWriter();
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.INFO, 16, out);
+
+        log.log(LogLevel.WARN, EventType.ERROR, "bad \"input\"\nnext");
+        log.close();
+
+        assertTrue(out.toString().endsWith(" msg=\"bad \\\"input\\\"\\nnext\"\n"));
+    }
+
+    @Test
+    public void logShouldSkipEventsBelowTheConfiguredLevel() {
+
+        StringWriter out = new StringWriter();
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.WARN, 16, out);
+
+        assertFalse(log.isEnabled(LogLevel.INFO));
+        log.log(LogLevel.DEBUG, EventType.COMMAND, "/list", "Alice", null);
+        log.log(LogLevel.INFO, EventType.CONNECT, "Client connected");
+        log.log(LogLevel.ERROR, EventType.ERROR, "boom");
+        log.close();
+
+        assertEquals(1, out.toString().split("\n").length);
+        assertTrue(out.toString().contains("level=ERROR"));
+    }
+
+    @Test
+    public void offShouldRecordNothing() {
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.OFF, 16, new StringWriter());
+
+        assertFalse(log.isEnabled(LogLevel.ERROR));
+    }
+
+    @Test
+    public void logShouldDropEventsInsteadOfWaitingWhenTheBufferIsFull() throws Exception {
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StringWriter out = new StringWriter();
+        Writer stalled = new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) {
+                out.write(chars, offset, length);
+            }
+
+            @Override
+            public void flush() {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.INFO, 2, stalled);
+
+        log.log(LogLevel.INFO, EventType.SERVER, "first");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        log.log(LogLevel.INFO, EventType.SERVER, "second");
+        log.log(LogLevel.INFO, EventType.SERVER, "third");
+        log.log(LogLevel.INFO, EventType.SERVER, "fourth");
+
+        assertEquals(1, log.getDroppedEvents());
+
+        release.countDown();
+        log.close();
+
+        String written = out.toString();
+        assertTrue(written.contains("msg=first"));
+        assertTrue(written.contains("msg=third"));
+        assertFalse(written.contains("msg=fourth"));
+    }
+
+    @Test
+    public void logShouldKeepEveryEventFromConcurrentProducers() throws Exception {
+
+        int threads = 4;
+        int perThread = 1000;
+        StringWriter out = new StringWriter();
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.INFO, threads * perThread, out);
+
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            String client = "client" + t;
+            producers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.log(LogLevel.INFO, EventType.COMMAND, "/list", client, null);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        log.close();
+
+        assertEquals(0, log.getDroppedEvents());
+        assertEquals(threads * perThread, out.toString().split("\n").length);
+    }
+
+    @Test
+    public void logShouldWriteDirectlyOnceClosed() {
+
+        StringWriter out = new StringWriter();
+
+        // SUT
+        EventLog log = new EventLog(LogLevel.INFO, 16, out);
+
+        log.close();
+        log.log(LogLevel.INFO, EventType.SERVER, "Server fully terminated");
+
+        assertTrue(out.toString().contains("msg=\"Server fully terminated\""));
+    }
+}
@@ -0,0 +1,45 @@
+package com.codeforall.online.chatserver.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentileShouldBeWithinBucketPrecision() {
+
+        // SUT
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000, histogram.maxMicros());
+        assertEquals(5_000, histogram.percentileMicros(0.5), 5_000 * 0.016);
+        assertEquals(9_900, histogram.percentileMicros(0.99), 9_900 * 0.016);
+        assertEquals(10_000, histogram.percentileMicros(1.0));
+    }
+
+    @Test
+    public void percentileShouldBeZeroWhenEmpty() {
+
+        // SUT
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMicros(0.99));
+    }
+
+    @Test
+    public void highestValueOfShouldCoverEveryValueOfItsBucket() {
+
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            int index = LatencyHistogram.indexOf(micros);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= micros);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < micros);
+        }
+    }
+}
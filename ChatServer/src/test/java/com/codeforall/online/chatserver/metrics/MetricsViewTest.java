@@ -0,0 +1,126 @@
+package com.codeforall.online.chatserver.metrics;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.TestClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+
+public class MetricsViewTest {
+
+    // SUT
+    private ChatServer server;
+    private Thread serverThread;
+    private int port;
+    private int metricsPort;
+
+    @Before
+    public void setUp() throws Exception {
+        port = freePort();
+        metricsPort = freePort();
+
+        ServerConfig config = new ServerConfig();
+        config.setIoThreads(1);
+        config.setMetricsPort(metricsPort);
+
+        server = new ChatServer(port, config);
+        serverThread = new Thread(server::init);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void endpointShouldReportTrafficCommandsAndDisconnects() throws Exception {
+
+        try (Socket socket = TestClient.connect(port)) {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter writer = new PrintWriter(
+                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+            writer.println("Alice");
+            writer.println("hello");
+            writer.println("/list");
+            writer.println("/quit");
+            while (reader.readLine() != null) {
+                // read until the server closes the connection
+            }
+        }
+
+        awaitMetric("chat_disconnects_total{reason=\"quit\"} 1");
+        // the leave message is fanned out after the disconnect is counted
+        String text = awaitMetric("chat_broadcast_fanout_micros_count 3");
+
+        assertTrue(text.contains("chat_connections_accepted_total 1\n"));
+        assertTrue(text.contains("chat_messages_in_total 4\n"));
+        assertTrue(text.contains("chat_commands_total{command=\"/list\"} 1\n"));
+        assertTrue(text.contains("chat_clients_connected 0\n"));
+    }
+
+    @Test
+    public void metricsShouldBePublishedOverJmx() throws Exception {
+
+        TestClient.connect(port).close();
+        ObjectName name = new ObjectName("com.codeforall.online.chatserver:type=Metrics,port=" + port);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)
+                || (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "AcceptedConnections") < 1) {
+            assertTrue("MBean not updated in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Polls the endpoint until it reports the given line, since disconnects
+     * are recorded on the server's thread.
+     */
+    private String awaitMetric(String line) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            String text = scrape();
+            if (text.contains(line + "\n") || System.currentTimeMillis() > deadline) {
+                assertTrue(text, text.contains(line + "\n"));
+                return text;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private String scrape() throws IOException {
+        HttpURLConnection http = (HttpURLConnection) new URL("http://localhost:" + metricsPort + "/metrics")
+                .openConnection();
+        assertEquals(200, http.getResponseCode());
+        try (InputStream in = http.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.codeforall.online.chatserver.ratelimit;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void tryAcquireShouldAllowBurstThenRefuse() {
+
+        // SUT
+        TokenBucket bucket = new TokenBucket(10, 3, 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(0));
+    }
+
+    @Test
+    public void tryAcquireShouldRefillAtTheConfiguredRate() {
+
+        // SUT
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+
+        assertTrue(bucket.tryAcquire(0));
+        assertFalse(bucket.tryAcquire(SECOND / 20));
+        assertTrue(bucket.tryAcquire(SECOND / 10));
+        assertFalse(bucket.tryAcquire(SECOND / 10));
+    }
+
+    @Test
+    public void tryAcquireShouldNotRefillBeyondTheBurst() {
+
+        // SUT
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+
+        long later = 60 * SECOND;
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+    @Test
+    public void tryAcquireShouldNeverHandOutMoreThanTheBurstAcrossThreads() throws InterruptedException {
+
+        // SUT
+        TokenBucket bucket = new TokenBucket(1, 100, System.nanoTime());
+
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4);
+
+        for (int t = 0; t < 4; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        // one more token may have refilled while the threads ran
+        assertTrue(granted.get() >= 100 && granted.get() <= 101);
+    }
+}
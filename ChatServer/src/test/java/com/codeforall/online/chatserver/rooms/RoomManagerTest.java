@@ -0,0 +1,66 @@
+package com.codeforall.online.chatserver.rooms;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.Socket;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoomManagerTest {
+
+    // SUT
+    private RoomManager rooms;
+
+    // DOCs
+    private ClientHandler alice;
+    private ClientHandler bob;
+
+    @Before
+    public void setUp() {
+        rooms = new RoomManager();
+
+        ChatServer server = new ChatServer(0);
+        alice = new ClientHandler(server, (Socket) null);
+        bob = new ClientHandler(server, (Socket) null);
+    }
+
+    @Test
+    public void joinShouldMoveClientBetweenRooms() {
+
+        rooms.join(alice, RoomManager.LOBBY);
+        Room java = rooms.join(alice, "java");
+
+        assertSame(java, alice.getRoom());
+        assertTrue(java.contains(alice));
+        assertFalse(rooms.lobby().contains(alice));
+    }
+
+    @Test
+    public void joinShouldReuseExistingRoomIgnoringCase() {
+
+        Room first = rooms.join(alice, "Java");
+        Room second = rooms.join(bob, "JAVA");
+
+        assertSame(first, second);
+        assertEquals(2, first.size());
+    }
+
+    @Test
+    public void leaveShouldRemoveEmptyRoomButKeepLobby() {
+
+        rooms.join(alice, "java");
+        rooms.join(bob, RoomManager.LOBBY);
+
+        rooms.leave(alice);
+        rooms.leave(bob);
+
+        List<Room> remaining = rooms.list();
+        assertEquals(1, remaining.size());
+        assertTrue(rooms.isLobby(remaining.get(0)));
+        assertNull(alice.getRoom());
+    }
+}
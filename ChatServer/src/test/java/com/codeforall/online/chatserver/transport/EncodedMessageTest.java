@@ -0,0 +1,58 @@
+package com.codeforall.online.chatserver.transport;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class EncodedMessageTest {
+
+    @Test
+    public void ofShouldEncodeUtf8WithTrailingNewline() {
+
+        EncodedMessage message = EncodedMessage.of("olá");
+
+        assertEquals("olá\n", StandardCharsets.UTF_8.decode(message.view()).toString());
+        assertEquals(5, message.length());
+    }
+
+    @Test
+    public void viewsShouldShareBytesButKeepIndependentPositions() {
+
+        EncodedMessage message = EncodedMessage.of("hello");
+
+        ByteBuffer first = message.view();
+        ByteBuffer second = message.view();
+        first.position(first.limit());
+
+        assertTrue(first.isReadOnly());
+        assertTrue(first.isDirect());
+        assertEquals(6, second.remaining());
+    }
+
+    @Test
+    public void frameViewShouldHoldLengthOpcodeAndPayloadWithoutNewline() {
+
+        ByteBuffer frame = EncodedMessage.of("olá").frameView();
+
+        assertEquals(4, frame.getInt());
+        assertEquals(Opcode.MESSAGE.code(), frame.get());
+        assertEquals("olá", StandardCharsets.UTF_8.decode(frame).toString());
+    }
+
+    @Test
+    public void wrapShouldShareEncodedBytesAndDecodeTextOnDemand() {
+
+        ByteBuffer stored = ByteBuffer.allocate(64);
+        stored.put((byte) 7).put(EncodedMessage.of("hi there").frameView()).put((byte) '\n').flip();
+        stored.position(1);
+
+        EncodedMessage message = EncodedMessage.wrap(stored);
+
+        assertEquals("hi there", message.text());
+        assertEquals("hi there\n", StandardCharsets.UTF_8.decode(message.view()).toString());
+        assertEquals(Opcode.MESSAGE.code(), message.frameView().get(4));
+    }
+}
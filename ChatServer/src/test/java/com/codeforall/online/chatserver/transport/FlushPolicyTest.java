@@ -0,0 +1,47 @@
+package com.codeforall.online.chatserver.transport;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlushPolicyTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // SUT
+    private final FlushPolicy policy = new FlushPolicy(true, 100, 1000);
+
+    @Test
+    public void immediateShouldNeverDelay() {
+
+        assertFalse(FlushPolicy.IMMEDIATE.shouldDelay(10, 10, 0));
+    }
+
+    @Test
+    public void shouldDelayRecentlyWrittenConnectionBelowThreshold() {
+
+        assertTrue(policy.shouldDelay(MILLI / 2, 0, 10));
+    }
+
+    @Test
+    public void shouldNotDelayQuietConnection() {
+
+        assertFalse(policy.shouldDelay(2 * MILLI, 0, 10));
+    }
+
+    @Test
+    public void shouldNotDelayOnceThresholdIsReached() {
+
+        assertFalse(policy.shouldDelay(MILLI / 2, 0, 100));
+    }
+
+    @Test
+    public void deadlineShouldBeLastWritePlusMaxDelay() {
+
+        assertEquals(5 + MILLI, policy.deadline(5));
+    }
+}
@@ -0,0 +1,106 @@
+package com.codeforall.online.chatserver.transport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FrameDecoderTest {
+
+    // SUT
+    private FrameDecoder decoder;
+
+    @Before
+    public void setUp() {
+        decoder = new FrameDecoder(16, new ByteArrayPool(17, 1));
+    }
+
+    @Test
+    public void nextFrameShouldDecodeFramesAfterThePreamble() throws IOException {
+
+        ByteBuffer buffer = concat(BinaryProtocol.MAGIC, frame(Opcode.CHAT, "olá"), frame(Opcode.LIST, ""));
+
+        Frame chat = decoder.nextFrame(buffer);
+        Frame list = decoder.nextFrame(buffer);
+
+        assertEquals(Opcode.CHAT, chat.opcode());
+        assertEquals("olá", chat.payload());
+        assertEquals(Opcode.LIST, list.opcode());
+        assertEquals("", list.payload());
+        assertNull(decoder.nextFrame(buffer));
+    }
+
+    @Test
+    public void nextFrameShouldJoinFramesSplitAcrossReads() throws IOException {
+
+        byte[] bytes = concat(BinaryProtocol.MAGIC, frame(Opcode.WHISPER, "bob hello")).array();
+        Frame frame = null;
+
+        for (byte b : bytes) {
+            assertNull(frame);
+            frame = decoder.nextFrame(ByteBuffer.wrap(new byte[]{b}));
+        }
+
+        assertEquals(Opcode.WHISPER, frame.opcode());
+        assertEquals("bob hello", frame.payload());
+    }
+
+    @Test
+    public void nextFrameShouldSkipOversizedPayloadAndResumeAfterIt() throws IOException {
+
+        ByteBuffer buffer = concat(BinaryProtocol.MAGIC, frame(Opcode.CHAT, "this payload is too long"),
+                frame(Opcode.CHAT, "ok"));
+
+        try {
+            decoder.nextFrame(buffer);
+            fail("Expected LineTooLongException");
+        } catch (LineTooLongException expected) {
+            // the payload is skipped
+        }
+
+        assertEquals("ok", decoder.nextFrame(buffer).payload());
+    }
+
+    @Test
+    public void releaseShouldReturnThePartialPayloadBufferToThePool() throws IOException {
+
+        ByteArrayPool pool = new ByteArrayPool(17, 1);
+        decoder = new FrameDecoder(16, pool);
+        byte[] bytes = concat(BinaryProtocol.MAGIC, frame(Opcode.CHAT, "half a payload")).array();
+        assertNull(decoder.nextFrame(ByteBuffer.wrap(bytes, 0, bytes.length - 4)));
+        assertEquals(0, pool.pooled());
+
+        decoder.release();
+        decoder.release();
+
+        assertEquals(1, pool.pooled());
+    }
+
+    @Test(expected = IOException.class)
+    public void nextFrameShouldRejectWrongPreamble() throws IOException {
+
+        decoder.nextFrame(ByteBuffer.wrap(new byte[]{0, 'X', 'Y', 1}));
+    }
+
+    private static byte[] frame(Opcode opcode, String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(BinaryProtocol.HEADER_LENGTH + bytes.length)
+                .putInt(bytes.length).put((byte) opcode.code()).put(bytes).array();
+    }
+
+    private static ByteBuffer concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,107 @@
+package com.codeforall.online.chatserver.transport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class LineDecoderTest {
+
+    // SUT
+    private LineDecoder decoder;
+
+    @Before
+    public void setUp() {
+        decoder = new LineDecoder();
+    }
+
+    @Test
+    public void nextLineShouldSplitOnNewlineAndCarriageReturnNewline() throws LineTooLongException {
+
+        ByteBuffer buffer = bytes("hello\r\nworld\n");
+
+        assertEquals("hello", decoder.nextLine(buffer));
+        assertEquals("world", decoder.nextLine(buffer));
+        assertNull(decoder.nextLine(buffer));
+    }
+
+    @Test
+    public void nextLineShouldJoinLinesSplitAcrossReads() throws LineTooLongException {
+
+        assertNull(decoder.nextLine(bytes("ol")));
+        assertNull(decoder.nextLine(bytes("á ")));
+
+        assertEquals("olá mundo", decoder.nextLine(bytes("mundo\n")));
+    }
+
+    @Test
+    public void nextLineShouldReturnEmptyStringForBlankLine() throws LineTooLongException {
+
+        assertEquals("", decoder.nextLine(bytes("\n")));
+    }
+
+    @Test
+    public void nextLineShouldAcceptLineOfExactlyMaxLength() throws LineTooLongException {
+
+        decoder = new LineDecoder(5, new ByteArrayPool(6, 1));
+
+        assertNull(decoder.nextLine(bytes("hel")));
+        assertEquals("hello", decoder.nextLine(bytes("lo\r\n")));
+    }
+
+    @Test
+    public void nextLineShouldRejectLongLineAndResumeAfterIt() throws LineTooLongException {
+
+        decoder = new LineDecoder(5, new ByteArrayPool(6, 1));
+        ByteBuffer buffer = bytes("toolong\nok\n");
+
+        assertTooLong(buffer);
+        assertEquals("ok", decoder.nextLine(buffer));
+    }
+
+    @Test
+    public void nextLineShouldDropUnterminatedLongLineWithoutBufferingIt() throws LineTooLongException {
+
+        ByteArrayPool pool = new ByteArrayPool(6, 1);
+        decoder = new LineDecoder(5, pool);
+
+        assertNull(decoder.nextLine(bytes("abc")));
+        assertTooLong(bytes("defgh"));
+        assertNull(decoder.nextLine(bytes("still the same line")));
+
+        assertEquals(1, pool.pooled());
+        assertEquals("next", decoder.nextLine(bytes(" end\nnext\n")));
+    }
+
+    @Test
+    public void releaseShouldReturnThePartialLineBufferToThePool() throws LineTooLongException {
+
+        ByteArrayPool pool = new ByteArrayPool(6, 1);
+        decoder = new LineDecoder(5, pool);
+        assertNull(decoder.nextLine(bytes("abc")));
+        assertEquals(0, pool.pooled());
+
+        decoder.release();
+        decoder.release();
+
+        assertEquals(1, pool.pooled());
+    }
+
+    private void assertTooLong(ByteBuffer buffer) {
+        try {
+            decoder.nextLine(buffer);
+            fail("Expected LineTooLongException");
+        } catch (LineTooLongException expected) {
+            // the line was dropped
+        }
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,238 @@
+package com.codeforall.online.chatserver.transport;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.DrainReport;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.TestClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class NioTransportTest {
+
+    // SUT
+    private ChatServer server;
+    private Thread serverThread;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerConfig config = new ServerConfig();
+        config.setIoThreads(2);
+        startServer(config);
+    }
+
+    private void startServer(ServerConfig config) throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+
+        server = new ChatServer(port, config);
+        serverThread = new Thread(server::init);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void clientsShouldJoinAndReceiveBroadcastsOverNio() throws Exception {
+
+        try (TestClient alice = new TestClient(port)) {
+            alice.join("Alice");
+
+            TestClient bob = new TestClient(port);
+            bob.join("Bobby");
+            assertEquals("Bobby has entered the chat.", alice.readLine());
+
+            alice.send("hi there");
+
+            assertEquals("Alice: hi there", alice.readLine());
+            assertEquals("Alice: hi there", bob.readLine());
+            bob.close();
+        }
+    }
+
+    @Test
+    public void messagesShouldOnlyReachMembersOfTheSenderRoom() throws Exception {
+
+        try (TestClient alice = new TestClient(port)) {
+            alice.join("Alice");
+
+            TestClient bob = new TestClient(port);
+            bob.join("Bobby");
+            assertEquals("Bobby has entered the chat.", alice.readLine());
+
+            bob.send("/join java");
+            assertEquals("Bobby left #lobby", alice.readLine());
+            assertEquals("Bobby joined #java", bob.readLine());
+
+            bob.send("only for java");
+            alice.send("only for the lobby");
+
+            assertEquals("Bobby: only for java", bob.readLine());
+            assertEquals("Alice: only for the lobby", alice.readLine());
+            bob.close();
+        }
+    }
+
+    @Test
+    public void quitShouldSayByeAndCloseTheConnection() throws Exception {
+
+        try (TestClient alice = new TestClient(port)) {
+
+            alice.join("Alice");
+            alice.send("/quit");
+
+            assertEquals("Bye", alice.readLine());
+            assertNull(alice.readLine());
+        }
+    }
+
+    @Test
+    public void shutdownShouldFlushQueuedOutputThenHintToReconnect() throws Exception {
+
+        try (TestClient alice = new TestClient(port)) {
+            alice.join("Alice");
+
+            int queued = server.getConfig().getOutboundCapacity() - 1;
+            for (int i = 0; i < queued; i++) {
+                server.broadcast("message " + i);
+            }
+            CompletableFuture<DrainReport> shutdown = CompletableFuture.supplyAsync(server::shutdown);
+
+            for (int i = 0; i < queued; i++) {
+                assertEquals("message " + i, alice.readLine());
+            }
+            assertEquals(BinaryProtocol.RECONNECT_LINE, alice.readLine());
+            assertNull(alice.readLine());
+
+            DrainReport report = shutdown.get(5, TimeUnit.SECONDS);
+            assertEquals(1, report.sessions());
+            assertEquals(1, report.drained());
+            assertThrows(IOException.class, () -> new Socket("localhost", port).close());
+        }
+    }
+
+    @Test
+    public void binaryClientShouldChatWithTextClientOnTheSamePort() throws Exception {
+
+        try (TestClient alice = new TestClient(port);
+             Socket socket = new TestClient(port).socket()) {
+
+            alice.join("Alice");
+
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.write(BinaryProtocol.MAGIC);
+            writeFrame(out, Opcode.LOGIN, "Bobby");
+
+            assertEquals("Welcome to the chat! Enter your username:", readTextLine(in));
+            assertEquals(BinaryProtocol.ACK_LINE, readTextLine(in));
+            assertEquals("Hello, Bobby!\nYou can start chatting now.\n"
+                    + "Please use /quit when you wish to exit the chat and /help to list all the available commands",
+                    readFrame(in));
+            assertEquals("Bobby has entered the chat.", readFrame(in));
+            assertEquals("Bobby has entered the chat.", alice.readLine());
+
+            writeFrame(out, Opcode.CHAT, "hello from binary");
+            assertEquals("Bobby: hello from binary", alice.readLine());
+            assertEquals("Bobby: hello from binary", readFrame(in));
+
+            writeFrame(out, Opcode.WHISPER, "Alice psst");
+            assertEquals("Bobby (whisper): psst", alice.readLine());
+            assertEquals("Bobby (whisper): psst", readFrame(in));
+
+            alice.send("hi back");
+            assertEquals("Alice: hi back", readFrame(in));
+        }
+    }
+
+    @Test
+    public void blockPolicyShouldNotStallTheLoopThatDrainsTheFullQueue() throws Exception {
+
+        server.shutdown();
+        serverThread.join(5000);
+        ServerConfig config = new ServerConfig();
+        config.setIoThreads(1);
+        config.setBroadcastShards(0);
+        config.setOutboundCapacity(4);
+        config.setOverflowPolicy(OverflowPolicy.BLOCK);
+        config.setOutboundBlockTimeoutMillis(60_000);
+        config.setClientMessagesPerSecond(0);
+        config.setGlobalMessagesPerSecond(0);
+        startServer(config);
+
+        try (TestClient bob = new TestClient(port);
+             TestClient slow = new TestClient(port);
+             TestClient alice = new TestClient(port)) {
+            bob.join("Bobby");
+            slow.join("Slowy");
+            assertEquals("Slowy has entered the chat.", bob.readLine());
+            slow.send("/join flood");
+            assertEquals("Slowy left #lobby", bob.readLine());
+            alice.join("Alice");
+            assertEquals("Alice has entered the chat.", bob.readLine());
+            alice.send("/join flood");
+            assertEquals("Alice left #lobby", bob.readLine());
+
+            // Slowy never reads again, so its queue fills up on the loop thread
+            String text = "x".repeat(4000);
+            Thread flood = new Thread(() -> {
+                for (int i = 0; i < 3000; i++) {
+                    alice.send(text);
+                }
+            });
+            flood.setDaemon(true);
+            flood.start();
+            flood.join(15_000);
+
+            assertFalse("the loop stalled on a full queue", flood.isAlive());
+            assertTrue(server.getOutboundStats().getDroppedMessages() > 0);
+            bob.send("still here");
+            assertEquals("Bobby: still here", bob.readLine());
+        }
+    }
+
+    private static void writeFrame(DataOutputStream out, Opcode opcode, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.writeByte(opcode.code());
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static String readFrame(DataInputStream in) throws IOException {
+        byte[] payload = new byte[in.readInt()];
+        assertEquals(Opcode.MESSAGE.code(), in.readUnsignedByte());
+        in.readFully(payload);
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    private static String readTextLine(DataInputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            line.append((char) b);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,119 @@
+package com.codeforall.online.chatserver.transport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class OutboundQueueTest {
+
+    // DOCs
+    private OutboundStats stats;
+
+    @Before
+    public void setUp() {
+        stats = new OutboundStats();
+    }
+
+    @Test
+    public void dropOldestShouldKeepNewestMessagesAndCountDrops() {
+
+        OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.DROP_OLDEST, 0, stats);
+
+        assertTrue(queue.offer(bytes("a")));
+        assertTrue(queue.offer(bytes("b")));
+        assertTrue(queue.offer(bytes("c")));
+
+        assertEquals("b", text(queue.poll()));
+        assertEquals("c", text(queue.poll()));
+        assertEquals(1, queue.dropped());
+        assertEquals(1, stats.getDroppedMessages());
+    }
+
+    @Test
+    public void disconnectShouldRejectMessageWhenFull() {
+
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.DISCONNECT, 0, stats);
+
+        assertTrue(queue.offer(bytes("a")));
+        assertFalse(queue.offer(bytes("b")));
+
+        assertEquals(1, queue.depth());
+        assertEquals(1, queue.dropped());
+    }
+
+    @Test
+    public void blockShouldDropNewMessageAfterTimeout() {
+
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.BLOCK, 10, stats);
+
+        assertTrue(queue.offer(bytes("a")));
+        assertTrue(queue.offer(bytes("b")));
+
+        assertEquals("a", text(queue.poll()));
+        assertNull(queue.poll());
+        assertEquals(1, queue.dropped());
+    }
+
+    @Test
+    public void blockShouldAcceptMessageOnceWriterMakesRoom() throws Exception {
+
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.BLOCK, 5000, stats);
+        queue.offer(bytes("a"));
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                queue.take();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        writer.start();
+
+        assertTrue(queue.offer(bytes("b")));
+        writer.join();
+
+        assertEquals("b", text(queue.poll()));
+        assertEquals(0, queue.dropped());
+    }
+
+    @Test
+    public void takeShouldDrainRemainingMessagesThenReturnNullAfterClose() throws Exception {
+
+        OutboundQueue queue = new OutboundQueue(4, OverflowPolicy.DROP_OLDEST, 0, stats);
+        queue.offer(bytes("a"));
+
+        queue.close();
+
+        assertEquals("a", text(queue.take()));
+        assertNull(queue.take());
+        assertEquals(0, stats.getQueuedMessages());
+    }
+
+    @Test
+    public void markFlushedShouldBeIgnoredOnceTheQueueWasCleared() {
+
+        OutboundQueue drained = new OutboundQueue(4, OverflowPolicy.DROP_OLDEST, 0, stats);
+        OutboundQueue cleared = new OutboundQueue(4, OverflowPolicy.DROP_OLDEST, 0, stats);
+        cleared.offer(bytes("a"));
+
+        drained.close();
+        drained.markFlushed();
+        cleared.clear();
+        cleared.markFlushed();
+
+        assertTrue(drained.isFlushed());
+        assertFalse(cleared.isFlushed());
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
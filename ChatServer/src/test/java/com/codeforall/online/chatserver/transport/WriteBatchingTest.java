@@ -0,0 +1,179 @@
+package com.codeforall.online.chatserver.transport;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.ServerMode;
+import com.codeforall.online.chatserver.TestClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBatchingTest {
+
+    private static final int BURST = 100;
+    private static final int JOIN_MESSAGES = 3;
+    private static final long GAP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    // SUT
+    private ChatServer server;
+    private Thread serverThread;
+    private int port;
+
+    private long bytesReceived;
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        serverThread.join(5000);
+    }
+
+    @Test
+    public void nioLoopShouldCoalesceABurstIntoFewerWrites() throws Exception {
+
+        startServer(ServerMode.NIO, 1 << 20, 50_000);
+
+        assertBurstIsCoalesced();
+    }
+
+    @Test
+    public void blockingWriterShouldCoalesceABurstIntoFewerWrites() throws Exception {
+
+        startServer(ServerMode.BLOCKING, 1 << 20, 50_000);
+
+        assertBurstIsCoalesced();
+    }
+
+    @Test
+    public void nioLoopShouldWriteHeldBackOutputOnceItCrossesTheThreshold() throws Exception {
+
+        startServer(ServerMode.NIO, 2048, 2_000_000);
+
+        assertThresholdCutsTheDelayShort();
+    }
+
+    @Test
+    public void blockingWriterShouldWriteHeldBackOutputOnceItCrossesTheThreshold() throws Exception {
+
+        startServer(ServerMode.BLOCKING, 2048, 2_000_000);
+
+        assertThresholdCutsTheDelayShort();
+    }
+
+    private void assertThresholdCutsTheDelayShort() throws Exception {
+
+        try (Socket socket = TestClient.connect(port)) {
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+
+            assertEquals("Welcome to the chat! Enter your username:", readLine(in));
+            out.write("Alice\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            for (int i = 0; i < JOIN_MESSAGES + 1; i++) {
+                readLine(in);
+            }
+
+            // the join was just written, so the first line is held back; the rest of the
+            // burst takes it past 2 KB, and only a tail left under it may wait for the deadline
+            String line = "x".repeat(100);
+            server.broadcast(line);
+            Thread.sleep(200);
+            long start = System.nanoTime();
+            for (int i = 1; i < 40; i++) {
+                server.broadcast(line);
+            }
+            assertEquals(line, readLine(in));
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 1000);
+        }
+    }
+
+    private void assertBurstIsCoalesced() throws Exception {
+
+        try (Socket socket = TestClient.connect(port)) {
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+
+            assertEquals("Welcome to the chat! Enter your username:", readLine(in));
+            out.write("Alice\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertEquals("Hello, Alice!", readLine(in));
+            readLine(in);
+            readLine(in);
+            assertEquals("Alice has entered the chat.", readLine(in));
+
+            // spaced out, so that without batching every line would get its own write
+            for (int i = 0; i < BURST; i++) {
+                server.broadcast("burst message " + i);
+                LockSupport.parkNanos(GAP_NANOS);
+            }
+            for (int i = 0; i < BURST; i++) {
+                assertEquals("burst message " + i, readLine(in));
+            }
+        }
+
+        OutboundStats stats = server.getOutboundStats();
+        awaitMessagesWritten(stats, JOIN_MESSAGES + BURST);
+
+        assertEquals(bytesReceived, stats.getBytesWritten());
+        assertTrue("writes: " + stats.getWrites(), stats.getWrites() < BURST / 2);
+        assertTrue(stats.getWritesSaved() > BURST / 2);
+        assertTrue(stats.getDelayedFlushes() > 0);
+        assertTrue(stats.getAverageAddedDelayMicros() > 0);
+    }
+
+    private void startServer(ServerMode mode, int thresholdBytes, long maxDelayMicros) throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+
+        ServerConfig config = new ServerConfig();
+        config.setMode(mode);
+        config.setIoThreads(1);
+        config.setMetricsJmx(false);
+        config.setWriteBatching(true);
+        config.setFlushThresholdBytes(thresholdBytes);
+        config.setFlushMaxDelayMicros(maxDelayMicros);
+
+        server = new ChatServer(port, config);
+        serverThread = new Thread(server::init);
+        serverThread.start();
+    }
+
+    /**
+     * Reads one line byte by byte, counting every byte received.
+     */
+    private String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            line.write(b);
+        }
+        bytesReceived += line.size() + 1;
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void awaitMessagesWritten(OutboundStats stats, long messages) throws InterruptedException {
+        for (int i = 0; i < 100 && stats.getMessagesWritten() < messages; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(messages, stats.getMessagesWritten());
+    }
+}
@@ -0,0 +1,66 @@
+package com.codeforall.online.client;
+
+import java.util.Random;
+
+/**
+ * Delays between reconnect attempts: exponential backoff with full jitter.
+ * The n-th delay is drawn uniformly from {@code [0, min(max, base * 2^n)]},
+ * so clients dropped together by a restart do not all knock on the server
+ * at the same moment.
+ */
+public class Backoff {
+
+    private final long baseMillis;
+    private final long maxMillis;
+    private final int maxAttempts;
+    private final Random random;
+
+    private int attempt = 0;
+
+    /**
+     * Creates a backoff.
+     *
+     * @param baseMillis  the upper bound of the first delay
+     * @param maxMillis   the largest upper bound any delay grows to
+     * @param maxAttempts how many delays to hand out before giving up
+     */
+    public Backoff(long baseMillis, long maxMillis, int maxAttempts) {
+        this(baseMillis, maxMillis, maxAttempts, new Random());
+    }
+
+    /**
+     * Creates a backoff drawing its jitter from the given source.
+     *
+     * @param baseMillis  the upper bound of the first delay
+     * @param maxMillis   the largest upper bound any delay grows to
+     * @param maxAttempts how many delays to hand out before giving up
+     * @param random      the jitter source
+     */
+    Backoff(long baseMillis, long maxMillis, int maxAttempts, Random random) {
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.maxAttempts = maxAttempts;
+        this.random = random;
+    }
+
+    /**
+     * Gets the delay to wait before the next attempt.
+     *
+     * @return the delay in milliseconds, or -1 once the attempts are used up
+     */
+    public synchronized long nextDelay() {
+        if (attempt >= maxAttempts) {
+            return -1;
+        }
+        long bound = Math.min(maxMillis, baseMillis << Math.min(attempt, 30));
+        attempt++;
+        return random.nextLong(bound + 1);
+    }
+
+    /**
+     * Starts over from the shortest delay, once a connection has worked again.
+     */
+    public synchronized void reset() {
+        attempt = 0;
+    }
+}
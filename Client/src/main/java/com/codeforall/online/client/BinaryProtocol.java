@@ -0,0 +1,124 @@
+package com.codeforall.online.client;
+
+import java.util.Map;
+
+/**
+ * Client side of the server's optional binary protocol.
+ * <p>
+ * The client sends {@link #MAGIC} right after connecting; the server answers
+ * with the text line {@link #ACK_LINE} and switches to frames of
+ * {@code [4-byte payload length][1-byte opcode][UTF-8 payload]}, big-endian.
+ * Commands known to the protocol get their own opcode and carry only their
+ * arguments; anything else travels as a full {@link #COMMAND} line.
+ */
+public final class BinaryProtocol {
+
+    /**
+     * Bytes that switch a connection to binary frames.
+     */
+    public static final byte[] MAGIC = {0, 'C', 'B', 1};
+
+    /**
+     * Text line the server sends once the connection has switched.
+     */
+    public static final String ACK_LINE = "\0CB\1";
+
+    /**
+     * Heartbeat line from the server, answered automatically by the {@link ReaderThread}.
+     */
+    public static final String PING_LINE = "\0PING";
+
+    /**
+     * Answer to a heartbeat.
+     */
+    public static final String PONG_LINE = "/pong";
+
+    /**
+     * Line the server sends before a graceful shutdown, asking clients to connect again.
+     */
+    public static final String RECONNECT_LINE = "\0RECONNECT";
+
+    /**
+     * First line sent after connecting: alone, it asks the server for a
+     * session token at login; followed by a space and a token, it resumes
+     * that session instead of logging in again.
+     */
+    public static final String RESUME_LINE = "/resume";
+
+    /**
+     * Prefix of the line carrying the session token, followed by a space and
+     * the token. Alone, it means the server refused to resume the session.
+     */
+    public static final String SESSION_LINE = "\0SESSION";
+
+    /**
+     * Username attempt.
+     */
+    public static final int LOGIN = 0x01;
+
+    /**
+     * Chat message for the current room.
+     */
+    public static final int CHAT = 0x02;
+
+    /**
+     * Leave the chat.
+     */
+    public static final int QUIT = 0x03;
+
+    /**
+     * A full command line, for commands without an opcode of their own.
+     */
+    public static final int COMMAND = 0x04;
+
+    /**
+     * Answer to a heartbeat.
+     */
+    public static final int PONG = 0x05;
+
+    /**
+     * Server to client: one message.
+     */
+    public static final int MESSAGE = 0x20;
+
+    /**
+     * Server to client: heartbeat.
+     */
+    public static final int PING = 0x21;
+
+    /**
+     * Server to client: the server is going away, connect again.
+     */
+    public static final int RECONNECT = 0x22;
+
+    /**
+     * Server to client: the token for resuming this session later, or an
+     * empty payload if the server refused to resume the session.
+     */
+    public static final int SESSION = 0x23;
+
+    private static final Map<String, Integer> COMMAND_OPCODES = Map.of(
+            "/help", 0x10,
+            "/list", 0x11,
+            "/name", 0x12,
+            "/whisper", 0x13,
+            "/admin", 0x14,
+            "/shutdown", 0x15,
+            "/join", 0x16,
+            "/leave", 0x17,
+            "/rooms", 0x18,
+            "/history", 0x19);
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Looks up the opcode of a command.
+     *
+     * @param token the command token, e.g. {@code /whisper}
+     * @return the opcode, or {@link #COMMAND} if the command has none
+     */
+    public static int commandOpcode(String token) {
+        return COMMAND_OPCODES.getOrDefault(token.toLowerCase(), COMMAND);
+    }
+}
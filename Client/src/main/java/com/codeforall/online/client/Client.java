@@ -3,8 +3,10 @@ package com.codeforall.online.client;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 /**
  * Simple TCP chat client that connects to a server,
@@ -14,11 +16,21 @@ public class Client {
 
     private final String host;
     private final int port;
+    private final Consumer<String> output;
+    private final boolean binary;
 
-    private Socket socket;
-    private PrintWriter writer;
+    private volatile Socket socket;
+    private volatile PrintWriter writer;
 
     private volatile boolean running = true;
+    private volatile boolean reconnecting = false;
+    private volatile String sessionToken;
+
+    private final Backoff backoff = new Backoff(RECONNECT_BASE_MILLIS, RECONNECT_MAX_MILLIS, RECONNECT_ATTEMPTS);
+
+    private static final long RECONNECT_BASE_MILLIS = 250;
+    private static final long RECONNECT_MAX_MILLIS = 30_000;
+    private static final int RECONNECT_ATTEMPTS = 12;
 
     /**
      * Creates a new client for a given host and port.
@@ -27,37 +39,67 @@ public class Client {
      * @param port the server port
      */
     public Client(String host, int port) {
+        this(host, port, System.out::println);
+    }
+
+    /**
+     * Creates a new client that hands every line it would print to the given consumer.
+     * Used to drive sessions without a console, e.g. by the load generator.
+     *
+     * @param host   the server hostname or IP
+     * @param port   the server port
+     * @param output receives server messages and status lines
+     */
+    public Client(String host, int port, Consumer<String> output) {
+        this(host, port, output, false);
+    }
+
+    /**
+     * Creates a new client that may speak the server's binary protocol.
+     *
+     * @param host   the server hostname or IP
+     * @param port   the server port
+     * @param output receives server messages and status lines
+     * @param binary true to exchange binary frames instead of text lines
+     */
+    public Client(String host, int port, Consumer<String> output, boolean binary) {
         this.host = host;
         this.port = port;
+        this.output = output;
+        this.binary = binary;
     }
 
     /**
      * Starts the client: connects to the server, launches worker threads
-     * and waits for the reader thread to finish.
+     * and waits for the reader thread to finish. The client asks for a
+     * session token at login; when the connection is lost or the server
+     * restarts, it reconnects with a jittered exponential backoff and
+     * presents the token to get its session back.
      */
     public void start() {
+        reconnecting = true;
 
         try {
-            socket = new Socket(host, port);
-
-            writer = new PrintWriter(
-                    new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
-                    true);
+            Thread readerThread = connect("Server-Reader");
+            send(BinaryProtocol.RESUME_LINE);
 
-            ReaderThread readerTask = new ReaderThread(this, socket);
-            Thread readerThread = new Thread(readerTask, "Server-Reader");
-
-            KeyboardThread keyboardTask = new KeyboardThread(this, writer);
+            KeyboardThread keyboardTask = new KeyboardThread(this);
             Thread keyboardThread = new Thread(keyboardTask, "Keyboard-Input");
             keyboardThread.setDaemon(true);
-
-            readerThread.start();
             keyboardThread.start();
 
             readerThread.join();
+            while (isReconnecting()) {
+                readerThread = reconnect();
+                if (readerThread == null) {
+                    display("Could not reach the server again, giving up.");
+                    break;
+                }
+                readerThread.join();
+            }
 
         } catch (IOException e) {
-            System.out.println("Could not connect to server: " + e.getMessage());
+            display("Could not connect to server: " + e.getMessage());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
@@ -65,6 +107,103 @@ public class Client {
         }
     }
 
+    /**
+     * Connects to the server and starts the reader thread, without reading the keyboard.
+     *
+     * @param readerName the name of the reader thread
+     * @return the started reader thread
+     * @throws IOException if the connection cannot be opened
+     */
+    public Thread connect(String readerName) throws IOException {
+        socket = new Socket(host, port);
+
+        Writer out = binary
+                ? new FrameWriter(socket.getOutputStream())
+                : new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        writer = new PrintWriter(out, true);
+
+        Thread readerThread = new Thread(new ReaderThread(this, socket, binary), readerName);
+        readerThread.start();
+
+        return readerThread;
+    }
+
+    /**
+     * Connects again after the connection was lost, waiting a backoff delay
+     * before every attempt, and presents the session token if the client
+     * holds one. The token is kept until the server replaces or refuses it,
+     * so a connection that drops before the server answers can try it again.
+     * Without a token the client just asks for one again, and the user picks
+     * a username as on the first connection.
+     *
+     * @return the reader thread of the new connection, or null if the
+     * attempts ran out or the client was shut down meanwhile
+     * @throws InterruptedException if interrupted while waiting to retry
+     */
+    private Thread reconnect() throws InterruptedException {
+        closeSocket();
+
+        long delay;
+        while ((delay = backoff.nextDelay()) >= 0) {
+            Thread.sleep(delay);
+            if (!running) {
+                return null;
+            }
+            try {
+                Thread readerThread = connect("Server-Reader");
+                String token = sessionToken;
+                send(token == null ? BinaryProtocol.RESUME_LINE : BinaryProtocol.RESUME_LINE + " " + token);
+                return readerThread;
+            } catch (IOException e) {
+                // the server is not back yet
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Called by the reader when the server hands out a token for resuming
+     * the session on a later connection, or refuses the one presented. The
+     * server answered, so the next reconnect starts over from the shortest
+     * backoff delay.
+     *
+     * @param token the session token, or null if the server refused to resume the session
+     */
+    public void setSessionToken(String token) {
+        sessionToken = token;
+        backoff.reset();
+    }
+
+    /**
+     * Checks whether the client reconnects once the current connection ends.
+     * Only clients driven by {@link #start()} reconnect on their own.
+     *
+     * @return true if the client is running and reconnects by itself
+     */
+    public boolean isReconnecting() {
+        return running && reconnecting;
+    }
+
+    /**
+     * Sends one line to the server.
+     *
+     * @param line the line to send
+     */
+    public void send(String line) {
+        if (running && writer != null) {
+            writer.println(line);
+        }
+    }
+
+    /**
+     * Shows a line to the user, or hands it to the consumer given at construction.
+     *
+     * @param line the line to show
+     */
+    public void display(String line) {
+        output.accept(line);
+    }
+
     /**
      * Stops the client, closes resources, and prevents new operations.
      * Method is safe to call multiple times.
@@ -76,20 +215,26 @@ public class Client {
         }
 
         running = false;
+        closeSocket();
+
+        if (writer != null) {
+            writer.close();
+        }
+
+        display("Client shutdown complete.");
+    }
 
+    /**
+     * Closes the current connection, if it is open.
+     */
+    private void closeSocket() {
         try {
             if (socket != null && !socket.isClosed()) {
                 socket.close();
             }
         } catch (IOException e) {
-            System.out.println("Error closing client socket: " + e.getMessage());
-        }
-
-        if (writer != null) {
-            writer.close();
+            display("Error closing client socket: " + e.getMessage());
         }
-
-        System.out.println("Client shutdown complete.");
     }
 
     /**
@@ -103,10 +248,12 @@ public class Client {
 
     /**
      * Entry point to start the client application.
+     * Set {@code -Dclient.protocol=binary} to use the binary protocol.
      *
      * @param args ignored
      */
     public static void main(String[] args ) {
-        new Client("localhost", 9001).start();
+        boolean binary = "binary".equalsIgnoreCase(System.getProperty("client.protocol", "text"));
+        new Client("localhost", 9001, System.out::println, binary).start();
     }
 }
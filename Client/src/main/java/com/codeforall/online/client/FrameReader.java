@@ -0,0 +1,120 @@
+package com.codeforall.online.client;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Reads the server's output for a binary client. Everything up to
+ * {@link BinaryProtocol#ACK_LINE} is still text, read as in the text
+ * protocol; after it, every {@link BinaryProtocol#MESSAGE} frame gives one
+ * text message per line of its payload, and heartbeats, reconnect hints and
+ * session tokens are known by their opcode alone. Whatever a message
+ * payload contains, it is only ever displayed.
+ */
+public class FrameReader implements Closeable {
+
+    private final DataInputStream in;
+    private final Deque<ServerMessage> pending = new ArrayDeque<>();
+    private boolean binary = false;
+
+    /**
+     * Creates a reader over the socket input.
+     *
+     * @param in the socket input stream
+     */
+    public FrameReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+    }
+
+    /**
+     * Reads the next message, blocking until one arrives.
+     *
+     * @return the message, or null at the end of the stream
+     * @throws IOException if the stream fails
+     */
+    public ServerMessage read() throws IOException {
+        while (pending.isEmpty()) {
+            if (!(binary ? readFrame() : readTextLine())) {
+                return null;
+            }
+        }
+        return pending.poll();
+    }
+
+    /**
+     * Closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads one text line sent before the switch. The acknowledgement line
+     * itself switches to frames and gives no message.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean readTextLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                if (line.size() == 0) {
+                    return false;
+                }
+                break;
+            }
+            line.write(b);
+        }
+
+        String text = line.toString(StandardCharsets.UTF_8);
+        if (text.equals(BinaryProtocol.ACK_LINE)) {
+            binary = true;
+        } else {
+            pending.add(ServerMessage.parse(text));
+        }
+        return true;
+    }
+
+    /**
+     * Reads one frame. Frames other than messages, heartbeats, reconnect
+     * hints and session tokens are skipped.
+     *
+     * @return false at the end of the stream
+     */
+    private boolean readFrame() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+
+        int opcode = in.readUnsignedByte();
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        String payload = new String(bytes, StandardCharsets.UTF_8);
+
+        if (opcode == BinaryProtocol.PING) {
+            pending.add(new ServerMessage(ServerMessage.Kind.PING, null));
+        } else if (opcode == BinaryProtocol.RECONNECT) {
+            pending.add(new ServerMessage(ServerMessage.Kind.RECONNECT, payload.isEmpty() ? null : payload));
+        } else if (opcode == BinaryProtocol.SESSION) {
+            pending.add(new ServerMessage(ServerMessage.Kind.SESSION, payload.isEmpty() ? null : payload));
+        } else if (opcode == BinaryProtocol.MESSAGE) {
+            for (String line : payload.split("\n", -1)) {
+                pending.add(ServerMessage.text(line));
+            }
+        }
+        return true;
+    }
+}
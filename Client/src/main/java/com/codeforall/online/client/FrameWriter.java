@@ -0,0 +1,109 @@
+package com.codeforall.online.client;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writer that turns the lines typed by the user into binary protocol frames,
+ * so the rest of the client keeps writing text. The first line is the
+ * username; later lines become chat messages or commands.
+ */
+public class FrameWriter extends Writer {
+
+    private final DataOutputStream out;
+    private final StringBuilder line = new StringBuilder();
+    private boolean loggedIn = false;
+
+    /**
+     * Creates a writer and sends the {@link BinaryProtocol#MAGIC} preamble.
+     *
+     * @param out the socket output stream
+     * @throws IOException if the preamble cannot be written
+     */
+    public FrameWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.write(BinaryProtocol.MAGIC);
+    }
+
+    /**
+     * Buffers characters and sends a frame for every completed line.
+     * Carriage returns are dropped.
+     */
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c == '\n') {
+                writeLine(line.toString());
+                line.setLength(0);
+            } else if (c != '\r') {
+                line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Flushes the frames written so far.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Sends one line as the frame matching its content.
+     */
+    private void writeLine(String text) throws IOException {
+        if (!loggedIn) {
+            loggedIn = true;
+            writeFrame(BinaryProtocol.LOGIN, text);
+            return;
+        }
+
+        if (!text.startsWith("/")) {
+            writeFrame(BinaryProtocol.CHAT, text);
+            return;
+        }
+
+        String trimmed = text.trim();
+        int space = trimmed.indexOf(' ');
+        String token = space < 0 ? trimmed : trimmed.substring(0, space);
+
+        if (token.equalsIgnoreCase("/quit")) {
+            writeFrame(BinaryProtocol.QUIT, "");
+            return;
+        }
+        if (token.equals(BinaryProtocol.PONG_LINE)) {
+            writeFrame(BinaryProtocol.PONG, "");
+            return;
+        }
+
+        int opcode = BinaryProtocol.commandOpcode(token);
+        if (opcode == BinaryProtocol.COMMAND) {
+            writeFrame(opcode, trimmed);
+        } else {
+            writeFrame(opcode, space < 0 ? "" : trimmed.substring(space + 1).trim());
+        }
+    }
+
+    /**
+     * Writes a frame header followed by the UTF-8 payload.
+     */
+    private void writeFrame(int opcode, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.writeByte(opcode);
+        out.write(bytes);
+    }
+}
@@ -1,6 +1,5 @@
 package com.codeforall.online.client;
 
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
@@ -11,17 +10,16 @@ import java.util.Scanner;
 public class KeyboardThread implements Runnable {
 
     private final Client client;
-    private final PrintWriter writer;
 
     /**
-     * Creates a new keyboard handler for the given client.
+     * Creates a new keyboard handler for the given client. Lines go through
+     * {@link Client#send(String)}, so they follow the client to a new
+     * connection after a server restart.
      *
      * @param client the client instance
-     * @param writer the writer used to send messages to the server
      */
-    public KeyboardThread(Client client, PrintWriter writer) {
+    public KeyboardThread(Client client) {
         this.client = client;
-        this.writer = writer;
     }
 
     /**
@@ -48,12 +46,12 @@ public class KeyboardThread implements Runnable {
                 }
 
                 if (line.equalsIgnoreCase("/quit")) {
-                    writer.println("/quit");
+                    client.send("/quit");
                     client.shutdown();
                     break;
                 }
 
-                writer.println(line);
+                client.send(line);
             }
         }
     }
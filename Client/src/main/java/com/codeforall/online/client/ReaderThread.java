@@ -2,18 +2,20 @@ package com.codeforall.online.client;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 
 /**
  * Thread responsible for reading messages from the server
- * and printing them to the console.
+ * and handing them to {@link Client#display(String)}.
  */
 public class ReaderThread implements Runnable {
 
     private final Client client;
     private final Socket socket;
+    private final boolean binary;
 
     /**
      * Creates a new reader thread for a given client and socket.
@@ -22,35 +24,96 @@ public class ReaderThread implements Runnable {
      * @param socket the socket connected to the server
      */
     public ReaderThread(Client client, Socket socket) {
+        this(client, socket, false);
+    }
+
+    /**
+     * Creates a new reader thread that may decode binary protocol frames.
+     *
+     * @param client the client instance
+     * @param socket the socket connected to the server
+     * @param binary true if the server output switches to binary frames
+     */
+    public ReaderThread(Client client, Socket socket, boolean binary) {
         this.client = client;
         this.socket = socket;
+        this.binary = binary;
     }
 
     /**
      * Continuously reads messages from the server while the client is running.
-     * Stops when the server sends a shutdown message or the connection ends.
+     * Heartbeats are answered and session tokens stored without being shown,
+     * and a reconnect hint is shown as a notice; a client that reconnects
+     * by itself leaves the old connection right away.
+     * Stops the client when the server sends a shutdown message, or when
+     * the connection ends and the client does not reconnect by itself.
      */
     @Override
     public void run() {
 
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+        boolean finished = false;
+        boolean announced = false;
+        try (InputStream in = socket.getInputStream()) {
+            FrameReader frames = binary ? new FrameReader(in) : null;
+            BufferedReader lines = binary ? null : new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+            ServerMessage message;
+            while (client.isRunning() && (message = binary ? frames.read() : readLine(lines)) != null) {
+                if (message.kind() == ServerMessage.Kind.PING) {
+                    client.send(BinaryProtocol.PONG_LINE);
+                    continue;
+                }
+                if (message.kind() == ServerMessage.Kind.SESSION) {
+                    client.setSessionToken(message.text());
+                    continue;
+                }
+                if (message.kind() == ServerMessage.Kind.RECONNECT) {
+                    if (message.text() != null) {
+                        client.setSessionToken(message.text());
+                    }
+                    if (!client.isReconnecting()) {
+                        client.display("Server is restarting, please reconnect.");
+                        continue;
+                    }
+                    client.display("Server is restarting, reconnecting...");
+                    announced = true;
+                    break;
+                }
 
-            String line;
-            while (client.isRunning() && (line = reader.readLine()) != null) {
-                System.out.println(line);
+                String line = message.text();
+                client.display(line);
 
                 if (line.startsWith("Server is shutting down")) {
+                    finished = true;
+                    announced = true;
                     break;
                 }
             }
 
+            if (client.isReconnecting() && !announced) {
+                client.display("Connection lost, reconnecting...");
+            }
+
         } catch (IOException e) {
             if (client.isRunning()) {
-                System.out.println("Connection closed by server");
+                client.display(client.isReconnecting()
+                        ? "Connection lost, reconnecting..."
+                        : "Connection closed by server");
             }
         } finally {
-            client.shutdown();
+            if (finished || !client.isReconnecting()) {
+                client.shutdown();
+            }
         }
     }
+
+    /**
+     * Reads one line of the text protocol.
+     *
+     * @return the message, or null at the end of the stream
+     */
+    private static ServerMessage readLine(BufferedReader lines) throws IOException {
+        String line = lines.readLine();
+        return line == null ? null : ServerMessage.parse(line);
+    }
 }
@@ -0,0 +1,74 @@
+package com.codeforall.online.client;
+
+/**
+ * One message from the server: a line to display, or a control message
+ * the client acts on without showing it.
+ *
+ * @param kind what the message is
+ * @param text the line to display or the session token; null for a
+ *             heartbeat, a reconnect hint without a token or a refused resume
+ */
+public record ServerMessage(Kind kind, String text) {
+
+    /**
+     * The kinds of messages the server sends.
+     */
+    public enum Kind {
+        TEXT,
+        PING,
+        SESSION,
+        RECONNECT
+    }
+
+    /**
+     * Creates a message that is only displayed.
+     *
+     * @param line the line to display
+     * @return the message
+     */
+    public static ServerMessage text(String line) {
+        return new ServerMessage(Kind.TEXT, line);
+    }
+
+    /**
+     * Reads one line of the text protocol. A line is a control message only
+     * if it is a whole control line as the server writes it; the server
+     * never lets a line that came from a user start with NUL.
+     *
+     * @param line the line received, without its terminator
+     * @return the message
+     */
+    public static ServerMessage parse(String line) {
+        if (line.equals(BinaryProtocol.PING_LINE)) {
+            return new ServerMessage(Kind.PING, null);
+        }
+        if (line.equals(BinaryProtocol.RECONNECT_LINE)) {
+            return new ServerMessage(Kind.RECONNECT, null);
+        }
+        if (line.equals(BinaryProtocol.SESSION_LINE)) {
+            return new ServerMessage(Kind.SESSION, null);
+        }
+        String token = tokenAfter(BinaryProtocol.RECONNECT_LINE, line);
+        if (token != null) {
+            return new ServerMessage(Kind.RECONNECT, token);
+        }
+        token = tokenAfter(BinaryProtocol.SESSION_LINE, line);
+        if (token != null) {
+            return new ServerMessage(Kind.SESSION, token);
+        }
+        return text(line);
+    }
+
+    /**
+     * Gets the token of a control line made of a prefix, a space and a token.
+     *
+     * @return the token, or null if the line is not such a control line
+     */
+    private static String tokenAfter(String prefix, String line) {
+        if (!line.startsWith(prefix + " ")) {
+            return null;
+        }
+        String token = line.substring(prefix.length() + 1);
+        return token.isEmpty() || token.contains(" ") ? null : token;
+    }
+}
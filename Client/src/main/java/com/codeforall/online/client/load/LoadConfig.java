@@ -0,0 +1,272 @@
+package com.codeforall.online.client.load;
+
+/**
+ * Settings for a {@link LoadGenerator} run. Every value can be overridden
+ * through system properties (see {@link #fromSystemProperties()}).
+ */
+public class LoadConfig {
+
+    private String host = "localhost";
+    private int port = 9001;
+    private int sessions = 1000;
+    private int messagesPerSecond = 1000;
+    private int warmupSeconds = 5;
+    private int durationSeconds = 30;
+    private int rooms = 1;
+    private int chatWeight = 80;
+    private int whisperWeight = 15;
+    private int commandWeight = 5;
+    private boolean binary = false;
+
+    /**
+     * Builds a configuration from the {@code load.*} system properties,
+     * falling back to the defaults for anything that is not set.
+     * <ul>
+     *     <li>{@code load.host} and {@code load.port} - the server to load</li>
+     *     <li>{@code load.sessions} - concurrent client sessions</li>
+     *     <li>{@code load.rate} - messages per second sent across all sessions</li>
+     *     <li>{@code load.warmupSeconds} - load applied before measuring</li>
+     *     <li>{@code load.durationSeconds} - length of the measured window</li>
+     *     <li>{@code load.rooms} - rooms the sessions are spread over, 1 keeps everyone in the lobby</li>
+     *     <li>{@code load.mix} - chat, whisper and command weights, e.g. {@code 80,15,5}</li>
+     *     <li>{@code load.protocol} - {@code text} or {@code binary}</li>
+     * </ul>
+     *
+     * @return the resulting configuration
+     */
+    public static LoadConfig fromSystemProperties() {
+        LoadConfig config = new LoadConfig();
+
+        config.setHost(System.getProperty("load.host", config.getHost()));
+        config.setPort(Integer.getInteger("load.port", config.getPort()));
+        config.setSessions(Integer.getInteger("load.sessions", config.getSessions()));
+        config.setMessagesPerSecond(Integer.getInteger("load.rate", config.getMessagesPerSecond()));
+        config.setWarmupSeconds(Integer.getInteger("load.warmupSeconds", config.getWarmupSeconds()));
+        config.setDurationSeconds(Integer.getInteger("load.durationSeconds", config.getDurationSeconds()));
+        config.setRooms(Integer.getInteger("load.rooms", config.getRooms()));
+
+        String mix = System.getProperty("load.mix");
+        if (mix != null) {
+            config.setMix(mix);
+        }
+
+        String protocol = System.getProperty("load.protocol");
+        if (protocol != null) {
+            config.setProtocol(protocol);
+        }
+
+        return config;
+    }
+
+    /**
+     * Gets the server host.
+     *
+     * @return the hostname or IP
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Sets the server host.
+     *
+     * @param host the hostname or IP
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Gets the server port.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Sets the server port.
+     *
+     * @param port the port
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Gets the number of concurrent sessions.
+     *
+     * @return the session count
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Sets the number of concurrent sessions.
+     *
+     * @param sessions the session count, at least two so whispers have a target
+     */
+    public void setSessions(int sessions) {
+        if (sessions < 2) {
+            throw new IllegalArgumentException("sessions must be at least 2");
+        }
+        this.sessions = sessions;
+    }
+
+    /**
+     * Gets the target send rate across all sessions.
+     *
+     * @return messages per second
+     */
+    public int getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    /**
+     * Sets the target send rate across all sessions.
+     *
+     * @param messagesPerSecond messages per second, at least one
+     */
+    public void setMessagesPerSecond(int messagesPerSecond) {
+        if (messagesPerSecond < 1) {
+            throw new IllegalArgumentException("rate must be at least 1");
+        }
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    /**
+     * Gets how long load is applied before measuring.
+     *
+     * @return the warmup in seconds
+     */
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    /**
+     * Sets how long load is applied before measuring.
+     *
+     * @param warmupSeconds the warmup in seconds
+     */
+    public void setWarmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    /**
+     * Gets the length of the measured window.
+     *
+     * @return the duration in seconds
+     */
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Sets the length of the measured window.
+     *
+     * @param durationSeconds the duration in seconds, at least one
+     */
+    public void setDurationSeconds(int durationSeconds) {
+        if (durationSeconds < 1) {
+            throw new IllegalArgumentException("durationSeconds must be at least 1");
+        }
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Gets the number of rooms the sessions are spread over.
+     *
+     * @return the room count
+     */
+    public int getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Sets the number of rooms the sessions are spread over.
+     *
+     * @param rooms the room count, 1 to keep every session in the lobby
+     */
+    public void setRooms(int rooms) {
+        if (rooms < 1) {
+            throw new IllegalArgumentException("rooms must be at least 1");
+        }
+        this.rooms = rooms;
+    }
+
+    /**
+     * Sets the message mix from a {@code chat,whisper,command} weight list.
+     *
+     * @param mix the weights, e.g. {@code 80,15,5}
+     */
+    public void setMix(String mix) {
+        String[] parts = mix.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("mix must be chat,whisper,command weights: " + mix);
+        }
+
+        int chat = Integer.parseInt(parts[0].trim());
+        int whisper = Integer.parseInt(parts[1].trim());
+        int command = Integer.parseInt(parts[2].trim());
+        if (chat < 0 || whisper < 0 || command < 0 || chat + whisper + command == 0) {
+            throw new IllegalArgumentException("mix weights must be positive: " + mix);
+        }
+
+        this.chatWeight = chat;
+        this.whisperWeight = whisper;
+        this.commandWeight = command;
+    }
+
+    /**
+     * Gets the relative weight of room chat messages.
+     *
+     * @return the chat weight
+     */
+    public int getChatWeight() {
+        return chatWeight;
+    }
+
+    /**
+     * Gets the relative weight of whispers.
+     *
+     * @return the whisper weight
+     */
+    public int getWhisperWeight() {
+        return whisperWeight;
+    }
+
+    /**
+     * Gets the relative weight of commands.
+     *
+     * @return the command weight
+     */
+    public int getCommandWeight() {
+        return commandWeight;
+    }
+
+    /**
+     * Sets the protocol the sessions speak.
+     *
+     * @param protocol {@code text} or {@code binary}
+     */
+    public void setProtocol(String protocol) {
+        if (protocol.trim().equalsIgnoreCase("binary")) {
+            binary = true;
+        } else if (protocol.trim().equalsIgnoreCase("text")) {
+            binary = false;
+        } else {
+            throw new IllegalArgumentException("Unknown protocol: " + protocol);
+        }
+    }
+
+    /**
+     * Checks whether the sessions speak the binary protocol.
+     *
+     * @return true for binary frames, false for text lines
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+}
@@ -0,0 +1,180 @@
+package com.codeforall.online.client.load;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator. Opens many {@link LoadSession}s against a
+ * running chat server, sends a weighted mix of room chat, whispers and
+ * commands at a fixed overall rate, and reports end-to-end delivery
+ * latency and throughput.
+ * <p>
+ * Messages are stamped with the time they were scheduled rather than the
+ * time they were written, so a stalled server shows up as latency instead
+ * of silently lowering the send rate.
+ */
+public class LoadGenerator {
+
+    private static final String[] COMMANDS = {"/list", "/rooms", "/help"};
+    private static final long JOIN_TIMEOUT_SECONDS = 60;
+    private static final long DRAIN_MILLIS = 1000;
+    private static final long SEED = 42;
+
+    private final LoadConfig config;
+    private final LoadMetrics metrics = new LoadMetrics();
+    private final Random random = new Random(SEED);
+
+    private LoadSession[] sessions;
+
+    /**
+     * Creates a generator for the given settings.
+     *
+     * @param config the run settings
+     */
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Connects every session, applies the warmup and measured load,
+     * prints the report and disconnects.
+     *
+     * @throws IOException          if a session cannot connect
+     * @throws InterruptedException if the run is interrupted
+     */
+    public void run() throws IOException, InterruptedException {
+        CountDownLatch joined = new CountDownLatch(config.getSessions());
+        sessions = new LoadSession[config.getSessions()];
+
+        try {
+            for (int i = 0; i < sessions.length; i++) {
+                sessions[i] = new LoadSession(config, i, metrics, joined);
+                sessions[i].start();
+            }
+
+            if (!joined.await(JOIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException((config.getSessions() - joined.getCount()) + " of "
+                        + config.getSessions() + " sessions joined before the timeout");
+            }
+            System.out.println(sessions.length + " sessions joined, warming up for "
+                    + config.getWarmupSeconds() + "s");
+
+            pace(TimeUnit.SECONDS.toNanos(config.getWarmupSeconds()));
+            metrics.reset();
+
+            System.out.println("Measuring for " + config.getDurationSeconds() + "s at "
+                    + config.getMessagesPerSecond() + " msg/s");
+
+            long windowNanos = TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+            pace(windowNanos);
+            long sent = metrics.getSent();
+            long delivered = metrics.getDelivered();
+            long replies = metrics.getReplies();
+
+            // let messages still in flight arrive so the tail is not cut off
+            Thread.sleep(DRAIN_MILLIS);
+
+            report(windowNanos, sent, delivered, replies);
+
+        } finally {
+            for (LoadSession session : sessions) {
+                if (session != null) {
+                    session.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends messages at the configured rate for the given time.
+     * Sends that fall behind schedule are made immediately, keeping their
+     * original timestamp.
+     *
+     * @param durationNanos how long to send for
+     */
+    private void pace(long durationNanos) {
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / config.getMessagesPerSecond();
+        long start = metrics.now();
+        long end = start + durationNanos;
+
+        for (long i = 0; ; i++) {
+            long scheduled = start + i * periodNanos;
+            if (scheduled >= end) {
+                return;
+            }
+
+            long wait = scheduled - metrics.now();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            sendOne(scheduled);
+        }
+    }
+
+    /**
+     * Sends one message from a random session, picked by the configured mix.
+     *
+     * @param scheduledNanos when the message was due
+     */
+    private void sendOne(long scheduledNanos) {
+        LoadSession from = sessions[random.nextInt(sessions.length)];
+        if (!from.isConnected()) {
+            return;
+        }
+
+        int total = config.getChatWeight() + config.getWhisperWeight() + config.getCommandWeight();
+        int pick = random.nextInt(total);
+
+        if (pick < config.getChatWeight()) {
+            from.chat(scheduledNanos);
+        } else if (pick < config.getChatWeight() + config.getWhisperWeight()) {
+            from.whisper(otherThan(from), scheduledNanos);
+        } else {
+            from.command(COMMANDS[random.nextInt(COMMANDS.length)]);
+        }
+    }
+
+    /**
+     * Picks a random session that is not the given one.
+     */
+    private LoadSession otherThan(LoadSession session) {
+        LoadSession other;
+        do {
+            other = sessions[random.nextInt(sessions.length)];
+        } while (other == session);
+        return other;
+    }
+
+    /**
+     * Prints the results of the measured window.
+     */
+    private void report(long windowNanos, long sent, long delivered, long replies) {
+        double seconds = windowNanos / 1e9;
+        LatencyHistogram latency = metrics.getLatency();
+
+        System.out.println();
+        System.out.printf("sessions           %d (%d rooms)%n", sessions.length, config.getRooms());
+        System.out.printf("sent               %d (%.0f msg/s, target %d)%n",
+                sent, sent / seconds, config.getMessagesPerSecond());
+        System.out.printf("delivered          %d (%.0f msg/s)%n", delivered, delivered / seconds);
+        System.out.printf("other lines        %d (%.0f lines/s)%n", replies, replies / seconds);
+        System.out.printf("latency p50        %d us%n", latency.percentileMicros(0.50));
+        System.out.printf("latency p99        %d us%n", latency.percentileMicros(0.99));
+        System.out.printf("latency p999       %d us%n", latency.percentileMicros(0.999));
+        System.out.printf("latency max        %d us%n", latency.maxMicros());
+    }
+
+    /**
+     * Runs the load generator against the server named by the {@code load.*} properties.
+     *
+     * @param args ignored
+     * @throws Exception if the run fails
+     */
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(LoadConfig.fromSystemProperties()).run();
+    }
+}
@@ -0,0 +1,95 @@
+package com.codeforall.online.client.load;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters shared by every session of a load run.
+ */
+public class LoadMetrics {
+
+    private final long origin = System.nanoTime();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder replies = new LongAdder();
+
+    /**
+     * Gets the time elapsed since the run started. Timestamps carried by
+     * messages use this clock, so they are never negative.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long now() {
+        return System.nanoTime() - origin;
+    }
+
+    /**
+     * Counts a line sent to the server.
+     */
+    void sent() {
+        sent.increment();
+    }
+
+    /**
+     * Records a timestamped message that reached another session.
+     *
+     * @param latencyNanos time from the scheduled send to its arrival
+     */
+    void delivered(long latencyNanos) {
+        delivered.increment();
+        latency.record(latencyNanos);
+    }
+
+    /**
+     * Counts any other line received, such as a command reply.
+     */
+    void reply() {
+        replies.increment();
+    }
+
+    /**
+     * Clears every counter, e.g. at the end of the warmup.
+     */
+    void reset() {
+        sent.reset();
+        delivered.reset();
+        replies.reset();
+        latency.reset();
+    }
+
+    /**
+     * Gets the number of lines sent.
+     *
+     * @return the count
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * Gets the number of timestamped messages delivered to other sessions.
+     *
+     * @return the count
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * Gets the number of other lines received.
+     *
+     * @return the count
+     */
+    public long getReplies() {
+        return replies.sum();
+    }
+
+    /**
+     * Gets the end-to-end delivery latencies.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
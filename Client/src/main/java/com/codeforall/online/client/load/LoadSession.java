@@ -0,0 +1,155 @@
+package com.codeforall.online.client.load;
+
+import com.codeforall.online.client.Client;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * One scripted chat session. It wraps a {@link Client}, whose
+ * {@link com.codeforall.online.client.ReaderThread} feeds every server line
+ * back here instead of printing it. Outgoing messages carry the time they
+ * were scheduled, so the receiving session can measure delivery latency.
+ */
+public class LoadSession {
+
+    static final String MARKER = "~lg:";
+
+    private final String name;
+    private final String room;
+    private final LoadMetrics metrics;
+    private final CountDownLatch joined;
+    private final Client client;
+
+    private volatile boolean ready = false;
+
+    /**
+     * Creates a session; nothing is sent until {@link #start()}.
+     *
+     * @param config  the run settings
+     * @param index   the session number, used for its name and room
+     * @param metrics the counters shared by all sessions
+     * @param joined  counted down once the server accepted the username
+     */
+    public LoadSession(LoadConfig config, int index, LoadMetrics metrics, CountDownLatch joined) {
+        this.name = "load-" + index;
+        this.room = config.getRooms() > 1 ? "load-room-" + (index % config.getRooms()) : null;
+        this.metrics = metrics;
+        this.joined = joined;
+        this.client = new Client(config.getHost(), config.getPort(), this::onLine, config.isBinary());
+    }
+
+    /**
+     * Connects and sends the username. The server's welcome prompt is not
+     * awaited: the first line of a connection is always the username attempt.
+     *
+     * @throws IOException if the connection cannot be opened
+     */
+    public void start() throws IOException {
+        client.connect("load-reader-" + name);
+        client.send(name);
+    }
+
+    /**
+     * Sends a timestamped chat line to the session's room.
+     *
+     * @param scheduledNanos when the message was due, on the {@link LoadMetrics#now()} clock
+     */
+    public void chat(long scheduledNanos) {
+        send("hello " + MARKER + scheduledNanos);
+    }
+
+    /**
+     * Sends a timestamped whisper to another session.
+     *
+     * @param target         the receiving session
+     * @param scheduledNanos when the message was due, on the {@link LoadMetrics#now()} clock
+     */
+    public void whisper(LoadSession target, long scheduledNanos) {
+        send("/whisper " + target.getName() + " " + MARKER + scheduledNanos);
+    }
+
+    /**
+     * Sends a command; its reply only counts towards throughput.
+     *
+     * @param command the command line, e.g. {@code /list}
+     */
+    public void command(String command) {
+        send(command);
+    }
+
+    /**
+     * Leaves the chat and closes the connection.
+     */
+    public void stop() {
+        client.send("/quit");
+        client.shutdown();
+    }
+
+    /**
+     * Gets the username of this session.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Checks whether the session is connected.
+     *
+     * @return true while the connection is open
+     */
+    public boolean isConnected() {
+        return client.isRunning();
+    }
+
+    /**
+     * Sends a line and counts it.
+     */
+    private void send(String line) {
+        client.send(line);
+        metrics.sent();
+    }
+
+    /**
+     * Handles one line from the server. Called on the session's reader thread.
+     */
+    private void onLine(String line) {
+        int marker = line.lastIndexOf(MARKER);
+
+        if (marker >= 0) {
+            // the sender gets its own broadcasts and whisper echoes back too
+            if (!line.startsWith(name + ":") && !line.startsWith(name + " (whisper)")) {
+                metrics.delivered(metrics.now() - parseTime(line, marker));
+            }
+            return;
+        }
+
+        if (!ready && line.startsWith("Hello, " + name + "!")) {
+            ready = true;
+            if (room != null) {
+                client.send("/join " + room);
+            }
+            joined.countDown();
+            return;
+        }
+
+        metrics.reply();
+    }
+
+    /**
+     * Reads the scheduled time written after the marker.
+     */
+    private static long parseTime(String line, int marker) {
+        long value = 0;
+        for (int i = marker + MARKER.length(); i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
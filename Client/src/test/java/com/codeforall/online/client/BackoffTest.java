@@ -0,0 +1,72 @@
+package com.codeforall.online.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class BackoffTest {
+
+    //SUT
+    private Backoff backoff;
+
+    //DOCs
+    private Random mockRandom;
+
+    @Before
+    public void setUp() {
+
+        // DOCs
+        mockRandom = mock(Random.class);
+        when(mockRandom.nextLong(anyLong())).thenAnswer(invocation -> (long) invocation.getArgument(0) - 1);
+
+        // SUT
+        backoff = new Backoff(100, 1000, 6, mockRandom);
+    }
+
+    @Test
+    public void nextDelayShouldDoubleUpToTheMaximum() {
+
+        assertEquals(100, backoff.nextDelay());
+        assertEquals(200, backoff.nextDelay());
+        assertEquals(400, backoff.nextDelay());
+        assertEquals(800, backoff.nextDelay());
+        assertEquals(1000, backoff.nextDelay());
+        assertEquals(1000, backoff.nextDelay());
+    }
+
+    @Test
+    public void nextDelayShouldGiveUpAfterTheLastAttempt() {
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(backoff.nextDelay() >= 0);
+        }
+
+        assertEquals(-1, backoff.nextDelay());
+    }
+
+    @Test
+    public void resetShouldStartOverFromTheBase() {
+
+        backoff.nextDelay();
+        backoff.nextDelay();
+
+        backoff.reset();
+
+        assertEquals(100, backoff.nextDelay());
+    }
+
+    @Test
+    public void nextDelayShouldStayWithinTheBound() {
+
+        Backoff jittered = new Backoff(100, 1000, 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            long delay = jittered.nextDelay();
+            assertTrue(delay >= 0 && delay <= 1000);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.codeforall.online.client;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FrameReaderTest {
+
+    @Test
+    public void readShouldReturnTextLinesThenFrameMessages() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(("Welcome!\n" + BinaryProtocol.ACK_LINE + "\n").getBytes(StandardCharsets.UTF_8));
+        writeFrame(out, BinaryProtocol.MESSAGE, "Hello, olá!");
+        writeFrame(out, 0x7F, "ignored");
+        writeFrame(out, BinaryProtocol.PING, "");
+        writeFrame(out, BinaryProtocol.MESSAGE, "Bob: hi\nBob: there");
+        writeFrame(out, BinaryProtocol.RECONNECT, "");
+        writeFrame(out, BinaryProtocol.RECONNECT, "t0ken");
+        writeFrame(out, BinaryProtocol.SESSION, "s3ssion");
+        writeFrame(out, BinaryProtocol.SESSION, "");
+
+        // SUT
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(ServerMessage.text("Welcome!"), reader.read());
+        assertEquals(ServerMessage.text("Hello, olá!"), reader.read());
+        assertEquals(new ServerMessage(ServerMessage.Kind.PING, null), reader.read());
+        assertEquals(ServerMessage.text("Bob: hi"), reader.read());
+        assertEquals(ServerMessage.text("Bob: there"), reader.read());
+        assertEquals(new ServerMessage(ServerMessage.Kind.RECONNECT, null), reader.read());
+        assertEquals(new ServerMessage(ServerMessage.Kind.RECONNECT, "t0ken"), reader.read());
+        assertEquals(new ServerMessage(ServerMessage.Kind.SESSION, "s3ssion"), reader.read());
+        assertEquals(new ServerMessage(ServerMessage.Kind.SESSION, null), reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void readShouldOnlyDisplayMessagesThatLookLikeControlLines() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write((BinaryProtocol.ACK_LINE + "\n").getBytes(StandardCharsets.UTF_8));
+        writeFrame(out, BinaryProtocol.MESSAGE, BinaryProtocol.RECONNECT_LINE + " gotcha: hi");
+        writeFrame(out, BinaryProtocol.MESSAGE, "Eve: hi\n" + BinaryProtocol.SESSION_LINE + " stolen");
+
+        // SUT
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(ServerMessage.text(BinaryProtocol.RECONNECT_LINE + " gotcha: hi"), reader.read());
+        assertEquals(ServerMessage.text("Eve: hi"), reader.read());
+        assertEquals(ServerMessage.text(BinaryProtocol.SESSION_LINE + " stolen"), reader.read());
+        assertNull(reader.read());
+    }
+
+    private static void writeFrame(DataOutputStream out, int opcode, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.writeByte(opcode);
+        out.write(bytes);
+    }
+}
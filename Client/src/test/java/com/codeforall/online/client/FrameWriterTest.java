@@ -0,0 +1,58 @@
+package com.codeforall.online.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FrameWriterTest {
+
+    // SUT
+    private PrintWriter writer;
+
+    // DOCs
+    private ByteArrayOutputStream sent;
+
+    @Before
+    public void setUp() throws IOException {
+        sent = new ByteArrayOutputStream();
+        writer = new PrintWriter(new FrameWriter(sent), true);
+    }
+
+    @Test
+    public void linesShouldBecomeFramesAfterThePreamble() {
+
+        writer.println("Alice");
+        writer.println("hello");
+        writer.println("/whisper Bob hi there");
+        writer.println("/custom thing");
+        writer.println(BinaryProtocol.PONG_LINE);
+        writer.println("/quit");
+
+        ByteBuffer frames = ByteBuffer.wrap(sent.toByteArray());
+        byte[] magic = new byte[BinaryProtocol.MAGIC.length];
+        frames.get(magic);
+
+        assertArrayEquals(BinaryProtocol.MAGIC, magic);
+        assertFrame(frames, BinaryProtocol.LOGIN, "Alice");
+        assertFrame(frames, BinaryProtocol.CHAT, "hello");
+        assertFrame(frames, 0x13, "Bob hi there");
+        assertFrame(frames, BinaryProtocol.COMMAND, "/custom thing");
+        assertFrame(frames, BinaryProtocol.PONG, "");
+        assertFrame(frames, BinaryProtocol.QUIT, "");
+        assertFalse(frames.hasRemaining());
+    }
+
+    private static void assertFrame(ByteBuffer frames, int opcode, String payload) {
+        byte[] bytes = new byte[frames.getInt()];
+        assertEquals(opcode, frames.get() & 0xFF);
+        frames.get(bytes);
+        assertEquals(payload, new String(bytes, StandardCharsets.UTF_8));
+    }
+}
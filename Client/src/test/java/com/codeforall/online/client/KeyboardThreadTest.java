@@ -5,7 +5,6 @@ import org.junit.Test;
 
 
 import java.io.ByteArrayInputStream;
-import java.io.PrintWriter;
 
 
 import static org.mockito.Mockito.*;
@@ -17,12 +16,10 @@ public class KeyboardThreadTest {
 
     //DOCs
     private Client mockClient;
-    private PrintWriter mockWriter;
 
     @Before
     public void setUp() {
         mockClient = mock(Client.class);
-        mockWriter = mock(PrintWriter.class);
 
         when(mockClient.isRunning()).thenReturn(true);
     }
@@ -33,11 +30,11 @@ public class KeyboardThreadTest {
         String fakeInput = "/quit\n";
         System.setIn(new ByteArrayInputStream(fakeInput.getBytes()));
 
-        keyboardThread = new KeyboardThread(mockClient, mockWriter);
+        keyboardThread = new KeyboardThread(mockClient);
 
         keyboardThread.run();
 
-        verify(mockWriter).println("/quit");
+        verify(mockClient).send("/quit");
         verify(mockClient).shutdown();
     }
 
@@ -47,11 +44,11 @@ public class KeyboardThreadTest {
         String fakeInput = "hello\n";
         System.setIn(new ByteArrayInputStream(fakeInput.getBytes()));
 
-        keyboardThread = new KeyboardThread(mockClient, mockWriter);
+        keyboardThread = new KeyboardThread(mockClient);
 
         keyboardThread.run();
 
-        verify(mockWriter).println("hello");
+        verify(mockClient).send("hello");
         verify(mockClient, never()).shutdown();
     }
 }
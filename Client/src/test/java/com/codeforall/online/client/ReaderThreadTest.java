@@ -4,8 +4,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 import static org.mockito.Mockito.*;
 
@@ -43,4 +46,132 @@ public class ReaderThreadTest {
 
         verify(mockClient, atLeastOnce()).shutdown();
     }
+
+    @Test
+    public void runShouldAnswerHeartbeatWithoutDisplayingIt() throws IOException {
+
+        String message = BinaryProtocol.PING_LINE + "\nServer is shutting down\n";
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(message.getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).send(BinaryProtocol.PONG_LINE);
+        verify(mockClient, never()).display(BinaryProtocol.PING_LINE);
+        verify(mockClient).display("Server is shutting down");
+    }
+
+    @Test
+    public void runShouldShowReconnectHintAsANotice() throws IOException {
+
+        String message = BinaryProtocol.RECONNECT_LINE + "\n";
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(message.getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).display("Server is restarting, please reconnect.");
+        verify(mockClient, never()).display(BinaryProtocol.RECONNECT_LINE);
+    }
+
+    @Test
+    public void runShouldStoreTheSessionTokenWithoutDisplayingIt() throws IOException {
+
+        String message = BinaryProtocol.SESSION_LINE + " s3ssion\nServer is shutting down\n";
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(message.getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).setSessionToken("s3ssion");
+        verify(mockClient, never()).display(BinaryProtocol.SESSION_LINE + " s3ssion");
+    }
+
+    @Test
+    public void runShouldForgetTheSessionTokenWhenTheResumeIsRefused() throws IOException {
+
+        String message = BinaryProtocol.SESSION_LINE + "\nServer is shutting down\n";
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(message.getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).setSessionToken(null);
+        verify(mockClient, never()).display(BinaryProtocol.SESSION_LINE);
+    }
+
+    @Test
+    public void runShouldLeaveForTheRestartedServerWhenReconnecting() throws IOException {
+
+        when(mockClient.isReconnecting()).thenReturn(true);
+        String message = BinaryProtocol.RECONNECT_LINE + " t0ken\nnot read\n";
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(message.getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).display("Server is restarting, reconnecting...");
+        verify(mockClient).setSessionToken("t0ken");
+        verify(mockClient, never()).display("not read");
+        verify(mockClient, never()).shutdown();
+    }
+
+    @Test
+    public void runShouldNotShutDownWhenTheConnectionDropsWhileReconnecting() throws IOException {
+
+        when(mockClient.isReconnecting()).thenReturn(true);
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream("Hello\n".getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).display("Connection lost, reconnecting...");
+        verify(mockClient, never()).shutdown();
+    }
+
+    @Test
+    public void runShouldShutDownForGoodWhenTheServerShutsDown() {
+
+        when(mockClient.isReconnecting()).thenReturn(true);
+
+        readerThread.run();
+
+        verify(mockClient).shutdown();
+        verify(mockClient, never()).display("Connection lost, reconnecting...");
+    }
+
+    @Test
+    public void runShouldDisplayLinesThatOnlyStartLikeAControlLine() throws IOException {
+
+        String message = BinaryProtocol.RECONNECT_LINE + " gotcha: hi\nServer is shutting down\n";
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(message.getBytes()));
+
+        readerThread.run();
+
+        verify(mockClient).display(BinaryProtocol.RECONNECT_LINE + " gotcha: hi");
+        verify(mockClient, never()).setSessionToken(anyString());
+        verify(mockClient, never()).display("Server is restarting, please reconnect.");
+    }
+
+    @Test
+    public void runShouldActOnBinaryControlFramesButOnlyDisplayMessages() throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write((BinaryProtocol.ACK_LINE + "\n").getBytes(StandardCharsets.UTF_8));
+        writeFrame(out, BinaryProtocol.MESSAGE, BinaryProtocol.SESSION_LINE + " stolen");
+        writeFrame(out, BinaryProtocol.PING, "");
+        writeFrame(out, BinaryProtocol.SESSION, "s3ssion");
+        writeFrame(out, BinaryProtocol.MESSAGE, "Server is shutting down");
+        when(mockSocket.getInputStream()).thenReturn(new ByteArrayInputStream(bytes.toByteArray()));
+
+        new ReaderThread(mockClient, mockSocket, true).run();
+
+        verify(mockClient).display(BinaryProtocol.SESSION_LINE + " stolen");
+        verify(mockClient).send(BinaryProtocol.PONG_LINE);
+        verify(mockClient).setSessionToken("s3ssion");
+        verify(mockClient, never()).setSessionToken("stolen");
+        verify(mockClient).shutdown();
+    }
+
+    private static void writeFrame(DataOutputStream out, int opcode, String payload) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.writeByte(opcode);
+        out.write(bytes);
+    }
 }
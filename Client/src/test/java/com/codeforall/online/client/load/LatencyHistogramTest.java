@@ -0,0 +1,68 @@
+package com.codeforall.online.client.load;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    // SUT
+    private LatencyHistogram histogram;
+
+    @Before
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void percentilesShouldBeExactForSmallValues() {
+
+        for (int micros = 1; micros <= 100; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.percentileMicros(0.50));
+        assertEquals(99, histogram.percentileMicros(0.99));
+        assertEquals(100, histogram.maxMicros());
+    }
+
+    @Test
+    public void percentilesShouldStayWithinBucketPrecisionForLargeValues() {
+
+        for (int i = 0; i < 999; i++) {
+            histogram.record(1_000_000L);
+        }
+        histogram.record(250_000_000L);
+
+        long p50 = histogram.percentileMicros(0.50);
+        long p999 = histogram.percentileMicros(0.999);
+        long p9999 = histogram.percentileMicros(0.9999);
+
+        assertTrue(p50 >= 1000 && p50 <= 1016);
+        assertTrue(p999 >= 1000 && p999 <= 1016);
+        assertEquals(250_000, p9999);
+    }
+
+    @Test
+    public void bucketsShouldCoverTheirValues() {
+
+        for (long micros : new long[]{0, 127, 128, 129, 1000, 65_535, 1L << 40}) {
+            int index = LatencyHistogram.indexOf(micros);
+
+            assertTrue(LatencyHistogram.highestValueOf(index) >= micros);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < micros);
+        }
+    }
+
+    @Test
+    public void resetShouldForgetRecordedValues() {
+
+        histogram.record(5_000);
+        histogram.reset();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMicros(0.99));
+    }
+}
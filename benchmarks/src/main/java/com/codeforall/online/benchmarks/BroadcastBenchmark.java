@@ -0,0 +1,76 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ChatServer#broadcast(String)} and
+ * {@link ChatServer#broadcastToRoom} as the number of clients grows.
+ * Every invocation also drains the recipients' queues, so the queues
+ * stay short and the numbers include the writer side of a message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BroadcastBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int clients;
+
+    private ChatServer server;
+    private ClientHandler[] recipients;
+
+    /**
+     * Fills the server with joined clients.
+     */
+    @Setup
+    public void setUp() {
+        server = ChatFixture.newServer();
+        recipients = ChatFixture.joinedClients(server, clients);
+    }
+
+    /**
+     * Broadcasts to every connected client.
+     *
+     * @param sink consumes the delivered buffers
+     */
+    @Benchmark
+    public void broadcast(Blackhole sink) {
+        server.broadcast("user-0: hello everyone");
+        drainAll(sink);
+    }
+
+    /**
+     * Broadcasts to the lobby, which every client is in.
+     *
+     * @param sink consumes the delivered buffers
+     */
+    @Benchmark
+    public void broadcastToRoom(Blackhole sink) {
+        server.broadcastToRoom(recipients[0].getRoom(), "user-0: hello lobby");
+        drainAll(sink);
+    }
+
+    private void drainAll(Blackhole sink) {
+        for (ClientHandler recipient : recipients) {
+            ChatFixture.drain(recipient, sink);
+        }
+    }
+}
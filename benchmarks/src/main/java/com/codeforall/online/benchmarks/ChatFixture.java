@@ -0,0 +1,95 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.ServerConfig;
+import com.codeforall.online.chatserver.logging.LogLevel;
+import com.codeforall.online.chatserver.rooms.RoomManager;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Builds servers populated with in-memory clients. The clients have no
+ * socket: whatever the server sends them stays in their outbound queue,
+ * where a benchmark drains it the way a writer thread would.
+ */
+final class ChatFixture {
+
+    private ChatFixture() {
+    }
+
+    /**
+     * Creates a server that is never started. Rate limits and logging are
+     * off, so a benchmark measures delivery rather than the throttled path.
+     *
+     * @return the server
+     */
+    static ChatServer newServer() {
+        ServerConfig config = new ServerConfig();
+        config.setClientMessagesPerSecond(0);
+        config.setGlobalMessagesPerSecond(0);
+        config.setLogLevel(LogLevel.OFF);
+        return new ChatServer(0, config);
+    }
+
+    /**
+     * Creates clients that are neither registered nor named, as if their
+     * connections had just been accepted.
+     *
+     * @param server the server the clients belong to
+     * @param count  how many clients to create
+     * @return the clients
+     */
+    static ClientHandler[] unregisteredClients(ChatServer server, int count) {
+        ClientHandler[] clients = new ClientHandler[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = new ClientHandler(server, (Socket) null);
+        }
+        return clients;
+    }
+
+    /**
+     * Registers a client that has already picked its name and sits in the lobby.
+     *
+     * @param server the server to register with
+     * @param name   the client name
+     * @return the client
+     */
+    static ClientHandler joinedClient(ChatServer server, String name) {
+        ClientHandler client = new ClientHandler(server, (Socket) null);
+        server.addClient(client);
+        server.claimName(name, client);
+        server.getRooms().join(client, RoomManager.LOBBY);
+        return client;
+    }
+
+    /**
+     * Registers {@code count} joined clients named {@code user-0}, {@code user-1}, ...
+     *
+     * @param server the server to register with
+     * @param count  how many clients to add
+     * @return the clients, in name order
+     */
+    static ClientHandler[] joinedClients(ChatServer server, int count) {
+        ClientHandler[] clients = new ClientHandler[count];
+        for (int i = 0; i < count; i++) {
+            clients[i] = joinedClient(server, "user-" + i);
+        }
+        return clients;
+    }
+
+    /**
+     * Empties a client's outbound queue into the blackhole.
+     *
+     * @param client the client to drain
+     * @param sink   consumes the queued buffers
+     */
+    static void drain(ClientHandler client, Blackhole sink) {
+        ByteBuffer buffer;
+        while ((buffer = client.getOutbound().poll()) != null) {
+            sink.consume(buffer);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.ClientRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connect and disconnect churn on the {@link ClientRegistry}, compared with
+ * the {@link CopyOnWriteArrayList} it replaced. Each operation keeps the
+ * number of clients fixed and replaces one random client with an idle one,
+ * like a reconnect storm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ClientRegistryChurnBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int clients;
+
+    private ClientHandler[] connected;
+    private ClientHandler[] idle;
+    private int nextIdle;
+    private Random random;
+
+    private ClientRegistry registry;
+    private List<ClientHandler> copyOnWrite;
+
+    /**
+     * Creates twice as many clients as connected, and connects half of them.
+     */
+    @Setup
+    public void setUp() {
+        ClientHandler[] handlers = ChatFixture.unregisteredClients(ChatFixture.newServer(), clients * 2);
+        connected = Arrays.copyOfRange(handlers, 0, clients);
+        idle = Arrays.copyOfRange(handlers, clients, handlers.length);
+        nextIdle = 0;
+        random = new Random(42);
+
+        registry = new ClientRegistry();
+        for (ClientHandler client : connected) {
+            registry.add(client);
+        }
+        copyOnWrite = new CopyOnWriteArrayList<>(connected);
+    }
+
+    /**
+     * Disconnects one client from the registry and connects another.
+     */
+    @Benchmark
+    public void registryChurn() {
+        int slot = random.nextInt(clients);
+        registry.remove(connected[slot]);
+        registry.add(swapIn(slot));
+    }
+
+    /**
+     * Disconnects one client from the copy-on-write list and connects another.
+     */
+    @Benchmark
+    public void copyOnWriteChurn() {
+        int slot = random.nextInt(clients);
+        copyOnWrite.remove(connected[slot]);
+        copyOnWrite.add(swapIn(slot));
+    }
+
+    /**
+     * Puts the next idle client in a slot and makes the client it replaces idle.
+     *
+     * @param slot the slot of the leaving client
+     * @return the joining client
+     */
+    private ClientHandler swapIn(int slot) {
+        ClientHandler joining = idle[nextIdle];
+        idle[nextIdle] = connected[slot];
+        connected[slot] = joining;
+        nextIdle = nextIdle + 1 < idle.length ? nextIdle + 1 : 0;
+        return joining;
+    }
+}
@@ -0,0 +1,70 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing and dispatching one command line through
+ * {@link ClientHandler#handleLine(String)}, which is how the transports
+ * reach the command table. The server holds a handful of other clients
+ * so commands that reply with a list stay cheap and comparable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CommandDispatchBenchmark {
+
+    @Param({"/help", "/list", "/whisper user-1 hello there", "/rooms", "/nosuchcommand", "/whisper"})
+    public String line;
+
+    private ClientHandler client;
+    private ClientHandler[] others;
+
+    /**
+     * Joins the benchmarked client the way a real one does, by sending its name.
+     */
+    @Setup
+    public void setUp() {
+        ChatServer server = ChatFixture.newServer();
+        others = ChatFixture.joinedClients(server, 8);
+
+        client = new ClientHandler(server, (Socket) null);
+        server.addClient(client);
+        client.handleLine("benchmark");
+    }
+
+    /**
+     * Handles one command line and drains the reply and anything
+     * sent on to the other clients.
+     *
+     * @param sink consumes the reply buffers
+     * @return whether the connection stays open
+     */
+    @Benchmark
+    public boolean handleCommand(Blackhole sink) {
+        boolean open = client.handleLine(line);
+        ChatFixture.drain(client, sink);
+        for (ClientHandler other : others) {
+            ChatFixture.drain(other, sink);
+        }
+        return open;
+    }
+}
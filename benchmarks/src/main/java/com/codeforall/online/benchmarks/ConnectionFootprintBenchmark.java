@@ -0,0 +1,51 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-connection state created when a client is accepted.
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the number of
+ * bytes an idle connection's handler takes on the heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConnectionFootprintBenchmark {
+
+    private ChatServer server;
+
+    /**
+     * Creates the server the handlers belong to.
+     */
+    @Setup
+    public void setUp() {
+        server = ChatFixture.newServer();
+    }
+
+    /**
+     * Creates the handler of a newly accepted connection.
+     *
+     * @return the handler, so the JIT cannot drop the allocation
+     */
+    @Benchmark
+    public ClientHandler newClientHandler() {
+        return new ClientHandler(server, (Socket) null);
+    }
+}
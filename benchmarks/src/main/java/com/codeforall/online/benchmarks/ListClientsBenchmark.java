@@ -0,0 +1,69 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import com.codeforall.online.chatserver.transport.EncodedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the first {@code /list} page with {@link ChatServer#listClients(String, int)}:
+ * served from the cache, and rebuilt after every rename.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ListClientsBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int clients;
+
+    private ChatServer server;
+    private ClientHandler renamed;
+    private boolean toggle;
+
+    /**
+     * Fills the server with joined clients.
+     */
+    @Setup
+    public void setUp() {
+        server = ChatFixture.newServer();
+        renamed = ChatFixture.joinedClients(server, clients)[0];
+    }
+
+    /**
+     * Gets the client list while nobody joins or leaves.
+     *
+     * @return the list, so the JIT cannot drop the work
+     */
+    @Benchmark
+    public EncodedMessage listClients() {
+        return server.listClients(null, 1);
+    }
+
+    /**
+     * Renames a client, then gets the client list, so every call renders a page.
+     *
+     * @return the list, so the JIT cannot drop the work
+     */
+    @Benchmark
+    public EncodedMessage listClientsAfterRename() {
+        toggle = !toggle;
+        server.renameClient(renamed, toggle ? "renamed" : "user-0");
+        return server.listClients(null, 1);
+    }
+}
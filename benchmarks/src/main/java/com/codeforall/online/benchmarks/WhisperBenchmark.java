@@ -0,0 +1,85 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.chatserver.ChatServer;
+import com.codeforall.online.chatserver.ClientHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ChatServer#whisper(String, String, ClientHandler)}: the
+ * name lookup plus queueing the message. Targets are drawn from a fixed
+ * seed so every run visits the same names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WhisperBenchmark {
+
+    private static final int TARGETS = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int clients;
+
+    private ChatServer server;
+    private ClientHandler[] handlers;
+    private String[] targetNames;
+    private int[] targetIndexes;
+    private int next;
+
+    /**
+     * Fills the server with joined clients and picks the whisper targets.
+     */
+    @Setup
+    public void setUp() {
+        server = ChatFixture.newServer();
+        handlers = ChatFixture.joinedClients(server, clients);
+
+        Random random = new Random(42);
+        targetNames = new String[TARGETS];
+        targetIndexes = new int[TARGETS];
+        for (int i = 0; i < TARGETS; i++) {
+            targetIndexes[i] = random.nextInt(clients);
+            targetNames[i] = "USER-" + targetIndexes[i];
+        }
+    }
+
+    /**
+     * Whispers to an existing client, looked up with different case.
+     *
+     * @param sink consumes the delivered buffer
+     * @return whether the whisper was delivered
+     */
+    @Benchmark
+    public boolean whisperHit(Blackhole sink) {
+        int i = next++ & (TARGETS - 1);
+        boolean delivered = server.whisper(targetNames[i], "psst", handlers[0]);
+        ChatFixture.drain(handlers[targetIndexes[i]], sink);
+        return delivered;
+    }
+
+    /**
+     * Whispers to a name nobody uses.
+     *
+     * @return whether the whisper was delivered
+     */
+    @Benchmark
+    public boolean whisperMiss() {
+        return server.whisper("nobody", "psst", handlers[0]);
+    }
+}